@@ -21,6 +21,8 @@ public interface BalanceFuture extends Future {
 
     public abstract Object getSessionKey();
 
+    public abstract int getFutureId();
+
     public abstract boolean isBroadcast();
 
     public abstract void setBroadcast(boolean broadcast);
@@ -22,6 +22,7 @@ import com.generallycloud.baseio.balance.NoneLoadFutureAcceptor;
 import com.generallycloud.baseio.balance.reverse.BalanceReverseLogger;
 import com.generallycloud.baseio.balance.reverse.BalanceReverseSocketSession;
 import com.generallycloud.baseio.balance.router.BalanceRouter;
+import com.generallycloud.baseio.common.ReleaseUtil;
 import com.generallycloud.baseio.component.ExceptionCaughtHandle;
 import com.generallycloud.baseio.component.IoEventHandleAdaptor;
 import com.generallycloud.baseio.component.SocketSession;
@@ -55,6 +56,7 @@ public abstract class BalanceFacadeAcceptorHandler extends IoEventHandleAdaptor
 
         if (facadeInterceptor.intercept(fs, f)) {
             logger.info("msg intercepted [ {} ], msg: {}", fs.getRemoteSocketAddress(), f);
+            ReleaseUtil.release(f);
             return;
         }
 
@@ -62,6 +64,7 @@ public abstract class BalanceFacadeAcceptorHandler extends IoEventHandleAdaptor
 
         if (rs == null || rs.isClosed()) {
             noneLoadReadFutureAcceptor.accept(fs, f, balanceReverseLogger);
+            ReleaseUtil.release(f);
             return;
         }
 
@@ -71,10 +74,18 @@ public abstract class BalanceFacadeAcceptorHandler extends IoEventHandleAdaptor
     protected abstract void doAccept(BalanceFacadeSocketSession fs, BalanceReverseSocketSession rs,
             BalanceFuture future);
 
+    /**
+     * 转发模式下f在写出后即被释放，需要在此之前完成对f的读取
+     */
+    protected void dispatch(BalanceReverseSocketSession rs, BalanceFuture f) {
+        balanceRouter.onRequest(rs, f);
+        rs.flush(f.translate());
+    }
+
     protected void logDispatchMsg(BalanceFacadeSocketSession fs, BalanceReverseSocketSession rs,
             BalanceFuture f) {
 
-        logger.info("dispatch msg: F:[ {} ],T:[ {} ], msg :{}",
+        logger.debug("dispatch msg: F:[ {} ],T:[ {} ], msg :{}",
                 new Object[] { fs.getRemoteSocketAddress(), rs.getRemoteSocketAddress(), f });
     }
 
@@ -34,9 +34,9 @@ public class SessionIdBalanceFacadeAcceptorHandler extends BalanceFacadeAcceptor
 
         f.setSessionId(fs.getSessionId());
 
-        rs.flush(f.translate());
-
         logDispatchMsg(fs, rs, f);
+
+        dispatch(rs, f);
     }
 
 }
@@ -19,6 +19,7 @@ import com.generallycloud.baseio.balance.BalanceContext;
 import com.generallycloud.baseio.balance.BalanceFuture;
 import com.generallycloud.baseio.balance.TokenBalanceFuture;
 import com.generallycloud.baseio.balance.reverse.BalanceReverseSocketSession;
+import com.generallycloud.baseio.common.ReleaseUtil;
 import com.generallycloud.baseio.protocol.Future;
 
 public abstract class TokenBalanceFacadeAcceptorHandler extends BalanceFacadeAcceptorHandler {
@@ -35,12 +36,13 @@ public abstract class TokenBalanceFacadeAcceptorHandler extends BalanceFacadeAcc
 
         if (f.getToken() == 0) {
             fs.flush(createTokenPacket(fs));
+            ReleaseUtil.release(f);
             return;
         }
 
-        rs.flush(f.translate());
-
         logDispatchMsg(fs, rs, f);
+
+        dispatch(rs, f);
     }
 
     protected abstract Future createTokenPacket(BalanceFacadeSocketSession session);
@@ -15,10 +15,12 @@
  */
 package com.generallycloud.baseio.balance.reverse;
 
+import com.generallycloud.baseio.acceptor.SocketChannelAcceptor;
 import com.generallycloud.baseio.balance.BalanceContext;
 import com.generallycloud.baseio.balance.BalanceFuture;
 import com.generallycloud.baseio.balance.facade.BalanceFacadeAcceptor;
 import com.generallycloud.baseio.balance.router.BalanceRouter;
+import com.generallycloud.baseio.common.ReleaseUtil;
 import com.generallycloud.baseio.component.ExceptionCaughtHandle;
 import com.generallycloud.baseio.component.IoEventHandleAdaptor;
 import com.generallycloud.baseio.component.SocketSession;
@@ -48,25 +50,36 @@ public class BalanceReverseAcceptorHandler extends IoEventHandleAdaptor {
 
         if (f.isBroadcast()) {
 
-            balanceFacadeAcceptor.getAcceptor().broadcast(f.translate());
-
             balanceReverseLogger.logBroadcast(session, future, logger);
 
+            SocketChannelAcceptor acceptor = balanceFacadeAcceptor.getAcceptor();
+
+            if (acceptor.getManagedSessionSize() == 0) {
+                ReleaseUtil.release(f);
+                return;
+            }
+
+            acceptor.broadcast(f.translate());
+
             return;
         }
 
+        balanceRouter.onResponse((BalanceReverseSocketSession) session, f);
+
         SocketSession response = balanceRouter.getClientSession(f.getSessionKey());
 
         if (response == null || response.isClosed()) {
 
             balanceReverseLogger.logPushLost(session, future, logger);
 
+            ReleaseUtil.release(f);
+
             return;
         }
 
-        response.flush(f.translate());
-
         balanceReverseLogger.logPush(session, response, future, logger);
+
+        response.flush(f.translate());
     }
 
     @Override
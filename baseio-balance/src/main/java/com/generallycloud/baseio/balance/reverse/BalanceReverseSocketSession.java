@@ -15,9 +15,17 @@
  */
 package com.generallycloud.baseio.balance.reverse;
 
+import com.generallycloud.baseio.balance.router.ReverseStats;
 import com.generallycloud.baseio.balance.router.VirtualMachine;
 import com.generallycloud.baseio.component.SocketSession;
 
 public interface BalanceReverseSocketSession extends SocketSession, VirtualMachine {
 
+    public abstract ReverseStats getReverseStats();
+
+    /**
+     * @return 等待写出的future数
+     */
+    public abstract int getWriteBacklog();
+
 }
@@ -15,14 +15,27 @@
  */
 package com.generallycloud.baseio.balance.reverse;
 
+import com.generallycloud.baseio.balance.router.ReverseStats;
 import com.generallycloud.baseio.component.SocketChannel;
 import com.generallycloud.baseio.component.UnsafeSocketSessionImpl;
 
 public class BalanceReverseSocketSessionImpl extends UnsafeSocketSessionImpl
         implements BalanceReverseSocketSession {
 
+    private ReverseStats reverseStats = new ReverseStats();
+
     public BalanceReverseSocketSessionImpl(SocketChannel channel) {
         super(channel);
     }
 
+    @Override
+    public ReverseStats getReverseStats() {
+        return reverseStats;
+    }
+
+    @Override
+    public int getWriteBacklog() {
+        return getChannel().getWriteFutureSize();
+    }
+
 }
@@ -18,6 +18,7 @@ package com.generallycloud.baseio.balance.router;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import com.generallycloud.baseio.balance.BalanceFuture;
 import com.generallycloud.baseio.balance.facade.BalanceFacadeSocketSession;
 import com.generallycloud.baseio.balance.reverse.BalanceReverseSocketSession;
 
@@ -44,4 +45,10 @@ public abstract class AbstractBalanceRouter implements BalanceRouter {
     public BalanceReverseSocketSession getRouterSession(BalanceFacadeSocketSession session) {
         return session.getReverseSocketSession();
     }
+
+    @Override
+    public void onRequest(BalanceReverseSocketSession session, BalanceFuture future) {}
+
+    @Override
+    public void onResponse(BalanceReverseSocketSession session, BalanceFuture future) {}
 }
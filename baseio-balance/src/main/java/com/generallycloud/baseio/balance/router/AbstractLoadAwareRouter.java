@@ -0,0 +1,269 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.balance.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.generallycloud.baseio.balance.BalanceFuture;
+import com.generallycloud.baseio.balance.facade.BalanceFacadeSocketSession;
+import com.generallycloud.baseio.balance.reverse.BalanceReverseSocketSession;
+import com.generallycloud.baseio.log.Logger;
+import com.generallycloud.baseio.log.LoggerFactory;
+import com.generallycloud.baseio.protocol.Future;
+
+/**
+ * 按负载路由每个请求：随机选取两个未被摘除的reverse session，选择{@link #cost}较小的一个
+ * (power of two choices)。
+ * <br>
+ * 以(sessionKey, futureId)关联请求与响应，统计每个reverse session未响应的请求数与延迟，
+ * 超过timeout未响应的请求计为失败。连续失败maxFailures次，或延迟超过所有session
+ * 延迟中位数的outlierFactor倍的session被摘除ejectionTime * 摘除次数(最多10倍)，
+ * 同时被摘除的session不超过半数。
+ * <br>
+ * 路由时只读取session数组与统计，不加锁，增删session时整体替换数组
+ *
+ * @author wangkai
+ *
+ */
+public abstract class AbstractLoadAwareRouter extends AbstractBalanceRouter {
+
+    private Logger                                 logger        = LoggerFactory
+            .getLogger(getClass());
+    private volatile BalanceReverseSocketSession[] sessions      = new BalanceReverseSocketSession[0];
+    private ConcurrentHashMap<Long, Inflight>      inflights     = new ConcurrentHashMap<>();
+    private AtomicLong                             nextCheckTime = new AtomicLong();
+    private long                                   timeout       = 30 * 1000;
+    private long                                   decayTime     = 10 * 1000;
+    private long                                   checkInterval = 1000;
+    private int                                    maxFailures   = 5;
+    private double                                 outlierFactor = 5;
+    private long                                   ejectionTime  = 30 * 1000;
+
+    @Override
+    public synchronized void addRouterSession(BalanceReverseSocketSession session) {
+        BalanceReverseSocketSession[] sessions = this.sessions;
+        BalanceReverseSocketSession[] newSessions = Arrays.copyOf(sessions, sessions.length + 1);
+        newSessions[sessions.length] = session;
+        this.sessions = newSessions;
+    }
+
+    @Override
+    public synchronized void removeRouterSession(BalanceReverseSocketSession session) {
+        List<BalanceReverseSocketSession> list = new ArrayList<>(Arrays.asList(sessions));
+        if (list.remove(session)) {
+            this.sessions = list.toArray(new BalanceReverseSocketSession[list.size()]);
+        }
+    }
+
+    @Override
+    public BalanceReverseSocketSession getRouterSession(BalanceFacadeSocketSession session,
+            Future future) {
+        BalanceReverseSocketSession[] sessions = this.sessions;
+        int size = sessions.length;
+        if (size == 0) {
+            return null;
+        }
+        if (size == 1) {
+            return sessions[0];
+        }
+        long now = System.currentTimeMillis();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(size);
+        int j = random.nextInt(size - 1);
+        if (j >= i) {
+            j++;
+        }
+        BalanceReverseSocketSession a = sessions[i];
+        BalanceReverseSocketSession b = sessions[j];
+        boolean aEjected = a.getReverseStats().isEjected(now);
+        boolean bEjected = b.getReverseStats().isEjected(now);
+        if (aEjected && bEjected) {
+            for (int k = 1; k < size; k++) {
+                BalanceReverseSocketSession s = sessions[(i + k) % size];
+                if (!s.getReverseStats().isEjected(now)) {
+                    return s;
+                }
+            }
+            // 全部被摘除时仍然转发
+            return a;
+        }
+        if (aEjected) {
+            return b;
+        }
+        if (bEjected) {
+            return a;
+        }
+        return cost(a) <= cost(b) ? a : b;
+    }
+
+    @Override
+    public BalanceReverseSocketSession getRouterSession(BalanceFacadeSocketSession session) {
+        return null;
+    }
+
+    /**
+     * @return 将请求转发给该session的代价，越小越优先
+     */
+    protected abstract double cost(BalanceReverseSocketSession session);
+
+    @Override
+    public void onRequest(BalanceReverseSocketSession session, BalanceFuture future) {
+        long now = System.currentTimeMillis();
+        long check = nextCheckTime.get();
+        if (now >= check && nextCheckTime.compareAndSet(check, now + checkInterval)) {
+            check(now);
+        }
+        Object sessionKey = future.getSessionKey();
+        if (sessionKey == null) {
+            return;
+        }
+        ReverseStats stats = session.getReverseStats();
+        // futureId重复的请求无法区分响应，不统计
+        if (inflights.putIfAbsent(key(sessionKey, future.getFutureId()),
+                new Inflight(stats, System.nanoTime(), now)) == null) {
+            stats.onRequest();
+        }
+    }
+
+    @Override
+    public void onResponse(BalanceReverseSocketSession session, BalanceFuture future) {
+        Object sessionKey = future.getSessionKey();
+        if (sessionKey == null) {
+            return;
+        }
+        Long key = key(sessionKey, future.getFutureId());
+        Inflight inflight = inflights.get(key);
+        if (inflight == null || inflight.stats != session.getReverseStats()) {
+            return;
+        }
+        if (inflights.remove(key, inflight)) {
+            long nowNanos = System.nanoTime();
+            inflight.stats.onResponse(nowNanos - inflight.startNanos, nowNanos,
+                    decayTime * 1000000);
+        }
+    }
+
+    private static Long key(Object sessionKey, int futureId) {
+        return ((long) sessionKey.hashCode() << 32) | (futureId & 0xffffffffL);
+    }
+
+    /**
+     * 清理超时的请求并摘除异常的session，同一时间只有一个线程执行
+     */
+    private void check(long now) {
+        long timeoutNanos = timeout * 1000000;
+        Iterator<Entry<Long, Inflight>> it = inflights.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry<Long, Inflight> entry = it.next();
+            Inflight inflight = entry.getValue();
+            if (now - inflight.startTime >= timeout
+                    && inflights.remove(entry.getKey(), inflight)) {
+                inflight.stats.onTimeout(timeoutNanos, System.nanoTime(), decayTime * 1000000);
+            }
+        }
+        BalanceReverseSocketSession[] sessions = this.sessions;
+        int size = sessions.length;
+        if (size < 2) {
+            return;
+        }
+        int ejected = 0;
+        int samples = 0;
+        double[] latencies = new double[size];
+        for (BalanceReverseSocketSession session : sessions) {
+            ReverseStats stats = session.getReverseStats();
+            if (stats.isEjected(now)) {
+                ejected++;
+            }
+            if (stats.hasLatency()) {
+                latencies[samples++] = stats.getLatency();
+            }
+        }
+        double median = 0;
+        if (samples >= 3) {
+            Arrays.sort(latencies, 0, samples);
+            median = latencies[samples / 2];
+        }
+        for (BalanceReverseSocketSession session : sessions) {
+            if (ejected * 2 >= size) {
+                return;
+            }
+            ReverseStats stats = session.getReverseStats();
+            if (stats.isEjected(now)) {
+                continue;
+            }
+            boolean failed = stats.getConsecutiveFailures() >= maxFailures;
+            boolean slow = median > 0 && stats.getLatency() > median * outlierFactor;
+            if (failed || slow) {
+                int times = Math.min(stats.getEjections() + 1, 10);
+                stats.eject(now + ejectionTime * times);
+                ejected++;
+                logger.info("reverse session [ {} ] ejected, {}", session, stats);
+            }
+        }
+    }
+
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * @param decayTime 延迟EWMA的衰减时间(毫秒)
+     */
+    public void setDecayTime(long decayTime) {
+        this.decayTime = decayTime;
+    }
+
+    public void setCheckInterval(long checkInterval) {
+        this.checkInterval = checkInterval;
+    }
+
+    public void setMaxFailures(int maxFailures) {
+        this.maxFailures = maxFailures;
+    }
+
+    public void setOutlierFactor(double outlierFactor) {
+        this.outlierFactor = outlierFactor;
+    }
+
+    public void setEjectionTime(long ejectionTime) {
+        this.ejectionTime = ejectionTime;
+    }
+
+    public BalanceReverseSocketSession[] getRouterSessions() {
+        return sessions;
+    }
+
+    static class Inflight {
+
+        final ReverseStats stats;
+        final long         startNanos;
+        final long         startTime;
+
+        Inflight(ReverseStats stats, long startNanos, long startTime) {
+            this.stats = stats;
+            this.startNanos = startNanos;
+            this.startTime = startTime;
+        }
+    }
+
+}
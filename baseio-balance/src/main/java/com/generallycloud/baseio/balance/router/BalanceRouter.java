@@ -15,6 +15,7 @@
  */
 package com.generallycloud.baseio.balance.router;
 
+import com.generallycloud.baseio.balance.BalanceFuture;
 import com.generallycloud.baseio.balance.facade.BalanceFacadeSocketSession;
 import com.generallycloud.baseio.balance.reverse.BalanceReverseSocketSession;
 import com.generallycloud.baseio.protocol.Future;
@@ -37,4 +38,14 @@ public interface BalanceRouter {
 
     public abstract void removeRouterSession(BalanceReverseSocketSession session);
 
+    /**
+     * 请求转发给reverse session之前调用
+     */
+    public abstract void onRequest(BalanceReverseSocketSession session, BalanceFuture future);
+
+    /**
+     * 收到reverse session的非广播消息时调用
+     */
+    public abstract void onResponse(BalanceReverseSocketSession session, BalanceFuture future);
+
 }
@@ -22,8 +22,19 @@ import com.generallycloud.baseio.protocol.Future;
 
 public class HashedBalanceRouter extends AbstractBalanceRouter {
 
-    public HashedBalanceRouter(int maxNode) {
-        this.virtualNodes = new VirtualNodes<>(maxNode);
+    /**
+     * @param replicas 每个reverse session在hash环上的虚拟节点数
+     */
+    public HashedBalanceRouter(int replicas) {
+        this(replicas, 0);
+    }
+
+    /**
+     * @param replicas 每个reverse session在hash环上的虚拟节点数
+     * @param loadFactor 允许超出平均负载的比例，0表示不限制负载
+     */
+    public HashedBalanceRouter(int replicas, double loadFactor) {
+        this.virtualNodes = new VirtualNodes<>(replicas, loadFactor);
     }
 
     private VirtualNodes<BalanceReverseSocketSession> virtualNodes;
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.balance.router;
+
+import com.generallycloud.baseio.balance.reverse.BalanceReverseSocketSession;
+
+/**
+ * 随机选取的两个reverse session中，选择未响应的请求数与等待写出的future数之和较小的一个
+ *
+ * @author wangkai
+ *
+ */
+public class LeastPendingRouter extends AbstractLoadAwareRouter {
+
+    @Override
+    protected double cost(BalanceReverseSocketSession session) {
+        return session.getReverseStats().getPending() + session.getWriteBacklog();
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.balance.router;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个reverse session的路由统计，由{@link AbstractLoadAwareRouter}维护：
+ * 未响应的请求数、请求到响应的延迟(按时间衰减的EWMA)、连续超时次数以及摘除状态。
+ * <br>
+ * 延迟以纳秒计，EWMA的权重为1 - e^(-距上次采样的时间 / decayTime)，
+ * 采样间隔越长，旧值的影响越小
+ *
+ * @author wangkai
+ *
+ */
+public class ReverseStats {
+
+    private AtomicInteger    pending             = new AtomicInteger();
+    private AtomicLong       requests            = new AtomicLong();
+    private AtomicLong       responses           = new AtomicLong();
+    private AtomicLong       timeouts            = new AtomicLong();
+    private AtomicInteger    consecutiveFailures = new AtomicInteger();
+    // 存放Double.doubleToLongBits，便于CAS
+    private AtomicLong       latency             = new AtomicLong();
+    private volatile long    lastSample;
+    private volatile boolean sampled;
+    private volatile long    ejectedUntil;
+    private volatile int     ejections;
+
+    protected void onRequest() {
+        requests.incrementAndGet();
+        pending.incrementAndGet();
+    }
+
+    protected void onResponse(long latencyNanos, long nowNanos, long decayNanos) {
+        responses.incrementAndGet();
+        pending.decrementAndGet();
+        consecutiveFailures.set(0);
+        sample(latencyNanos, nowNanos, decayNanos);
+    }
+
+    /**
+     * 超时的请求按超时时间计入延迟
+     */
+    protected void onTimeout(long timeoutNanos, long nowNanos, long decayNanos) {
+        timeouts.incrementAndGet();
+        pending.decrementAndGet();
+        consecutiveFailures.incrementAndGet();
+        sample(timeoutNanos, nowNanos, decayNanos);
+    }
+
+    private void sample(long latencyNanos, long nowNanos, long decayNanos) {
+        long last = lastSample;
+        lastSample = nowNanos;
+        boolean first = !sampled;
+        sampled = true;
+        double weight = 1 - Math.exp(-(double) (nowNanos - last) / decayNanos);
+        for (;;) {
+            long bits = latency.get();
+            double old = Double.longBitsToDouble(bits);
+            double value = old + (latencyNanos - old) * weight;
+            if (first) {
+                value = latencyNanos;
+            }
+            if (latency.compareAndSet(bits, Double.doubleToLongBits(value))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 摘除期间没有新的采样，恢复后以第一个采样重新计算延迟
+     */
+    protected void eject(long until) {
+        ejections++;
+        consecutiveFailures.set(0);
+        sampled = false;
+        ejectedUntil = until;
+    }
+
+    public boolean isEjected(long now) {
+        return now < ejectedUntil;
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    /**
+     * @return 请求到响应的延迟(EWMA，纳秒)，还没有响应时为0
+     */
+    public double getLatency() {
+        return Double.longBitsToDouble(latency.get());
+    }
+
+    public boolean hasLatency() {
+        return sampled;
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getResponses() {
+        return responses.get();
+    }
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    public int getEjections() {
+        return ejections;
+    }
+
+    public long getEjectedUntil() {
+        return ejectedUntil;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "pending: %d, latency: %.3fms, requests: %d, responses: %d, timeouts: %d, ejections: %d",
+                getPending(), getLatency() / 1000000, getRequests(), getResponses(),
+                getTimeouts(), getEjections());
+    }
+
+}
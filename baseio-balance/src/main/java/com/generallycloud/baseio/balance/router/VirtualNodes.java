@@ -16,135 +16,224 @@
 package com.generallycloud.baseio.balance.router;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * 一致性hash环，每个machine按权重在环上放置replicas * weight个虚拟节点，
+ * 以machine的toString计算虚拟节点的位置，toString需要唯一且在machine存活期间不变。
+ * <br>
+ * 增删machine时重新生成环并整体替换，查找不加锁。
+ * loadFactor大于0时启用bounded loads：每次查找计入一次负载，负载超过
+ * (1 + loadFactor) * 平均负载 * 权重的machine被跳过，顺时针选择下一个machine，
+ * 总负载超过一定值后所有负载减半，使负载反映最近的请求
+ *
  * @author wangkai
  *
  */
 public class VirtualNodes<T extends VirtualMachine> {
 
-    protected List<T> machines;
-
-    protected T[]     nodes;
-
-    private int       maxNode;
+    // 平均每个machine的负载超过该值时所有负载减半
+    private static final int     DECAY_THRESHOLD = 1024;
+
+    private int                  replicas;
+    private double               loadFactor;
+    private Map<T, Node<T>>      machines        = new LinkedHashMap<>();
+    private volatile Ring<T>     ring            = new Ring<>(new ArrayList<Node<T>>(), 0);
+    private AtomicLong           totalLoad       = new AtomicLong();
+    private AtomicBoolean        decaying        = new AtomicBoolean();
+
+    /**
+     * @param replicas 每单位权重的虚拟节点数
+     */
+    public VirtualNodes(int replicas) {
+        this(replicas, 0);
+    }
 
-    private int       addBenchIndex;
+    /**
+     * @param replicas 每单位权重的虚拟节点数
+     * @param loadFactor 允许超出平均负载的比例，0表示不限制
+     */
+    public VirtualNodes(int replicas, double loadFactor) {
+        if (replicas < 1) {
+            throw new IllegalArgumentException("illegal replicas: " + replicas);
+        }
+        this.replicas = replicas;
+        this.loadFactor = loadFactor;
+    }
 
-    private int       removeBenchIndex;
+    public void addMachine(T machine) {
+        addMachine(machine, 1);
+    }
 
-    @SuppressWarnings("unchecked")
-    public VirtualNodes(int nodes) {
-        this.machines = new ArrayList<>(nodes / 2);
-        this.nodes = (T[]) new VirtualMachine[nodes];
-        this.maxNode = nodes;
+    public synchronized void addMachine(T machine, int weight) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("illegal weight: " + weight);
+        }
+        machines.put(machine, new Node<>(machine, weight));
+        rebuild();
     }
 
-    public synchronized void addMachine(T machine) {
-        List<T> machines = this.machines;
-        T[] nodes = this.nodes;
-        int nsize = maxNode;
-        if (machines.size() == 0) {
-            machines.add(machine);
-            for (int i = 0; i < nsize; i++) {
-                nodes[i] = machine;
-            }
+    public synchronized void removeMachine(T machine) {
+        Node<T> node = machines.remove(machine);
+        if (node == null) {
             return;
         }
-        if (machines.size() == maxNode) {
-            throw new RuntimeException("max nodes " + maxNode);
-        }
-        int msize = machines.size();
-        int nmsize = msize + 1;
-        int remain = nmsize;
-        T replace = getNextAddBench(machines);
-        for (int i = 0; i < nsize;) {
-            if (nodes[i] == replace) {
-                nodes[i] = machine;
-                replace = getNextAddBench(machines);
-                i += remain;
-                remain = nmsize;
-                continue;
-            }
-            i++;
-            remain--;
-        }
-        goBackAddBench(machines);
-        machines.add(machine);
+        rebuild();
+        totalLoad.addAndGet(-node.load.get());
     }
 
-    private void goBackAddBench(List<T> machines) {
-        if (addBenchIndex == 0) {
-            addBenchIndex = machines.size() - 1;
-        } else {
-            addBenchIndex--;
-        }
+    private void rebuild() {
+        this.ring = new Ring<>(new ArrayList<>(machines.values()), replicas);
     }
 
-    private void goBackRemoveBench(List<T> machines) {
-        if (removeBenchIndex == 0) {
-            removeBenchIndex = machines.size() - 1;
-        } else {
-            removeBenchIndex--;
+    public List<T> getMachines() {
+        Node<T>[] nodes = ring.machines;
+        List<T> machines = new ArrayList<>(nodes.length);
+        for (Node<T> node : nodes) {
+            machines.add(node.machine);
         }
+        return machines;
     }
 
-    private void setAllMachine(T[] nodes, int nsize, T replace) {
-        for (int i = 0; i < nsize; i++) {
-            nodes[i] = replace;
+    /**
+     * @return hash在环上顺时针遇到的第一个machine，启用bounded loads时跳过
+     *         负载已满的machine，没有machine时返回null
+     */
+    public T getMachine(int hash) {
+        Ring<T> ring = this.ring;
+        int[] points = ring.points;
+        if (points.length == 0) {
+            return null;
+        }
+        int index = Arrays.binarySearch(points, mix(hash));
+        if (index < 0) {
+            index = -index - 1;
+            if (index == points.length) {
+                index = 0;
+            }
         }
+        if (loadFactor <= 0) {
+            return ring.nodes[index].machine;
+        }
+        return getBoundedMachine(ring, index);
     }
 
-    private void reIndexOfBench(List<T> machines, T machine) {
-        int i = machines.indexOf(machine);
-        if (i < addBenchIndex) {
-            goBackAddBench(machines);
+    private T getBoundedMachine(Ring<T> ring, int index) {
+        long total = totalLoad.incrementAndGet();
+        if (total > (long) DECAY_THRESHOLD * ring.machines.length) {
+            decay(ring);
         }
-        if (i < removeBenchIndex) {
-            goBackRemoveBench(machines);
+        // 包含此次请求在内的每单位权重的平均负载
+        double limit = (1 + loadFactor) * total / ring.totalWeight;
+        Node<T>[] nodes = ring.nodes;
+        int length = nodes.length;
+        Node<T> last = null;
+        for (int i = 0; i < length; i++) {
+            Node<T> node = nodes[index];
+            if (node != last) {
+                // 并发时可能略微超出，不影响整体的均衡
+                if (node.load.get() < Math.ceil(limit * node.weight)) {
+                    node.load.incrementAndGet();
+                    return node.machine;
+                }
+                last = node;
+            }
+            if (++index == length) {
+                index = 0;
+            }
         }
+        Node<T> node = nodes[index];
+        node.load.incrementAndGet();
+        return node.machine;
     }
 
-    public synchronized void removeMachine(T machine) {
-        List<T> machines = this.machines;
-        T[] nodes = this.nodes;
-        int nsize = maxNode;
-        reIndexOfBench(machines, machine);
-        machines.remove(machine);
-        if (machines.size() == 0) {
-            setAllMachine(nodes, nsize, null);
-            return;
-        } else if (machines.size() == 1) {
-            setAllMachine(nodes, nsize, machines.get(0));
+    private void decay(Ring<T> ring) {
+        if (!decaying.compareAndSet(false, true)) {
             return;
         }
-        for (int i = 0; i < nsize; i++) {
-            if (nodes[i] == machine) {
-                nodes[i] = getNextRemoveBench(machines);
-                continue;
-            }
+        for (Node<T> node : ring.machines) {
+            long load = node.load.get();
+            long half = load >> 1;
+            node.load.addAndGet(-half);
+            totalLoad.addAndGet(-half);
         }
+        decaying.set(false);
     }
 
-    private T getNextAddBench(List<T> machines) {
-        if (addBenchIndex >= machines.size()) {
-            addBenchIndex = 1;
-            return machines.get(0);
+    public long getLoad(T machine) {
+        for (Node<T> node : ring.machines) {
+            if (node.machine == machine) {
+                return node.load.get();
+            }
         }
-        return machines.get(addBenchIndex++);
+        return 0;
+    }
+
+    // murmur3 fmix32，连续的hash也能均匀分布在环上
+    static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
     }
 
-    private T getNextRemoveBench(List<T> machines) {
-        if (removeBenchIndex >= machines.size()) {
-            removeBenchIndex = 1;
-            return machines.get(0);
+    static class Node<T> {
+
+        final T          machine;
+        final int        weight;
+        final AtomicLong load = new AtomicLong();
+
+        Node(T machine, int weight) {
+            this.machine = machine;
+            this.weight = weight;
         }
-        return machines.get(removeBenchIndex++);
     }
 
-    public T getMachine(int hash) {
-        return nodes[hash % maxNode];
+    /**
+     * 不可变的环，points升序排列，nodes[i]为points[i]所属的machine
+     */
+    static class Ring<T> {
+
+        final int[]     points;
+        final Node<T>[] nodes;
+        final Node<T>[] machines;
+        final int       totalWeight;
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        Ring(List<Node<T>> machines, int replicas) {
+            this.machines = machines.toArray(new Node[machines.size()]);
+            int totalWeight = 0;
+            for (Node<T> node : this.machines) {
+                totalWeight += node.weight;
+            }
+            int size = totalWeight * replicas;
+            // 高32位为位置，低32位为machine下标，排序后得到环
+            long[] keys = new long[size];
+            int index = 0;
+            for (int m = 0; m < this.machines.length; m++) {
+                Node<T> node = this.machines[m];
+                int seed = String.valueOf(node.machine).hashCode();
+                for (int r = 0, count = node.weight * replicas; r < count; r++) {
+                    int point = mix(seed + r * 0x9e3779b9);
+                    keys[index++] = ((long) point << 32) | m;
+                }
+            }
+            Arrays.sort(keys);
+            this.points = new int[size];
+            this.nodes = new Node[size];
+            for (int i = 0; i < size; i++) {
+                points[i] = (int) (keys[i] >> 32);
+                nodes[i] = this.machines[(int) keys[i]];
+            }
+            this.totalWeight = totalWeight;
+        }
     }
 
 }
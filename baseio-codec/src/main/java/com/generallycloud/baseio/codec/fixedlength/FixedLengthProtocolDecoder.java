@@ -52,6 +52,8 @@ public class FixedLengthProtocolDecoder implements ProtocolDecoder {
 
     private int             limit;
 
+    private boolean         decodeInPlace;
+
     public FixedLengthProtocolDecoder(int limit) {
         this.limit = limit;
     }
@@ -59,8 +61,34 @@ public class FixedLengthProtocolDecoder implements ProtocolDecoder {
     @Override
     public ChannelFuture decode(SocketChannel channel, ByteBuf buffer) throws IOException {
 
+        // 完整的报文已经在读缓冲区中时由future直接从中解析，不再分配和复制
+        if (decodeInPlace && isFrameReadable(buffer)) {
+            return new FixedLengthFutureImpl(channel, null, limit);
+        }
+
         return new FixedLengthFutureImpl(channel,
                 channel.getByteBufAllocator().allocate(PROTOCOL_HEADER), limit);
     }
 
+    private boolean isFrameReadable(ByteBuf buffer) {
+        int remaining = buffer.remaining() - PROTOCOL_HEADER;
+        if (remaining < 0) {
+            return false;
+        }
+        int length = buffer.getInt(buffer.position());
+        // 心跳与非法的长度交给原有的流程处理
+        return length > 0 && length <= limit && remaining >= length;
+    }
+
+    public boolean isDecodeInPlace() {
+        return decodeInPlace;
+    }
+
+    /**
+     * 为true时，已经完整读取到的报文直接从selector的读缓冲区中解析
+     */
+    public void setDecodeInPlace(boolean decodeInPlace) {
+        this.decodeInPlace = decodeInPlace;
+    }
+
 }
@@ -26,7 +26,9 @@ public class FixedLengthProtocolFactory implements ProtocolFactory {
     public void initialize(SocketChannelContext context) {
     }
 
-    private int limit;
+    private int     limit;
+
+    private boolean decodeInPlace;
 
     public FixedLengthProtocolFactory() {
         this(1024 * 8);
@@ -38,7 +40,20 @@ public class FixedLengthProtocolFactory implements ProtocolFactory {
 
     @Override
     public ProtocolDecoder getProtocolDecoder(SocketChannelContext context) {
-        return new FixedLengthProtocolDecoder(limit);
+        FixedLengthProtocolDecoder decoder = new FixedLengthProtocolDecoder(limit);
+        decoder.setDecodeInPlace(decodeInPlace);
+        return decoder;
+    }
+
+    public boolean isDecodeInPlace() {
+        return decodeInPlace;
+    }
+
+    /**
+     * 为true时，报文已经完整的在读缓冲区中时不再复制，直接解析出readText
+     */
+    public void setDecodeInPlace(boolean decodeInPlace) {
+        this.decodeInPlace = decodeInPlace;
     }
 
     @Override
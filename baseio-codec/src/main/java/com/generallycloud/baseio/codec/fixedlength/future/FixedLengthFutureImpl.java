@@ -16,10 +16,12 @@
 package com.generallycloud.baseio.codec.fixedlength.future;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.CharsetDecoder;
 
 import com.generallycloud.baseio.buffer.ByteBuf;
+import com.generallycloud.baseio.buffer.EmptyByteBuf;
 import com.generallycloud.baseio.codec.fixedlength.FixedLengthProtocolDecoder;
 import com.generallycloud.baseio.component.SocketChannel;
 import com.generallycloud.baseio.component.SocketChannelContext;
@@ -68,6 +70,23 @@ public class FixedLengthFutureImpl extends AbstractChannelFuture implements Fixe
 
         ByteBuf buf = this.buf;
 
+        if (buf == null) {
+            // decoder已经确认完整的报文都在src中，直接从中解析
+            this.buf = EmptyByteBuf.getInstance();
+            this.header_complete = true;
+            this.body_complete = true;
+            int length = src.getInt();
+            int position = src.position();
+            int limit = src.limit();
+            ByteBuffer memory = src.nioBuffer();
+            memory.limit(memory.position() + length);
+            doBodyComplete(memory);
+            // direct buf的nioBuffer即是src本身的状态，需要还原
+            src.limit(limit);
+            src.position(position + length);
+            return true;
+        }
+
         if (!header_complete) {
 
             buf.read(src);
@@ -91,17 +110,17 @@ public class FixedLengthFutureImpl extends AbstractChannelFuture implements Fixe
 
             body_complete = true;
 
-            doBodyComplete(buf.flip());
+            doBodyComplete(buf.flip().nioBuffer());
         }
 
         return true;
     }
 
-    private void doBodyComplete(ByteBuf buf) throws CharacterCodingException {
+    private void doBodyComplete(ByteBuffer buffer) throws CharacterCodingException {
 
         CharsetDecoder decoder = context.getEncoding().newDecoder();
 
-        this.readText = decoder.decode(buf.nioBuffer()).toString();
+        this.readText = decoder.decode(buffer).toString();
     }
 
 }
@@ -24,6 +24,9 @@ public class ClientHTTPProtocolFactory implements ProtocolFactory {
     
     @Override
     public void initialize(SocketChannelContext context) {
+        if (WebSocketProtocolFactory.WS_PROTOCOL_FACTORY == null) {
+            WebSocketProtocolFactory.init(context, 1024 * 8);
+        }
     }
     
     private int headerLimit;
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.codec.http11;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 不保留压缩上下文（no_context_takeover）时各连接共享的Deflater/Inflater，
+ * 只在一条消息的编解码期间被占用，内存占用取决于同时编解码的消息数而不是连接数，
+ * 空闲实例超过size时直接end掉
+ */
+class DeflatePool {
+
+    private int                          level;
+    private ArrayBlockingQueue<Deflater> deflaters;
+    private ArrayBlockingQueue<Inflater> inflaters;
+
+    DeflatePool(int level, int size) {
+        this.level = level;
+        this.deflaters = new ArrayBlockingQueue<>(size);
+        this.inflaters = new ArrayBlockingQueue<>(size);
+    }
+
+    Deflater pollDeflater() {
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            return new Deflater(level, true);
+        }
+        return deflater;
+    }
+
+    Inflater pollInflater() {
+        Inflater inflater = inflaters.poll();
+        if (inflater == null) {
+            return new Inflater(true);
+        }
+        return inflater;
+    }
+
+    void offer(Deflater deflater) {
+        deflater.reset();
+        if (!deflaters.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    void offer(Inflater inflater) {
+        inflater.reset();
+        if (!inflaters.offer(inflater)) {
+            inflater.end();
+        }
+    }
+
+}
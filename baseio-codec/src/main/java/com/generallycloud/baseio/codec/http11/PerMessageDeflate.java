@@ -0,0 +1,306 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.codec.http11;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.generallycloud.baseio.component.ByteArrayBuffer;
+
+/**
+ * RFC 7692 permessage-deflate，每个websocket连接一个实例。
+ * <p>
+ * 保留压缩上下文的方向由连接独占Deflater/Inflater（首次使用时创建），压缩率最高，
+ * 但每个连接约占用300KB的native内存；协商了no_context_takeover的方向每条消息
+ * 从{@link DeflatePool}借用，消息结束后归还。
+ * <p>
+ * JDK的Deflater无法设置窗口大小（固定为32K），因此不接受server_max_window_bits小于15的offer，
+ * 发出的offer中也不包含client_max_window_bits
+ * <p>
+ * deflate在flush线程、inflate在selector线程中执行，连接关闭时由{@link #close()}
+ * 分别在两个方向的锁内释放Deflater/Inflater
+ */
+public class PerMessageDeflate {
+
+    public static final String  EXTENSION_NAME = "permessage-deflate";
+
+    // SYNC_FLUSH产生的空stored block，发送时去掉，接收时补上
+    private static final byte[] TAIL           = { 0, 0, (byte) 0xff, (byte) 0xff };
+
+    private DeflatePool         pool;
+    private int                 level;
+    private boolean             deflateNoContextTakeover;
+    private boolean             inflateNoContextTakeover;
+    private String              extension;
+    private Deflater            deflater;
+    private Inflater            inflater;
+    private final Object        deflateLock    = new Object();
+    private final Object        inflateLock    = new Object();
+    private volatile boolean    closed;
+
+    PerMessageDeflate(DeflatePool pool, int level, boolean deflateNoContextTakeover,
+            boolean inflateNoContextTakeover, String extension) {
+        this.pool = pool;
+        this.level = level;
+        this.deflateNoContextTakeover = deflateNoContextTakeover;
+        this.inflateNoContextTakeover = inflateNoContextTakeover;
+        this.extension = extension;
+    }
+
+    /**
+     * 服务端从客户端的Sec-WebSocket-Extensions中选择第一个可以接受的offer
+     * @return 没有可以接受的offer时返回null
+     */
+    static PerMessageDeflate negotiate(String extensions, DeflatePool pool, int level,
+            boolean contextTakeover) {
+        for (String offer : extensions.split(",")) {
+            String[] params = offer.split(";");
+            if (!EXTENSION_NAME.equalsIgnoreCase(params[0].trim())) {
+                continue;
+            }
+            boolean serverNoContextTakeover = !contextTakeover;
+            boolean clientNoContextTakeover = !contextTakeover;
+            boolean accept = true;
+            for (int i = 1; i < params.length && accept; i++) {
+                String param = params[i].trim();
+                String value = null;
+                int index = param.indexOf('=');
+                if (index != -1) {
+                    value = unquote(param.substring(index + 1).trim());
+                    param = param.substring(0, index).trim();
+                }
+                if ("server_no_context_takeover".equals(param)) {
+                    serverNoContextTakeover = true;
+                    accept = value == null;
+                } else if ("client_no_context_takeover".equals(param)) {
+                    clientNoContextTakeover = true;
+                    accept = value == null;
+                } else if ("server_max_window_bits".equals(param)) {
+                    accept = "15".equals(value);
+                } else if ("client_max_window_bits".equals(param)) {
+                    accept = value == null || isWindowBits(value);
+                } else {
+                    accept = false;
+                }
+            }
+            if (!accept) {
+                continue;
+            }
+            StringBuilder response = new StringBuilder(EXTENSION_NAME);
+            if (serverNoContextTakeover) {
+                response.append("; server_no_context_takeover");
+            }
+            if (clientNoContextTakeover) {
+                response.append("; client_no_context_takeover");
+            }
+            return new PerMessageDeflate(pool, level, serverNoContextTakeover,
+                    clientNoContextTakeover, response.toString());
+        }
+        return null;
+    }
+
+    /**
+     * 客户端根据服务端响应的Sec-WebSocket-Extensions创建
+     */
+    static PerMessageDeflate accept(String extensions, DeflatePool pool, int level) {
+        String[] params = extensions.split(";");
+        if (extensions.indexOf(',') != -1 || !EXTENSION_NAME.equalsIgnoreCase(params[0].trim())) {
+            throw new IllegalArgumentException("unsupported websocket extensions: " + extensions);
+        }
+        boolean serverNoContextTakeover = false;
+        boolean clientNoContextTakeover = false;
+        for (int i = 1; i < params.length; i++) {
+            String param = params[i].trim();
+            int index = param.indexOf('=');
+            if (index != -1) {
+                param = param.substring(0, index).trim();
+            }
+            if ("server_no_context_takeover".equals(param)) {
+                serverNoContextTakeover = true;
+            } else if ("client_no_context_takeover".equals(param)) {
+                clientNoContextTakeover = true;
+            } else if (!"server_max_window_bits".equals(param)) {
+                throw new IllegalArgumentException("unsupported permessage-deflate param: " + param);
+            }
+        }
+        return new PerMessageDeflate(pool, level, clientNoContextTakeover, serverNoContextTakeover,
+                extensions);
+    }
+
+    private static String unquote(String value) {
+        if (value.length() > 1 && value.charAt(0) == '"'
+                && value.charAt(value.length() - 1) == '"') {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    private static boolean isWindowBits(String value) {
+        try {
+            int bits = Integer.parseInt(value);
+            return bits >= 8 && bits <= 15;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 压缩一条消息或分片消息中的一片，fin为true时消息结束，去掉结尾的00 00 ff ff
+     */
+    public ByteArrayBuffer deflate(byte[] data, int off, int len, boolean fin)
+            throws IOException {
+        synchronized (deflateLock) {
+            if (closed) {
+                throw new IOException("permessage-deflate closed");
+            }
+            return deflate0(data, off, len, fin);
+        }
+    }
+
+    private ByteArrayBuffer deflate0(byte[] data, int off, int len, boolean fin) {
+        Deflater deflater = this.deflater;
+        if (deflater == null) {
+            deflater = deflateNoContextTakeover && pool != null ? pool.pollDeflater()
+                    : new Deflater(level, true);
+            this.deflater = deflater;
+        }
+        deflater.setInput(data, off, len);
+        byte[] out = new byte[len / 2 + 64];
+        int count = 0;
+        for (;;) {
+            count += deflater.deflate(out, count, out.length - count, Deflater.SYNC_FLUSH);
+            if (count < out.length) {
+                break;
+            }
+            out = Arrays.copyOf(out, out.length << 1);
+        }
+        if (fin) {
+            count -= TAIL.length;
+            if (deflateNoContextTakeover) {
+                if (pool == null) {
+                    deflater.reset();
+                } else {
+                    pool.offer(deflater);
+                    this.deflater = null;
+                }
+            }
+        }
+        return new ByteArrayBuffer(out, count);
+    }
+
+    /**
+     * 解压一条消息或分片消息中的一片，fin为true时消息结束
+     * @param limit 解压后的最大长度
+     */
+    public byte[] inflate(byte[] data, boolean fin, int limit) throws IOException {
+        synchronized (inflateLock) {
+            if (closed) {
+                throw new IOException("permessage-deflate closed");
+            }
+            return inflate0(data, fin, limit);
+        }
+    }
+
+    private byte[] inflate0(byte[] data, boolean fin, int limit) throws IOException {
+        Inflater inflater = this.inflater;
+        if (inflater == null) {
+            inflater = inflateNoContextTakeover && pool != null ? pool.pollInflater()
+                    : new Inflater(true);
+            this.inflater = inflater;
+        }
+        if (fin) {
+            byte[] input = Arrays.copyOf(data, data.length + TAIL.length);
+            System.arraycopy(TAIL, 0, input, data.length, TAIL.length);
+            data = input;
+        }
+        inflater.setInput(data);
+        // 多申请一个字节用于判断是否超出limit
+        int capacity = limit + 1;
+        byte[] out = new byte[Math.min(Math.max(data.length << 2, 256), capacity)];
+        int count = 0;
+        try {
+            for (;;) {
+                count += inflater.inflate(out, count, out.length - count);
+                if (count < out.length) {
+                    if (inflater.needsDictionary()) {
+                        throw new IOException("permessage-deflate: unexpected dictionary");
+                    }
+                    break;
+                }
+                if (out.length == capacity) {
+                    break;
+                }
+                out = Arrays.copyOf(out, Math.min(out.length << 1, capacity));
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("permessage-deflate: " + e.getMessage(), e);
+        }
+        if (count > limit) {
+            throw new IOException("inflated data too long, limit: " + limit);
+        }
+        if (fin) {
+            if (inflateNoContextTakeover && pool != null) {
+                pool.offer(inflater);
+                this.inflater = null;
+            } else if (inflateNoContextTakeover || inflater.finished()) {
+                // 对方使用了BFINAL时也无法再引用之前的窗口
+                inflater.reset();
+            }
+        }
+        return count == out.length ? out : Arrays.copyOf(out, count);
+    }
+
+    /**
+     * 连接关闭时调用，独占的Deflater/Inflater直接end，消息中途从DeflatePool借用的归还，
+     * 之后的deflate/inflate抛出IOException，可以重复调用
+     */
+    public void close() {
+        closed = true;
+        synchronized (deflateLock) {
+            Deflater deflater = this.deflater;
+            if (deflater != null) {
+                this.deflater = null;
+                if (deflateNoContextTakeover && pool != null) {
+                    pool.offer(deflater);
+                } else {
+                    deflater.end();
+                }
+            }
+        }
+        synchronized (inflateLock) {
+            Inflater inflater = this.inflater;
+            if (inflater != null) {
+                this.inflater = null;
+                if (inflateNoContextTakeover && pool != null) {
+                    pool.offer(inflater);
+                } else {
+                    inflater.end();
+                }
+            }
+        }
+    }
+
+    /**
+     * 握手响应中的Sec-WebSocket-Extensions
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+}
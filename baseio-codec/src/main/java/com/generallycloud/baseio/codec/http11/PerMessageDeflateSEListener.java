@@ -0,0 +1,39 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.codec.http11;
+
+import com.generallycloud.baseio.component.SocketSession;
+import com.generallycloud.baseio.component.SocketSessionEventListenerAdapter;
+import com.generallycloud.baseio.protocol.ProtocolDecoder;
+
+/**
+ * session关闭时释放permessage-deflate占用的Deflater/Inflater，
+ * encoder与decoder共用同一个PerMessageDeflate
+ */
+class PerMessageDeflateSEListener extends SocketSessionEventListenerAdapter {
+
+    @Override
+    public void sessionClosed(SocketSession session) {
+        ProtocolDecoder decoder = session.getProtocolDecoder();
+        if (decoder instanceof WebSocketProtocolDecoder) {
+            PerMessageDeflate deflate = ((WebSocketProtocolDecoder) decoder).getDeflate();
+            if (deflate != null) {
+                deflate.close();
+            }
+        }
+    }
+
+}
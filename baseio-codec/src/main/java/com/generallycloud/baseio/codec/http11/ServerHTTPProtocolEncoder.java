@@ -41,25 +41,32 @@ public class ServerHTTPProtocolEncoder extends AbstractHttpProtocolEncoder {
         f.setResponseHeader("Date",
                 HttpHeaderDateFormat.getFormat().format(System.currentTimeMillis()));
 
+        long fileLength = f.getWriteFileLength();
+
+        if (fileLength > 0) {
+            encode(allocator, f, fileLength, 0, null);
+            return;
+        }
+
         ByteArrayBuffer os = f.getBinaryBuffer();
 
         if (os != null) {
-            encode(allocator, f, os.size(), os.array());
+            encode(allocator, f, os.size(), os.size(), os.array());
             return;
         }
 
         ByteArrayBuffer buffer = f.getWriteBuffer();
 
         if (buffer == null) {
-            encode(allocator, f, 0, null);
+            encode(allocator, f, 0, 0, null);
             return;
         }
 
-        encode(allocator, f, buffer.size(), buffer.array());
+        encode(allocator, f, buffer.size(), buffer.size(), buffer.array());
     }
 
-    private void encode(ByteBufAllocator allocator, ServerHttpFuture f, int length, byte[] array)
-            throws IOException {
+    private void encode(ByteBufAllocator allocator, ServerHttpFuture f, long contentLength,
+            int length, byte[] array) throws IOException {
 
         ByteBuf buf = allocator.allocate(256);
 
@@ -68,7 +75,7 @@ public class ServerHTTPProtocolEncoder extends AbstractHttpProtocolEncoder {
             buf.put(PROTOCOL);
             buf.put(f.getStatus().getHeaderBinary());
             buf.put(SERVER_CL);
-            buf.put(String.valueOf(length).getBytes());
+            buf.put(String.valueOf(contentLength).getBytes());
             buf.put(RN);
 
             writeHeaders(f, buf);
@@ -22,11 +22,13 @@ import com.generallycloud.baseio.protocol.ProtocolFactory;
 
 public class ServerHTTPProtocolFactory implements ProtocolFactory {
 
-    private int bodyLimit      = 1024 * 512;
+    private int                      bodyLimit      = 1024 * 512;
 
-    private int headerLimit    = 1024 * 8;
+    private int                      headerLimit    = 1024 * 8;
 
-    private int websocketLimit = 1024 * 8;
+    private int                      websocketLimit = 1024 * 8;
+
+    private WebSocketProtocolFactory webSocketProtocolFactory;
 
     public ServerHTTPProtocolFactory() {
     }
@@ -59,6 +61,18 @@ public class ServerHTTPProtocolFactory implements ProtocolFactory {
 
     @Override
     public void initialize(SocketChannelContext context) {
-        WebSocketProtocolFactory.init(context, websocketLimit);
+        if (webSocketProtocolFactory == null) {
+            WebSocketProtocolFactory.init(context, websocketLimit);
+            return;
+        }
+        webSocketProtocolFactory.initialize(context);
+    }
+
+    /**
+     * 自定义升级后使用的WebSocketProtocolFactory（如开启permessage-deflate），
+     * 设置后websocketLimit不再生效
+     */
+    public void setWebSocketProtocolFactory(WebSocketProtocolFactory webSocketProtocolFactory) {
+        this.webSocketProtocolFactory = webSocketProtocolFactory;
     }
 }
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.codec.http11;
+
+import java.io.IOException;
+
+import com.generallycloud.baseio.buffer.ByteBufAllocator;
+import com.generallycloud.baseio.codec.http11.future.WebSocketFuture;
+import com.generallycloud.baseio.component.ByteArrayBuffer;
+import com.generallycloud.baseio.protocol.ChannelFuture;
+import com.generallycloud.baseio.protocol.StatefulProtocolEncoder;
+
+/**
+ * 协商了permessage-deflate的连接使用的encoder，每个连接一个实例。
+ * 小于threshold的单帧消息不压缩，分片消息由第一帧决定是否压缩，
+ * 控制帧不压缩
+ */
+public class WebSocketDeflateEncoder extends WebSocketProtocolEncoder
+        implements StatefulProtocolEncoder {
+
+    private PerMessageDeflate deflate;
+    private int               threshold;
+    // 正在发送的分片消息是否压缩
+    private boolean           compressing;
+
+    public WebSocketDeflateEncoder(PerMessageDeflate deflate, int threshold) {
+        this.deflate = deflate;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void encode(ByteBufAllocator allocator, ChannelFuture future) throws IOException {
+
+        WebSocketFuture f = (WebSocketFuture) future;
+
+        int type = f.getType();
+
+        if (type >= WebSocketFuture.OP_CONNECTION_CLOSE_FRAME) {
+            super.encode(allocator, future);
+            return;
+        }
+
+        ByteArrayBuffer buffer = future.getWriteBuffer();
+
+        int size = buffer == null ? 0 : buffer.size();
+
+        boolean eof = f.isEof();
+
+        boolean compress;
+
+        if (type == WebSocketFuture.OP_CONTINUATION_FRAME) {
+            compress = compressing;
+        } else {
+            compress = !eof || size >= threshold;
+        }
+
+        compressing = compress && !eof;
+
+        if (!compress) {
+            super.encode(allocator, future);
+            return;
+        }
+
+        byte[] data = buffer == null ? new byte[0] : buffer.array();
+
+        ByteArrayBuffer out = deflate.deflate(data, 0, size, eof);
+
+        encode(allocator, future, type, eof, type != WebSocketFuture.OP_CONTINUATION_FRAME,
+                out.array(), out.size());
+    }
+
+}
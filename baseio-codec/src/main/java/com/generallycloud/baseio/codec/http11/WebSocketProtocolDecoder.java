@@ -16,6 +16,13 @@
 package com.generallycloud.baseio.codec.http11;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
 
 import com.generallycloud.baseio.buffer.ByteBuf;
 import com.generallycloud.baseio.codec.http11.future.WebSocketFutureImpl;
@@ -52,25 +59,163 @@ import com.generallycloud.baseio.protocol.ProtocolDecoder;
  */
 public class WebSocketProtocolDecoder implements ProtocolDecoder {
 
-    public static final int PROTOCOL_HEADER = 2;
+    public static final int   PROTOCOL_HEADER   = 2;
 
-    public static final int TYPE_TEXT       = 1;
-    public static final int TYPE_BINARY     = 2;
-    public static final int TYPE_CLOSE      = 8;
-    public static final int TYPE_PING       = 9;
-    public static final int TYPE_PONG       = 10;
+    public static final int   TYPE_CONTINUATION = 0;
+    public static final int   TYPE_TEXT         = 1;
+    public static final int   TYPE_BINARY       = 2;
+    public static final int   TYPE_CLOSE        = 8;
+    public static final int   TYPE_PING         = 9;
+    public static final int   TYPE_PONG         = 10;
 
-    private int             limit;
+    private int               limit;
+    private PerMessageDeflate deflate;
+    // 正在接收的分片消息的类型，0表示没有未结束的消息
+    private int               messageType;
+    private boolean           messageCompressed;
+    private CharsetDecoder    textDecoder;
+    // 分片text消息中被截断的字符
+    private byte[]            textRemain;
 
     public WebSocketProtocolDecoder(int limit) {
+        this(limit, null);
+    }
+
+    /**
+     * 记录了分片消息的状态，每个连接一个实例
+     * @param deflate 未协商permessage-deflate时为null
+     */
+    public WebSocketProtocolDecoder(int limit, PerMessageDeflate deflate) {
         this.limit = limit;
+        this.deflate = deflate;
     }
 
     @Override
     public ChannelFuture decode(SocketChannel channel, ByteBuf buffer) throws IOException {
 
         return new WebSocketFutureImpl(channel,
-                channel.getByteBufAllocator().allocate(PROTOCOL_HEADER), limit);
+                channel.getByteBufAllocator().allocate(PROTOCOL_HEADER), this);
+    }
+
+    /**
+     * 未协商permessage-deflate时为null
+     */
+    public PerMessageDeflate getDeflate() {
+        return deflate;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * 校验帧头，data frame的第一帧记录消息的类型和是否压缩
+     * @return 该帧所属消息的类型，控制帧返回自身的类型
+     */
+    public int readFrameHeader(int type, boolean eof, boolean rsv1) throws IOException {
+        if (type >= TYPE_CLOSE) {
+            if (type > TYPE_PONG || !eof || rsv1) {
+                throw new IOException("illegal control frame, opcode: " + type);
+            }
+            return type;
+        }
+        if (type == TYPE_CONTINUATION) {
+            if (messageType == TYPE_CONTINUATION || rsv1) {
+                throw new IOException("unexpected continuation frame");
+            }
+            return messageType;
+        }
+        if (type > TYPE_BINARY) {
+            throw new IOException("unknown opcode: " + type);
+        }
+        if (messageType != TYPE_CONTINUATION) {
+            throw new IOException("expected continuation frame");
+        }
+        if (rsv1 && deflate == null) {
+            throw new IOException("unexpected rsv1");
+        }
+        messageType = type;
+        messageCompressed = rsv1;
+        return type;
+    }
+
+    /**
+     * 解压data frame的payload，eof为true时当前消息结束
+     */
+    public byte[] inflate(byte[] payload, boolean eof) throws IOException {
+        if (!messageCompressed) {
+            return payload;
+        }
+        return deflate.inflate(payload, eof, limit);
+    }
+
+    /**
+     * 解码text消息，分片消息在分片之间保留被截断的字符
+     * @param single 该帧是否为完整的消息
+     */
+    public String decodeText(Charset charset, byte[] payload, boolean single, boolean eof) {
+        if (single) {
+            return new String(payload, charset);
+        }
+        CharsetDecoder decoder = textDecoder;
+        if (decoder == null || !decoder.charset().equals(charset)) {
+            decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            textDecoder = decoder;
+        }
+        ByteBuffer in;
+        if (textRemain == null) {
+            in = ByteBuffer.wrap(payload);
+        } else {
+            byte[] array = Arrays.copyOf(textRemain, textRemain.length + payload.length);
+            System.arraycopy(payload, 0, array, textRemain.length, payload.length);
+            in = ByteBuffer.wrap(array);
+            textRemain = null;
+        }
+        CharBuffer out = CharBuffer.allocate((int) (in.remaining() * decoder.maxCharsPerByte()) + 1);
+        decoder.decode(in, out, eof);
+        if (eof) {
+            decoder.flush(out);
+            decoder.reset();
+        } else if (in.hasRemaining()) {
+            textRemain = new byte[in.remaining()];
+            in.get(textRemain);
+        }
+        out.flip();
+        return out.toString();
+    }
+
+    /**
+     * 最后一帧处理完成后调用
+     */
+    public void messageComplete() {
+        messageType = TYPE_CONTINUATION;
+        messageCompressed = false;
+    }
+
+    /**
+     * 在buf的内存上直接unmask position到limit之间的数据，每次处理8个字节
+     */
+    public static void unmask(ByteBuf buf, byte[] mask) {
+        ByteBuffer memory = buf.nioBuffer();
+        int index = buf.offset() + buf.position();
+        int end = buf.offset() + buf.limit();
+        int intMask = ((mask[0] & 0xff) << 24) | ((mask[1] & 0xff) << 16)
+                | ((mask[2] & 0xff) << 8) | (mask[3] & 0xff);
+        if (memory.order() == ByteOrder.LITTLE_ENDIAN) {
+            intMask = Integer.reverseBytes(intMask);
+        }
+        long longMask = ((long) intMask << 32) | (intMask & 0xffffffffL);
+        for (; index + 8 <= end; index += 8) {
+            memory.putLong(index, memory.getLong(index) ^ longMask);
+        }
+        if (index + 4 <= end) {
+            memory.putInt(index, memory.getInt(index) ^ intMask);
+            index += 4;
+        }
+        for (int i = 0; index < end; i++, index++) {
+            memory.put(index, (byte) (memory.get(index) ^ mask[i]));
+        }
     }
 
 }
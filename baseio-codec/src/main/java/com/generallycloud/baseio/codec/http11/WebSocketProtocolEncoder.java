@@ -20,7 +20,6 @@ import java.io.IOException;
 import com.generallycloud.baseio.buffer.ByteBuf;
 import com.generallycloud.baseio.buffer.ByteBufAllocator;
 import com.generallycloud.baseio.codec.http11.future.WebSocketFuture;
-import com.generallycloud.baseio.common.MathUtil;
 import com.generallycloud.baseio.component.ByteArrayBuffer;
 import com.generallycloud.baseio.protocol.ChannelFuture;
 import com.generallycloud.baseio.protocol.ProtocolEncoder;
@@ -29,7 +28,9 @@ import com.generallycloud.baseio.protocol.ProtocolEncoder;
 //A server MUST NOT mask any frames that it sends to the client.
 public class WebSocketProtocolEncoder implements ProtocolEncoder {
 
-    final int MAX_UNSIGNED_SHORT = (1 << 16) - 1;
+    static final int            MAX_UNSIGNED_SHORT = (1 << 16) - 1;
+
+    private static final byte[] EMPTY_ARRAY        = new byte[0];
 
     @Override
     public void encode(ByteBufAllocator allocator, ChannelFuture future) throws IOException {
@@ -38,33 +39,50 @@ public class WebSocketProtocolEncoder implements ProtocolEncoder {
 
         ByteArrayBuffer buffer = future.getWriteBuffer();
 
-        byte[] header;
+        if (buffer == null) {
+            encode(allocator, future, f.getType(), f.isEof(), false, EMPTY_ARRAY, 0);
+            return;
+        }
+
+        encode(allocator, future, f.getType(), f.isEof(), false, buffer.array(), buffer.size());
+    }
 
-        byte[] data = buffer.array();
+    protected void encode(ByteBufAllocator allocator, ChannelFuture future, int type, boolean eof,
+            boolean rsv1, byte[] data, int size) {
 
-        int size = buffer.size();
+        int header0 = type & 0xf;
 
-        byte header0 = (byte) (0x8f & (f.getType() | 0xf0));
+        if (eof) {
+            header0 |= 0x80;
+        }
+
+        if (rsv1) {
+            header0 |= 0x40;
+        }
+
+        int headerLength;
 
         if (size < 126) {
-            header = new byte[2];
-            header[0] = header0;
-            header[1] = (byte) size;
+            headerLength = 2;
         } else if (size <= MAX_UNSIGNED_SHORT) {
-            header = new byte[4];
-            header[0] = header0;
-            header[1] = 126;
-            MathUtil.unsignedShort2Byte(header, size, 2);
+            headerLength = 4;
         } else {
-            header = new byte[6];
-            header[0] = header0;
-            header[1] = 127;
-            MathUtil.int2Byte(header, size, 2);
+            headerLength = 10;
         }
 
-        ByteBuf buf = allocator.allocate(header.length + size);
+        ByteBuf buf = allocator.allocate(headerLength + size);
+
+        buf.putByte((byte) header0);
 
-        buf.put(header);
+        if (size < 126) {
+            buf.putByte((byte) size);
+        } else if (size <= MAX_UNSIGNED_SHORT) {
+            buf.putByte((byte) 126);
+            buf.putUnsignedShort(size);
+        } else {
+            buf.putByte((byte) 127);
+            buf.putLong(size);
+        }
 
         buf.put(data, 0, size);
 
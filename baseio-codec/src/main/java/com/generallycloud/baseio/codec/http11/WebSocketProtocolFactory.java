@@ -15,6 +15,8 @@
  */
 package com.generallycloud.baseio.codec.http11;
 
+import java.util.zip.Deflater;
+
 import com.generallycloud.baseio.component.SocketChannelContext;
 import com.generallycloud.baseio.protocol.ProtocolDecoder;
 import com.generallycloud.baseio.protocol.ProtocolEncoder;
@@ -23,19 +25,27 @@ import com.generallycloud.baseio.protocol.ProtocolFactory;
 public class WebSocketProtocolFactory implements ProtocolFactory {
 
     public static WebSocketProtocolFactory WS_PROTOCOL_FACTORY;
-    public static ProtocolDecoder          WS_PROTOCOL_DECODER;
     public static ProtocolEncoder          WS_PROTOCOL_ENCODER;
 
     @Override
     public void initialize(SocketChannelContext context) {
         WS_PROTOCOL_FACTORY = this;
         WS_PROTOCOL_ENCODER = getProtocolEncoder(context);
-        WS_PROTOCOL_DECODER = getProtocolDecoder(context);
+        if (deflate && deflatePool == null) {
+            deflatePool = new DeflatePool(deflateLevel, deflatePoolSize);
+        }
+        context.addSessionEventListener(new PerMessageDeflateSEListener());
     }
 
-    public static final String PROTOCOL_ID = "WebSocket";
+    public static final String PROTOCOL_ID            = "WebSocket";
 
     private int                limit;
+    private boolean            deflate;
+    private boolean            deflateContextTakeover = true;
+    private int                deflateLevel           = Deflater.DEFAULT_COMPRESSION;
+    private int                deflateThreshold       = 128;
+    private int                deflatePoolSize        = 64;
+    private DeflatePool        deflatePool;
 
     public WebSocketProtocolFactory() {
         this(1024 * 8);
@@ -45,6 +55,9 @@ public class WebSocketProtocolFactory implements ProtocolFactory {
         this.limit = limit;
     }
 
+    /**
+     * decoder记录了分片消息的状态，每个连接需要单独的实例
+     */
     @Override
     public ProtocolDecoder getProtocolDecoder(SocketChannelContext context) {
         return new WebSocketProtocolDecoder(limit);
@@ -55,13 +68,107 @@ public class WebSocketProtocolFactory implements ProtocolFactory {
         return new WebSocketProtocolEncoder();
     }
 
+    /**
+     * @param deflate 未协商permessage-deflate时为null
+     */
+    public ProtocolDecoder getProtocolDecoder(PerMessageDeflate deflate) {
+        return new WebSocketProtocolDecoder(limit, deflate);
+    }
+
+    /**
+     * @param deflate 未协商permessage-deflate时为null，返回共享的encoder
+     */
+    public ProtocolEncoder getProtocolEncoder(PerMessageDeflate deflate) {
+        if (deflate == null) {
+            return WS_PROTOCOL_ENCODER;
+        }
+        return new WebSocketDeflateEncoder(deflate, deflateThreshold);
+    }
+
+    /**
+     * 服务端根据客户端的Sec-WebSocket-Extensions协商permessage-deflate
+     * @return 未开启压缩或没有可以接受的offer时返回null
+     */
+    public PerMessageDeflate negotiateDeflate(String extensions) {
+        if (!deflate || extensions == null) {
+            return null;
+        }
+        return PerMessageDeflate.negotiate(extensions, deflatePool, deflateLevel,
+                deflateContextTakeover);
+    }
+
+    /**
+     * 客户端根据服务端响应的Sec-WebSocket-Extensions创建，
+     * 响应中包含不支持的扩展时抛出IllegalArgumentException
+     */
+    public PerMessageDeflate acceptDeflate(String extensions) {
+        if (extensions == null) {
+            return null;
+        }
+        return PerMessageDeflate.accept(extensions, deflatePool, deflateLevel);
+    }
+
     @Override
     public String getProtocolId() {
         return PROTOCOL_ID;
     }
-    
-    public static void init(SocketChannelContext context,int limit){
+
+    public boolean isDeflate() {
+        return deflate;
+    }
+
+    /**
+     * 是否接受客户端的permessage-deflate offer，默认false
+     */
+    public void setDeflate(boolean deflate) {
+        this.deflate = deflate;
+    }
+
+    public boolean isDeflateContextTakeover() {
+        return deflateContextTakeover;
+    }
+
+    /**
+     * true（默认）：每个连接保留自己的压缩窗口，压缩率最高，每个连接约300KB内存；
+     * false：协商server_no_context_takeover和client_no_context_takeover，
+     * 所有连接共享Deflater/Inflater，内存占用取决于同时编解码的消息数
+     */
+    public void setDeflateContextTakeover(boolean deflateContextTakeover) {
+        this.deflateContextTakeover = deflateContextTakeover;
+    }
+
+    public int getDeflateLevel() {
+        return deflateLevel;
+    }
+
+    public void setDeflateLevel(int deflateLevel) {
+        this.deflateLevel = deflateLevel;
+    }
+
+    public int getDeflateThreshold() {
+        return deflateThreshold;
+    }
+
+    /**
+     * 小于该长度的单帧消息不压缩
+     */
+    public void setDeflateThreshold(int deflateThreshold) {
+        this.deflateThreshold = deflateThreshold;
+    }
+
+    public int getDeflatePoolSize() {
+        return deflatePoolSize;
+    }
+
+    /**
+     * 共享的Deflater/Inflater各自最多保留的空闲实例数
+     */
+    public void setDeflatePoolSize(int deflatePoolSize) {
+        this.deflatePoolSize = deflatePoolSize;
+    }
+
+    public static void init(SocketChannelContext context, int limit) {
         new WebSocketProtocolFactory(limit).initialize(context);
     }
-    
+
 }
@@ -16,12 +16,16 @@
 package com.generallycloud.baseio.codec.http11.future;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import com.generallycloud.baseio.buffer.ByteBuf;
+import com.generallycloud.baseio.codec.http11.PerMessageDeflate;
 import com.generallycloud.baseio.codec.http11.WebSocketProtocolFactory;
 import com.generallycloud.baseio.common.BASE64Util;
 import com.generallycloud.baseio.common.KMPByteUtil;
@@ -37,8 +41,10 @@ import com.generallycloud.baseio.component.SocketChannelContext;
 import com.generallycloud.baseio.protocol.AbstractChannelFuture;
 import com.generallycloud.baseio.protocol.ChannelFuture;
 
-//FIXME 改进header parser
 /**
+ * 读取时只在ByteBuf上扫描请求头的结束位置，再整段复制到headerArray中（通常一次读取即可
+ * 得到完整请求头，此时数组大小恰好等于请求头长度），请求头完整后才切分每一行，
+ * 每个header只记录名称和值的位置，常见的header名称直接使用HttpHeader中的常量，值在使用时才解码
  * 
  * Content-Type: application/x-www-form-urlencoded</BR> Content-Type:
  * multipart/form-data; boundary=----WebKitFormBoundaryKA6dsRskWA4CdJek
@@ -49,6 +55,12 @@ public abstract class AbstractHttpFuture extends AbstractChannelFuture implement
     protected static final KMPUtil                  KMP_BOUNDARY        = new KMPUtil("boundary=");
     protected static final KMPByteUtil              KMP_HEADER          = new KMPByteUtil(
             "\r\n\r\n".getBytes());
+    protected static final String                   METHOD_GET          = "GET";
+    protected static final String                   METHOD_POST         = "POST";
+    protected static final String                   VERSION_HTTP_1_1    = "HTTP/1.1";
+    private static final byte[]                     VERSION_1_1_BYTES   = VERSION_HTTP_1_1
+            .getBytes();
+    private static final int                        HEADER_ARRAY_SIZE   = 512;
 
     protected ByteArrayBuffer                       binaryBuffer;
     protected boolean                               body_complete;
@@ -59,12 +71,21 @@ public abstract class AbstractHttpFuture extends AbstractChannelFuture implement
     protected String                                contentType;
     protected List<Cookie>                          cookieList;
     protected Map<String, String>                   cookies;
-    protected StringBuilder                         currentHeaderLine;
     protected boolean                               hasBodyContent;
     protected boolean                               header_complete;
     protected int                                   headerLength;
     protected int                                   headerLimit;
-    protected List<String>                          headerLines;;
+    // 请求头原始字节，包含\r\n
+    protected byte[]                                headerArray;
+    protected int                                   headerSize;
+    // 每个header占4个int：名称offset，名称length，值offset，值length
+    protected int[]                                 headerSlices;
+    protected String[]                              headerNames;
+    protected int                                   headerCount;
+    // 已读到的非空行数，用于请求头完整后分配headerSlices
+    private int                                     headerLines;
+    // 当前行是否还没有除\r以外的内容
+    private boolean                                 lineEmpty           = true;
     protected String                                host;
     protected String                                method;
     protected Map<String, String>                   params;
@@ -75,9 +96,11 @@ public abstract class AbstractHttpFuture extends AbstractChannelFuture implement
     protected SocketChannel                         channel;
     protected HttpStatus                            status              = HttpStatus.C200;
     protected String                                version;
+    protected long                                  writeFileLength;
 
     private MapParameters                           mapParameters;
     private boolean                                 updateWebSocketProtocol;
+    private PerMessageDeflate                       webSocketDeflate;
 
     public AbstractHttpFuture(SocketChannelContext context) {
         super(context);
@@ -89,10 +112,6 @@ public abstract class AbstractHttpFuture extends AbstractChannelFuture implement
         this.channel = channel;
         this.headerLimit = headerLimit;
         this.bodyLimit = bodyLimit;
-        this.cookies = new HashMap<>();
-        this.request_headers = new HashMap<>();
-        this.headerLines = new ArrayList<>();
-        this.currentHeaderLine = new StringBuilder();
     }
 
     @Override
@@ -126,49 +145,18 @@ public abstract class AbstractHttpFuture extends AbstractChannelFuture implement
         }
     }
 
-    public void doHeaderComplete(SocketChannel channel, List<String> headerLines) {
+    protected void doHeaderComplete(SocketChannel channel) throws IOException {
 
-        parseFirstLine(headerLines.get(0));
+        host = getRequestHeader(HttpHeader.HOST);
 
-        for (int i = 1; i < headerLines.size(); i++) {
+        int contentLength = parseContentLength();
 
-            String l = headerLines.get(i);
-
-            int p = l.indexOf(":");
-
-            if (p == -1) {
-                setRequestHeader(l, null);
-                continue;
-            }
-
-            String name = l.substring(0, p).trim();
-
-            String value = l.substring(p + 1).trim();
-
-            setRequestHeader(name, value);
-        }
-
-        host = getRequestHeader("Host");
-
-        String _contentLength = getRequestHeader(HttpHeader.CONTENT_LENGTH);
-
-        int contentLength = 0;
-
-        if (!StringUtil.isNullOrBlank(_contentLength)) {
-            contentLength = Integer.parseInt(_contentLength);
-            this.contentLength = contentLength;
-        }
+        this.contentLength = contentLength;
 
         String contentType = getRequestHeader(HttpHeader.CONTENT_TYPE);
 
         parseContentType(contentType);
 
-        String cookie = getRequestHeader("Cookie");
-
-        if (!StringUtil.isNullOrBlank(cookie)) {
-            parse_cookies(cookie, cookies);
-        }
-
         if (contentLength < 1) {
             body_complete = true;
             return;
@@ -185,9 +173,11 @@ public abstract class AbstractHttpFuture extends AbstractChannelFuture implement
 
         if (updateWebSocketProtocol) {
 
-            channel.setProtocolDecoder(WebSocketProtocolFactory.WS_PROTOCOL_DECODER);
-            channel.setProtocolEncoder(WebSocketProtocolFactory.WS_PROTOCOL_ENCODER);
-            channel.setProtocolFactory(WebSocketProtocolFactory.WS_PROTOCOL_FACTORY);
+            WebSocketProtocolFactory factory = WebSocketProtocolFactory.WS_PROTOCOL_FACTORY;
+
+            channel.setProtocolDecoder(factory.getProtocolDecoder(webSocketDeflate));
+            channel.setProtocolEncoder(factory.getProtocolEncoder(webSocketDeflate));
+            channel.setProtocolFactory(factory);
 
             channel.getSession().setAttribute(WebSocketFuture.SESSION_KEY_SERVICE_NAME, getFutureName());
         }
@@ -200,6 +190,16 @@ public abstract class AbstractHttpFuture extends AbstractChannelFuture implement
         return binaryBuffer;
     }
 
+    @Override
+    public long getWriteFileLength() {
+        return writeFileLength;
+    }
+
+    @Override
+    public void setWriteFileLength(long writeFileLength) {
+        this.writeFileLength = writeFileLength;
+    }
+
     @Override
     public byte[] getBodyContent() {
         return bodyArray;
@@ -222,6 +222,13 @@ public abstract class AbstractHttpFuture extends AbstractChannelFuture implement
 
     @Override
     public String getCookie(String name) {
+        if (cookies == null) {
+            cookies = new HashMap<>();
+            String cookie = getRequestHeader(HttpHeader.COOKIE);
+            if (!StringUtil.isNullOrBlank(cookie)) {
+                parse_cookies(cookie, cookies);
+            }
+        }
         return cookies.get(name);
     }
 
@@ -260,15 +267,105 @@ public abstract class AbstractHttpFuture extends AbstractChannelFuture implement
             return null;
         }
 
-        //		return request_headers.get(name.toLowerCase());
-        return request_headers.get(name);
+        if (request_headers != null) {
+            return request_headers.get(name);
+        }
+
+        int index = indexOfHeader(name);
+
+        if (index == -1) {
+            return null;
+        }
+
+        return getHeaderValue(index);
     }
 
+    /**
+     * 与getRequestHeader(name)一致，名称不区分大小写，重复的header以第一个为准
+     */
     @Override
     public Map<String, String> getRequestHeaders() {
+        if (request_headers == null && channel != null) {
+            Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (int i = 0; i < headerCount; i++) {
+                String name = getHeaderName(i);
+                if (!headers.containsKey(name)) {
+                    headers.put(name, getHeaderValue(i));
+                }
+            }
+            request_headers = headers;
+        }
         return request_headers;
     }
 
+    private int indexOfHeader(String name) {
+        int[] slices = headerSlices;
+        for (int i = 0; i < headerCount; i++) {
+            int off = i * 4;
+            if (HttpHeader.equalsIgnoreCase(name, headerArray, slices[off], slices[off + 1])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String getHeaderName(int index) {
+        if (headerNames == null) {
+            headerNames = new String[headerCount];
+        }
+        String name = headerNames[index];
+        if (name == null) {
+            int off = index * 4;
+            int nameOff = headerSlices[off];
+            int nameLen = headerSlices[off + 1];
+            name = HttpHeader.intern(headerArray, nameOff, nameLen);
+            if (name == null) {
+                name = decode(nameOff, nameLen);
+            }
+            headerNames[index] = name;
+        }
+        return name;
+    }
+
+    private String getHeaderValue(int index) {
+        int off = index * 4;
+        int valueOff = headerSlices[off + 2];
+        if (valueOff == -1) {
+            return null;
+        }
+        return decode(valueOff, headerSlices[off + 3]);
+    }
+
+    protected String decode(int off, int len) {
+        return new String(headerArray, off, len, StandardCharsets.ISO_8859_1);
+    }
+
+    private int parseContentLength() throws IOException {
+        int index = indexOfHeader(HttpHeader.CONTENT_LENGTH);
+        if (index == -1) {
+            return 0;
+        }
+        int off = index * 4;
+        int valueOff = headerSlices[off + 2];
+        if (valueOff == -1) {
+            return 0;
+        }
+        byte[] array = headerArray;
+        int end = valueOff + headerSlices[off + 3];
+        long length = 0;
+        for (int i = valueOff; i < end; i++) {
+            byte b = array[i];
+            if (b < '0' || b > '9' || length > Integer.MAX_VALUE) {
+                throw new IOException("illegal content-length");
+            }
+            length = length * 10 + (b - '0');
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("illegal content-length");
+        }
+        return (int) length;
+    }
+
     @Override
     public String getRequestParam(String key) {
         return params.get(key);
@@ -355,7 +452,10 @@ public abstract class AbstractHttpFuture extends AbstractChannelFuture implement
 
     protected abstract void parseContentType(String contentType);
 
-    protected abstract void parseFirstLine(String line);
+    /**
+     * @param end 第一行结束的位置（不包含）
+     */
+    protected abstract void parseFirstLine(byte[] array, int off, int end);
 
     protected void parseParamString(String paramString) {
 
@@ -381,29 +481,152 @@ public abstract class AbstractHttpFuture extends AbstractChannelFuture implement
 
     private void readHeader(ByteBuf buffer) throws IOException {
 
-        for (; buffer.hasRemaining();) {
-
-            if (++headerLength > headerLimit) {
-                throw new IOException("max http header length " + headerLimit);
-            }
-
-            byte b = buffer.getByte();
+        int pos = buffer.position();
+        int limit = buffer.limit();
+        int end = limit;
+        int lines = headerLines;
+        boolean empty = lineEmpty;
 
+        for (int i = pos; i < limit; i++) {
+            byte b = buffer.getByte(i);
             if (b == '\n') {
-                if (currentHeaderLine.length() == 0) {
+                if (empty) {
                     header_complete = true;
+                    end = i + 1;
                     break;
-                } else {
-                    headerLines.add(currentHeaderLine.toString());
-                    currentHeaderLine.setLength(0);
                 }
+                lines++;
+                empty = true;
+            } else if (b != '\r') {
+                empty = false;
+            }
+        }
+
+        int len = end - pos;
+
+        headerLength += len;
+
+        if (headerLength > headerLimit) {
+            throw new IOException("max http header length " + headerLimit);
+        }
+
+        byte[] array = headerArray;
+        int size = headerSize;
+
+        if (array == null) {
+            array = new byte[header_complete ? len : Math.max(len * 2, HEADER_ARRAY_SIZE)];
+        } else if (size + len > array.length) {
+            array = Arrays.copyOf(array, Math.max(size + len, array.length * 2));
+        }
+
+        buffer.get(array, size, len);
+
+        headerArray = array;
+        headerSize = size + len;
+        headerLines = lines;
+        lineEmpty = empty;
+
+        if (header_complete) {
+            parseHeaderLines(lines);
+        }
+    }
+
+    private void parseHeaderLines(int lines) {
+
+        byte[] array = headerArray;
+
+        // 第一行为请求行（响应行），其余每行最多一个header
+        headerSlices = new int[Math.max(lines - 1, 0) * 4];
+
+        int lineStart = 0;
+
+        boolean firstLine = true;
+
+        for (int i = 0; i < headerSize; i++) {
+
+            if (array[i] != '\n') {
                 continue;
-            } else if (b == '\r') {
-                continue;
+            }
+
+            int end = i;
+
+            for (; end > lineStart && array[end - 1] == '\r'; end--);
+
+            if (end == lineStart) {
+                break;
+            }
+
+            if (firstLine) {
+                firstLine = false;
+                parseFirstLine(array, lineStart, end);
             } else {
-                currentHeaderLine.append((char) b);
+                onHeaderLine(lineStart, end);
+            }
+
+            lineStart = i + 1;
+        }
+    }
+
+    private void onHeaderLine(int lineStart, int end) {
+
+        byte[] array = headerArray;
+
+        int colon = indexOf(array, ':', lineStart, end);
+        int nameOff = lineStart;
+        int nameEnd = colon;
+        int valueOff = -1;
+        int valueEnd = -1;
+
+        if (colon != end) {
+            valueOff = colon + 1;
+            valueEnd = end;
+            for (; valueOff < valueEnd && isWhitespace(array[valueOff]); valueOff++);
+            for (; valueEnd > valueOff && isWhitespace(array[valueEnd - 1]); valueEnd--);
+        }
+
+        for (; nameOff < nameEnd && isWhitespace(array[nameOff]); nameOff++);
+        for (; nameEnd > nameOff && isWhitespace(array[nameEnd - 1]); nameEnd--);
+
+        if (nameOff == nameEnd) {
+            return;
+        }
+
+        int off = headerCount++ * 4;
+
+        int[] slices = headerSlices;
+        slices[off] = nameOff;
+        slices[off + 1] = nameEnd - nameOff;
+        slices[off + 2] = valueOff;
+        slices[off + 3] = valueEnd - valueOff;
+    }
+
+    /**
+     * @return b在array[off,end)中第一次出现的位置，没有时返回end
+     */
+    protected static int indexOf(byte[] array, char b, int off, int end) {
+        for (int i = off; i < end; i++) {
+            if (array[i] == b) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    protected String parseVersion(byte[] array, int off, int end) {
+        byte[] version = VERSION_1_1_BYTES;
+        if (end - off != version.length) {
+            return decode(off, end - off);
+        }
+        for (int i = 0; i < version.length; i++) {
+            if (array[off + i] != version[i]) {
+                return decode(off, end - off);
             }
         }
+        return VERSION_HTTP_1_1;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t';
     }
 
     @Override
@@ -417,7 +640,7 @@ public abstract class AbstractHttpFuture extends AbstractChannelFuture implement
                 return false;
             }
 
-            doHeaderComplete(channel, headerLines);
+            doHeaderComplete(channel);
         }
 
         if (!body_complete) {
@@ -439,7 +662,7 @@ public abstract class AbstractHttpFuture extends AbstractChannelFuture implement
     @Override
     public void setRequestHeader(String name, String value) {
 
-        if (request_headers == null) {
+        if (getRequestHeaders() == null) {
             throw new RuntimeException("did you want to set response header ?");
         }
 
@@ -447,7 +670,6 @@ public abstract class AbstractHttpFuture extends AbstractChannelFuture implement
             return;
         }
 
-        //		request_headers.put(name.toLowerCase(), value);
         request_headers.put(name, value);
     }
 
@@ -530,6 +752,13 @@ public abstract class AbstractHttpFuture extends AbstractChannelFuture implement
             setResponseHeader("Upgrade", "WebSocket");
             setResponseHeader("Sec-WebSocket-Accept", acceptKey);
 
+            webSocketDeflate = WebSocketProtocolFactory.WS_PROTOCOL_FACTORY
+                    .negotiateDeflate(getRequestHeader("Sec-WebSocket-Extensions"));
+
+            if (webSocketDeflate != null) {
+                setResponseHeader("Sec-WebSocket-Extensions", webSocketDeflate.getExtension());
+            }
+
             updateWebSocketProtocol = true;
             return;
         }
@@ -539,7 +768,7 @@ public abstract class AbstractHttpFuture extends AbstractChannelFuture implement
     @Override
     public void writeBinary(byte[] binary) {
         if (binaryBuffer == null) {
-            binaryBuffer = new ByteArrayBuffer(binary);
+            binaryBuffer = new ByteArrayBuffer(binary, binary.length);
             return;
         }
         binaryBuffer.write(binary);
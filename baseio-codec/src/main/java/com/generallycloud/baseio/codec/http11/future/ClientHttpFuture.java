@@ -18,6 +18,7 @@ package com.generallycloud.baseio.codec.http11.future;
 import java.util.Map;
 
 import com.generallycloud.baseio.buffer.ByteBuf;
+import com.generallycloud.baseio.codec.http11.PerMessageDeflate;
 import com.generallycloud.baseio.codec.http11.WebSocketProtocolFactory;
 import com.generallycloud.baseio.common.StringUtil;
 import com.generallycloud.baseio.component.SocketChannelContext;
@@ -42,9 +43,12 @@ public class ClientHttpFuture extends AbstractHttpFuture {
 
     @Override
     public void updateWebSocketProtocol() {
-        channel.setProtocolFactory(WebSocketProtocolFactory.WS_PROTOCOL_FACTORY);
-        channel.setProtocolDecoder(WebSocketProtocolFactory.WS_PROTOCOL_DECODER);
-        channel.setProtocolEncoder(WebSocketProtocolFactory.WS_PROTOCOL_ENCODER);
+        WebSocketProtocolFactory factory = WebSocketProtocolFactory.WS_PROTOCOL_FACTORY;
+        PerMessageDeflate deflate = factory
+                .acceptDeflate(getRequestHeader("Sec-WebSocket-Extensions"));
+        channel.setProtocolFactory(factory);
+        channel.setProtocolDecoder(factory.getProtocolDecoder(deflate));
+        channel.setProtocolEncoder(factory.getProtocolEncoder(deflate));
     }
 
     @Override
@@ -76,10 +80,13 @@ public class ClientHttpFuture extends AbstractHttpFuture {
     }
 
     @Override
-    protected void parseFirstLine(String line) {
-        int index = line.indexOf(' ');
-        int status = Integer.parseInt(line.substring(index + 1, index + 4));
-        this.version = line.substring(0, index);
+    protected void parseFirstLine(byte[] array, int off, int end) {
+        int index = indexOf(array, ' ', off, end);
+        int status = 0;
+        for (int i = index + 1; i < index + 4; i++) {
+            status = status * 10 + (array[i] - '0');
+        }
+        this.version = parseVersion(array, off, index);
         this.status = HttpStatus.getHttpStatus(status);
     }
 
@@ -114,4 +114,11 @@ public abstract interface HttpFuture extends NamedFuture, ParametersFuture {
     public abstract void writeBinary(byte[] binary);
 
     public abstract ByteArrayBuffer getBinaryBuffer();
+
+    /**
+     * 设置随后由FileRegionChannelFuture写出的body长度，设置后encode时只写出响应头
+     */
+    public abstract void setWriteFileLength(long length);
+
+    public abstract long getWriteFileLength();
 }
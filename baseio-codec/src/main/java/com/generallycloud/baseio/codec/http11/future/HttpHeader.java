@@ -17,11 +17,43 @@ package com.generallycloud.baseio.codec.http11.future;
 
 public class HttpHeader {
 
-    public static final String CONTENT_TYPE      = "Content-Type";
-    public static final String CONTENT_LENGTH    = "Content-Length";
-    public static final String CONNECTION        = "Connection";
-    public static final String LAST_MODIFIED     = "Last-Modified";
-    public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+    public static final String CONTENT_TYPE         = "Content-Type";
+    public static final String CONTENT_LENGTH       = "Content-Length";
+    public static final String CONNECTION           = "Connection";
+    public static final String LAST_MODIFIED        = "Last-Modified";
+    public static final String IF_MODIFIED_SINCE    = "If-Modified-Since";
+    public static final String HOST                 = "Host";
+    public static final String COOKIE               = "Cookie";
+    public static final String ACCEPT               = "Accept";
+    public static final String ACCEPT_ENCODING      = "Accept-Encoding";
+    public static final String ACCEPT_LANGUAGE      = "Accept-Language";
+    public static final String USER_AGENT           = "User-Agent";
+    public static final String CACHE_CONTROL        = "Cache-Control";
+    public static final String UPGRADE              = "Upgrade";
+    public static final String SEC_WEBSOCKET_KEY    = "Sec-WebSocket-Key";
+    public static final String SEC_WEBSOCKET_ACCEPT = "Sec-WebSocket-Accept";
+    public static final String ETAG                 = "ETag";
+    public static final String IF_NONE_MATCH        = "If-None-Match";
+    public static final String RANGE                = "Range";
+    public static final String IF_RANGE             = "If-Range";
+    public static final String CONTENT_RANGE        = "Content-Range";
+    public static final String ACCEPT_RANGES        = "Accept-Ranges";
+    public static final String CONTENT_ENCODING     = "Content-Encoding";
+    public static final String VARY                 = "Vary";
+
+    // 解析请求头时直接复用的常见header名称
+    private static final String[] KNOWN_NAMES = { CONTENT_TYPE, CONTENT_LENGTH, CONNECTION,
+            LAST_MODIFIED, IF_MODIFIED_SINCE, HOST, COOKIE, ACCEPT, ACCEPT_ENCODING,
+            ACCEPT_LANGUAGE, USER_AGENT, CACHE_CONTROL, UPGRADE, SEC_WEBSOCKET_KEY,
+            SEC_WEBSOCKET_ACCEPT, IF_NONE_MATCH, RANGE, IF_RANGE };
+
+    private static final byte[][] KNOWN_BYTES = new byte[KNOWN_NAMES.length][];
+
+    static {
+        for (int i = 0; i < KNOWN_NAMES.length; i++) {
+            KNOWN_BYTES[i] = KNOWN_NAMES[i].getBytes();
+        }
+    }
 
     private String             name;
 
@@ -47,4 +79,44 @@ public class HttpHeader {
         return key;
     }
 
+    /**
+     * @return array中[off,off+len)对应的常见header名称，不区分大小写，没有时返回null
+     */
+    public static String intern(byte[] array, int off, int len) {
+        for (int i = 0; i < KNOWN_BYTES.length; i++) {
+            if (equalsIgnoreCase(KNOWN_BYTES[i], array, off, len)) {
+                return KNOWN_NAMES[i];
+            }
+        }
+        return null;
+    }
+
+    protected static boolean equalsIgnoreCase(byte[] name, byte[] array, int off, int len) {
+        if (name.length != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (toLowerCase(name[i]) != toLowerCase(array[off + i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected static boolean equalsIgnoreCase(String name, byte[] array, int off, int len) {
+        if (name.length() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (toLowerCase((byte) name.charAt(i)) != toLowerCase(array[off + i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte toLowerCase(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + 32) : b;
+    }
+
 }
@@ -27,7 +27,7 @@ import com.generallycloud.baseio.component.SocketChannelContext;
 public class ServerHttpFuture extends AbstractHttpFuture {
 
     public ServerHttpFuture(SocketChannel channel, ByteBuf buffer, int headerLimit, int bodyLimit) {
-        super(channel, buffer, bodyLimit, bodyLimit);
+        super(channel, buffer, headerLimit, bodyLimit);
         this.params = new HashMap<>();
     }
 
@@ -80,12 +80,24 @@ public class ServerHttpFuture extends AbstractHttpFuture {
     }
 
     @Override
-    protected void parseFirstLine(String line) {
-        int index1 = line.indexOf(' ');
-        this.method = line.substring(0, index1);
-        int index2 = line.indexOf(' ', index1 + 1);
-        this.setRequestURL(line.substring(index1 + 1, index2));
-        this.version = line.substring(index2 + 1);
+    protected void parseFirstLine(byte[] array, int off, int end) {
+        int index1 = indexOf(array, ' ', off, end);
+        int index2 = indexOf(array, ' ', index1 + 1, end);
+        this.method = parseMethod(array, off, index1);
+        this.setRequestURL(decode(index1 + 1, index2 - index1 - 1));
+        this.version = parseVersion(array, index2 + 1, end);
+    }
+
+    private String parseMethod(byte[] array, int off, int end) {
+        int len = end - off;
+        if (len == 3 && array[off] == 'G' && array[off + 1] == 'E' && array[off + 2] == 'T') {
+            return METHOD_GET;
+        }
+        if (len == 4 && array[off] == 'P' && array[off + 1] == 'O' && array[off + 2] == 'S'
+                && array[off + 3] == 'T') {
+            return METHOD_POST;
+        }
+        return decode(off, len);
     }
 
 }
@@ -34,6 +34,11 @@ public interface WebSocketFuture extends NamedFuture {
 
     public abstract int getType();
 
+    /**
+     * 该帧所属消息的类型，分片消息的continuation帧返回第一帧的类型
+     */
+    public abstract int getMessageType();
+
     public abstract int getLength();
 
     public abstract boolean isCloseFrame();
@@ -27,22 +27,28 @@ import com.generallycloud.baseio.protocol.ChannelFuture;
 
 public class WebSocketFutureImpl extends AbstractChannelFuture implements WebSocketFuture {
 
-    private int     type;
-    private boolean eof;
-    private boolean hasMask;
-    private int     length;
-    private String  serviceName;
-    private boolean data_complete;
-    private boolean header_complete;
-    private boolean remain_header_complete;
-    private int     limit;
-    private byte[]  mask;
-    private byte[]  byteArray;
-
-    public WebSocketFutureImpl(SocketChannel channel, ByteBuf buf, int limit) {
+    private int                      type;
+    private boolean                  eof;
+    private boolean                  hasMask;
+    private int                      length;
+    private String                   serviceName;
+    private boolean                  data_complete;
+    private boolean                  header_complete;
+    private boolean                  remain_header_complete;
+    private int                      limit;
+    private byte[]                   mask;
+    private byte[]                   byteArray;
+    // 该帧所属消息的类型，continuation帧为第一帧的类型
+    private int                      messageType;
+    private WebSocketProtocolDecoder decoder;
+
+    public WebSocketFutureImpl(SocketChannel channel, ByteBuf buf,
+            WebSocketProtocolDecoder decoder) {
         super(channel.getContext());
 
-        this.limit = limit;
+        this.decoder = decoder;
+
+        this.limit = decoder.getLimit();
 
         this.buf = buf;
 
@@ -50,8 +56,18 @@ public class WebSocketFutureImpl extends AbstractChannelFuture implements WebSoc
     }
 
     public WebSocketFutureImpl(SocketChannelContext context) {
+        this(context, WebSocketProtocolDecoder.TYPE_TEXT, true);
+    }
+
+    /**
+     * 分片发送一条消息时，第一帧的type为TYPE_TEXT或TYPE_BINARY，之后的帧为
+     * TYPE_CONTINUATION，最后一帧的eof为true，每一帧单独flush
+     */
+    public WebSocketFutureImpl(SocketChannelContext context, int type, boolean eof) {
         super(context);
-        this.type = WebSocketProtocolDecoder.TYPE_TEXT;
+        this.type = type;
+        this.messageType = type;
+        this.eof = eof;
     }
 
     protected void setServiceName(SocketSession session) {
@@ -63,7 +79,7 @@ public class WebSocketFutureImpl extends AbstractChannelFuture implements WebSoc
         return OP_CONNECTION_CLOSE_FRAME == type;
     }
 
-    private void doHeaderComplete(ByteBuf buf) {
+    private void doHeaderComplete(ByteBuf buf) throws IOException {
 
         int remain_header_size = 0;
 
@@ -71,25 +87,15 @@ public class WebSocketFutureImpl extends AbstractChannelFuture implements WebSoc
 
         eof = (b & 0b10000000) > 0;
 
+        boolean rsv1 = (b & 0b01000000) > 0;
+
+        if ((b & 0b00110000) != 0) {
+            throw new IOException("unexpected rsv2 or rsv3");
+        }
+
         type = (b & 0xF);
 
-        //		switch (type) {
-        //		case WebSocketProtocolDecoder.TYPE_PING:
-        //			setPING();
-        //			break;
-        //		case WebSocketProtocolDecoder.TYPE_PONG:
-        //			setPONG();
-        //			break;
-        //		case WebSocketProtocolDecoder.TYPE_TEXT:
-        //			break;
-        //		case WebSocketProtocolDecoder.TYPE_BINARY:
-        //			break;
-        //		case WebSocketProtocolDecoder.TYPE_CLOSE:
-        //			break;
-        //
-        //		default:
-        //			break;
-        //		}
+        messageType = decoder.readFrameHeader(type, eof, rsv1);
 
         if (type == WebSocketProtocolDecoder.TYPE_PING) {
             setPING();
@@ -109,13 +115,17 @@ public class WebSocketFutureImpl extends AbstractChannelFuture implements WebSoc
 
         if (length < 126) {
 
+        } else if (type >= WebSocketProtocolDecoder.TYPE_CLOSE) {
+
+            throw new IOException("control frame too long");
+
         } else if (length == 126) {
 
             remain_header_size += 2;
 
         } else {
 
-            remain_header_size += 4;
+            remain_header_size += 8;
         }
 
         buf.reallocate(remain_header_size);
@@ -133,42 +143,51 @@ public class WebSocketFutureImpl extends AbstractChannelFuture implements WebSoc
 
         } else {
 
-            length = (int) buf.getUnsignedInt();
+            long longLength = buf.getLong();
 
-            if (length < 0) {
+            if (longLength < 0 || longLength > Integer.MAX_VALUE) {
                 throw new IOException("too long data length");
             }
+
+            length = (int) longLength;
         }
 
-        mask = buf.getBytes();
+        if (hasMask) {
+            mask = new byte[4];
+            buf.get(mask);
+        }
 
         buf.reallocate(length, limit);
     }
 
-    private void doDataComplete(ByteBuf buf) {
-
-        byte[] array = buf.getBytes();
+    private void doDataComplete(ByteBuf buf) throws IOException {
 
         if (hasMask) {
+            WebSocketProtocolDecoder.unmask(buf, mask);
+        }
 
-            byte[] mask = this.mask;
+        byte[] array = buf.getBytes();
 
-            int length = array.length;
+        if (type >= WebSocketProtocolDecoder.TYPE_CLOSE) {
+            this.byteArray = array;
+            this.readText = new String(array, context.getEncoding());
+            return;
+        }
 
-            for (int i = 0; i < length; i++) {
+        WebSocketProtocolDecoder decoder = this.decoder;
 
-                array[i] = (byte) (array[i] ^ mask[i % 4]);
-            }
-        }
+        array = decoder.inflate(array, eof);
 
         this.byteArray = array;
 
-        if (type == WebSocketProtocolDecoder.TYPE_BINARY) {
-            // FIXME 处理binary
-            return;
+        if (messageType == WebSocketProtocolDecoder.TYPE_TEXT) {
+            boolean single = eof && type != WebSocketProtocolDecoder.TYPE_CONTINUATION;
+            this.readText = decoder.decodeText(context.getEncoding(), array, single, eof);
         }
 
-        this.readText = new String(array, context.getEncoding());
+        if (eof) {
+            decoder.messageComplete();
+        }
     }
 
     @Override
@@ -210,6 +229,8 @@ public class WebSocketFutureImpl extends AbstractChannelFuture implements WebSoc
                 return false;
             }
 
+            data_complete = true;
+
             doDataComplete(buf.flip());
         }
 
@@ -236,6 +257,14 @@ public class WebSocketFutureImpl extends AbstractChannelFuture implements WebSoc
         return length;
     }
 
+    /**
+     * continuation帧返回第一帧的类型
+     */
+    @Override
+    public int getMessageType() {
+        return messageType;
+    }
+
     @Override
     public byte[] getByteArray() {
         return byteArray;
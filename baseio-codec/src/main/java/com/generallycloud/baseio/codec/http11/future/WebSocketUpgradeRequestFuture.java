@@ -15,6 +15,7 @@
  */
 package com.generallycloud.baseio.codec.http11.future;
 
+import com.generallycloud.baseio.codec.http11.PerMessageDeflate;
 import com.generallycloud.baseio.common.BASE64Util;
 import com.generallycloud.baseio.common.UUIDGenerator;
 import com.generallycloud.baseio.component.SocketChannelContext;
@@ -34,6 +35,6 @@ public class WebSocketUpgradeRequestFuture extends ClientHttpFuture {
         setResponseHeader("Sec-WebSocket-Version", "13");
         setResponseHeader("Sec-WebSocket-Key",
                 BASE64Util.byteArrayToBase64(UUIDGenerator.random().substring(8, 24).getBytes()));
-        setResponseHeader("Sec-WebSocket-Extensions", "permessage-deflate; client_max_window_bits");
+        setResponseHeader("Sec-WebSocket-Extensions", PerMessageDeflate.EXTENSION_NAME);
     }
 }
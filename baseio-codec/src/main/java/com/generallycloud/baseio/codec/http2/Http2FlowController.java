@@ -0,0 +1,252 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.codec.http2;
+
+import static com.generallycloud.baseio.codec.http2.hpack.Http2CodecUtil.DEFAULT_MAX_FRAME_SIZE;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2CodecUtil.DEFAULT_WINDOW_SIZE;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2CodecUtil.MAX_INITIAL_WINDOW_SIZE;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Error.FLOW_CONTROL_ERROR;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Exception.connectionError;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Exception.streamError;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Map.Entry;
+
+import com.generallycloud.baseio.buffer.ByteBuf;
+import com.generallycloud.baseio.buffer.UnpooledByteBufAllocator;
+import com.generallycloud.baseio.codec.http2.future.Http2ContinuationFrameImpl;
+import com.generallycloud.baseio.codec.http2.future.Http2DataFrame;
+import com.generallycloud.baseio.codec.http2.future.Http2DataFrameImpl;
+import com.generallycloud.baseio.codec.http2.future.Http2HeadersFrame;
+import com.generallycloud.baseio.codec.http2.future.Http2HeadersFrameImpl;
+import com.generallycloud.baseio.codec.http2.future.Http2ServerFuture;
+import com.generallycloud.baseio.codec.http2.hpack.Encoder;
+import com.generallycloud.baseio.codec.http2.hpack.Http2Headers;
+import com.generallycloud.baseio.codec.http2.hpack.Http2HeadersEncoder;
+import com.generallycloud.baseio.common.ReleaseUtil;
+import com.generallycloud.baseio.component.SocketChannel;
+import com.generallycloud.baseio.component.SocketChannelContext;
+import com.generallycloud.baseio.protocol.ChannelFuture;
+
+/**
+ * 一个连接上所有frame的写出都经过这里：HPACK编码需要按写出顺序进行，
+ * HEADERS与CONTINUATION之间也不能插入其它frame。
+ * <br>
+ * DATA frame按照连接与stream的发送窗口写出，窗口不足的stream等待WINDOW_UPDATE，
+ * 多个stream之间轮流写出，每次最多一个frame
+ */
+public class Http2FlowController {
+
+    private Http2SocketSession      session;
+    private SocketChannel           channel;
+    private Encoder                 encoder           = new Encoder(true);
+    private int                     connectionWindow  = DEFAULT_WINDOW_SIZE;
+    private int                     initialWindowSize = DEFAULT_WINDOW_SIZE;
+    private int                     maxFrameSize      = DEFAULT_MAX_FRAME_SIZE;
+    private long                    headerTableSize   = -1;
+    private ArrayDeque<Http2Stream> activeStreams     = new ArrayDeque<>();
+
+    /**
+     * 创建session时channel中的context还未初始化，使用时再获取
+     */
+    public Http2FlowController(Http2SocketSession session, SocketChannel channel) {
+        this.session = session;
+        this.channel = channel;
+    }
+
+    public synchronized void writeFrame(ChannelFuture frame) {
+        flush(frame);
+    }
+
+    /**
+     * 丢弃任何一个frame都会破坏对端的HPACK动态表或流控窗口，
+     * 写出队列溢出时只能关闭连接
+     */
+    private void flush(ChannelFuture frame) {
+        frame.setInseparable(true);
+        channel.flush(frame);
+    }
+
+    public synchronized void writeResponse(Http2Stream stream, Http2ServerFuture response)
+            throws IOException {
+        if (response.getWriteFileLength() > 0) {
+            throw new IOException("write file is not supported over http2");
+        }
+        SocketChannelContext context = channel.getContext();
+        int streamIdentifier = stream.getStreamIdentifier();
+        byte[] block = encodeHeaders(response.getResponseHttp2Headers());
+        byte[] body = response.getResponseBody();
+        int bodyLength = response.getResponseBodyLength();
+        boolean endStream = bodyLength == 0;
+        int length = Math.min(block.length, maxFrameSize);
+        int flags = endStream ? Http2HeadersFrame.FLAG_END_STREAM : 0;
+        if (length == block.length) {
+            flags |= Http2HeadersFrame.FLAG_END_HEADERS;
+        }
+        Http2ServerFuture last = endStream && length == block.length ? response : null;
+        flush(new Http2HeadersFrameImpl(context, streamIdentifier, flags, block, 0,
+                length, last));
+        for (int offset = length; offset < block.length; offset += length) {
+            length = Math.min(block.length - offset, maxFrameSize);
+            boolean endHeaders = offset + length == block.length;
+            flags = endHeaders ? Http2HeadersFrame.FLAG_END_HEADERS : 0;
+            last = endStream && endHeaders ? response : null;
+            flush(new Http2ContinuationFrameImpl(context, streamIdentifier, flags, block,
+                    offset, length, last));
+        }
+        if (endStream) {
+            session.closeStream(stream);
+            return;
+        }
+        stream.data = body;
+        stream.dataOffset = 0;
+        stream.dataRemaining = bodyLength;
+        stream.response = response;
+        enqueue(stream);
+        writePending();
+    }
+
+    private byte[] encodeHeaders(Http2Headers headers) throws IOException {
+        int capacity = 16;
+        for (Entry<String, String> header : headers) {
+            capacity += header.getKey().length() + header.getValue().length() + 16;
+        }
+        ByteBuf buf = UnpooledByteBufAllocator.getHeapInstance().allocate(capacity);
+        try {
+            if (headerTableSize >= 0) {
+                encoder.setMaxHeaderTableSize(buf, headerTableSize);
+                headerTableSize = -1;
+            }
+            encoder.encodeHeaders(buf, headers, Http2HeadersEncoder.NEVER_SENSITIVE);
+            return buf.flip().getBytes();
+        } finally {
+            ReleaseUtil.release(buf);
+        }
+    }
+
+    private void enqueue(Http2Stream stream) {
+        if (!stream.queued) {
+            stream.queued = true;
+            activeStreams.offer(stream);
+        }
+    }
+
+    private void writePending() {
+        ArrayDeque<Http2Stream> activeStreams = this.activeStreams;
+        SocketChannelContext context = channel.getContext();
+        boolean progress = true;
+        while (progress && connectionWindow > 0 && !activeStreams.isEmpty()) {
+            progress = false;
+            for (int i = activeStreams.size(); i > 0 && connectionWindow > 0; i--) {
+                Http2Stream stream = activeStreams.poll();
+                if (stream.isReset()) {
+                    stream.queued = false;
+                    stream.data = null;
+                    continue;
+                }
+                int length = Math.min(Math.min(maxFrameSize, connectionWindow),
+                        Math.min(stream.sendWindow, stream.dataRemaining));
+                if (length <= 0) {
+                    // 等待该stream的WINDOW_UPDATE
+                    stream.queued = false;
+                    continue;
+                }
+                boolean endStream = length == stream.dataRemaining;
+                flush(new Http2DataFrameImpl(context, stream.getStreamIdentifier(),
+                        endStream ? Http2DataFrame.FLAG_END_STREAM : 0, stream.data,
+                        stream.dataOffset, length, endStream ? stream.response : null));
+                stream.sendWindow -= length;
+                stream.dataOffset += length;
+                stream.dataRemaining -= length;
+                connectionWindow -= length;
+                progress = true;
+                if (endStream) {
+                    stream.queued = false;
+                    stream.data = null;
+                    stream.response = null;
+                    session.closeStream(stream);
+                } else {
+                    activeStreams.offer(stream);
+                }
+            }
+        }
+    }
+
+    public synchronized void connectionWindowUpdate(int increment) throws IOException {
+        if ((long) connectionWindow + increment > MAX_INITIAL_WINDOW_SIZE) {
+            throw connectionError(FLOW_CONTROL_ERROR, "connection window overflow");
+        }
+        connectionWindow += increment;
+        writePending();
+    }
+
+    public synchronized void streamWindowUpdate(Http2Stream stream, int increment)
+            throws IOException {
+        if ((long) stream.sendWindow + increment > MAX_INITIAL_WINDOW_SIZE) {
+            throw streamError(stream.getStreamIdentifier(), FLOW_CONTROL_ERROR,
+                    "stream window overflow");
+        }
+        stream.sendWindow += increment;
+        if (stream.dataRemaining > 0 && !stream.isReset()) {
+            enqueue(stream);
+            writePending();
+        }
+    }
+
+    public synchronized void cancel(Http2Stream stream) {
+        if (stream.queued) {
+            activeStreams.remove(stream);
+            stream.queued = false;
+        }
+        stream.data = null;
+        stream.response = null;
+    }
+
+    public synchronized int getInitialWindowSize() {
+        return initialWindowSize;
+    }
+
+    /**
+     * 对端修改SETTINGS_INITIAL_WINDOW_SIZE时，差值作用于所有已经打开的stream
+     */
+    public synchronized void setInitialWindowSize(int initialWindowSize) throws IOException {
+        int delta = initialWindowSize - this.initialWindowSize;
+        this.initialWindowSize = initialWindowSize;
+        for (Http2Stream stream : session.getStreams()) {
+            if ((long) stream.sendWindow + delta > MAX_INITIAL_WINDOW_SIZE) {
+                throw connectionError(FLOW_CONTROL_ERROR, "stream window overflow");
+            }
+            stream.sendWindow += delta;
+            if (delta > 0 && stream.dataRemaining > 0 && !stream.isReset()) {
+                enqueue(stream);
+            }
+        }
+        writePending();
+    }
+
+    public synchronized void setMaxFrameSize(int maxFrameSize) {
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    /**
+     * 在下一个header block的开头写出动态表大小的变更
+     */
+    public synchronized void setHeaderTableSize(long headerTableSize) {
+        this.headerTableSize = headerTableSize;
+    }
+
+}
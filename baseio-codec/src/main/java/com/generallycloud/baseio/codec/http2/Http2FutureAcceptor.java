@@ -0,0 +1,55 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.codec.http2;
+
+import com.generallycloud.baseio.codec.http2.future.Http2FrameHeader;
+import com.generallycloud.baseio.codec.http2.future.Http2ServerFuture;
+import com.generallycloud.baseio.codec.http2.hpack.Http2Error;
+import com.generallycloud.baseio.component.AbstractFutureAcceptor;
+import com.generallycloud.baseio.component.IoEventHandle;
+import com.generallycloud.baseio.component.SocketSession;
+import com.generallycloud.baseio.protocol.ChannelFuture;
+
+/**
+ * 同一个连接上不同stream的请求互不依赖，轮流分发到不同的线程中处理
+ */
+public class Http2FutureAcceptor extends AbstractFutureAcceptor {
+
+    @Override
+    protected void accept(final IoEventHandle eventHandle, final SocketSession session,
+            ChannelFuture future) {
+
+        final Http2ServerFuture request = ((Http2FrameHeader) future).getRequest();
+
+        session.getContext().getExecutorEventLoopGroup().getNext().dispatch(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    eventHandle.accept(session, request);
+                } catch (Exception e) {
+                    eventHandle.exceptionCaught(session, request, e);
+                    if (!request.flushed()) {
+                        ((Http2SocketSession) session).resetStream(
+                                request.getStreamIdentifier(), Http2Error.INTERNAL_ERROR);
+                    }
+                }
+            }
+
+        });
+    }
+
+}
@@ -99,6 +99,8 @@ public class Http2ProtocolDecoder implements ProtocolDecoder {
 
     public static final int PROTOCOL_PONG           = -2;
 
+    private boolean         decodeInPlace;
+
     @Override
     public ChannelFuture decode(SocketChannel channel, ByteBuf buffer) throws IOException {
 
@@ -109,9 +111,21 @@ public class Http2ProtocolDecoder implements ProtocolDecoder {
         if (http2UnsafeSession.isPrefaceRead()) {
             return new Http2PrefaceFuture(context, allocate(channel, PROTOCOL_PREFACE_HEADER));
         }
+        // 帧头已经完整的在读缓冲区中时直接从中解析，payload仍由各frame读取
+        if (decodeInPlace && buffer.remaining() >= PROTOCOL_HEADER) {
+            return new Http2FrameHeaderImpl(channel, null);
+        }
         return new Http2FrameHeaderImpl(channel, allocate(channel, PROTOCOL_HEADER));
     }
 
+    public boolean isDecodeInPlace() {
+        return decodeInPlace;
+    }
+
+    public void setDecodeInPlace(boolean decodeInPlace) {
+        this.decodeInPlace = decodeInPlace;
+    }
+
     private ByteBuf allocate(SocketChannel channel, int capacity) {
         return channel.getByteBufAllocator().allocate(capacity);
     }
@@ -21,15 +21,60 @@ import com.generallycloud.baseio.protocol.ProtocolEncoder;
 import com.generallycloud.baseio.protocol.ProtocolFactory;
 
 public class Http2ProtocolFactory implements ProtocolFactory {
-    
+
+    public static final int DEFAULT_MAX_CONCURRENT_STREAMS = 256;
+
+    public static final int DEFAULT_BODY_LIMIT             = 1024 * 512;
+
+    private boolean         decodeInPlace;
+
+    private int             maxConcurrentStreams;
+
+    private int             bodyLimit;
+
+    public Http2ProtocolFactory() {
+        this(DEFAULT_MAX_CONCURRENT_STREAMS, DEFAULT_BODY_LIMIT);
+    }
+
+    /**
+     * @param maxConcurrentStreams 每个连接上同时处理的stream数量，超过时拒绝新的stream
+     * @param bodyLimit 每个请求body的最大长度
+     */
+    public Http2ProtocolFactory(int maxConcurrentStreams, int bodyLimit) {
+        this.maxConcurrentStreams = maxConcurrentStreams;
+        this.bodyLimit = bodyLimit;
+    }
+
+    /**
+     * 未设置时使用HTTP/2的session，请求按stream分发到不同的线程
+     */
     @Override
     public void initialize(SocketChannelContext context) {
-        
+        if (context.getSessionFactory() == null) {
+            context.setSocketSessionFactory(
+                    new Http2SessionFactory(maxConcurrentStreams, bodyLimit));
+        }
+        if (context.getForeReadFutureAcceptor() == null) {
+            context.setForeReadFutureAcceptor(new Http2FutureAcceptor());
+        }
     }
 
     @Override
     public ProtocolDecoder getProtocolDecoder(SocketChannelContext context) {
-        return new Http2ProtocolDecoder();
+        Http2ProtocolDecoder decoder = new Http2ProtocolDecoder();
+        decoder.setDecodeInPlace(decodeInPlace);
+        return decoder;
+    }
+
+    public boolean isDecodeInPlace() {
+        return decodeInPlace;
+    }
+
+    /**
+     * 为true时，帧头已经完整的在读缓冲区中时不再复制
+     */
+    public void setDecodeInPlace(boolean decodeInPlace) {
+        this.decodeInPlace = decodeInPlace;
     }
 
     @Override
@@ -21,8 +21,22 @@ import com.generallycloud.baseio.component.UnsafeSocketSession;
 
 public class Http2SessionFactory implements SocketSessionFactory {
 
+    private int maxConcurrentStreams;
+
+    private int bodyLimit;
+
+    public Http2SessionFactory() {
+        this(Http2ProtocolFactory.DEFAULT_MAX_CONCURRENT_STREAMS,
+                Http2ProtocolFactory.DEFAULT_BODY_LIMIT);
+    }
+
+    public Http2SessionFactory(int maxConcurrentStreams, int bodyLimit) {
+        this.maxConcurrentStreams = maxConcurrentStreams;
+        this.bodyLimit = bodyLimit;
+    }
+
     @Override
     public UnsafeSocketSession newUnsafeSession(SocketChannel channel) {
-        return new Http2SocketSessionImpl(channel);
+        return new Http2SocketSessionImpl(channel, maxConcurrentStreams, bodyLimit);
     }
 }
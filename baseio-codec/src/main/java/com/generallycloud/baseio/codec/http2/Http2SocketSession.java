@@ -15,21 +15,91 @@
  */
 package com.generallycloud.baseio.codec.http2;
 
-import com.generallycloud.baseio.codec.http2.hpack.Http2Headers;
+import java.io.IOException;
+import java.util.Collection;
+
+import com.generallycloud.baseio.buffer.ByteBuf;
+import com.generallycloud.baseio.codec.http2.future.Http2FrameType;
+import com.generallycloud.baseio.codec.http2.future.Http2ServerFuture;
+import com.generallycloud.baseio.codec.http2.hpack.Http2Error;
 import com.generallycloud.baseio.component.SocketSession;
 
 public interface Http2SocketSession extends SocketSession {
 
+    /**
+     * 对端的设置
+     */
     public abstract long getSettings(int i);
 
+    /**
+     * 对端的设置
+     */
     public abstract long[] getSettings();
 
     public abstract void setSettings(int key, long value);
 
-    public abstract boolean isPrefaceRead();
+    /**
+     * 连接建立后发送给对端的设置，下标为设置项的key，小于0的值表示不发送
+     */
+    public abstract long[] getLocalSettings();
 
-    public abstract Http2Headers getHttp2Headers();
+    public abstract boolean isPrefaceRead();
 
     public abstract void setPrefaceRead(boolean prefaceRead);
 
+    public abstract Http2Stream getStream(int streamIdentifier);
+
+    public abstract Collection<Http2Stream> getStreams();
+
+    public abstract Http2FlowController getFlowController();
+
+    /**
+     * @return header block与END_STREAM均已收到时返回完整的请求，否则返回null
+     */
+    public abstract Http2ServerFuture onHeadersRead(int streamIdentifier, ByteBuf block,
+            boolean endHeaders, boolean endStream) throws IOException;
+
+    /**
+     * @see #onHeadersRead(int, ByteBuf, boolean, boolean)
+     */
+    public abstract Http2ServerFuture onContinuationRead(int streamIdentifier, ByteBuf block,
+            boolean endHeaders) throws IOException;
+
+    /**
+     * @param frameLength 包含padding的payload长度，用于流量控制
+     * @return 收到END_STREAM时返回完整的请求，否则返回null
+     */
+    public abstract Http2ServerFuture onDataRead(int streamIdentifier, ByteBuf data,
+            int frameLength, boolean endStream) throws IOException;
+
+    public abstract void onRstStreamRead(int streamIdentifier, long errorCode)
+            throws IOException;
+
+    public abstract void onWindowUpdateRead(int streamIdentifier, int increment)
+            throws IOException;
+
+    public abstract void onSettingsRead(int key, long value) throws IOException;
+
+    public abstract void onGoAwayRead(int lastStreamIdentifier, long errorCode);
+
+    /**
+     * header block未结束时只允许同一个stream上的CONTINUATION
+     */
+    public abstract void checkHeaderBlock(Http2FrameType type, int streamIdentifier)
+            throws IOException;
+
+    public abstract void resetStream(int streamIdentifier, Http2Error error);
+
+    /**
+     * 发送GOAWAY，error不为NO_ERROR时写出后关闭连接
+     */
+    public abstract void goAway(Http2Error error, String message);
+
+    public abstract boolean isGoAway();
+
+    /**
+     * 响应写出完成后由{@link Http2FlowController}调用
+     */
+    public abstract void closeStream(Http2Stream stream);
+
 }
@@ -15,22 +15,86 @@
  */
 package com.generallycloud.baseio.codec.http2;
 
+import static com.generallycloud.baseio.codec.http2.hpack.Http2CodecUtil.DEFAULT_HEADER_LIST_SIZE;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2CodecUtil.DEFAULT_HEADER_TABLE_SIZE;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2CodecUtil.DEFAULT_WINDOW_SIZE;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2CodecUtil.MAX_INITIAL_WINDOW_SIZE;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2CodecUtil.isMaxFrameSizeValid;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Error.CANCEL;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Error.ENHANCE_YOUR_CALM;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Error.FLOW_CONTROL_ERROR;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Error.INTERNAL_ERROR;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Error.PROTOCOL_ERROR;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Error.REFUSED_STREAM;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Error.STREAM_CLOSED;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Exception.connectionError;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Exception.streamError;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.generallycloud.baseio.buffer.ByteBuf;
+import com.generallycloud.baseio.buffer.UnpooledByteBufAllocator;
+import com.generallycloud.baseio.codec.http2.future.Http2FrameType;
+import com.generallycloud.baseio.codec.http2.future.Http2GoAwayFrameImpl;
+import com.generallycloud.baseio.codec.http2.future.Http2RstStreamFrameImpl;
+import com.generallycloud.baseio.codec.http2.future.Http2ServerFuture;
+import com.generallycloud.baseio.codec.http2.future.Http2SettingsFrame;
+import com.generallycloud.baseio.codec.http2.future.Http2WindowUpdateFrameImpl;
+import com.generallycloud.baseio.codec.http2.hpack.Decoder;
+import com.generallycloud.baseio.codec.http2.hpack.Http2Error;
+import com.generallycloud.baseio.codec.http2.hpack.Http2Exception;
 import com.generallycloud.baseio.codec.http2.hpack.Http2Headers;
 import com.generallycloud.baseio.codec.http2.hpack.Http2HeadersImpl;
+import com.generallycloud.baseio.component.ByteArrayBuffer;
 import com.generallycloud.baseio.component.SocketChannel;
 import com.generallycloud.baseio.component.UnsafeSocketSessionImpl;
+import com.generallycloud.baseio.log.Logger;
+import com.generallycloud.baseio.log.LoggerFactory;
+import com.generallycloud.baseio.protocol.ChannelFuture;
+import com.generallycloud.baseio.protocol.Future;
 
+/**
+ * 接收部分（on*Read）只在selector线程中调用，写出部分可以在任意线程中调用
+ */
 public class Http2SocketSessionImpl extends UnsafeSocketSessionImpl implements Http2SocketSession {
 
-    public Http2SocketSessionImpl(SocketChannel channel) {
-        super(channel);
-    }
+    private static final Logger       logger               = LoggerFactory
+            .getLogger(Http2SocketSessionImpl.class);
+
+    // header block累积的上限，超过时认为对端恶意
+    private static final int          MAX_HEADER_BLOCK     = 1024 * 64;
 
-    private boolean      prefaceRead  = true;
+    // 接收到的数据超过窗口的一半时发送WINDOW_UPDATE
+    private static final int          WINDOW_UPDATE_RATIO  = DEFAULT_WINDOW_SIZE / 2;
 
-    private long[]       settings     = new long[] { 0, 4096, 1, 128, 65535, 16384, 0 };
+    private boolean                   prefaceRead          = true;
+    private long[]                    settings             = new long[] { 0, 4096, 1, 128,
+            65535, 16384, 0 };
+    private long[]                    localSettings;
+    private Decoder                   decoder              = new Decoder();
+    private Map<Integer, Http2Stream> streams              = new ConcurrentHashMap<>();
+    private Http2FlowController       flowController;
+    private Http2Stream               headerBlockStream;
+    private int                       lastStreamIdentifier;
+    private int                       maxConcurrentStreams;
+    private int                       bodyLimit;
+    private int                       receiveWindow        = DEFAULT_WINDOW_SIZE;
+    private int                       receiveUnacked;
+    private boolean                   remoteGoAway;
+    private volatile boolean          goAway;
 
-    private Http2Headers http2Headers = new Http2HeadersImpl();
+    public Http2SocketSessionImpl(SocketChannel channel, int maxConcurrentStreams,
+            int bodyLimit) {
+        super(channel);
+        this.maxConcurrentStreams = maxConcurrentStreams;
+        this.bodyLimit = bodyLimit;
+        this.flowController = new Http2FlowController(this, channel);
+        this.localSettings = new long[] { -1, -1, -1, maxConcurrentStreams, -1, -1,
+                DEFAULT_HEADER_LIST_SIZE };
+    }
 
     @Override
     public long getSettings(int i) {
@@ -48,8 +112,8 @@ public class Http2SocketSessionImpl extends UnsafeSocketSessionImpl implements H
     }
 
     @Override
-    public Http2Headers getHttp2Headers() {
-        return http2Headers;
+    public long[] getLocalSettings() {
+        return localSettings;
     }
 
     @Override
@@ -62,4 +126,337 @@ public class Http2SocketSessionImpl extends UnsafeSocketSessionImpl implements H
         this.prefaceRead = prefaceRead;
     }
 
+    @Override
+    public Http2Stream getStream(int streamIdentifier) {
+        return streams.get(streamIdentifier);
+    }
+
+    @Override
+    public Collection<Http2Stream> getStreams() {
+        return streams.values();
+    }
+
+    @Override
+    public Http2FlowController getFlowController() {
+        return flowController;
+    }
+
+    @Override
+    public void checkHeaderBlock(Http2FrameType type, int streamIdentifier)
+            throws IOException {
+        Http2Stream stream = headerBlockStream;
+        if (stream == null) {
+            if (type == Http2FrameType.FRAME_TYPE_CONTINUATION) {
+                throw connectionError(PROTOCOL_ERROR, "unexpected CONTINUATION on stream %d",
+                        streamIdentifier);
+            }
+            return;
+        }
+        if (type != Http2FrameType.FRAME_TYPE_CONTINUATION
+                || streamIdentifier != stream.getStreamIdentifier()) {
+            throw connectionError(PROTOCOL_ERROR, "expected CONTINUATION on stream %d",
+                    stream.getStreamIdentifier());
+        }
+    }
+
+    @Override
+    public Http2ServerFuture onHeadersRead(int streamIdentifier, ByteBuf block,
+            boolean endHeaders, boolean endStream) throws IOException {
+        if (streamIdentifier == 0 || (streamIdentifier & 1) == 0) {
+            throw connectionError(PROTOCOL_ERROR, "HEADERS on stream %d", streamIdentifier);
+        }
+        Http2Stream stream = streams.get(streamIdentifier);
+        if (stream == null) {
+            stream = new Http2Stream(streamIdentifier, DEFAULT_WINDOW_SIZE,
+                    flowController.getInitialWindowSize());
+            if (streamIdentifier <= lastStreamIdentifier) {
+                stream.setHeadersError(STREAM_CLOSED);
+            } else {
+                lastStreamIdentifier = streamIdentifier;
+                if (goAway || remoteGoAway || streams.size() >= maxConcurrentStreams) {
+                    stream.setHeadersError(REFUSED_STREAM);
+                } else {
+                    streams.put(streamIdentifier, stream);
+                }
+            }
+        } else if (stream.isRemoteClosed()) {
+            stream.setHeadersError(STREAM_CLOSED);
+        } else if (!endStream) {
+            // trailers必须带有END_STREAM
+            stream.setHeadersError(PROTOCOL_ERROR);
+        }
+        stream.setHeadersEndStream(endStream);
+        if (!endHeaders) {
+            byte[] array = block.getBytes();
+            stream.setHeaderBlock(new ByteArrayBuffer(array, array.length));
+            headerBlockStream = stream;
+            return null;
+        }
+        return onHeaderBlockComplete(stream, block);
+    }
+
+    @Override
+    public Http2ServerFuture onContinuationRead(int streamIdentifier, ByteBuf block,
+            boolean endHeaders) throws IOException {
+        Http2Stream stream = headerBlockStream;
+        ByteArrayBuffer headerBlock = stream.getHeaderBlock();
+        if (headerBlock.size() + block.remaining() > MAX_HEADER_BLOCK) {
+            throw connectionError(ENHANCE_YOUR_CALM, "header block too large on stream %d",
+                    streamIdentifier);
+        }
+        headerBlock.write(block.getBytes());
+        if (!endHeaders) {
+            return null;
+        }
+        headerBlockStream = null;
+        stream.setHeaderBlock(null);
+        ByteBuf buf = UnpooledByteBufAllocator.getHeapInstance().wrap(headerBlock.array(), 0,
+                headerBlock.size());
+        return onHeaderBlockComplete(stream, buf);
+    }
+
+    private Http2ServerFuture onHeaderBlockComplete(Http2Stream stream, ByteBuf block)
+            throws IOException {
+        int streamIdentifier = stream.getStreamIdentifier();
+        Http2Headers headers = new Http2HeadersImpl();
+        try {
+            // 即使需要reset这个stream也要解码，保持HPACK动态表与对端一致
+            decoder.decode(streamIdentifier, block, headers);
+        } catch (Http2Exception e) {
+            throw connectionError(e.error(), e, "decode header block failed on stream %d",
+                    streamIdentifier);
+        }
+        Http2Error error = stream.getHeadersError();
+        if (error != null) {
+            throw streamError(streamIdentifier, error, "HEADERS rejected on %s", stream);
+        }
+        Http2ServerFuture request = stream.getRequest();
+        if (request == null) {
+            if (headers.method() == null || headers.path() == null) {
+                throw streamError(streamIdentifier, PROTOCOL_ERROR,
+                        "missing :method or :path on %s", stream);
+            }
+            request = new Http2ServerFuture(getContext(), streamIdentifier, headers);
+            stream.setRequest(request);
+        }
+        if (stream.isHeadersEndStream()) {
+            return onRequestComplete(stream);
+        }
+        return null;
+    }
+
+    private Http2ServerFuture onRequestComplete(Http2Stream stream) {
+        stream.setRemoteClosed(true);
+        Http2ServerFuture request = stream.getRequest();
+        ByteArrayBuffer body = stream.getBody();
+        if (body != null) {
+            stream.setBody(null);
+            byte[] array = body.array();
+            if (array.length != body.size()) {
+                byte[] copy = new byte[body.size()];
+                System.arraycopy(array, 0, copy, 0, copy.length);
+                array = copy;
+            }
+            request.setBodyContent(array);
+        }
+        return request;
+    }
+
+    @Override
+    public Http2ServerFuture onDataRead(int streamIdentifier, ByteBuf data, int frameLength,
+            boolean endStream) throws IOException {
+        if (streamIdentifier == 0) {
+            throw connectionError(PROTOCOL_ERROR, "DATA on stream 0");
+        }
+        // 先计算连接的窗口，被reset的stream上的数据同样占用连接的窗口
+        if (frameLength > receiveWindow) {
+            throw connectionError(FLOW_CONTROL_ERROR, "connection window exceeded");
+        }
+        receiveWindow -= frameLength;
+        receiveUnacked += frameLength;
+        if (receiveUnacked >= WINDOW_UPDATE_RATIO) {
+            flush(new Http2WindowUpdateFrameImpl(getContext(), 0, receiveUnacked));
+            receiveWindow += receiveUnacked;
+            receiveUnacked = 0;
+        }
+        Http2Stream stream = streams.get(streamIdentifier);
+        if (stream == null) {
+            if (streamIdentifier > lastStreamIdentifier) {
+                throw connectionError(PROTOCOL_ERROR, "DATA on idle stream %d",
+                        streamIdentifier);
+            }
+            throw streamError(streamIdentifier, STREAM_CLOSED, "DATA on closed stream %d",
+                    streamIdentifier);
+        }
+        if (stream.isRemoteClosed()) {
+            throw streamError(streamIdentifier, STREAM_CLOSED, "DATA after END_STREAM on %s",
+                    stream);
+        }
+        if (frameLength > stream.getReceiveWindow()) {
+            throw streamError(streamIdentifier, FLOW_CONTROL_ERROR, "window exceeded on %s",
+                    stream);
+        }
+        int update = stream.consumeReceiveWindow(frameLength, WINDOW_UPDATE_RATIO);
+        if (update > 0 && !endStream) {
+            flush(new Http2WindowUpdateFrameImpl(getContext(), streamIdentifier, update));
+        }
+        ByteArrayBuffer body = stream.getBody();
+        int length = data.remaining();
+        if (body == null) {
+            body = new ByteArrayBuffer(Math.max(length, 256));
+            stream.setBody(body);
+        }
+        if (body.size() + length > bodyLimit) {
+            throw streamError(streamIdentifier, CANCEL, "body exceeds %d on %s", bodyLimit,
+                    stream);
+        }
+        if (length > 0) {
+            body.write(data.getBytes());
+        }
+        if (endStream) {
+            return onRequestComplete(stream);
+        }
+        return null;
+    }
+
+    @Override
+    public void onRstStreamRead(int streamIdentifier, long errorCode) throws IOException {
+        if (streamIdentifier == 0 || streamIdentifier > lastStreamIdentifier) {
+            throw connectionError(PROTOCOL_ERROR, "RST_STREAM on idle stream %d",
+                    streamIdentifier);
+        }
+        Http2Stream stream = streams.remove(streamIdentifier);
+        if (stream != null) {
+            stream.setReset(true);
+            flowController.cancel(stream);
+        }
+    }
+
+    @Override
+    public void onWindowUpdateRead(int streamIdentifier, int increment) throws IOException {
+        if (streamIdentifier == 0) {
+            flowController.connectionWindowUpdate(increment);
+            return;
+        }
+        Http2Stream stream = streams.get(streamIdentifier);
+        if (stream == null) {
+            if (streamIdentifier > lastStreamIdentifier) {
+                throw connectionError(PROTOCOL_ERROR, "WINDOW_UPDATE on idle stream %d",
+                        streamIdentifier);
+            }
+            // 已经关闭的stream，忽略
+            return;
+        }
+        flowController.streamWindowUpdate(stream, increment);
+    }
+
+    @Override
+    public void onSettingsRead(int key, long value) throws IOException {
+        switch (key) {
+            case Http2SettingsFrame.SETTINGS_HEADER_TABLE_SIZE:
+                // 编码时使用的动态表不超过默认大小
+                flowController.setHeaderTableSize(Math.min(value, DEFAULT_HEADER_TABLE_SIZE));
+                break;
+            case Http2SettingsFrame.SETTINGS_ENABLE_PUSH:
+                if (value != 0 && value != 1) {
+                    throw connectionError(PROTOCOL_ERROR, "invalid ENABLE_PUSH: %d", value);
+                }
+                break;
+            case Http2SettingsFrame.SETTINGS_MAX_CONCURRENT_STREAMS:
+                break;
+            case Http2SettingsFrame.SETTINGS_INITIAL_WINDOW_SIZE:
+                if (value > MAX_INITIAL_WINDOW_SIZE) {
+                    throw connectionError(FLOW_CONTROL_ERROR, "invalid INITIAL_WINDOW_SIZE: %d",
+                            value);
+                }
+                flowController.setInitialWindowSize((int) value);
+                break;
+            case Http2SettingsFrame.SETTINGS_MAX_FRAME_SIZE:
+                if (value > Integer.MAX_VALUE || !isMaxFrameSizeValid((int) value)) {
+                    throw connectionError(PROTOCOL_ERROR, "invalid MAX_FRAME_SIZE: %d", value);
+                }
+                flowController.setMaxFrameSize((int) value);
+                break;
+            case Http2SettingsFrame.SETTINGS_MAX_HEADER_LIST_SIZE:
+                break;
+            default:
+                // 未知的设置需要忽略
+                return;
+        }
+        settings[key] = value;
+    }
+
+    @Override
+    public void onGoAwayRead(int lastStreamIdentifier, long errorCode) {
+        // 不再接受新的stream，已经开始的请求继续处理
+        this.remoteGoAway = true;
+        logger.debug("GOAWAY from {}, last stream: {}, error: {}",
+                new Object[] { this, lastStreamIdentifier, errorCode });
+    }
+
+    @Override
+    public void resetStream(int streamIdentifier, Http2Error error) {
+        Http2Stream stream = streams.remove(streamIdentifier);
+        if (stream != null) {
+            stream.setReset(true);
+            flowController.cancel(stream);
+        }
+        flush(new Http2RstStreamFrameImpl(getContext(), streamIdentifier, error.code()));
+    }
+
+    @Override
+    public void goAway(Http2Error error, String message) {
+        synchronized (this) {
+            if (goAway) {
+                return;
+            }
+            goAway = true;
+        }
+        logger.debug("GOAWAY to {}, error: {}, {}", new Object[] { this, error, message });
+        flush(new Http2GoAwayFrameImpl(getContext(), lastStreamIdentifier, error.code(), message,
+                error != Http2Error.NO_ERROR));
+    }
+
+    @Override
+    public boolean isGoAway() {
+        return goAway;
+    }
+
+    @Override
+    public void closeStream(Http2Stream stream) {
+        streams.remove(stream.getStreamIdentifier(), stream);
+    }
+
+    /**
+     * {@link Http2ServerFuture}按照对端的窗口拆分为HEADERS/DATA frame写出，
+     * 其它frame直接写出
+     */
+    @Override
+    public void flush(Future future) {
+        if (future instanceof Http2ServerFuture) {
+            flushResponse((Http2ServerFuture) future);
+            return;
+        }
+        flowController.writeFrame((ChannelFuture) future);
+    }
+
+    private void flushResponse(Http2ServerFuture future) {
+        if (future.flushed()) {
+            return;
+        }
+        future.flush();
+        int streamIdentifier = future.getStreamIdentifier();
+        Http2Stream stream = streams.get(streamIdentifier);
+        if (stream == null || stream.isReset()) {
+            // 对端已经取消了这个stream
+            return;
+        }
+        try {
+            flowController.writeResponse(stream, future);
+        } catch (Exception e) {
+            resetStream(streamIdentifier, INTERNAL_ERROR);
+            getContext().getIoEventHandleAdaptor().exceptionCaught(this, future, e);
+        }
+    }
+
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.codec.http2;
+
+import com.generallycloud.baseio.codec.http2.future.Http2ServerFuture;
+import com.generallycloud.baseio.codec.http2.hpack.Http2Error;
+import com.generallycloud.baseio.component.ByteArrayBuffer;
+
+/**
+ * 一个HTTP/2 stream的状态，接收部分只在selector线程中访问，
+ * 发送部分在{@link Http2FlowController}的锁中访问
+ */
+public class Http2Stream {
+
+    private int               streamIdentifier;
+    private Http2ServerFuture request;
+    private ByteArrayBuffer   headerBlock;
+    private ByteArrayBuffer   body;
+    private boolean           headersEndStream;
+    private boolean           remoteClosed;
+    private Http2Error        headersError;
+    private int               receiveWindow;
+    private int               receiveUnacked;
+    private volatile boolean  reset;
+
+    // 以下字段由Http2FlowController访问
+    int                       sendWindow;
+    byte[]                    data;
+    int                       dataOffset;
+    int                       dataRemaining;
+    Http2ServerFuture         response;
+    boolean                   queued;
+
+    public Http2Stream(int streamIdentifier, int receiveWindow, int sendWindow) {
+        this.streamIdentifier = streamIdentifier;
+        this.receiveWindow = receiveWindow;
+        this.sendWindow = sendWindow;
+    }
+
+    public int getStreamIdentifier() {
+        return streamIdentifier;
+    }
+
+    public Http2ServerFuture getRequest() {
+        return request;
+    }
+
+    void setRequest(Http2ServerFuture request) {
+        this.request = request;
+    }
+
+    ByteArrayBuffer getHeaderBlock() {
+        return headerBlock;
+    }
+
+    void setHeaderBlock(ByteArrayBuffer headerBlock) {
+        this.headerBlock = headerBlock;
+    }
+
+    ByteArrayBuffer getBody() {
+        return body;
+    }
+
+    void setBody(ByteArrayBuffer body) {
+        this.body = body;
+    }
+
+    boolean isHeadersEndStream() {
+        return headersEndStream;
+    }
+
+    void setHeadersEndStream(boolean headersEndStream) {
+        this.headersEndStream = headersEndStream;
+    }
+
+    /**
+     * header block解码之后需要以该错误reset这个stream
+     */
+    Http2Error getHeadersError() {
+        return headersError;
+    }
+
+    void setHeadersError(Http2Error headersError) {
+        this.headersError = headersError;
+    }
+
+    public boolean isRemoteClosed() {
+        return remoteClosed;
+    }
+
+    void setRemoteClosed(boolean remoteClosed) {
+        this.remoteClosed = remoteClosed;
+    }
+
+    int getReceiveWindow() {
+        return receiveWindow;
+    }
+
+    /**
+     * @return 需要通过WINDOW_UPDATE归还的窗口大小
+     */
+    int consumeReceiveWindow(int length, int threshold) {
+        receiveWindow -= length;
+        receiveUnacked += length;
+        if (receiveUnacked < threshold) {
+            return 0;
+        }
+        int update = receiveUnacked;
+        receiveWindow += update;
+        receiveUnacked = 0;
+        return update;
+    }
+
+    public boolean isReset() {
+        return reset;
+    }
+
+    void setReset(boolean reset) {
+        this.reset = reset;
+    }
+
+    @Override
+    public String toString() {
+        return "stream(" + streamIdentifier + ")";
+    }
+
+}
@@ -15,16 +15,67 @@
  */
 package com.generallycloud.baseio.codec.http2.future;
 
+import java.io.IOException;
+
+import com.generallycloud.baseio.buffer.ByteBuf;
+import com.generallycloud.baseio.codec.http2.Http2SocketSession;
+import com.generallycloud.baseio.common.ReleaseUtil;
 import com.generallycloud.baseio.component.SocketChannel;
+import com.generallycloud.baseio.component.SocketChannelContext;
+import com.generallycloud.baseio.component.SocketSession;
+import com.generallycloud.baseio.log.Logger;
+import com.generallycloud.baseio.log.LoggerFactory;
 import com.generallycloud.baseio.protocol.AbstractChannelFuture;
 
+/**
+ * 读取时先将payload完整的读入buf，再交给{@link #doComplete}解析；
+ * 写出时由encoder写入帧头，再调用{@link #writePayload}
+ */
 public abstract class AbstractHttp2Frame extends AbstractChannelFuture implements SocketHttp2Frame {
 
-    private Http2FrameHeader header;
+    private static final Logger logger = LoggerFactory.getLogger(AbstractHttp2Frame.class);
 
-    protected AbstractHttp2Frame(SocketChannel channel, Http2FrameHeader header) {
+    private Http2FrameHeader    header;
+    private int                 streamIdentifier;
+    private byte                flags;
+    private boolean             isComplete;
+    protected Http2ServerFuture request;
+    // 响应的最后一个frame持有该响应，写出后以响应回调futureSent
+    protected Http2ServerFuture response;
+
+    protected AbstractHttp2Frame(SocketChannel channel, ByteBuf buf, Http2FrameHeader header) {
         super(channel.getContext());
+        this.buf = buf;
         this.header = header;
+        this.flags = header.getFlags();
+        this.streamIdentifier = header.getStreamIdentifier();
+    }
+
+    protected AbstractHttp2Frame(SocketChannelContext context, int streamIdentifier, int flags) {
+        super(context);
+        this.flags = (byte) flags;
+        this.streamIdentifier = streamIdentifier;
+    }
+
+    @Override
+    public boolean read(SocketChannel channel, ByteBuf buffer) throws IOException {
+        if (!isComplete) {
+            ByteBuf buf = this.buf;
+            buf.read(buffer);
+            if (buf.hasRemaining()) {
+                return false;
+            }
+            isComplete = true;
+            doComplete(channel, (Http2SocketSession) channel.getSession(), buf.flip());
+        }
+        return true;
+    }
+
+    protected abstract void doComplete(SocketChannel channel, Http2SocketSession session,
+            ByteBuf buf) throws IOException;
+
+    protected boolean hasFlag(int flag) {
+        return (flags & flag) != 0;
     }
 
     @Override
@@ -32,4 +83,48 @@ public abstract class AbstractHttp2Frame extends AbstractChannelFuture implement
         return header;
     }
 
+    @Override
+    public int getStreamIdentifier() {
+        return streamIdentifier;
+    }
+
+    @Override
+    public byte getFlags() {
+        return flags;
+    }
+
+    @Override
+    public Http2ServerFuture getRequest() {
+        return request;
+    }
+
+    /**
+     * 只有使请求接收完整的frame需要交给FutureAcceptor
+     */
+    @Override
+    public boolean isSilent() {
+        return request == null;
+    }
+
+    @Override
+    public void onSuccess(SocketSession session) {
+        ReleaseUtil.release(this);
+        if (response == null) {
+            return;
+        }
+        try {
+            context.getIoEventHandleAdaptor().futureSent(session, response);
+        } catch (Throwable e) {
+            logger.debug(e);
+        }
+    }
+
+    @Override
+    public int getPayloadLength() {
+        return 0;
+    }
+
+    @Override
+    public void writePayload(ByteBuf buf) {}
+
 }
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.codec.http2.future;
+
+import java.io.IOException;
+
+import com.generallycloud.baseio.buffer.ByteBuf;
+import com.generallycloud.baseio.codec.http2.Http2SocketSession;
+import com.generallycloud.baseio.component.SocketChannel;
+import com.generallycloud.baseio.component.SocketChannelContext;
+
+public class Http2ContinuationFrameImpl extends AbstractHttp2Frame
+        implements Http2ContinuationFrame {
+
+    private byte[] block;
+
+    private int    blockOffset;
+
+    private int    blockLength;
+
+    public Http2ContinuationFrameImpl(SocketChannel channel, ByteBuf buf,
+            Http2FrameHeader header) {
+        super(channel, buf, header);
+    }
+
+    public Http2ContinuationFrameImpl(SocketChannelContext context, int streamIdentifier,
+            int flags, byte[] block, int offset, int length, Http2ServerFuture response) {
+        super(context, streamIdentifier, flags);
+        this.block = block;
+        this.blockOffset = offset;
+        this.blockLength = length;
+        this.response = response;
+    }
+
+    @Override
+    protected void doComplete(SocketChannel channel, Http2SocketSession session, ByteBuf buf)
+            throws IOException {
+        request = session.onContinuationRead(getStreamIdentifier(), buf,
+                hasFlag(FLAG_END_HEADERS));
+    }
+
+    @Override
+    public Http2FrameType getHttp2FrameType() {
+        return Http2FrameType.FRAME_TYPE_CONTINUATION;
+    }
+
+    @Override
+    public int getPayloadLength() {
+        return blockLength;
+    }
+
+    @Override
+    public void writePayload(ByteBuf buf) {
+        buf.put(block, blockOffset, blockLength);
+    }
+
+}
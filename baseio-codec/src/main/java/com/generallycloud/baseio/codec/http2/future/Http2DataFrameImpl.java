@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.codec.http2.future;
+
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Error.PROTOCOL_ERROR;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Exception.connectionError;
+
+import java.io.IOException;
+
+import com.generallycloud.baseio.buffer.ByteBuf;
+import com.generallycloud.baseio.codec.http2.Http2SocketSession;
+import com.generallycloud.baseio.component.SocketChannel;
+import com.generallycloud.baseio.component.SocketChannelContext;
+
+public class Http2DataFrameImpl extends AbstractHttp2Frame implements Http2DataFrame {
+
+    private byte   padLength;
+
+    private byte[] data;
+
+    private int    dataOffset;
+
+    private int    dataLength;
+
+    public Http2DataFrameImpl(SocketChannel channel, ByteBuf buf, Http2FrameHeader header) {
+        super(channel, buf, header);
+    }
+
+    /**
+     * 直接引用响应body中的数据，encoder写出时复制
+     */
+    public Http2DataFrameImpl(SocketChannelContext context, int streamIdentifier, int flags,
+            byte[] data, int offset, int length, Http2ServerFuture response) {
+        super(context, streamIdentifier, flags);
+        this.data = data;
+        this.dataOffset = offset;
+        this.dataLength = length;
+        this.response = response;
+    }
+
+    @Override
+    protected void doComplete(SocketChannel channel, Http2SocketSession session, ByteBuf buf)
+            throws IOException {
+        // 流量控制按整个payload计算，包含padding
+        int frameLength = buf.remaining();
+        int padLength = 0;
+        if (hasFlag(FLAG_PADDED)) {
+            if (frameLength < 1) {
+                throw connectionError(PROTOCOL_ERROR, "DATA frame missing pad length");
+            }
+            padLength = buf.getUnsignedByte();
+            this.padLength = (byte) padLength;
+            if (padLength > buf.remaining()) {
+                throw connectionError(PROTOCOL_ERROR, "DATA padding too large: %d", padLength);
+            }
+            buf.limit(buf.limit() - padLength);
+        }
+        request = session.onDataRead(getStreamIdentifier(), buf, frameLength,
+                hasFlag(FLAG_END_STREAM));
+    }
+
+    @Override
+    public Http2FrameType getHttp2FrameType() {
+        return Http2FrameType.FRAME_TYPE_DATA;
+    }
+
+    @Override
+    public int getPayloadLength() {
+        return dataLength;
+    }
+
+    @Override
+    public void writePayload(ByteBuf buf) {
+        buf.put(data, dataOffset, dataLength);
+    }
+
+    @Override
+    public byte getPadLength() {
+        return padLength;
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.codec.http2.future;
+
+import java.io.IOException;
+
+import com.generallycloud.baseio.buffer.ByteBuf;
+import com.generallycloud.baseio.codec.http2.Http2SocketSession;
+import com.generallycloud.baseio.component.SocketChannel;
+
+/**
+ * 需要忽略的frame，例如PRIORITY、未知类型的frame，以及连接出错后收到的frame。
+ * payload直接从读缓冲区跳过，不申请内存
+ */
+public class Http2DiscardFrame extends AbstractHttp2Frame {
+
+    private Http2FrameType frameType;
+
+    private int            remain;
+
+    public Http2DiscardFrame(SocketChannel channel, Http2FrameHeader header,
+            Http2FrameType frameType, int length) {
+        super(channel, null, header);
+        this.frameType = frameType;
+        this.remain = length;
+    }
+
+    @Override
+    public boolean read(SocketChannel channel, ByteBuf buffer) throws IOException {
+        int skip = Math.min(remain, buffer.remaining());
+        buffer.skipBytes(skip);
+        remain -= skip;
+        return remain == 0;
+    }
+
+    @Override
+    protected void doComplete(SocketChannel channel, Http2SocketSession session, ByteBuf buf)
+            throws IOException {}
+
+    /**
+     * @return 未知类型时返回null
+     */
+    @Override
+    public Http2FrameType getHttp2FrameType() {
+        return frameType;
+    }
+
+    @Override
+    public boolean isReleased() {
+        return true;
+    }
+
+    @Override
+    public void release() {}
+
+}
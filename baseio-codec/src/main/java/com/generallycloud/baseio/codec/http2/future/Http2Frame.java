@@ -23,6 +23,10 @@ public interface Http2Frame extends Future {
 
     public abstract Http2FrameType getHttp2FrameType();
 
+    public abstract int getStreamIdentifier();
+
+    public abstract byte getFlags();
+
 }
 // ERROR CODE
 //
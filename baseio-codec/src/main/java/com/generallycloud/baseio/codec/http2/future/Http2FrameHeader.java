@@ -45,4 +45,9 @@ public interface Http2FrameHeader extends Future {
     public abstract Http2Frame getFrame();
 
     public abstract Http2FrameType getHttp2FrameType();
+
+    /**
+     * @see SocketHttp2Frame#getRequest()
+     */
+    public abstract Http2ServerFuture getRequest();
 }
@@ -15,9 +15,19 @@
  */
 package com.generallycloud.baseio.codec.http2.future;
 
+import static com.generallycloud.baseio.codec.http2.hpack.Http2CodecUtil.DEFAULT_MAX_FRAME_SIZE;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Error.FRAME_SIZE_ERROR;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Error.PROTOCOL_ERROR;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Exception.connectionError;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Exception.streamError;
+
 import java.io.IOException;
 
 import com.generallycloud.baseio.buffer.ByteBuf;
+import com.generallycloud.baseio.buffer.EmptyByteBuf;
+import com.generallycloud.baseio.codec.http2.Http2SocketSession;
+import com.generallycloud.baseio.codec.http2.hpack.Http2Exception;
+import com.generallycloud.baseio.codec.http2.hpack.Http2Exception.StreamException;
 import com.generallycloud.baseio.common.MathUtil;
 import com.generallycloud.baseio.common.ReleaseUtil;
 import com.generallycloud.baseio.component.SocketChannel;
@@ -27,11 +37,9 @@ import com.generallycloud.baseio.protocol.AbstractChannelFuture;
 public class Http2FrameHeaderImpl extends AbstractChannelFuture implements Http2FrameHeader {
 
     private boolean          header_complete;
-
     private byte             flags;
-
+    private int              length;
     private int              streamIdentifier;
-
     private SocketHttp2Frame frame;
 
     public Http2FrameHeaderImpl(SocketChannel channel, ByteBuf buf) {
@@ -43,42 +51,53 @@ public class Http2FrameHeaderImpl extends AbstractChannelFuture implements Http2
         super(context);
     }
 
-    private void doHeaderComplete(SocketChannel channel, ByteBuf buf) {
-
+    private void doHeaderComplete(SocketChannel channel, ByteBuf buf) throws IOException {
         byte b0 = buf.getByte();
         byte b1 = buf.getByte();
         byte b2 = buf.getByte();
-
-        int length = ((b0 & 0xff) << 8 * 2) | ((b1 & 0xff) << 8 * 1) | ((b2 & 0xff) << 8 * 0);
-
+        this.length = ((b0 & 0xff) << 8 * 2) | ((b1 & 0xff) << 8 * 1) | ((b2 & 0xff) << 8 * 0);
         int type = buf.getUnsignedByte();
-
         this.flags = buf.getByte();
-
         this.streamIdentifier = MathUtil.int2int31(buf.getInt());
-
-        this.frame = genFrame(channel, type, length);
+        this.frame = genFrame(channel, (Http2SocketSession) channel.getSession(),
+                Http2FrameType.getValue(type), length);
     }
 
     @Override
     public boolean read(SocketChannel channel, ByteBuf buffer) throws IOException {
-
-        ByteBuf buf = this.buf;
-
-        if (!header_complete) {
-
-            buf.read(buffer);
-
-            if (buf.hasRemaining()) {
-                return false;
+        try {
+            ByteBuf buf = this.buf;
+            if (buf == null) {
+                this.buf = EmptyByteBuf.getInstance();
+                this.header_complete = true;
+                doHeaderComplete(channel, buffer);
+            } else if (!header_complete) {
+                buf.read(buffer);
+                if (buf.hasRemaining()) {
+                    return false;
+                }
+                header_complete = true;
+                doHeaderComplete(channel, buf.flip());
             }
-
-            header_complete = true;
-
-            doHeaderComplete(channel, buf.flip());
+            return frame.read(channel, buffer);
+        } catch (Http2Exception e) {
+            onHttp2Exception((Http2SocketSession) channel.getSession(), e);
+            if (frame != null) {
+                // payload已经读取完整
+                return true;
+            }
+            // 帧头校验失败，跳过payload
+            frame = new Http2DiscardFrame(channel, this, null, length);
+            return frame.read(channel, buffer);
         }
+    }
 
-        return frame.read(channel, buffer);
+    private void onHttp2Exception(Http2SocketSession session, Http2Exception e) {
+        if (e instanceof StreamException) {
+            session.resetStream(((StreamException) e).streamId(), e.error());
+            return;
+        }
+        session.goAway(e.error(), e.getMessage());
     }
 
     @Override
@@ -112,45 +131,65 @@ public class Http2FrameHeaderImpl extends AbstractChannelFuture implements Http2
         return frame;
     }
 
-    private SocketHttp2Frame genFrame(SocketChannel channel, Http2FrameType type, int length) {
+    @Override
+    public Http2ServerFuture getRequest() {
+        return frame.getRequest();
+    }
 
+    private SocketHttp2Frame genFrame(SocketChannel channel, Http2SocketSession session,
+            Http2FrameType type, int length) throws IOException {
+        if (session.isGoAway()) {
+            // 已经发送GOAWAY，连接即将关闭，忽略后续的frame
+            return new Http2DiscardFrame(channel, this, type, length);
+        }
+        if (length > DEFAULT_MAX_FRAME_SIZE) {
+            throw connectionError(FRAME_SIZE_ERROR, "frame length %d exceeds %d", length,
+                    DEFAULT_MAX_FRAME_SIZE);
+        }
+        session.checkHeaderBlock(type, streamIdentifier);
+        if (type == null) {
+            return new Http2DiscardFrame(channel, this, type, length);
+        }
         switch (type) {
             case FRAME_TYPE_CONTINUATION:
-
-                break;
+                return new Http2ContinuationFrameImpl(channel, allocate(channel, length), this);
             case FRAME_TYPE_DATA:
-
-                break;
+                return new Http2DataFrameImpl(channel, allocate(channel, length), this);
             case FRAME_TYPE_GOAWAY:
-
-                break;
+                return new Http2GoAwayFrameImpl(channel, allocate(channel, length), this);
             case FRAME_TYPE_HEADERS:
                 return new Http2HeadersFrameImpl(channel, allocate(channel, length), this);
             case FRAME_TYPE_PING:
-
-                break;
+                return new Http2PingFrameImpl(channel, allocate(channel, length), this);
             case FRAME_TYPE_PRIORITY:
-
-                break;
+                // 不支持优先级调度，校验后忽略
+                if (streamIdentifier == 0) {
+                    throw connectionError(PROTOCOL_ERROR, "PRIORITY on stream 0");
+                }
+                if (length != 5) {
+                    throw streamError(streamIdentifier, FRAME_SIZE_ERROR,
+                            "PRIORITY length: %d", length);
+                }
+                return new Http2DiscardFrame(channel, this, type, length);
             case FRAME_TYPE_PUSH_PROMISE:
-
-                break;
+                throw connectionError(PROTOCOL_ERROR, "PUSH_PROMISE from client");
             case FRAME_TYPE_RST_STREAM:
-
-                break;
+                return new Http2RstStreamFrameImpl(channel, allocate(channel, length), this);
             case FRAME_TYPE_SETTINGS:
                 return new Http2SettingsFrameImpl(channel, allocate(channel, length), this);
             case FRAME_TYPE_WINDOW_UPDATE:
                 return new Http2WindowUpdateFrameImpl(channel, allocate(channel, length), this);
             default:
-
-                break;
+                return new Http2DiscardFrame(channel, this, type, length);
         }
-        throw new IllegalArgumentException(type.toString());
     }
 
-    private SocketHttp2Frame genFrame(SocketChannel channel, int type, int length) {
-        return genFrame(channel, Http2FrameType.getValue(type), length);
+    @Override
+    protected ByteBuf allocate(SocketChannel channel, int capacity) {
+        if (capacity == 0) {
+            return EmptyByteBuf.getInstance();
+        }
+        return super.allocate(channel, capacity);
     }
 
     @Override
@@ -56,7 +56,13 @@ public enum Http2FrameType {
         return null;
     }
 
+    /**
+     * @return 未知的类型返回null，按照协议需要忽略
+     */
     public static Http2FrameType getValue(int i) {
+        if (i < 0 || i >= VALUES.length) {
+            return null;
+        }
         return VALUES[i];
     }
 
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.codec.http2.future;
+
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Error.FRAME_SIZE_ERROR;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Error.PROTOCOL_ERROR;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Exception.connectionError;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import com.generallycloud.baseio.buffer.ByteBuf;
+import com.generallycloud.baseio.codec.http2.Http2SocketSession;
+import com.generallycloud.baseio.common.CloseUtil;
+import com.generallycloud.baseio.common.MathUtil;
+import com.generallycloud.baseio.component.SocketChannel;
+import com.generallycloud.baseio.component.SocketChannelContext;
+import com.generallycloud.baseio.component.SocketSession;
+
+public class Http2GoAwayFrameImpl extends AbstractHttp2Frame implements Http2GoAwayFrame {
+
+    private int     lastStreamIdentifier;
+
+    private long    errorCode;
+
+    private byte[]  debugData;
+
+    private boolean closeSession;
+
+    public Http2GoAwayFrameImpl(SocketChannel channel, ByteBuf buf, Http2FrameHeader header) {
+        super(channel, buf, header);
+    }
+
+    /**
+     * @param closeSession 为true时写出后关闭连接
+     */
+    public Http2GoAwayFrameImpl(SocketChannelContext context, int lastStreamIdentifier,
+            long errorCode, String debugData, boolean closeSession) {
+        super(context, 0, 0);
+        this.lastStreamIdentifier = lastStreamIdentifier;
+        this.errorCode = errorCode;
+        this.closeSession = closeSession;
+        if (debugData != null) {
+            this.debugData = debugData.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Override
+    protected void doComplete(SocketChannel channel, Http2SocketSession session, ByteBuf buf)
+            throws IOException {
+        if (getStreamIdentifier() != 0) {
+            throw connectionError(PROTOCOL_ERROR, "GOAWAY on stream %d", getStreamIdentifier());
+        }
+        if (buf.remaining() < 8) {
+            throw connectionError(FRAME_SIZE_ERROR, "GOAWAY length: %d", buf.remaining());
+        }
+        this.lastStreamIdentifier = MathUtil.int2int31(buf.getInt());
+        this.errorCode = buf.getUnsignedInt();
+        this.debugData = buf.getBytes();
+        session.onGoAwayRead(lastStreamIdentifier, errorCode);
+    }
+
+    @Override
+    public void onSuccess(SocketSession session) {
+        super.onSuccess(session);
+        if (closeSession) {
+            CloseUtil.close(session);
+        }
+    }
+
+    @Override
+    public void onException(SocketSession session, Exception ex) {
+        super.onException(session, ex);
+        if (closeSession) {
+            CloseUtil.close(session);
+        }
+    }
+
+    @Override
+    public Http2FrameType getHttp2FrameType() {
+        return Http2FrameType.FRAME_TYPE_GOAWAY;
+    }
+
+    @Override
+    public int getPayloadLength() {
+        return 8 + (debugData == null ? 0 : debugData.length);
+    }
+
+    @Override
+    public void writePayload(ByteBuf buf) {
+        buf.putInt(lastStreamIdentifier);
+        buf.putUnsignedInt(errorCode);
+        if (debugData != null) {
+            buf.put(debugData);
+        }
+    }
+
+    @Override
+    public int getLastStreamIdentifier() {
+        return lastStreamIdentifier;
+    }
+
+    @Override
+    public long getErrorCode() {
+        return errorCode;
+    }
+
+    @Override
+    public String getDebugData() {
+        return debugData == null ? null : new String(debugData, StandardCharsets.UTF_8);
+    }
+
+}
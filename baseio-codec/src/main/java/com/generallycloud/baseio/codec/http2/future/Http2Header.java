@@ -49,7 +49,10 @@ public class Http2Header {
         return size;
     }
 
+    // RFC 7541 4.1: 每个表项额外计算32字节的开销
+    public static final int HEADER_ENTRY_OVERHEAD = 32;
+
     public static int sizeOf(String name, String value) {
-        return name.length() + value.length();
+        return name.length() + value.length() + HEADER_ENTRY_OVERHEAD;
     }
 }
@@ -15,91 +15,90 @@
  */
 package com.generallycloud.baseio.codec.http2.future;
 
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Error.FRAME_SIZE_ERROR;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Error.PROTOCOL_ERROR;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Exception.connectionError;
+
 import java.io.IOException;
 
 import com.generallycloud.baseio.buffer.ByteBuf;
 import com.generallycloud.baseio.codec.http2.Http2SocketSession;
-import com.generallycloud.baseio.codec.http2.hpack.Decoder;
 import com.generallycloud.baseio.component.SocketChannel;
+import com.generallycloud.baseio.component.SocketChannelContext;
 
 public class Http2HeadersFrameImpl extends AbstractHttp2Frame implements Http2HeadersFrame {
 
-    private boolean        isComplete;
+    private byte    padLength;
 
-    private byte           padLength;
+    private boolean e;
 
-    private boolean        e;
+    private int     streamDependency;
 
-    private int            streamDependency;
+    private short   weight;
 
-    private short          weight;
+    private byte[]  block;
 
-    private boolean        endStream;
+    private int     blockOffset;
 
-    private static Decoder decoder = new Decoder();
+    private int     blockLength;
 
     public Http2HeadersFrameImpl(SocketChannel channel, ByteBuf buf, Http2FrameHeader header) {
-        super(channel, header);
-        this.buf = buf;
+        super(channel, buf, header);
     }
 
-    private void doComplete(SocketChannel channel, ByteBuf buf) throws IOException {
-
-        Http2SocketSession session = (Http2SocketSession) channel.getSession();
-        
-        byte flags = getHeader().getFlags();
-
-        this.endStream = (flags & FLAG_END_STREAM) > 0;
+    /**
+     * 写出header block中[offset, offset + length)的部分，剩余部分由CONTINUATION写出
+     */
+    public Http2HeadersFrameImpl(SocketChannelContext context, int streamIdentifier, int flags,
+            byte[] block, int offset, int length, Http2ServerFuture response) {
+        super(context, streamIdentifier, flags);
+        this.block = block;
+        this.blockOffset = offset;
+        this.blockLength = length;
+        this.response = response;
+    }
 
-        if ((flags & FLAG_PADDED) > 0) {
-            padLength = buf.getByte();
+    @Override
+    protected void doComplete(SocketChannel channel, Http2SocketSession session, ByteBuf buf)
+            throws IOException {
+        int minLength = (hasFlag(FLAG_PADDED) ? 1 : 0) + (hasFlag(FLAG_PRIORITY) ? 5 : 0);
+        if (buf.remaining() < minLength) {
+            throw connectionError(FRAME_SIZE_ERROR, "HEADERS frame too small: %d",
+                    buf.remaining());
         }
-
-        if ((flags & FLAG_PRIORITY) > 0) {
-
-            streamDependency = buf.getInt();
-
-            e = streamDependency < 0;
-
-            if (e) {
-                streamDependency = streamDependency & 0x7FFFFFFF;
-            }
-
-            weight = buf.getUnsignedByte();
+        int padLength = 0;
+        if (hasFlag(FLAG_PADDED)) {
+            padLength = buf.getUnsignedByte();
+            this.padLength = (byte) padLength;
         }
-
-        decoder.decode(streamDependency, buf, session.getHttp2Headers());
+        if (hasFlag(FLAG_PRIORITY)) {
+            int dependency = buf.getInt();
+            // 调度不依赖优先级，只解析出来
+            this.e = dependency < 0;
+            this.streamDependency = dependency & 0x7FFFFFFF;
+            this.weight = (short) (buf.getUnsignedByte() + 1);
+        }
+        if (padLength > buf.remaining()) {
+            throw connectionError(PROTOCOL_ERROR, "HEADERS padding too large: %d", padLength);
+        }
+        buf.limit(buf.limit() - padLength);
+        request = session.onHeadersRead(getStreamIdentifier(), buf, hasFlag(FLAG_END_HEADERS),
+                hasFlag(FLAG_END_STREAM));
     }
 
     @Override
-    public boolean read(SocketChannel channel, ByteBuf buffer) throws IOException {
-
-        if (!isComplete) {
-
-            ByteBuf buf = this.buf;
-
-            buf.read(buffer);
-
-            if (buf.hasRemaining()) {
-                return false;
-            }
-
-            this.isComplete = true;
-
-            doComplete(channel, buf.flip());
-        }
-
-        return true;
+    public Http2FrameType getHttp2FrameType() {
+        return Http2FrameType.FRAME_TYPE_HEADERS;
     }
 
     @Override
-    public boolean isSilent() {
-        return !endStream;
+    public int getPayloadLength() {
+        return blockLength;
     }
 
     @Override
-    public Http2FrameType getHttp2FrameType() {
-        return Http2FrameType.FRAME_TYPE_HEADERS;
+    public void writePayload(ByteBuf buf) {
+        buf.put(block, blockOffset, blockLength);
     }
 
     @Override
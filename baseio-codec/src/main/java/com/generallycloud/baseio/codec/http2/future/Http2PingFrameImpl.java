@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.codec.http2.future;
+
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Error.FRAME_SIZE_ERROR;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Error.PROTOCOL_ERROR;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Exception.connectionError;
+
+import java.io.IOException;
+
+import com.generallycloud.baseio.buffer.ByteBuf;
+import com.generallycloud.baseio.codec.http2.Http2SocketSession;
+import com.generallycloud.baseio.component.SocketChannel;
+import com.generallycloud.baseio.component.SocketChannelContext;
+
+public class Http2PingFrameImpl extends AbstractHttp2Frame implements Http2PingFrame {
+
+    private long data;
+
+    public Http2PingFrameImpl(SocketChannel channel, ByteBuf buf, Http2FrameHeader header) {
+        super(channel, buf, header);
+    }
+
+    public Http2PingFrameImpl(SocketChannelContext context, long data, boolean ack) {
+        super(context, 0, ack ? FLAG_ACK : 0);
+        this.data = data;
+    }
+
+    @Override
+    protected void doComplete(SocketChannel channel, Http2SocketSession session, ByteBuf buf)
+            throws IOException {
+        if (getStreamIdentifier() != 0) {
+            throw connectionError(PROTOCOL_ERROR, "PING on stream %d", getStreamIdentifier());
+        }
+        if (buf.remaining() != 8) {
+            throw connectionError(FRAME_SIZE_ERROR, "PING length: %d", buf.remaining());
+        }
+        this.data = buf.getLong();
+        if (!isAck()) {
+            session.flush(new Http2PingFrameImpl(context, data, true));
+        }
+    }
+
+    @Override
+    public Http2FrameType getHttp2FrameType() {
+        return Http2FrameType.FRAME_TYPE_PING;
+    }
+
+    @Override
+    public int getPayloadLength() {
+        return 8;
+    }
+
+    @Override
+    public void writePayload(ByteBuf buf) {
+        buf.putLong(data);
+    }
+
+    @Override
+    public long getData() {
+        return data;
+    }
+
+    @Override
+    public boolean isAck() {
+        return hasFlag(FLAG_ACK);
+    }
+
+}
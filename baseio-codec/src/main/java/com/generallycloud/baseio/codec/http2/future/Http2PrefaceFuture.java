@@ -16,15 +16,12 @@
 package com.generallycloud.baseio.codec.http2.future;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
 
 import com.generallycloud.baseio.buffer.ByteBuf;
-import com.generallycloud.baseio.buffer.UnpooledByteBufAllocator;
 import com.generallycloud.baseio.codec.http2.Http2SocketSession;
 import com.generallycloud.baseio.component.SocketChannel;
 import com.generallycloud.baseio.component.SocketChannelContext;
 import com.generallycloud.baseio.protocol.AbstractChannelFuture;
-import com.generallycloud.baseio.protocol.DefaultChannelFuture;
 
 public class Http2PrefaceFuture extends AbstractChannelFuture {
 
@@ -32,14 +29,6 @@ public class Http2PrefaceFuture extends AbstractChannelFuture {
 
     private static byte[]  PREFACE_BINARY = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes();
 
-    private static ByteBuf PREFACE_BUF;
-
-    static {
-
-        PREFACE_BUF = UnpooledByteBufAllocator.getHeapInstance()
-                .wrap(ByteBuffer.wrap(PREFACE_BINARY));
-    }
-
     public Http2PrefaceFuture(SocketChannelContext context, ByteBuf buf) {
         super(context);
         this.buf = buf;
@@ -60,7 +49,8 @@ public class Http2PrefaceFuture extends AbstractChannelFuture {
             throw new IOException("not http2 preface");
         }
 
-        session.doFlush(new DefaultChannelFuture(context, PREFACE_BUF.duplicate()));
+        // 服务端的preface是一个SETTINGS frame
+        session.flush(new Http2SettingsFrameImpl(context, session.getLocalSettings()));
     }
 
     private boolean isPreface(ByteBuf buf) {
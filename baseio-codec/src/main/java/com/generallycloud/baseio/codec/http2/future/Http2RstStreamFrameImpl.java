@@ -0,0 +1,72 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.codec.http2.future;
+
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Error.FRAME_SIZE_ERROR;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Exception.connectionError;
+
+import java.io.IOException;
+
+import com.generallycloud.baseio.buffer.ByteBuf;
+import com.generallycloud.baseio.codec.http2.Http2SocketSession;
+import com.generallycloud.baseio.component.SocketChannel;
+import com.generallycloud.baseio.component.SocketChannelContext;
+
+public class Http2RstStreamFrameImpl extends AbstractHttp2Frame implements Http2RstStreamFrame {
+
+    private long errorCode;
+
+    public Http2RstStreamFrameImpl(SocketChannel channel, ByteBuf buf, Http2FrameHeader header) {
+        super(channel, buf, header);
+    }
+
+    public Http2RstStreamFrameImpl(SocketChannelContext context, int streamIdentifier,
+            long errorCode) {
+        super(context, streamIdentifier, 0);
+        this.errorCode = errorCode;
+    }
+
+    @Override
+    protected void doComplete(SocketChannel channel, Http2SocketSession session, ByteBuf buf)
+            throws IOException {
+        if (buf.remaining() != 4) {
+            throw connectionError(FRAME_SIZE_ERROR, "RST_STREAM length: %d", buf.remaining());
+        }
+        this.errorCode = buf.getUnsignedInt();
+        session.onRstStreamRead(getStreamIdentifier(), errorCode);
+    }
+
+    @Override
+    public Http2FrameType getHttp2FrameType() {
+        return Http2FrameType.FRAME_TYPE_RST_STREAM;
+    }
+
+    @Override
+    public int getPayloadLength() {
+        return 4;
+    }
+
+    @Override
+    public void writePayload(ByteBuf buf) {
+        buf.putUnsignedInt(errorCode);
+    }
+
+    @Override
+    public long getErrorCode() {
+        return errorCode;
+    }
+
+}
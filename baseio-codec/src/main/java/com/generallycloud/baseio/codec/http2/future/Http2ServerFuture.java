@@ -0,0 +1,141 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.codec.http2.future;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import com.generallycloud.baseio.codec.http11.HttpHeaderDateFormat;
+import com.generallycloud.baseio.codec.http11.future.Cookie;
+import com.generallycloud.baseio.codec.http11.future.HttpHeader;
+import com.generallycloud.baseio.codec.http11.future.ServerHttpFuture;
+import com.generallycloud.baseio.codec.http2.hpack.Http2Headers;
+import com.generallycloud.baseio.codec.http2.hpack.Http2HeadersImpl;
+import com.generallycloud.baseio.component.ByteArrayBuffer;
+import com.generallycloud.baseio.component.SocketChannelContext;
+
+/**
+ * HTTP/2中一个stream上的请求，复用http1.1的请求/响应接口，
+ * 由{@link com.generallycloud.baseio.codec.http2.Http2SocketSession}写出为HEADERS/DATA frame
+ */
+public class Http2ServerFuture extends ServerHttpFuture {
+
+    private static final String VERSION_HTTP_2 = "HTTP/2.0";
+
+    private int                 streamIdentifier;
+
+    public Http2ServerFuture(SocketChannelContext context, int streamIdentifier,
+            Http2Headers headers) {
+        super(context);
+        this.streamIdentifier = streamIdentifier;
+        this.params = new HashMap<>();
+        this.request_headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        this.version = VERSION_HTTP_2;
+        this.method = headers.method();
+        StringBuilder cookie = null;
+        for (Entry<String, String> header : headers) {
+            String name = header.getKey();
+            if (name.charAt(0) == ':') {
+                continue;
+            }
+            // cookie可能被拆分为多个header
+            if ("cookie".equals(name)) {
+                if (cookie == null) {
+                    cookie = new StringBuilder(header.getValue());
+                } else {
+                    cookie.append("; ").append(header.getValue());
+                }
+                continue;
+            }
+            request_headers.put(name, header.getValue());
+        }
+        if (cookie != null) {
+            request_headers.put(HttpHeader.COOKIE, cookie.toString());
+        }
+        this.host = headers.authority();
+        if (host == null) {
+            host = request_headers.get(HttpHeader.HOST);
+        }
+        this.setRequestURL(headers.path());
+        this.parseContentType(request_headers.get(HttpHeader.CONTENT_TYPE));
+    }
+
+    public void setBodyContent(byte[] body) {
+        this.hasBodyContent = true;
+        this.contentLength = body.length;
+        this.bodyArray = body;
+        if (CONTENT_APPLICATION_URLENCODED.equals(contentType)) {
+            String paramString = new String(body, context.getEncoding());
+            parseParamString(paramString);
+            this.readText = paramString;
+        }
+    }
+
+    public int getStreamIdentifier() {
+        return streamIdentifier;
+    }
+
+    /**
+     * HTTP/2中header的名称需要小写，并且不能包含连接相关的header
+     */
+    public Http2Headers getResponseHttp2Headers() {
+        Http2Headers headers = new Http2HeadersImpl();
+        headers.status(String.valueOf(getStatus().getStatus()));
+        for (Entry<String, String> header : getResponseHeaders().entrySet()) {
+            String name = header.getKey().toLowerCase();
+            if (isConnectionHeader(name) || "content-length".equals(name)) {
+                continue;
+            }
+            headers.add(name, header.getValue());
+        }
+        List<Cookie> cookieList = getCookieList();
+        if (cookieList != null) {
+            for (Cookie c : cookieList) {
+                headers.add("set-cookie", c.toString());
+            }
+        }
+        headers.add("content-length", String.valueOf(getResponseBodyLength()));
+        headers.add("date", HttpHeaderDateFormat.getFormat().format(System.currentTimeMillis()));
+        return headers;
+    }
+
+    private static boolean isConnectionHeader(String name) {
+        return "connection".equals(name) || "keep-alive".equals(name)
+                || "proxy-connection".equals(name) || "transfer-encoding".equals(name)
+                || "upgrade".equals(name);
+    }
+
+    public byte[] getResponseBody() {
+        ByteArrayBuffer buffer = getResponseBuffer();
+        return buffer == null ? null : buffer.array();
+    }
+
+    public int getResponseBodyLength() {
+        ByteArrayBuffer buffer = getResponseBuffer();
+        return buffer == null ? 0 : buffer.size();
+    }
+
+    private ByteArrayBuffer getResponseBuffer() {
+        ByteArrayBuffer buffer = getBinaryBuffer();
+        if (buffer != null) {
+            return buffer;
+        }
+        return getWriteBuffer();
+    }
+
+}
@@ -38,6 +38,13 @@ public interface Http2SettingsFrame extends Http2Frame {
     public static final int SETTINGS_MAX_FRAME_SIZE         = 0x5;
     public static final int SETTINGS_MAX_HEADER_LIST_SIZE   = 0x6;
 
+    public static final int FLAG_ACK                        = 0x1;
+
+    /**
+     * 下标为设置项的key，小于0的值表示未设置
+     */
     public abstract long[] getSettings();
 
+    public abstract boolean isAck();
+
 }
@@ -15,77 +15,99 @@
  */
 package com.generallycloud.baseio.codec.http2.future;
 
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Error.FRAME_SIZE_ERROR;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Error.PROTOCOL_ERROR;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Exception.connectionError;
+
 import java.io.IOException;
 
 import com.generallycloud.baseio.buffer.ByteBuf;
 import com.generallycloud.baseio.codec.http2.Http2SocketSession;
 import com.generallycloud.baseio.component.SocketChannel;
+import com.generallycloud.baseio.component.SocketChannelContext;
 
 public class Http2SettingsFrameImpl extends AbstractHttp2Frame implements Http2SettingsFrame {
 
-    private boolean isComplete;
-
-    private long[]  settings;  //FIXME delete
+    private long[] settings;
 
-    public Http2SettingsFrameImpl(SocketChannel channel, ByteBuf buf,
-            Http2FrameHeader header) {
-        super(channel, header);
-        this.buf = buf;
+    public Http2SettingsFrameImpl(SocketChannel channel, ByteBuf buf, Http2FrameHeader header) {
+        super(channel, buf, header);
     }
 
-    private void doComplete(SocketChannel channel, ByteBuf buf) throws IOException {
-
-        Http2SocketSession session = (Http2SocketSession) channel.getSession();
-        
-        int settings = buf.limit() / 6;
-
-        for (int i = 0; i < settings; i++) {
-
-            int key = buf.getShort();
-            int value = buf.getInt();
+    /**
+     * @param settings 需要写出的设置，为null时写出ACK
+     */
+    public Http2SettingsFrameImpl(SocketChannelContext context, long[] settings) {
+        super(context, 0, settings == null ? FLAG_ACK : 0);
+        this.settings = settings;
+    }
 
-            session.setSettings(key, value);
+    @Override
+    protected void doComplete(SocketChannel channel, Http2SocketSession session, ByteBuf buf)
+            throws IOException {
+        if (getStreamIdentifier() != 0) {
+            throw connectionError(PROTOCOL_ERROR, "SETTINGS on stream %d",
+                    getStreamIdentifier());
+        }
+        int length = buf.remaining();
+        if (isAck()) {
+            if (length != 0) {
+                throw connectionError(FRAME_SIZE_ERROR, "SETTINGS ack with payload");
+            }
+            return;
+        }
+        if (length % 6 != 0) {
+            throw connectionError(FRAME_SIZE_ERROR, "SETTINGS length: %d", length);
+        }
+        for (int i = 0; i < length / 6; i++) {
+            int key = buf.getUnsignedShort();
+            long value = buf.getUnsignedInt();
+            session.onSettingsRead(key, value);
         }
-
         this.settings = session.getSettings();
-
-        channel.flush(this);
+        session.flush(new Http2SettingsFrameImpl(context, null));
     }
 
     @Override
-    public boolean read(SocketChannel channel, ByteBuf buffer) throws IOException {
-
-        if (!isComplete) {
-
-            ByteBuf buf = this.buf;
-
-            buf.read(buffer);
+    public Http2FrameType getHttp2FrameType() {
+        return Http2FrameType.FRAME_TYPE_SETTINGS;
+    }
 
-            if (buf.hasRemaining()) {
-                return false;
+    @Override
+    public int getPayloadLength() {
+        if (settings == null) {
+            return 0;
+        }
+        int length = 0;
+        for (int i = 1; i < settings.length; i++) {
+            if (settings[i] >= 0) {
+                length += 6;
             }
-
-            isComplete = true;
-
-            doComplete(channel, buf.flip());
         }
-
-        return true;
+        return length;
     }
 
     @Override
-    public boolean isSilent() {
-        return true;
+    public void writePayload(ByteBuf buf) {
+        if (settings == null) {
+            return;
+        }
+        for (int i = 1; i < settings.length; i++) {
+            if (settings[i] >= 0) {
+                buf.putUnsignedShort(i);
+                buf.putUnsignedInt(settings[i]);
+            }
+        }
     }
 
     @Override
-    public Http2FrameType getHttp2FrameType() {
-        return Http2FrameType.FRAME_TYPE_SETTINGS;
+    public long[] getSettings() {
+        return settings;
     }
 
     @Override
-    public long[] getSettings() {
-        return settings;
+    public boolean isAck() {
+        return hasFlag(FLAG_ACK);
     }
 
 }
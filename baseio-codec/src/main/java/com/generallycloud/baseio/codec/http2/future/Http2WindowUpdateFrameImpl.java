@@ -15,59 +15,64 @@
  */
 package com.generallycloud.baseio.codec.http2.future;
 
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Error.FRAME_SIZE_ERROR;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Error.PROTOCOL_ERROR;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Exception.connectionError;
+import static com.generallycloud.baseio.codec.http2.hpack.Http2Exception.streamError;
+
 import java.io.IOException;
 
 import com.generallycloud.baseio.buffer.ByteBuf;
+import com.generallycloud.baseio.codec.http2.Http2SocketSession;
 import com.generallycloud.baseio.common.MathUtil;
 import com.generallycloud.baseio.component.SocketChannel;
+import com.generallycloud.baseio.component.SocketChannelContext;
 
 public class Http2WindowUpdateFrameImpl extends AbstractHttp2Frame
         implements Http2WindowUpdateFrame {
 
-    private boolean isComplete;
-
-    private int     updateValue;
+    private int updateValue;
 
     public Http2WindowUpdateFrameImpl(SocketChannel channel, ByteBuf buf,
             Http2FrameHeader header) {
-        super(channel, header);
-        this.buf = buf;
+        super(channel, buf, header);
     }
 
-    private void doComplete(SocketChannel channel, ByteBuf buf) throws IOException {
-
-        this.updateValue = MathUtil.int2int31(buf.getInt());
+    public Http2WindowUpdateFrameImpl(SocketChannelContext context, int streamIdentifier,
+            int updateValue) {
+        super(context, streamIdentifier, 0);
+        this.updateValue = updateValue;
     }
 
     @Override
-    public boolean read(SocketChannel channel, ByteBuf buffer) throws IOException {
-
-        if (!isComplete) {
-
-            ByteBuf buf = this.buf;
-
-            buf.read(buffer);
-
-            if (buf.hasRemaining()) {
-                return false;
-            }
-
-            isComplete = true;
-
-            doComplete((SocketChannel) channel, buf.flip());
+    protected void doComplete(SocketChannel channel, Http2SocketSession session, ByteBuf buf)
+            throws IOException {
+        if (buf.remaining() != 4) {
+            throw connectionError(FRAME_SIZE_ERROR, "WINDOW_UPDATE length: %d",
+                    buf.remaining());
+        }
+        this.updateValue = MathUtil.int2int31(buf.getInt());
+        if (updateValue == 0) {
+            // stream 0上的错误为连接错误
+            throw streamError(getStreamIdentifier(), PROTOCOL_ERROR,
+                    "WINDOW_UPDATE with 0 increment");
         }
+        session.onWindowUpdateRead(getStreamIdentifier(), updateValue);
+    }
 
-        return true;
+    @Override
+    public Http2FrameType getHttp2FrameType() {
+        return Http2FrameType.FRAME_TYPE_WINDOW_UPDATE;
     }
 
     @Override
-    public boolean isSilent() {
-        return true;
+    public int getPayloadLength() {
+        return 4;
     }
 
     @Override
-    public Http2FrameType getHttp2FrameType() {
-        return Http2FrameType.FRAME_TYPE_SETTINGS;
+    public void writePayload(ByteBuf buf) {
+        buf.putInt(updateValue);
     }
 
     @Override
@@ -15,6 +15,7 @@
  */
 package com.generallycloud.baseio.codec.http2.future;
 
+import com.generallycloud.baseio.buffer.ByteBuf;
 import com.generallycloud.baseio.protocol.ChannelFuture;
 
 /**
@@ -23,4 +24,19 @@ import com.generallycloud.baseio.protocol.ChannelFuture;
  */
 public interface SocketHttp2Frame extends Http2Frame, ChannelFuture {
 
+    /**
+     * 写出时payload的长度，不包含9字节的帧头
+     */
+    public abstract int getPayloadLength();
+
+    /**
+     * 由encoder在写完帧头后调用
+     */
+    public abstract void writePayload(ByteBuf buf);
+
+    /**
+     * 读取到的frame使某个stream的请求接收完整时返回该请求，否则返回null
+     */
+    public abstract Http2ServerFuture getRequest();
+
 }
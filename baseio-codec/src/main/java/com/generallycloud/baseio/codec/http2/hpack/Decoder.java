@@ -27,6 +27,8 @@ import static com.generallycloud.baseio.codec.http2.hpack.Http2Error.PROTOCOL_ER
 import static com.generallycloud.baseio.codec.http2.hpack.Http2Exception.connectionError;
 import static com.generallycloud.baseio.common.ThrowableUtil.unknownStackTrace;
 
+import java.nio.charset.StandardCharsets;
+
 import com.generallycloud.baseio.buffer.ByteBuf;
 import com.generallycloud.baseio.codec.http2.future.Http2Header;
 import com.generallycloud.baseio.codec.http2.hpack.HpackUtil.IndexType;
@@ -412,7 +414,8 @@ public final class Decoder {
         }
         byte[] buf = new byte[length];
         in.get(buf);
-        return new String(buf);
+        // header只允许ASCII，按ISO_8859_1解码避免受平台编码影响
+        return new String(buf, StandardCharsets.ISO_8859_1);
     }
 
     private static IllegalArgumentException notEnoughDataException(ByteBuf in) {
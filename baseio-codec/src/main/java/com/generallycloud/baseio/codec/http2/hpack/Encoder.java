@@ -32,6 +32,7 @@ import static com.generallycloud.baseio.common.MathUtil.findNextPositivePowerOfT
 import static java.lang.Math.max;
 import static java.lang.Math.min;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Map;
 
@@ -279,19 +280,9 @@ public final class Encoder {
         } else {
             encodeInteger(out, 0x00, 7, string.length());
 
-            out.put(string.getBytes());
-
-            // if (string instanceof AsciiString) {
-            // // Fast-path
-            // AsciiString asciiString = (AsciiString) string;
-            // out.writeBytes(asciiString.array(), asciiString.arrayOffset(),
-            // asciiString.length());
-            // } else {
-            // // Only ASCII is allowed in http2 headers, so its fine to use
-            // this.
-            // // https://tools.ietf.org/html/rfc7540#section-8.1.2
-            // out.writeCharSequence(string, CharsetUtil.ISO_8859_1);
-            // }
+            // Only ASCII is allowed in http2 headers, so its fine to use this.
+            // https://tools.ietf.org/html/rfc7540#section-8.1.2
+            out.put(string.getBytes(StandardCharsets.ISO_8859_1));
         }
     }
 
@@ -149,4 +149,17 @@ public interface Http2Headers extends Iterable<Entry<String, String>> {
     String status();
 
     void add(String name, String value);
+
+    /**
+     * Returns the first value of the header with the specified name or
+     * {@code null} if there is no such header
+     */
+    String get(String name);
+
+    /**
+     * Returns the number of headers, including pseudo headers
+     */
+    int size();
+
+    void clear();
 }
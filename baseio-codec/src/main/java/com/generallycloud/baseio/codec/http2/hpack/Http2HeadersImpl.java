@@ -15,57 +15,91 @@
  */
 package com.generallycloud.baseio.codec.http2.hpack;
 
-import java.util.HashMap;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map.Entry;
 
+/**
+ * 按插入顺序保存header，同名header可以出现多次，伪header总是排在普通header之前
+ */
 public class Http2HeadersImpl implements Http2Headers {
 
-    private HashMap<String, String> headers = new HashMap<>();
+    private List<Entry<String, String>> pseudoHeaders = new ArrayList<>(4);
+    private List<Entry<String, String>> headers       = new ArrayList<>();
 
-    private String                  method;
-    private String                  scheme;
-    private String                  authority;
-    private String                  path;
-    private String                  status;
+    private String                      method;
+    private String                      scheme;
+    private String                      authority;
+    private String                      path;
+    private String                      status;
 
     @Override
     public Iterator<Entry<String, String>> iterator() {
-        return headers.entrySet().iterator();
+        final Iterator<Entry<String, String>> pseudo = pseudoHeaders.iterator();
+        final Iterator<Entry<String, String>> normal = headers.iterator();
+        return new Iterator<Entry<String, String>>() {
+
+            @Override
+            public boolean hasNext() {
+                return pseudo.hasNext() || normal.hasNext();
+            }
+
+            @Override
+            public Entry<String, String> next() {
+                return pseudo.hasNext() ? pseudo.next() : normal.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private void setPseudoHeader(String name, String value) {
+        for (int i = 0; i < pseudoHeaders.size(); i++) {
+            if (pseudoHeaders.get(i).getKey().equals(name)) {
+                pseudoHeaders.set(i, new SimpleImmutableEntry<>(name, value));
+                return;
+            }
+        }
+        pseudoHeaders.add(new SimpleImmutableEntry<>(name, value));
     }
 
     @Override
     public Http2Headers method(String value) {
         this.method = value;
-        this.headers.put(":method", value);
+        setPseudoHeader(":method", value);
         return this;
     }
 
     @Override
     public Http2Headers scheme(String value) {
         this.scheme = value;
-        this.headers.put(":scheme", value);
+        setPseudoHeader(":scheme", value);
         return this;
     }
 
     @Override
     public Http2Headers authority(String value) {
         this.authority = value;
-        this.headers.put(":authority", value);
+        setPseudoHeader(":authority", value);
         return this;
     }
 
     @Override
     public Http2Headers path(String value) {
         this.path = value;
-        this.headers.put(":path", value);
+        setPseudoHeader(":path", value);
         return this;
     }
 
     @Override
     public Http2Headers status(String value) {
         this.status = value;
-        this.headers.put(":status", value);
+        setPseudoHeader(":status", value);
         return this;
     }
 
@@ -96,7 +130,53 @@ public class Http2HeadersImpl implements Http2Headers {
 
     @Override
     public void add(String name, String value) {
-        this.headers.put(name, value);
+        switch (name) {
+            case ":method":
+                method(value);
+                break;
+            case ":scheme":
+                scheme(value);
+                break;
+            case ":authority":
+                authority(value);
+                break;
+            case ":path":
+                path(value);
+                break;
+            case ":status":
+                status(value);
+                break;
+            default:
+                headers.add(new SimpleImmutableEntry<>(name, value));
+                break;
+        }
+    }
+
+    @Override
+    public String get(String name) {
+        List<Entry<String, String>> list = name.startsWith(":") ? pseudoHeaders : headers;
+        for (Entry<String, String> e : list) {
+            if (e.getKey().equals(name)) {
+                return e.getValue();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        return pseudoHeaders.size() + headers.size();
+    }
+
+    @Override
+    public void clear() {
+        pseudoHeaders.clear();
+        headers.clear();
+        method = null;
+        scheme = null;
+        authority = null;
+        path = null;
+        status = null;
     }
 
 }
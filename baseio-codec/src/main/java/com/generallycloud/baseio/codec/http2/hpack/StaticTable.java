@@ -26,7 +26,7 @@ final class StaticTable {
 
     private static List<Http2Header>        STATIC_HEADER_TABLE = new ArrayList<>(62);
 
-    private static Map<String, Http2Header> STATIC_MAP          = new HashMap<>();
+    private static Map<String, Integer>     STATIC_MAP          = new HashMap<>();
 
     static {
         STATIC_HEADER_TABLE.add(new Http2Header(0, ":error", ""));
@@ -92,13 +92,14 @@ final class StaticTable {
         STATIC_HEADER_TABLE.add(new Http2Header(60, "via", ""));
         STATIC_HEADER_TABLE.add(new Http2Header(61, "www-authenticate", ""));
 
-        for (Http2Header header : STATIC_HEADER_TABLE) {
-
-            STATIC_MAP.put(header.getName(), header);
+        // 同名的表项是连续的，map中保存第一个的索引
+        for (int i = STATIC_HEADER_TABLE.size() - 1; i > 0; i--) {
+            STATIC_MAP.put(STATIC_HEADER_TABLE.get(i).getName(), i);
         }
     }
 
-    static final int length = STATIC_HEADER_TABLE.size();
+    // 下标0是占位的:error，不计入静态表长度
+    static final int length = STATIC_HEADER_TABLE.size() - 1;
 
     static Http2Header getEntry(int index) {
         return STATIC_HEADER_TABLE.get(index);
@@ -107,22 +108,36 @@ final class StaticTable {
     // singleton
     private StaticTable() {}
 
+    /**
+     * Returns the lowest index value for the given header field name in the static table. Returns
+     * -1 if the header field name is not in the static table.
+     */
     public static int getIndex(String name) {
-        return getIndex(name, "");
+        Integer index = STATIC_MAP.get(name);
+        if (index == null) {
+            return -1;
+        }
+        return index;
     }
 
+    /**
+     * Returns the index value for the given header field in the static table. Returns -1 if the
+     * header field is not in the static table.
+     */
     public static int getIndex(String name, String value) {
-
-        Http2Header header = STATIC_MAP.get(name);
-
-        if (header == null) {
+        int index = getIndex(name);
+        if (index == -1) {
             return -1;
         }
-
-        if (header.getValue().equals(value)) {
-            return header.getIndex();
+        for (; index <= length; index++) {
+            Http2Header header = STATIC_HEADER_TABLE.get(index);
+            if (!header.getName().equals(name)) {
+                break;
+            }
+            if (header.getValue().equals(value)) {
+                return index;
+            }
         }
-
-        return 0;
+        return -1;
     }
 }
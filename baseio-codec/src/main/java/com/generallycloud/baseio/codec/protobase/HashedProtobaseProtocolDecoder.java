@@ -18,9 +18,9 @@ package com.generallycloud.baseio.codec.protobase;
 import java.io.IOException;
 
 import com.generallycloud.baseio.buffer.ByteBuf;
-import com.generallycloud.baseio.buffer.ByteBufAllocator;
 import com.generallycloud.baseio.codec.protobase.future.HashedProtobaseBinaryFutureImpl;
 import com.generallycloud.baseio.codec.protobase.future.HashedProtobaseFutureImpl;
+import com.generallycloud.baseio.codec.protobase.future.ProtobaseFrameFuture;
 import com.generallycloud.baseio.component.SocketChannel;
 import com.generallycloud.baseio.protocol.ChannelFuture;
 
@@ -55,21 +55,62 @@ public class HashedProtobaseProtocolDecoder extends ProtobaseProtocolDecoder {
     public static final int PROTOCOL_HEADER_WITHBINARY = 20;
     public static final int PROTOCOL_HEADER_NO_BINARY  = 16;
 
+    private boolean         forward;
+
     public HashedProtobaseProtocolDecoder(int limit) {
+        this(limit, false);
+    }
+
+    /**
+     * @param forward 为true时只解析头部，完整的报文以{@link ProtobaseFrameFuture}原样转发
+     */
+    public HashedProtobaseProtocolDecoder(int limit, boolean forward) {
         super(limit);
+        this.forward = forward;
+    }
+
+    @Override
+    protected ByteBuf allocateHeader(SocketChannel channel, int header) {
+        if (forward) {
+            // 转发时B0也保留在buf中
+            return channel.getByteBufAllocator().allocate(header);
+        }
+        return super.allocateHeader(channel, header);
+    }
+
+    @Override
+    protected int getHeaderLengthNoBinary() {
+        return PROTOCOL_HEADER_NO_BINARY;
+    }
+
+    @Override
+    protected int getHeaderLengthWithBinary() {
+        return PROTOCOL_HEADER_WITHBINARY;
+    }
+
+    @Override
+    public void setDecodeInPlace(boolean decodeInPlace) {
+        // 转发的报文需要保留完整的buf
+        super.setDecodeInPlace(decodeInPlace && !forward);
     }
 
     @Override
-    protected ChannelFuture newChannelReadFutureNoBinary(SocketChannel channel,
-            ByteBufAllocator allocator, byte b) throws IOException {
-        ByteBuf buf = allocator.allocate(PROTOCOL_HEADER_NO_BINARY - 1);
+    protected ChannelFuture newChannelReadFutureNoBinary(SocketChannel channel, ByteBuf buf,
+            byte b) throws IOException {
+        if (forward) {
+            return new ProtobaseFrameFuture(channel, buf, b, true, PROTOCOL_HEADER_NO_BINARY,
+                    limit);
+        }
         return new HashedProtobaseFutureImpl(channel, buf, isBroadcast(b));
     }
 
     @Override
-    protected ChannelFuture newChannelReadFutureWithBinary(SocketChannel channel,
-            ByteBufAllocator allocator, byte b) throws IOException {
-        ByteBuf buf = allocator.allocate(PROTOCOL_HEADER_WITHBINARY - 1);
+    protected ChannelFuture newChannelReadFutureWithBinary(SocketChannel channel, ByteBuf buf,
+            byte b) throws IOException {
+        if (forward) {
+            return new ProtobaseFrameFuture(channel, buf, b, true, PROTOCOL_HEADER_WITHBINARY,
+                    limit);
+        }
         return new HashedProtobaseBinaryFutureImpl(channel, buf, limit, isBroadcast(b));
     }
 
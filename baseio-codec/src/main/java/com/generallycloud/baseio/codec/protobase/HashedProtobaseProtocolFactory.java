@@ -27,19 +27,45 @@ public class HashedProtobaseProtocolFactory implements ProtocolFactory {
         
     }
 
-    private int limit;
+    private int     limit;
+
+    private boolean decodeInPlace;
+
+    private boolean forward;
 
     public HashedProtobaseProtocolFactory() {
         this(1024 * 8);
     }
 
     public HashedProtobaseProtocolFactory(int limit) {
+        this(limit, false);
+    }
+
+    /**
+     * @param forward 为true时decoder只解析头部，用于balance等只转发报文的场景
+     */
+    public HashedProtobaseProtocolFactory(int limit, boolean forward) {
         this.limit = limit;
+        this.forward = forward;
     }
 
     @Override
     public ProtocolDecoder getProtocolDecoder(SocketChannelContext context) {
-        return new HashedProtobaseProtocolDecoder(limit);
+        HashedProtobaseProtocolDecoder decoder = new HashedProtobaseProtocolDecoder(limit,
+                forward);
+        decoder.setDecodeInPlace(decodeInPlace);
+        return decoder;
+    }
+
+    public boolean isDecodeInPlace() {
+        return decodeInPlace;
+    }
+
+    /**
+     * 参考{@link ProtobaseProtocolFactory#setDecodeInPlace(boolean)}，forward为true时不生效
+     */
+    public void setDecodeInPlace(boolean decodeInPlace) {
+        this.decodeInPlace = decodeInPlace;
     }
 
     @Override
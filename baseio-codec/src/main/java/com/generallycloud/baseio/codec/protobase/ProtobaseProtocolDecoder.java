@@ -18,7 +18,6 @@ package com.generallycloud.baseio.codec.protobase;
 import java.io.IOException;
 
 import com.generallycloud.baseio.buffer.ByteBuf;
-import com.generallycloud.baseio.buffer.ByteBufAllocator;
 import com.generallycloud.baseio.codec.protobase.future.ProtobaseBinaryFutureImpl;
 import com.generallycloud.baseio.codec.protobase.future.ProtobaseFutureImpl;
 import com.generallycloud.baseio.component.SocketChannel;
@@ -62,6 +61,8 @@ public class ProtobaseProtocolDecoder implements ProtocolDecoder {
 
     protected int            limit;
 
+    private boolean          decodeInPlace;
+
     public ProtobaseProtocolDecoder(int limit) {
         this.limit = limit;
     }
@@ -77,28 +78,87 @@ public class ProtobaseProtocolDecoder implements ProtocolDecoder {
             return new ProtobaseFutureImpl(channel.getContext()).setPONG();
         }
 
-        ByteBufAllocator allocator = channel.getByteBufAllocator();
+        boolean hasBinary = (byte0 & PROTOCOL_HAS_BINARY) > 0;
+
+        int header = hasBinary ? getHeaderLengthWithBinary() : getHeaderLengthNoBinary();
+
+        ByteBuf buf = null;
+
+        // 完整的报文已经在读缓冲区中时由future直接从中解析，不再分配和复制
+        if (!decodeInPlace || !isFrameReadable(buffer, header, hasBinary)) {
+            buf = allocateHeader(channel, header);
+        }
+
+        if (hasBinary) {
+            return newChannelReadFutureWithBinary(channel, buf, byte0);
+        }
 
-        if ((byte0 & PROTOCOL_HAS_BINARY) > 0) {
-            return newChannelReadFutureWithBinary(channel, allocator, byte0);
+        return newChannelReadFutureNoBinary(channel, buf, byte0);
+    }
+
+    /**
+     * 头部中textLength位于最后(无binary)或者binaryLength之前，各协议相同
+     */
+    private boolean isFrameReadable(ByteBuf buffer, int header, boolean hasBinary) {
+        int remaining = buffer.remaining() - (header - 1);
+        if (remaining < 0) {
+            return false;
+        }
+        int bodyIndex = buffer.position() + header - 1;
+        int length = buffer.getUnsignedByte(buffer.position());
+        if (hasBinary) {
+            int binaryLength = buffer.getInt(bodyIndex - 4);
+            // 非法的长度交给原有的流程抛出异常
+            if (binaryLength < 0 || binaryLength > limit) {
+                return false;
+            }
+            length += buffer.getUnsignedShort(bodyIndex - 6) + binaryLength;
+        } else {
+            length += buffer.getUnsignedShort(bodyIndex - 2);
         }
+        return remaining >= length;
+    }
+
+    /**
+     * @param header 包含B0的头部长度
+     */
+    protected ByteBuf allocateHeader(SocketChannel channel, int header) {
+        return channel.getByteBufAllocator().allocate(header - 1);
+    }
+
+    protected int getHeaderLengthNoBinary() {
+        return PROTOCOL_HEADER_NO_BINARY;
+    }
+
+    protected int getHeaderLengthWithBinary() {
+        return PROTOCOL_HEADER_WITH_BINARY;
+    }
+
+    public boolean isDecodeInPlace() {
+        return decodeInPlace;
+    }
 
-        return newChannelReadFutureNoBinary(channel, allocator, byte0);
+    /**
+     * 为true时，已经完整读取到的报文直接从selector的读缓冲区中解析
+     */
+    public void setDecodeInPlace(boolean decodeInPlace) {
+        this.decodeInPlace = decodeInPlace;
     }
 
     protected boolean isBroadcast(byte b) {
         return (b & PROTOCOL_IS_BROADCAST) > 0;
     }
 
-    protected ChannelFuture newChannelReadFutureNoBinary(SocketChannel channel,
-            ByteBufAllocator allocator, byte b) throws IOException {
-        ByteBuf buf = allocator.allocate(PROTOCOL_HEADER_NO_BINARY - 1);
+    /**
+     * @param buf 用于读取头部的buf，为null时表示完整的报文在读缓冲区中
+     */
+    protected ChannelFuture newChannelReadFutureNoBinary(SocketChannel channel, ByteBuf buf,
+            byte b) throws IOException {
         return new ProtobaseFutureImpl(channel, buf);
     }
 
-    protected ChannelFuture newChannelReadFutureWithBinary(SocketChannel channel,
-            ByteBufAllocator allocator, byte b) throws IOException {
-        ByteBuf buf = allocator.allocate(PROTOCOL_HEADER_WITH_BINARY - 1);
+    protected ChannelFuture newChannelReadFutureWithBinary(SocketChannel channel, ByteBuf buf,
+            byte b) throws IOException {
         return new ProtobaseBinaryFutureImpl(channel, buf, limit);
     }
 
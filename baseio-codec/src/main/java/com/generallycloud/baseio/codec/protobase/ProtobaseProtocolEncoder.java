@@ -21,6 +21,7 @@ import java.nio.charset.Charset;
 import com.generallycloud.baseio.buffer.ByteBuf;
 import com.generallycloud.baseio.buffer.ByteBufAllocator;
 import com.generallycloud.baseio.buffer.EmptyByteBuf;
+import com.generallycloud.baseio.codec.protobase.future.ProtobaseFrameFuture;
 import com.generallycloud.baseio.codec.protobase.future.ProtobaseFuture;
 import com.generallycloud.baseio.common.StringUtil;
 import com.generallycloud.baseio.component.ByteArrayBuffer;
@@ -44,6 +45,17 @@ public class ProtobaseProtocolEncoder implements ProtocolEncoder {
             return;
         }
 
+        if (future instanceof ProtobaseFrameFuture) {
+            ProtobaseFrameFuture frame = (ProtobaseFrameFuture) future;
+            int header_length = frame.hasBinary() ? getHeaderLengthWithBinary()
+                    : getHeaderLengthNoBinary();
+            if (frame.getHeaderLength() == header_length) {
+                frame.encodeFrame();
+                return;
+            }
+            frame.translateContent();
+        }
+
         ProtobaseFuture f = (ProtobaseFuture) future;
 
         String future_name = f.getFutureName();
@@ -76,13 +88,20 @@ public class ProtobaseProtocolEncoder implements ProtocolEncoder {
             text_length = buffer.size();
         }
 
-        if (binary != null) {
+        int file_length = f.getWriteFileLength();
+
+        if (binary != null || file_length > 0) {
             text_length = text_array.length;
             int header_length = getHeaderLengthWithBinary();
-            int binary_length = binary.size();
+            // 二进制内容为文件时由随后的FileRegionChannelFuture写出，这里只写出头部
+            int binary_length = binary == null ? file_length : binary.size();
             byte byte0 = getBinaryFirstByte();
 
-            int all_length = header_length + future_name_length + text_length + binary_length;
+            int all_length = header_length + future_name_length + text_length;
+
+            if (binary != null) {
+                all_length += binary_length;
+            }
 
             ByteBuf buf = allocator.allocate(all_length);
 
@@ -99,7 +118,9 @@ public class ProtobaseProtocolEncoder implements ProtocolEncoder {
                 buf.put(text_array, 0, text_length);
             }
 
-            buf.put(binary.array(), 0, binary_length);
+            if (binary != null) {
+                buf.put(binary.array(), 0, binary_length);
+            }
 
             future.setByteBuf(buf.flip());
             return;
@@ -26,7 +26,9 @@ public class ProtobaseProtocolFactory implements ProtocolFactory {
     public void initialize(SocketChannelContext context) {
     }
     
-    private int limit;
+    private int     limit;
+
+    private boolean decodeInPlace;
 
     public ProtobaseProtocolFactory() {
         this(1024 * 8);
@@ -38,7 +40,21 @@ public class ProtobaseProtocolFactory implements ProtocolFactory {
 
     @Override
     public ProtocolDecoder getProtocolDecoder(SocketChannelContext context) {
-        return new ProtobaseProtocolDecoder(limit);
+        ProtobaseProtocolDecoder decoder = new ProtobaseProtocolDecoder(limit);
+        decoder.setDecodeInPlace(decodeInPlace);
+        return decoder;
+    }
+
+    public boolean isDecodeInPlace() {
+        return decodeInPlace;
+    }
+
+    /**
+     * 为true时，已经完整读取到的报文直接从selector的读缓冲区中解析，
+     * 只有跨越多次读取的报文才复制到单独分配的buf中
+     */
+    public void setDecodeInPlace(boolean decodeInPlace) {
+        this.decodeInPlace = decodeInPlace;
     }
 
     @Override
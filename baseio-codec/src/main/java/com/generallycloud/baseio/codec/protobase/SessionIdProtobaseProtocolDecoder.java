@@ -18,7 +18,7 @@ package com.generallycloud.baseio.codec.protobase;
 import java.io.IOException;
 
 import com.generallycloud.baseio.buffer.ByteBuf;
-import com.generallycloud.baseio.buffer.ByteBufAllocator;
+import com.generallycloud.baseio.codec.protobase.future.ProtobaseFrameFuture;
 import com.generallycloud.baseio.codec.protobase.future.SessionIdProtobaseBinaryFutureImpl;
 import com.generallycloud.baseio.codec.protobase.future.SessionIdProtobaseFutureImpl;
 import com.generallycloud.baseio.component.SocketChannel;
@@ -54,21 +54,62 @@ public class SessionIdProtobaseProtocolDecoder extends ProtobaseProtocolDecoder
     public static final int PROTOCOL_HEADER_WITH_BINARY = 16;
     public static final int PROTOCOL_HEADER_NO_BINARY   = 12;
 
+    private boolean         forward;
+
     public SessionIdProtobaseProtocolDecoder(int limit) {
+        this(limit, false);
+    }
+
+    /**
+     * @param forward 为true时只解析头部，完整的报文以{@link ProtobaseFrameFuture}原样转发
+     */
+    public SessionIdProtobaseProtocolDecoder(int limit, boolean forward) {
         super(limit);
+        this.forward = forward;
+    }
+
+    @Override
+    protected ByteBuf allocateHeader(SocketChannel channel, int header) {
+        if (forward) {
+            // 转发时B0也保留在buf中
+            return channel.getByteBufAllocator().allocate(header);
+        }
+        return super.allocateHeader(channel, header);
+    }
+
+    @Override
+    protected int getHeaderLengthNoBinary() {
+        return PROTOCOL_HEADER_NO_BINARY;
+    }
+
+    @Override
+    protected int getHeaderLengthWithBinary() {
+        return PROTOCOL_HEADER_WITH_BINARY;
+    }
+
+    @Override
+    public void setDecodeInPlace(boolean decodeInPlace) {
+        // 转发的报文需要保留完整的buf
+        super.setDecodeInPlace(decodeInPlace && !forward);
     }
 
     @Override
-    protected ChannelFuture newChannelReadFutureNoBinary(SocketChannel channel,
-            ByteBufAllocator allocator, byte b) throws IOException {
-        ByteBuf buf = allocator.allocate(PROTOCOL_HEADER_NO_BINARY - 1);
+    protected ChannelFuture newChannelReadFutureNoBinary(SocketChannel channel, ByteBuf buf,
+            byte b) throws IOException {
+        if (forward) {
+            return new ProtobaseFrameFuture(channel, buf, b, false, PROTOCOL_HEADER_NO_BINARY,
+                    limit);
+        }
         return new SessionIdProtobaseFutureImpl(channel, buf, isBroadcast(b));
     }
 
     @Override
-    protected ChannelFuture newChannelReadFutureWithBinary(SocketChannel channel,
-            ByteBufAllocator allocator, byte b) throws IOException {
-        ByteBuf buf = allocator.allocate(PROTOCOL_HEADER_WITH_BINARY - 1);
+    protected ChannelFuture newChannelReadFutureWithBinary(SocketChannel channel, ByteBuf buf,
+            byte b) throws IOException {
+        if (forward) {
+            return new ProtobaseFrameFuture(channel, buf, b, false, PROTOCOL_HEADER_WITH_BINARY,
+                    limit);
+        }
         return new SessionIdProtobaseBinaryFutureImpl(channel, buf, limit, isBroadcast(b));
     }
 
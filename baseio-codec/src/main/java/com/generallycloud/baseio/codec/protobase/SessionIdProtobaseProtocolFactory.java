@@ -26,19 +26,45 @@ public class SessionIdProtobaseProtocolFactory implements ProtocolFactory {
     public void initialize(SocketChannelContext context) {
     }
     
-    private int limit;
+    private int     limit;
+
+    private boolean decodeInPlace;
+
+    private boolean forward;
 
     public SessionIdProtobaseProtocolFactory() {
         this(1024 * 8);
     }
 
     public SessionIdProtobaseProtocolFactory(int limit) {
+        this(limit, false);
+    }
+
+    /**
+     * @param forward 为true时decoder只解析头部，用于balance等只转发报文的场景
+     */
+    public SessionIdProtobaseProtocolFactory(int limit, boolean forward) {
         this.limit = limit;
+        this.forward = forward;
     }
 
     @Override
     public ProtocolDecoder getProtocolDecoder(SocketChannelContext context) {
-        return new SessionIdProtobaseProtocolDecoder(limit);
+        SessionIdProtobaseProtocolDecoder decoder = new SessionIdProtobaseProtocolDecoder(limit,
+                forward);
+        decoder.setDecodeInPlace(decodeInPlace);
+        return decoder;
+    }
+
+    public boolean isDecodeInPlace() {
+        return decodeInPlace;
+    }
+
+    /**
+     * 参考{@link ProtobaseProtocolFactory#setDecodeInPlace(boolean)}，forward为true时不生效
+     */
+    public void setDecodeInPlace(boolean decodeInPlace) {
+        this.decodeInPlace = decodeInPlace;
     }
 
     @Override
@@ -51,9 +51,9 @@ public class ProtobaseBinaryFutureImpl extends ProtobaseFutureImpl {
     }
 
     @Override
-    protected void gainBinary(ByteBuf buf, int offset) {
-        buf.skipBytes(future_name_length + textLength);
-        binary = buf.getBytes();
+    protected void gainBinary(ByteBuf buf) {
+        binary = new byte[binaryLength];
+        buf.get(binary);
     }
 
     @Override
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.codec.protobase.future;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.generallycloud.baseio.balance.BalanceFuture;
+import com.generallycloud.baseio.buffer.ByteBuf;
+import com.generallycloud.baseio.codec.protobase.ProtobaseProtocolDecoder;
+import com.generallycloud.baseio.common.StringUtil;
+import com.generallycloud.baseio.component.SocketChannel;
+
+/**
+ * 转发模式下的SessionIdProtobase/HashedProtobase报文，只解析头部，
+ * 完整的报文保留在buf中：
+ *
+ * <pre>
+ * [byte0:1][nameLength:1][futureId:4][sessionId:4][hashCode:4?][textLength:2][binaryLength:4?][name][text][binary]
+ * </pre>
+ *
+ * 转发时只改写发生变化的头部字段，不重新编码。buf在读取完成时额外retain了一次，
+ * 由写出后的onSuccess/onException释放，未转发的报文需要调用方{@link #release()}。
+ * <br>
+ * name与text在调用getFutureName/getReadText时才解码，需在转发之前调用
+ */
+public class ProtobaseFrameFuture extends ProtobaseFutureImpl implements HashedProtobaseFuture {
+
+    private static final int SESSION_ID_INDEX = 6;
+    private static final int HASH_CODE_INDEX  = 10;
+
+    private byte             byte0;
+    private boolean          hashed;
+    private int              headerLength;
+    private int              binaryLimit;
+    private int              binaryLength;
+    private int              sessionId;
+    private int              hashCode;
+    private boolean          header_complete;
+    private boolean          body_complete;
+    private boolean          sessionIdChanged;
+    private boolean          hashCodeChanged;
+    private boolean          futureIdChanged;
+    private boolean          encoded;
+
+    /**
+     * @param buf 容量为headerLength的buf，byte0已经被decoder读取
+     */
+    public ProtobaseFrameFuture(SocketChannel channel, ByteBuf buf, byte byte0, boolean hashed,
+            int headerLength, int binaryLimit) {
+        super(channel, buf);
+        this.byte0 = byte0;
+        this.hashed = hashed;
+        this.headerLength = headerLength;
+        this.binaryLimit = binaryLimit;
+        buf.putByte(byte0);
+    }
+
+    @Override
+    public boolean read(SocketChannel channel, ByteBuf buffer) throws IOException {
+        if (!header_complete) {
+            buf.read(buffer);
+            if (buf.hasRemaining()) {
+                return false;
+            }
+            header_complete = true;
+            doHeaderComplete();
+        }
+        if (!body_complete) {
+            buf.read(buffer);
+            if (buf.hasRemaining()) {
+                return false;
+            }
+            body_complete = true;
+            // 读取完成后future会被release，保留一个引用用于转发
+            buf.retain(1);
+        }
+        return true;
+    }
+
+    private void doHeaderComplete() {
+        ByteBuf buf = this.buf.flip();
+        buf.skipBytes(1);
+        future_name_length = buf.getUnsignedByte();
+        super.setFutureId(buf.getInt());
+        sessionId = buf.getInt();
+        if (hashed) {
+            hashCode = buf.getInt();
+        }
+        textLength = buf.getUnsignedShort();
+        int bodyLength = future_name_length + textLength;
+        if (hasBinary()) {
+            binaryLength = buf.getInt();
+            this.buf = buf.reallocate(headerLength + bodyLength + binaryLength,
+                    headerLength + bodyLength + binaryLimit, true);
+        } else {
+            this.buf = buf.reallocate(headerLength + bodyLength, true);
+        }
+    }
+
+    /**
+     * 改写发生变化的头部字段并准备写出，由encoder调用
+     */
+    public void encodeFrame() {
+        if (encoded) {
+            return;
+        }
+        encoded = true;
+        ByteBuffer memory = buf.nioBuffer();
+        int offset = buf.offset();
+        // 转发出去的报文不再是广播
+        memory.put(offset, (byte) (byte0 & ~ProtobaseProtocolDecoder.PROTOCOL_IS_BROADCAST));
+        if (futureIdChanged) {
+            memory.putInt(offset + 2, getFutureId());
+        }
+        if (sessionIdChanged) {
+            memory.putInt(offset + SESSION_ID_INDEX, sessionId);
+        }
+        if (hashCodeChanged && hashed) {
+            memory.putInt(offset + HASH_CODE_INDEX, hashCode);
+        }
+        // 与setByteBuf一致，同步写出时使用的nioBuffer
+        setByteBuf(buf.flip());
+    }
+
+    /**
+     * 未改写头部时可直接转发给使用相同头部格式的协议
+     */
+    public int getHeaderLength() {
+        return headerLength;
+    }
+
+    public boolean isHashed() {
+        return hashed;
+    }
+
+    private String decode(int index, int length) {
+        ByteBuffer memory = buf.nioBuffer().duplicate();
+        int start = buf.offset() + index;
+        memory.limit(start + length).position(start);
+        return StringUtil.decode(context.getEncoding(), memory);
+    }
+
+    @Override
+    public String getFutureName() {
+        String futureName = super.getFutureName();
+        if (futureName == null && body_complete) {
+            futureName = decode(headerLength, future_name_length);
+            super.setFutureName(futureName);
+        }
+        return futureName;
+    }
+
+    @Override
+    public String getReadText() {
+        if (readText == null && body_complete) {
+            readText = decode(headerLength + future_name_length, textLength);
+        }
+        return readText;
+    }
+
+    @Override
+    public byte[] getBinary() {
+        if (!hasBinary() || !body_complete) {
+            return null;
+        }
+        byte[] binary = new byte[binaryLength];
+        ByteBuffer memory = buf.nioBuffer().duplicate();
+        memory.position(buf.offset() + headerLength + future_name_length + textLength);
+        memory.get(binary);
+        return binary;
+    }
+
+    @Override
+    public int getBinaryLength() {
+        return binaryLength;
+    }
+
+    @Override
+    public boolean hasBinary() {
+        return (byte0 & ProtobaseProtocolDecoder.PROTOCOL_HAS_BINARY) != 0;
+    }
+
+    @Override
+    public void setFutureId(int futureId) {
+        super.setFutureId(futureId);
+        this.futureIdChanged = true;
+    }
+
+    @Override
+    public int getSessionId() {
+        return sessionId;
+    }
+
+    @Override
+    public void setSessionId(int sessionId) {
+        if (this.sessionId != sessionId) {
+            this.sessionId = sessionId;
+            this.sessionIdChanged = true;
+        }
+    }
+
+    @Override
+    public int getHashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public void setHashCode(int hashCode) {
+        if (this.hashCode != hashCode) {
+            this.hashCode = hashCode;
+            this.hashCodeChanged = true;
+        }
+    }
+
+    @Override
+    public Object getSessionKey() {
+        return sessionId;
+    }
+
+    @Override
+    public boolean isBroadcast() {
+        return (byte0 & ProtobaseProtocolDecoder.PROTOCOL_IS_BROADCAST) != 0;
+    }
+
+    @Override
+    public void setBroadcast(boolean broadcast) {
+        if (broadcast) {
+            byte0 |= ProtobaseProtocolDecoder.PROTOCOL_IS_BROADCAST;
+        } else {
+            byte0 &= ~ProtobaseProtocolDecoder.PROTOCOL_IS_BROADCAST;
+        }
+    }
+
+    /**
+     * 头部格式相同时直接转发原始报文，否则由encoder按照name/text/binary重新编码
+     */
+    @Override
+    public BalanceFuture translate() {
+        return this;
+    }
+
+    /**
+     * 目标协议的头部格式不同时，将报文内容复制到写缓冲区后按普通future编码
+     */
+    public void translateContent() {
+        String text = getReadText();
+        if (!StringUtil.isNullOrBlank(text)) {
+            write(text);
+        }
+        getFutureName();
+        if (hasBinary()) {
+            writeBinary(getBinary());
+        }
+        buf.release();
+    }
+
+}
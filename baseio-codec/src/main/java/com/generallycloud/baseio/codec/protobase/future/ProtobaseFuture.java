@@ -42,4 +42,11 @@ public interface ProtobaseFuture extends NamedFuture, ParametersFuture {
     public abstract void writeBinary(byte[] bytes, int offset, int length);
 
     public abstract void setFutureName(String parserName);
+
+    /**
+     * 设置随后由FileRegionChannelFuture写出的二进制长度，设置后encode时只写出头部
+     */
+    public abstract void setWriteFileLength(int length);
+
+    public abstract int getWriteFileLength();
 }
@@ -20,6 +20,7 @@ import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 
 import com.generallycloud.baseio.buffer.ByteBuf;
+import com.generallycloud.baseio.buffer.EmptyByteBuf;
 import com.generallycloud.baseio.common.StringUtil;
 import com.generallycloud.baseio.component.ByteArrayBuffer;
 import com.generallycloud.baseio.component.JsonParameters;
@@ -39,6 +40,7 @@ public class ProtobaseFutureImpl extends AbstractChannelFuture implements Protob
     private boolean         header_complete;
     private Parameters      parameters;
     private ByteArrayBuffer writeBinaryBuffer;
+    private int             writeFileLength;
 
     protected int           future_name_length;
     protected int           textLength;
@@ -69,11 +71,13 @@ public class ProtobaseFutureImpl extends AbstractChannelFuture implements Protob
 
         Charset charset = context.getEncoding();
 
-        int offset = buf.offset();
+        int position = buf.position();
+
+        int limit = buf.limit();
 
         ByteBuffer memory = buf.nioBuffer();
 
-        memory.limit(offset + future_name_length);
+        memory.limit(memory.position() + future_name_length);
 
         futureName = StringUtil.decode(charset, memory);
 
@@ -81,7 +85,12 @@ public class ProtobaseFutureImpl extends AbstractChannelFuture implements Protob
 
         readText = StringUtil.decode(charset, memory);
 
-        gainBinary(buf, offset);
+        // direct buf的nioBuffer与buf共用position和limit，解码后按原值还原
+        buf.limit(limit);
+
+        buf.position(position + future_name_length + textLength);
+
+        gainBinary(buf);
     }
 
     private void doHeaderComplete(SocketChannel channel, ByteBuf buf) throws IOException {
@@ -95,8 +104,6 @@ public class ProtobaseFutureImpl extends AbstractChannelFuture implements Protob
         this.textLength = buf.getUnsignedShort();
 
         this.generateHeaderBinary(buf);
-
-        reallocateBuf(buf);
     }
 
     protected void generateHeaderBinary(ByteBuf buf) {
@@ -111,7 +118,10 @@ public class ProtobaseFutureImpl extends AbstractChannelFuture implements Protob
         buf.reallocate(future_name_length + textLength);
     }
 
-    protected void gainBinary(ByteBuf buf, int offset) {}
+    /**
+     * @param buf position位于binary的开始，in place解析时limit之后可能还有其它报文
+     */
+    protected void gainBinary(ByteBuf buf) {}
 
     @Override
     public byte[] getBinary() {
@@ -151,6 +161,16 @@ public class ProtobaseFutureImpl extends AbstractChannelFuture implements Protob
         return writeBinaryBuffer;
     }
 
+    @Override
+    public int getWriteFileLength() {
+        return writeFileLength;
+    }
+
+    @Override
+    public void setWriteFileLength(int writeFileLength) {
+        this.writeFileLength = writeFileLength;
+    }
+
     @Override
     public boolean hasBinary() {
         return false;
@@ -161,6 +181,16 @@ public class ProtobaseFutureImpl extends AbstractChannelFuture implements Protob
 
         ByteBuf buf = this.buf;
 
+        if (buf == null) {
+            // decoder已经确认完整的报文都在buffer中，直接从中解析
+            this.buf = EmptyByteBuf.getInstance();
+            this.header_complete = true;
+            this.body_complete = true;
+            doHeaderComplete(channel, buffer);
+            doBodyComplete(channel, buffer);
+            return true;
+        }
+
         if (!header_complete) {
 
             buf.read(buffer);
@@ -172,6 +202,8 @@ public class ProtobaseFutureImpl extends AbstractChannelFuture implements Protob
             header_complete = true;
 
             doHeaderComplete(channel, buf.flip());
+
+            reallocateBuf(buf);
         }
 
         if (!body_complete) {
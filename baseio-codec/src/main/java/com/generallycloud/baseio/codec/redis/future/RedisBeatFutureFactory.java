@@ -25,6 +25,15 @@ public class RedisBeatFutureFactory implements BeatFutureFactory {
     @Override
     public Future createPINGPacket(SocketSession session) {
 
+        RedisConnection connection = (RedisConnection) session
+                .getAttribute(RedisConnection.SESSION_KEY);
+
+        if (connection != null) {
+            // 经过pendings发出，避免PONG错位到其它命令上
+            connection.sendCommand(RedisCommand.PING);
+            return null;
+        }
+
         RedisCmdFuture f = new RedisCmdFuture(session.getContext());
 
         f.setPING();
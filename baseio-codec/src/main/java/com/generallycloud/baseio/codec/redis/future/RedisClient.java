@@ -16,74 +16,220 @@
 package com.generallycloud.baseio.codec.redis.future;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.generallycloud.baseio.TimeoutException;
 import com.generallycloud.baseio.codec.redis.future.RedisFuture.RedisCommand;
-import com.generallycloud.baseio.component.SocketChannelContext;
 import com.generallycloud.baseio.component.SocketSession;
-import com.generallycloud.baseio.concurrent.Waiter;
 
-//FIXME check null
+/**
+ * 命令在连接上流水线发出，不等待上一个命令的响应；多个session时轮询使用，
+ * 同步方法为异步方法加超时等待。session需要使用RedisIOEventHandle，
+ * 建议同时添加RedisSEListener以便连接断开时及时结束未完成的命令
+ */
 public class RedisClient {
 
-    private SocketChannelContext context;
+    private RedisConnection[] connections;
 
-    private SocketSession        session;
+    private AtomicInteger     index = new AtomicInteger();
 
-    private RedisIOEventHandle   ioEventHandle;
+    private Charset           charset;
 
-    private long                 timeout;
+    private long              timeout;
 
     public RedisClient(SocketSession session) {
         this(session, 3000);
     }
 
     public RedisClient(SocketSession session, long timeout) {
+        this(Arrays.asList(session), timeout);
+    }
+
+    public RedisClient(List<SocketSession> sessions, long timeout) {
+        if (sessions == null || sessions.isEmpty()) {
+            throw new IllegalArgumentException("empty sessions");
+        }
         this.timeout = timeout;
-        this.session = session;
-        this.context = session.getContext();
-        this.ioEventHandle = (RedisIOEventHandle) context.getIoEventHandleAdaptor();
+        this.charset = sessions.get(0).getContext().getEncoding();
+        this.connections = new RedisConnection[sessions.size()];
+        for (int i = 0; i < connections.length; i++) {
+            connections[i] = RedisConnection.getConnection(sessions.get(i));
+        }
+    }
+
+    private RedisConnection nextConnection() {
+        RedisConnection[] connections = this.connections;
+        if (connections.length == 1) {
+            return connections[0];
+        }
+        int start = (index.getAndIncrement() & 0x7fffffff) % connections.length;
+        for (int i = 0; i < connections.length; i++) {
+            RedisConnection c = connections[(start + i) % connections.length];
+            if (!c.getSession().isClosed()) {
+                return c;
+            }
+        }
+        return connections[start];
+    }
+
+    protected static byte[][] toBytes(Charset charset, String... args) {
+        byte[][] array = new byte[args.length][];
+        for (int i = 0; i < args.length; i++) {
+            array[i] = args[i].getBytes(charset);
+        }
+        return array;
+    }
+
+    public RedisPromise sendCommandAsync(RedisCommand command, byte[]... args) {
+        return nextConnection().sendCommand(command, args);
+    }
+
+    public RedisPromise sendCommandAsync(RedisCommand command, String... args) {
+        return sendCommandAsync(command, toBytes(charset, args));
+    }
+
+    /**
+     * 同一个pipeline中的命令在同一个连接上一次写出
+     */
+    public RedisPipeline pipelined() {
+        return new RedisPipeline(nextConnection(), false);
+    }
+
+    /**
+     * 以MULTI/EXEC包裹的pipeline
+     */
+    public RedisPipeline multi() {
+        return new RedisPipeline(nextConnection(), true);
+    }
+
+    public RedisPromise setAsync(String key, String value) {
+        return sendCommandAsync(RedisCommand.SET, key, value);
+    }
+
+    public RedisPromise getAsync(String key) {
+        return sendCommandAsync(RedisCommand.GET, key);
+    }
+
+    public RedisPromise delAsync(String... keys) {
+        return sendCommandAsync(RedisCommand.DEL, keys);
     }
 
-    private synchronized RedisNode sendCommand(byte[] command, byte[]... args) throws IOException {
+    public RedisPromise incrAsync(String key) {
+        return sendCommandAsync(RedisCommand.INCR, key);
+    }
 
-        RedisFuture future = new RedisCmdFuture(context);
+    public RedisPromise expireAsync(String key, int seconds) {
+        return sendCommandAsync(RedisCommand.EXPIRE, key, String.valueOf(seconds));
+    }
 
-        future.writeCommand(command, args);
+    public RedisPromise mgetAsync(String... keys) {
+        return sendCommandAsync(RedisCommand.MGET, keys);
+    }
 
-        Waiter<RedisNode> waiter = new Waiter<>();
+    /**
+     * @param keyValues key1, value1, key2, value2 ...
+     */
+    public RedisPromise msetAsync(String... keyValues) {
+        if ((keyValues.length & 1) != 0) {
+            throw new IllegalArgumentException("key without value");
+        }
+        return sendCommandAsync(RedisCommand.MSET, keyValues);
+    }
 
-        ioEventHandle.setWaiter(waiter);
+    public RedisPromise hgetAsync(String key, String field) {
+        return sendCommandAsync(RedisCommand.HGET, key, field);
+    }
 
-        session.flush(future);
+    public RedisPromise hsetAsync(String key, String field, String value) {
+        return sendCommandAsync(RedisCommand.HSET, key, field, value);
+    }
 
-        if (waiter.await(timeout)) {
+    public RedisPromise pingAsync() {
+        return sendCommandAsync(RedisCommand.PING, new byte[0][]);
+    }
+
+    public RedisNode await(RedisPromise promise) throws IOException {
+        RedisNode node;
+        try {
+            node = promise.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (java.util.concurrent.TimeoutException e) {
             throw new TimeoutException("timeout");
+        } catch (InterruptedException e) {
+            throw new IOException(e.getMessage(), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+        if (node != null && node.isError()) {
+            throw new IOException(String.valueOf(node.getValue()));
         }
+        return node;
+    }
 
-        return waiter.getPayload();
+    private String awaitString(RedisPromise promise) throws IOException {
+        RedisNode node = await(promise);
+        return node == null ? null : (String) node.getValue();
     }
 
-    private RedisNode sendCommand(RedisCommand command, byte[]... args) throws IOException {
-        return sendCommand(command.raw, args);
+    private long awaitLong(RedisPromise promise) throws IOException {
+        return (Long) await(promise).getValue();
     }
 
     public String set(String key, String value) throws IOException {
-        byte[] _key = key.getBytes(context.getEncoding());
-        byte[] _value = value.getBytes(context.getEncoding());
-        RedisNode node = sendCommand(RedisCommand.SET, _key, _value);
-        return (String) node.getValue();
+        return awaitString(setAsync(key, value));
     }
 
     public String get(String key) throws IOException {
-        byte[] _key = key.getBytes(context.getEncoding());
-        RedisNode node = sendCommand(RedisCommand.GET, _key);
-        return (String) node.getValue();
+        return awaitString(getAsync(key));
+    }
+
+    public long del(String... keys) throws IOException {
+        return awaitLong(delAsync(keys));
+    }
+
+    public long incr(String key) throws IOException {
+        return awaitLong(incrAsync(key));
+    }
+
+    public boolean expire(String key, int seconds) throws IOException {
+        return awaitLong(expireAsync(key, seconds)) == 1;
+    }
+
+    public List<String> mget(String... keys) throws IOException {
+        RedisNode node = await(mgetAsync(keys));
+        List<String> values = new ArrayList<>(keys.length);
+        RedisNode[] children = node.getChildren();
+        if (children != null) {
+            for (RedisNode c : children) {
+                values.add((String) c.getValue());
+            }
+        }
+        return values;
+    }
+
+    public String mset(String... keyValues) throws IOException {
+        return awaitString(msetAsync(keyValues));
+    }
+
+    public String hget(String key, String field) throws IOException {
+        return awaitString(hgetAsync(key, field));
+    }
+
+    public long hset(String key, String field, String value) throws IOException {
+        return awaitLong(hsetAsync(key, field, value));
     }
 
     public String ping() throws IOException {
-        RedisNode node = sendCommand(RedisCommand.PING);
-        return (String) node.getValue();
+        return awaitString(pingAsync());
     }
 
 }
@@ -23,6 +23,8 @@ import com.generallycloud.baseio.component.SocketChannelContext;
 
 public class RedisCmdFuture extends AbstractRedisFuture {
 
+    private RedisPromise[] promises;
+
     protected RedisCmdFuture(SocketChannelContext context) {
         super(context);
     }
@@ -37,4 +39,12 @@ public class RedisCmdFuture extends AbstractRedisFuture {
         return null;
     }
 
+    protected RedisPromise[] getPromises() {
+        return promises;
+    }
+
+    protected void setPromises(RedisPromise[] promises) {
+        this.promises = promises;
+    }
+
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.codec.redis.future;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.generallycloud.baseio.ClosedChannelException;
+import com.generallycloud.baseio.codec.redis.future.RedisFuture.RedisCommand;
+import com.generallycloud.baseio.component.SocketSession;
+
+/**
+ * 一个session上的命令按写出的顺序进入pendings，响应按顺序与之对应，
+ * 因此同一个连接上可以同时有多个命令在途
+ */
+public class RedisConnection {
+
+    public static final String  SESSION_KEY = RedisConnection.class.getName();
+
+    private SocketSession       session;
+
+    private Queue<RedisPromise> pendings    = new ConcurrentLinkedQueue<>();
+
+    private RedisConnection(SocketSession session) {
+        this.session = session;
+    }
+
+    public static RedisConnection getConnection(SocketSession session) {
+        RedisConnection connection = (RedisConnection) session.getAttribute(SESSION_KEY);
+        if (connection == null) {
+            synchronized (session) {
+                connection = (RedisConnection) session.getAttribute(SESSION_KEY);
+                if (connection == null) {
+                    connection = new RedisConnection(session);
+                    session.setAttribute(SESSION_KEY, connection);
+                }
+            }
+        }
+        return connection;
+    }
+
+    public SocketSession getSession() {
+        return session;
+    }
+
+    public int getPendingSize() {
+        return pendings.size();
+    }
+
+    /**
+     * 入队和flush需要是原子的，否则并发时写出顺序与pendings顺序可能不一致
+     */
+    protected void send(RedisCmdFuture future, RedisPromise... promises) {
+        synchronized (this) {
+            if (session.isClosed()) {
+                ClosedChannelException e = new ClosedChannelException(session.toString());
+                for (RedisPromise p : promises) {
+                    p.fail(e);
+                }
+                return;
+            }
+            for (RedisPromise p : promises) {
+                pendings.offer(p);
+            }
+            future.setPromises(promises);
+            session.flush(future);
+        }
+    }
+
+    public RedisPromise sendCommand(RedisCommand command, byte[]... args) {
+        RedisCmdFuture future = new RedisCmdFuture(session.getContext());
+        future.writeCommand(command.raw, args);
+        RedisPromise promise = new RedisPromise();
+        send(future, promise);
+        return promise;
+    }
+
+    protected void onReply(RedisNode node) {
+        RedisPromise promise = pendings.poll();
+        if (promise != null) {
+            promise.complete(node);
+        }
+    }
+
+    protected void onException(RedisCmdFuture future, Exception e) {
+        if (session.isClosed()) {
+            failAll(e);
+            return;
+        }
+        RedisPromise[] promises = future.getPromises();
+        if (promises == null) {
+            return;
+        }
+        // 没有写出的命令不会有响应
+        for (RedisPromise p : promises) {
+            pendings.remove(p);
+            p.fail(e);
+        }
+    }
+
+    protected void failAll(Throwable e) {
+        for (;;) {
+            RedisPromise promise = pendings.poll();
+            if (promise == null) {
+                return;
+            }
+            promise.fail(e);
+        }
+    }
+
+}
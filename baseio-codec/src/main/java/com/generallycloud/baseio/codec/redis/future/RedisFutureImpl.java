@@ -33,12 +33,13 @@ public class RedisFutureImpl extends AbstractRedisFuture {
 
     private boolean       complete    = false;
 
+    // bulk string的内容按长度读取，可以包含\r\n
+    private byte[]        bulkArray;
+
+    private int           bulkPosition;
+
     public RedisFutureImpl(SocketChannelContext context) {
         super(context);
-        //		this.currentLine 	= new StringBuilder();
-        //		this.rootNode		= new RedisNode(0);
-        //		this.currentNode	= rootNode;
-        //		this.complete		= false;
     }
 
     @Override
@@ -50,121 +51,150 @@ public class RedisFutureImpl extends AbstractRedisFuture {
 
         for (; buffer.hasRemaining();) {
 
+            if (bulkArray != null) {
+
+                if (!readBulk(buffer)) {
+                    return false;
+                }
+
+                if (nextNode()) {
+                    return true;
+                }
+
+                continue;
+            }
+
             byte b = buffer.getByte();
 
             if (b == '\n') {
 
-                String line = currentLine.toString();
-                currentLine.setLength(0);
-
-                switch (line.charAt(0)) {
-                    case TYPE_ARRAYS:
+                if (readLine()) {
+                    return true;
+                }
 
-                        int size = Integer.parseInt(line.substring(1));
+            } else if (b == '\r') {
+                continue;
+            } else {
+                currentLine.append((char) b);
+            }
+        }
 
-                        currentNode.createChildren(size);
+        return complete;
+    }
 
-                        currentNode.setType(TYPE_ARRAYS);
+    private boolean readBulk(ByteBuf buffer) {
 
-                        currentNode = currentNode.getChildren()[0];
+        byte[] array = bulkArray;
 
-                        break;
-                    case TYPE_BULK_STRINGS:
+        int length = Math.min(array.length - bulkPosition, buffer.remaining());
 
-                        currentNode.setType(TYPE_BULK_STRINGS);
+        buffer.get(array, bulkPosition, length);
 
-                        int length = Integer.parseInt(line.substring(1));
+        bulkPosition += length;
 
-                        if (length == -1) {
+        if (bulkPosition < array.length) {
+            return false;
+        }
 
-                            RedisNode n = currentNode.deepNext();
+        // 去掉末尾的\r\n
+        currentNode.setValue(new String(array, 0, array.length - 2, context.getEncoding()));
 
-                            if (n == null) {
+        bulkArray = null;
 
-                                doComplete();
+        return true;
+    }
 
-                                return true;
-                            }
+    /**
+     * @return true 整个响应已经读取完成
+     */
+    private boolean readLine() {
 
-                            currentNode = n;
-                        }
+        String line = currentLine.toString();
 
-                        break;
-                    case TYPE_ERRORS:
+        currentLine.setLength(0);
 
-                        currentNode.setType(TYPE_ERRORS);
+        if (line.length() == 0) {
+            return false;
+        }
 
-                        currentNode.setValue(line.substring(1));
+        switch (line.charAt(0)) {
+            case TYPE_ARRAYS:
 
-                        doComplete();
+                int size = Integer.parseInt(line.substring(1));
 
-                        return true;
-                    case TYPE_INTEGERS:
+                currentNode.setType(TYPE_ARRAYS);
 
-                        int intValue = Integer.parseInt(line.substring(1));
+                if (size < 1) {
+                    // 空数组或者null数组
+                    if (size == 0) {
+                        currentNode.createChildren(0);
+                    }
+                    return nextNode();
+                }
 
-                        currentNode.setValue(intValue);
+                currentNode.createChildren(size);
 
-                        currentNode.setType(TYPE_INTEGERS);
+                currentNode = currentNode.getChildren()[0];
 
-                        RedisNode n3 = currentNode.deepNext();
+                return false;
+            case TYPE_BULK_STRINGS:
 
-                        if (n3 == null) {
+                currentNode.setType(TYPE_BULK_STRINGS);
 
-                            doComplete();
+                int length = Integer.parseInt(line.substring(1));
 
-                            return true;
-                        }
+                if (length == -1) {
+                    return nextNode();
+                }
 
-                        currentNode = n3;
+                bulkArray = new byte[length + 2];
 
-                        break;
-                    case TYPE_SIMPLE_STRINGS:
+                bulkPosition = 0;
 
-                        currentNode.setType(TYPE_SIMPLE_STRINGS);
+                return false;
+            case TYPE_ERRORS:
 
-                        String strValue = line.substring(1);
+                currentNode.setType(TYPE_ERRORS);
 
-                        currentNode.setValue(strValue);
+                currentNode.setValue(line.substring(1));
 
-                        RedisNode n4 = currentNode.deepNext();
+                return nextNode();
+            case TYPE_INTEGERS:
 
-                        if (n4 == null) {
+                currentNode.setType(TYPE_INTEGERS);
 
-                            doComplete();
+                currentNode.setValue(Long.parseLong(line.substring(1)));
 
-                            return true;
-                        }
+                return nextNode();
+            case TYPE_SIMPLE_STRINGS:
 
-                        currentNode = n4;
+                currentNode.setType(TYPE_SIMPLE_STRINGS);
 
-                        break;
-                    default:
+                currentNode.setValue(line.substring(1));
 
-                        currentNode.setValue(line);
+                return nextNode();
+            default:
 
-                        RedisNode n5 = currentNode.deepNext();
+                currentNode.setValue(line);
 
-                        if (n5 == null) {
+                return nextNode();
+        }
+    }
 
-                            doComplete();
+    private boolean nextNode() {
 
-                            return true;
-                        }
+        RedisNode n = currentNode.deepNext();
 
-                        currentNode = n5;
+        if (n == null) {
 
-                        break;
-                }
+            doComplete();
 
-            } else if (b == '\r') {
-                continue;
-            } else {
-                currentLine.append((char) b);
-            }
+            return true;
         }
 
-        return complete;
+        currentNode = n;
+
+        return false;
     }
 
     private void doComplete() {
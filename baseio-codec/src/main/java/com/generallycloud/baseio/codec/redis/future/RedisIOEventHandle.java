@@ -17,31 +17,24 @@ package com.generallycloud.baseio.codec.redis.future;
 
 import com.generallycloud.baseio.component.IoEventHandleAdaptor;
 import com.generallycloud.baseio.component.SocketSession;
-import com.generallycloud.baseio.concurrent.Waiter;
 import com.generallycloud.baseio.protocol.Future;
 
 public class RedisIOEventHandle extends IoEventHandleAdaptor {
 
-    private Waiter<RedisNode> waiter;
-
     @Override
     public void accept(SocketSession session, Future future) throws Exception {
 
         RedisFuture f = (RedisFuture) future;
 
-        Waiter<RedisNode> waiter = this.waiter;
-
-        if (waiter != null) {
-
-            this.waiter = null;
-
-            waiter.setPayload(f.getRedisNode());
-        }
-
+        RedisConnection.getConnection(session).onReply(f.getRedisNode());
     }
 
-    public void setWaiter(Waiter<RedisNode> waiter) {
-        this.waiter = waiter;
+    @Override
+    public void exceptionCaught(SocketSession session, Future future, Exception ex) {
+        super.exceptionCaught(session, future, ex);
+        if (future instanceof RedisCmdFuture) {
+            RedisConnection.getConnection(session).onException((RedisCmdFuture) future, ex);
+        }
     }
 
 }
@@ -65,6 +65,10 @@ public class RedisNode {
         this.next = next;
     }
 
+    public boolean isError() {
+        return type == RedisFuture.TYPE_ERRORS;
+    }
+
     public char getType() {
         return type;
     }
@@ -113,6 +117,10 @@ public class RedisNode {
 
         if (value == null) {
 
+            if (children == null) {
+                return null;
+            }
+
             StringBuilder b = new StringBuilder();
 
             for (int i = 0; i < children.length; i++) {
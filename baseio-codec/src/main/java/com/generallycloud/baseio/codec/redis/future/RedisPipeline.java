@@ -0,0 +1,117 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.codec.redis.future;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.generallycloud.baseio.codec.redis.future.RedisFuture.RedisCommand;
+
+/**
+ * 多个命令合并为一次写出，multi为true时以MULTI/EXEC包裹成事务，非线程安全
+ */
+public class RedisPipeline {
+
+    private RedisConnection    connection;
+    private RedisCmdFuture     future;
+    private List<RedisPromise> promises = new ArrayList<>();
+    private boolean            multi;
+    private boolean            flushed;
+    private Charset            charset;
+
+    protected RedisPipeline(RedisConnection connection, boolean multi) {
+        this.connection = connection;
+        this.multi = multi;
+        this.future = new RedisCmdFuture(connection.getSession().getContext());
+        this.charset = future.getContext().getEncoding();
+        if (multi) {
+            command(RedisCommand.MULTI, new byte[0][]);
+        }
+    }
+
+    /**
+     * @return 该命令的结果，事务中为QUEUED，实际结果在flush返回的EXEC响应中
+     */
+    public RedisPromise command(RedisCommand command, byte[]... args) {
+        if (flushed) {
+            throw new IllegalStateException("pipeline flushed");
+        }
+        future.writeCommand(command.raw, args);
+        RedisPromise promise = new RedisPromise();
+        promises.add(promise);
+        return promise;
+    }
+
+    public RedisPromise command(RedisCommand command, String... args) {
+        return command(command, RedisClient.toBytes(charset, args));
+    }
+
+    public RedisPromise set(String key, String value) {
+        return command(RedisCommand.SET, key, value);
+    }
+
+    public RedisPromise get(String key) {
+        return command(RedisCommand.GET, key);
+    }
+
+    public RedisPromise del(String... keys) {
+        return command(RedisCommand.DEL, keys);
+    }
+
+    public RedisPromise incr(String key) {
+        return command(RedisCommand.INCR, key);
+    }
+
+    public RedisPromise expire(String key, int seconds) {
+        return command(RedisCommand.EXPIRE, key, String.valueOf(seconds));
+    }
+
+    public RedisPromise hset(String key, String field, String value) {
+        return command(RedisCommand.HSET, key, field, value);
+    }
+
+    public RedisPromise hget(String key, String field) {
+        return command(RedisCommand.HGET, key, field);
+    }
+
+    public int size() {
+        return multi ? promises.size() - 1 : promises.size();
+    }
+
+    /**
+     * 写出所有命令
+     * @return 最后一个命令的结果，事务中为EXEC的响应，其子节点依次为各命令的结果
+     */
+    public RedisPromise flush() {
+        if (flushed) {
+            throw new IllegalStateException("pipeline flushed");
+        }
+        if (multi) {
+            command(RedisCommand.EXEC, new byte[0][]);
+        }
+        flushed = true;
+        if (promises.isEmpty()) {
+            RedisPromise promise = new RedisPromise();
+            promise.complete(null);
+            return promise;
+        }
+        RedisPromise[] array = promises.toArray(new RedisPromise[promises.size()]);
+        connection.send(future, array);
+        return array[array.length - 1];
+    }
+
+}
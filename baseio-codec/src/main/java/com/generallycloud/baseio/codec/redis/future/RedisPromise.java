@@ -0,0 +1,25 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.codec.redis.future;
+
+import com.generallycloud.baseio.concurrent.Promise;
+
+/**
+ * 异步命令的结果，redis返回的错误响应也视为成功，可以通过RedisNode.isError()判断
+ */
+public class RedisPromise extends Promise<RedisNode> {
+
+}
@@ -16,59 +16,135 @@
 package com.generallycloud.baseio.container;
 
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 import com.alibaba.fastjson.JSONObject;
 import com.generallycloud.baseio.codec.protobase.future.ProtobaseFuture;
 import com.generallycloud.baseio.codec.protobase.future.ProtobaseFutureImpl;
 import com.generallycloud.baseio.common.CloseUtil;
-import com.generallycloud.baseio.common.FileUtil;
+import com.generallycloud.baseio.component.SocketChannelContext;
 import com.generallycloud.baseio.component.SocketSession;
+import com.generallycloud.baseio.protocol.ChannelFuture;
+import com.generallycloud.baseio.protocol.CompositeChannelFuture;
+import com.generallycloud.baseio.protocol.FileRegionChannelFuture;
 
 public class FileSendUtil {
 
+    private static final byte[] EMPTY_ARRAY  = new byte[0];
+
+    // 每批进入写出队列的分块数，上一批写完后才encode下一批，限制同时持有的头部buf
+    private static final int    BATCH_CHUNKS = 16;
+
+    /**
+     * 文件内容不读入内存，每个分块的头部encode后由FileRegionChannelFuture直接写出。
+     * 分块按批进入写出队列，每批要么完整写出，要么整体失败；第一批之后的批次
+     * 被拒绝或者写出过程中失败时连接会被关闭，对端不会收到不完整的文件
+     */
     public void sendFile(SocketSession session, String serviceName, File file, int cacheSize)
             throws Exception {
 
-        FileInputStream inputStream = new FileInputStream(file);
+        FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+        try {
+
+            FileSender sender = new FileSender(session, serviceName, file.getName(),
+                    fileChannel, cacheSize);
 
-        int available = inputStream.available();
+            session.flush(sender.nextBatch());
 
-        int time = (available + cacheSize) / cacheSize - 1;
+        } catch (Exception e) {
+            CloseUtil.close(fileChannel);
+            throw e;
+        }
+    }
 
-        byte[] cache = new byte[cacheSize];
+    private static class FileSender {
+
+        private SocketSession session;
+        private String        serviceName;
+        private FileChannel   fileChannel;
+        private JSONObject    json = new JSONObject();
+        private long          length;
+        private long          position;
+        private int           cacheSize;
+        private int           chunks;
+        private int           index;
+
+        FileSender(SocketSession session, String serviceName, String fileName,
+                FileChannel fileChannel, int cacheSize) throws IOException {
+            this.session = session;
+            this.serviceName = serviceName;
+            this.fileChannel = fileChannel;
+            this.cacheSize = cacheSize;
+            this.length = fileChannel.size();
+            this.chunks = (int) Math.max(1, (length + cacheSize - 1) / cacheSize);
+            this.json.put(FileReceiveUtil.FILE_NAME, fileName);
+        }
 
-        JSONObject json = new JSONObject();
-        json.put(FileReceiveUtil.FILE_NAME, file.getName());
-        json.put(FileReceiveUtil.IS_END, false);
+        CompositeChannelFuture nextBatch() {
 
-        String jsonString = json.toJSONString();
+            SocketChannelContext context = session.getContext();
 
-        for (int i = 0; i < time; i++) {
+            boolean first = index == 0;
 
-            FileUtil.readInputStream(inputStream, cache);
+            int size = Math.min(BATCH_CHUNKS, chunks - index);
 
-            ProtobaseFuture f = new ProtobaseFutureImpl(session.getContext(), serviceName);
+            ChannelFuture[] futures = new ChannelFuture[size * 2];
 
-            f.write(jsonString);
+            for (int i = 0; i < size; i++, index++) {
 
-            f.writeBinary(cache);
+                int chunk = (int) Math.min(cacheSize, length - position);
 
-            session.flush(f);
-        }
+                boolean end = index == chunks - 1;
 
-        int r = FileUtil.readInputStream(inputStream, cache);
+                json.put(FileReceiveUtil.IS_END, end);
 
-        json.put(FileReceiveUtil.IS_END, true);
+                ProtobaseFuture f = new ProtobaseFutureImpl(context, serviceName);
 
-        ProtobaseFuture f = new ProtobaseFutureImpl(session.getContext(), serviceName);
+                f.write(json.toJSONString());
 
-        f.write(json.toJSONString());
+                if (chunk == 0) {
+                    f.writeBinary(EMPTY_ARRAY);
+                } else {
+                    f.setWriteFileLength(chunk);
+                }
 
-        f.writeBinary(cache, 0, r);
+                futures[i * 2] = (ChannelFuture) f;
 
-        session.flush(f);
+                // 最后一个分块负责关闭文件
+                futures[i * 2 + 1] = new FileRegionChannelFuture(context, fileChannel, position,
+                        chunk, end);
 
-        CloseUtil.close(inputStream);
+                position += chunk;
+            }
+
+            final boolean last = index == chunks;
+
+            CompositeChannelFuture batch = new CompositeChannelFuture(context, futures) {
+
+                @Override
+                public void onSuccess(SocketSession session) {
+                    super.onSuccess(session);
+                    if (!last) {
+                        session.flush(nextBatch());
+                    }
+                }
+
+                @Override
+                public void onException(SocketSession session, Exception e) {
+                    super.onException(session, e);
+                    CloseUtil.close(fileChannel);
+                }
+            };
+
+            if (!first) {
+                // 之前的分块已经写出，单独拒绝该批会使对端收到不完整的文件
+                batch.setInseparable(true);
+            }
+
+            return batch;
+        }
     }
 }
@@ -21,12 +21,10 @@ import java.util.Map;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
-import com.generallycloud.baseio.TimeoutException;
 import com.generallycloud.baseio.codec.protobase.future.ProtobaseFuture;
 import com.generallycloud.baseio.codec.protobase.future.ProtobaseFutureImpl;
 import com.generallycloud.baseio.common.BeanUtil;
 import com.generallycloud.baseio.common.ClassUtil;
-import com.generallycloud.baseio.common.CloseUtil;
 import com.generallycloud.baseio.common.MD5Util;
 import com.generallycloud.baseio.common.StringUtil;
 import com.generallycloud.baseio.component.SocketChannelContext;
@@ -130,6 +128,19 @@ public class FixedSession {
 
     public ProtobaseFuture request(String serviceName, String content, byte[] binary)
             throws IOException {
+        return requestAsync(serviceName, content, binary).await();
+    }
+
+    public RequestPromise requestAsync(String serviceName, String content) throws IOException {
+        return requestAsync(serviceName, content, null);
+    }
+
+    /**
+     * 发起请求但不等待响应，响应通过futureId与请求对应，超时或者连接断开时
+     * promise以异常完成
+     */
+    public RequestPromise requestAsync(String serviceName, String content, byte[] binary)
+            throws IOException {
 
         if (StringUtil.isNullOrBlank(serviceName)) {
             throw new IOException("empty service name");
@@ -137,27 +148,15 @@ public class FixedSession {
 
         ProtobaseFuture future = new ProtobaseFutureImpl(context, serviceName);
 
-        future.write(content);
+        if (content != null) {
+            future.write(content);
+        }
 
         if (binary != null) {
             future.writeBinary(binary);
         }
 
-        WaiterOnFuture onReadFuture = new WaiterOnFuture();
-
-        waiterListen(serviceName, onReadFuture);
-
-        session.flush(future);
-
-        // FIXME 连接丢失时叫醒我
-        if (onReadFuture.await(timeout)) {
-
-            CloseUtil.close(session);
-
-            throw new TimeoutException("timeout");
-        }
-
-        return (ProtobaseFuture) onReadFuture.getReadFuture();
+        return PendingRequests.getPendingRequests(session).send(future, timeout);
     }
 
     public void setAuthority(Authority authority) {
@@ -170,28 +169,6 @@ public class FixedSession {
         this.eventHandle = (SimpleIoEventHandle) context.getIoEventHandleAdaptor();
     }
 
-    private void waiterListen(String serviceName, WaiterOnFuture onReadFuture) throws IOException {
-
-        if (StringUtil.isNullOrBlank(serviceName)) {
-            throw new IOException("empty service name");
-        }
-
-        if (onReadFuture == null) {
-            throw new IOException("empty onReadFuture");
-        }
-
-        OnFutureWrapper wrapper = eventHandle.getOnReadFutureWrapper(serviceName);
-
-        if (wrapper == null) {
-
-            wrapper = new OnFutureWrapper();
-
-            eventHandle.putOnReadFutureWrapper(serviceName, wrapper);
-        }
-
-        wrapper.listen(onReadFuture);
-    }
-
     public void write(String serviceName, String content) throws IOException {
         write(serviceName, content, null);
     }
@@ -203,7 +180,9 @@ public class FixedSession {
 
         ProtobaseFuture future = new ProtobaseFutureImpl(context, serviceName);
 
-        future.write(content);
+        if (content != null) {
+            future.write(content);
+        }
 
         if (binary != null) {
             future.writeBinary(binary);
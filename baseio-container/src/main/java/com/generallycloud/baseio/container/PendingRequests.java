@@ -0,0 +1,187 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.container;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.generallycloud.baseio.ClosedChannelException;
+import com.generallycloud.baseio.TimeoutException;
+import com.generallycloud.baseio.codec.protobase.future.ProtobaseFuture;
+import com.generallycloud.baseio.collection.IntObjectHashMap;
+import com.generallycloud.baseio.component.SocketSession;
+
+/**
+ * 一个session上未收到响应的请求，请求的futureId由session内的计数器分配，
+ * 服务端使用收到的future回复时会带回相同的futureId，因此同一个连接上
+ * 可以同时有多个请求在途，且同名服务的响应不会串线。
+ * <br>
+ * futureId为0的报文（服务端主动推送）不参与匹配
+ */
+public class PendingRequests {
+
+    public static final String                       SESSION_KEY = PendingRequests.class.getName();
+
+    private static final ScheduledThreadPoolExecutor TIMER       = newTimer();
+
+    private SocketSession                            session;
+
+    private IntObjectHashMap<RequestPromise>         pendings    = new IntObjectHashMap<>();
+
+    private int                                      futureIdSequence;
+
+    private PendingRequests(SocketSession session) {
+        this.session = session;
+    }
+
+    // 所有session共用一个超时定时器，线程为daemon，不影响进程退出
+    private static ScheduledThreadPoolExecutor newTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactory() {
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "request-timeout-timer");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        // 大部分请求在超时之前完成，取消的任务立即从队列中移除
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    public static PendingRequests getPendingRequests(SocketSession session) {
+        PendingRequests pendings = (PendingRequests) session.getAttribute(SESSION_KEY);
+        if (pendings == null) {
+            synchronized (session) {
+                pendings = (PendingRequests) session.getAttribute(SESSION_KEY);
+                if (pendings == null) {
+                    pendings = new PendingRequests(session);
+                    session.setAttribute(SESSION_KEY, pendings);
+                }
+            }
+        }
+        return pendings;
+    }
+
+    public SocketSession getSession() {
+        return session;
+    }
+
+    public int getPendingSize() {
+        synchronized (this) {
+            return pendings.size();
+        }
+    }
+
+    /**
+     * 为future分配futureId并写出
+     * @param timeout 超时时间(ms)，小于1时不超时
+     */
+    public RequestPromise send(ProtobaseFuture future, long timeout) {
+        final RequestPromise promise;
+        synchronized (this) {
+            // 关闭事件在closed之后触发，且需要获取当前锁，因此加入pendings的请求一定会被failAll
+            if (session.isClosed()) {
+                promise = new RequestPromise(0);
+                promise.fail(new ClosedChannelException(session.toString()));
+                return promise;
+            }
+            promise = new RequestPromise(nextFutureId());
+            pendings.put(promise.getFutureId(), promise);
+        }
+        future.setFutureId(promise.getFutureId());
+        if (timeout > 0) {
+            promise.setTimeoutTask(TIMER.schedule(new Runnable() {
+
+                @Override
+                public void run() {
+                    timeout(promise);
+                }
+            }, timeout, TimeUnit.MILLISECONDS));
+        }
+        session.flush(future);
+        return promise;
+    }
+
+    private int nextFutureId() {
+        for (;;) {
+            int futureId = ++futureIdSequence;
+            if (futureId != 0 && !pendings.containsKey(futureId)) {
+                return futureId;
+            }
+        }
+    }
+
+    private RequestPromise remove(int futureId) {
+        if (futureId == 0) {
+            return null;
+        }
+        synchronized (this) {
+            return pendings.remove(futureId);
+        }
+    }
+
+    /**
+     * @return true 如果该响应对应一个未完成的请求
+     */
+    protected boolean onResponse(ProtobaseFuture future) {
+        RequestPromise promise = remove(future.getFutureId());
+        if (promise == null) {
+            return false;
+        }
+        promise.complete(future);
+        return true;
+    }
+
+    protected boolean onException(ProtobaseFuture future, Exception e) {
+        RequestPromise promise = remove(future.getFutureId());
+        if (promise == null) {
+            return false;
+        }
+        promise.fail(e);
+        return true;
+    }
+
+    private void timeout(RequestPromise promise) {
+        synchronized (this) {
+            if (pendings.get(promise.getFutureId()) != promise) {
+                return;
+            }
+            pendings.remove(promise.getFutureId());
+        }
+        promise.fail(new TimeoutException("timeout, futureId: " + promise.getFutureId()));
+    }
+
+    protected void failAll(Throwable e) {
+        List<RequestPromise> promises;
+        synchronized (this) {
+            if (pendings.isEmpty()) {
+                return;
+            }
+            promises = new ArrayList<>(pendings.values());
+            pendings.clear();
+        }
+        for (RequestPromise promise : promises) {
+            promise.fail(e);
+        }
+    }
+
+}
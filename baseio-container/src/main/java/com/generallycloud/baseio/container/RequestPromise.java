@@ -0,0 +1,60 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.container;
+
+import java.util.concurrent.ScheduledFuture;
+
+import com.generallycloud.baseio.codec.protobase.future.ProtobaseFuture;
+import com.generallycloud.baseio.concurrent.Promise;
+
+/**
+ * 异步请求的结果，与响应通过futureId对应
+ */
+public class RequestPromise extends Promise<ProtobaseFuture> {
+
+    private int                futureId;
+    private ScheduledFuture<?> timeoutTask;
+
+    protected RequestPromise(int futureId) {
+        this.futureId = futureId;
+    }
+
+    public int getFutureId() {
+        return futureId;
+    }
+
+    protected void setTimeoutTask(ScheduledFuture<?> timeoutTask) {
+        synchronized (this) {
+            if (!isDone()) {
+                this.timeoutTask = timeoutTask;
+                return;
+            }
+        }
+        timeoutTask.cancel(false);
+    }
+
+    @Override
+    protected void onCompleted() {
+        ScheduledFuture<?> timeoutTask;
+        synchronized (this) {
+            timeoutTask = this.timeoutTask;
+        }
+        if (timeoutTask != null) {
+            timeoutTask.cancel(false);
+        }
+    }
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.container;
+
+import com.generallycloud.baseio.ClosedChannelException;
+import com.generallycloud.baseio.component.SocketSession;
+import com.generallycloud.baseio.component.SocketSessionEventListenerAdapter;
+
+/**
+ * session关闭时使所有未收到响应的请求立即失败
+ */
+public class RequestSEListener extends SocketSessionEventListenerAdapter {
+
+    @Override
+    public void sessionClosed(SocketSession session) {
+        PendingRequests pendings = (PendingRequests) session
+                .getAttribute(PendingRequests.SESSION_KEY);
+        if (pendings != null) {
+            pendings.failAll(new ClosedChannelException(session.toString()));
+        }
+    }
+
+}
@@ -19,8 +19,10 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
+import com.generallycloud.baseio.codec.protobase.future.ProtobaseFuture;
 import com.generallycloud.baseio.common.StringUtil;
 import com.generallycloud.baseio.component.IoEventHandleAdaptor;
+import com.generallycloud.baseio.component.SocketChannelContext;
 import com.generallycloud.baseio.component.SocketSession;
 import com.generallycloud.baseio.protocol.Future;
 import com.generallycloud.baseio.protocol.NamedFuture;
@@ -29,9 +31,28 @@ public class SimpleIoEventHandle extends IoEventHandleAdaptor {
 
     private Map<String, OnFutureWrapper> listeners = new HashMap<>();
 
+    private boolean                      initialized;
+
+    @Override
+    protected void initialize(SocketChannelContext context) throws Exception {
+        // context重启时也会调用
+        if (!initialized) {
+            initialized = true;
+            context.addSessionEventListener(new RequestSEListener());
+        }
+    }
+
     @Override
     public void accept(SocketSession session, Future future) throws Exception {
 
+        // 优先交给FixedSession.requestAsync发起的请求
+        if (future instanceof ProtobaseFuture) {
+            PendingRequests pendings = getPendingRequests(session);
+            if (pendings != null && pendings.onResponse((ProtobaseFuture) future)) {
+                return;
+            }
+        }
+
         NamedFuture f = (NamedFuture) future;
 
         OnFutureWrapper onReadFuture = listeners.get(f.getFutureName());
@@ -41,6 +62,22 @@ public class SimpleIoEventHandle extends IoEventHandleAdaptor {
         }
     }
 
+    @Override
+    public void exceptionCaught(SocketSession session, Future future, Exception ex) {
+        // 编码失败或者写出时连接已经关闭的请求
+        if (future instanceof ProtobaseFuture) {
+            PendingRequests pendings = getPendingRequests(session);
+            if (pendings != null && pendings.onException((ProtobaseFuture) future, ex)) {
+                return;
+            }
+        }
+        super.exceptionCaught(session, future, ex);
+    }
+
+    private PendingRequests getPendingRequests(SocketSession session) {
+        return (PendingRequests) session.getAttribute(PendingRequests.SESSION_KEY);
+    }
+
     public void listen(String serviceName, OnFuture onReadFuture) throws IOException {
 
         if (StringUtil.isNullOrBlank(serviceName)) {
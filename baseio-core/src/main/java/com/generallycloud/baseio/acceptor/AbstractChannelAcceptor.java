@@ -17,6 +17,8 @@ package com.generallycloud.baseio.acceptor;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.net.SocketOption;
+import java.nio.channels.NetworkChannel;
 
 import com.generallycloud.baseio.TimeoutException;
 import com.generallycloud.baseio.common.LoggerUtil;
@@ -56,9 +58,26 @@ public abstract class AbstractChannelAcceptor extends AbstractChannelService
 
     @Override
     protected void setServerCoreSize(ServerConfiguration configuration) {
-        if (this instanceof DatagramChannelAcceptor) {
+        // 未启用SO_REUSEPORT时udp只有一个socket，多个selector线程没有意义
+        if (this instanceof DatagramChannelAcceptor
+                && !configuration.isSERVER_ENABLE_REUSE_PORT()) {
             configuration.setSERVER_CORE_SIZE(1);
         }
     }
 
+    /**
+     * SO_REUSEPORT在jdk9中才加入StandardSocketOptions，这里从支持的选项中按名称查找
+     * 
+     * @return 不支持时返回null
+     */
+    @SuppressWarnings("unchecked")
+    protected static SocketOption<Boolean> getReusePortOption(NetworkChannel channel) {
+        for (SocketOption<?> option : channel.supportedOptions()) {
+            if ("SO_REUSEPORT".equals(option.name())) {
+                return (SocketOption<Boolean>) option;
+            }
+        }
+        return null;
+    }
+
 }
@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.net.BindException;
 import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
+import java.net.SocketOption;
 import java.nio.channels.DatagramChannel;
 import java.nio.channels.SelectableChannel;
 
@@ -27,6 +28,8 @@ import com.generallycloud.baseio.common.CloseUtil;
 import com.generallycloud.baseio.component.DatagramChannelContext;
 import com.generallycloud.baseio.component.DatagramSelectorEventLoopGroup;
 import com.generallycloud.baseio.configuration.ServerConfiguration;
+import com.generallycloud.baseio.log.Logger;
+import com.generallycloud.baseio.log.LoggerFactory;
 import com.generallycloud.baseio.protocol.ChannelFuture;
 import com.generallycloud.baseio.protocol.Future;
 
@@ -40,6 +43,12 @@ public final class DatagramChannelAcceptor extends AbstractChannelAcceptor {
 
     private DatagramSelectorEventLoopGroup selectorEventLoopGroup = null;
 
+    // 启用SO_REUSEPORT时每个selector线程一个socket
+    private DatagramChannel[]              channels               = null;
+
+    private Logger                         logger                 = LoggerFactory
+            .getLogger(getClass());
+
     public DatagramChannelAcceptor(DatagramChannelContext context) {
         this.context = context;
     }
@@ -47,20 +56,44 @@ public final class DatagramChannelAcceptor extends AbstractChannelAcceptor {
     @Override
     protected void bind(InetSocketAddress socketAddress) throws IOException {
         initChannel();
+        ServerConfiguration configuration = getContext().getServerConfiguration();
+        int core_size = configuration.getSERVER_CORE_SIZE();
+        SocketOption<Boolean> reusePort = null;
+        if (configuration.isSERVER_ENABLE_REUSE_PORT() && core_size > 1) {
+            reusePort = getReusePortOption((DatagramChannel) selectableChannel);
+            if (reusePort == null) {
+                logger.info("SO_REUSEPORT not supported, receive in one selector loop");
+            }
+        }
+        if (reusePort == null) {
+            this.channels = new DatagramChannel[] { (DatagramChannel) selectableChannel };
+        } else {
+            this.channels = new DatagramChannel[core_size];
+            this.channels[0] = (DatagramChannel) selectableChannel;
+            this.channels[0].setOption(reusePort, true);
+        }
+        bind(datagramSocket, socketAddress);
+        for (int i = 1; i < channels.length; i++) {
+            channels[i] = DatagramChannel.open();
+            channels[i].configureBlocking(false);
+            channels[i].setOption(reusePort, true);
+            bind(channels[i].socket(), socketAddress);
+        }
+        initSelectorLoops();
+    }
+
+    private void bind(DatagramSocket socket, InetSocketAddress socketAddress)
+            throws IOException {
         try {
-            datagramSocket.bind(socketAddress);
+            socket.bind(socketAddress);
         } catch (BindException e) {
             throw new BindException(e.getMessage() + " at " + socketAddress.getPort());
         }
-        initSelectorLoops();
     }
 
     private void initSelectorLoops() {
-        //FIXME socket selector event loop ?
-        ServerConfiguration configuration = getContext().getServerConfiguration();
-        int core_size = configuration.getSERVER_CORE_SIZE();
         this.selectorEventLoopGroup = new DatagramSelectorEventLoopGroup(getContext(), "io-process",
-                core_size, (java.nio.channels.DatagramChannel) selectableChannel);
+                channels.length, channels);
         LifeCycleUtil.start(selectorEventLoopGroup);
     }
 
@@ -83,6 +116,11 @@ public final class DatagramChannelAcceptor extends AbstractChannelAcceptor {
     protected void destroyService() {
         CloseUtil.close(datagramSocket);
         CloseUtil.close(selectableChannel);
+        if (channels != null) {
+            for (DatagramChannel channel : channels) {
+                CloseUtil.close(channel);
+            }
+        }
         LifeCycleUtil.stop(selectorEventLoopGroup);
     }
 
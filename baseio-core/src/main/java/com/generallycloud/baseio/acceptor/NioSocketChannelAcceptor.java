@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.net.BindException;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
+import java.net.SocketOption;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.ServerSocketChannel;
 
@@ -31,6 +32,8 @@ import com.generallycloud.baseio.component.SocketChannelContext;
 import com.generallycloud.baseio.component.SocketSelectorBuilder;
 import com.generallycloud.baseio.component.SocketSelectorEventLoopGroup;
 import com.generallycloud.baseio.configuration.ServerConfiguration;
+import com.generallycloud.baseio.log.Logger;
+import com.generallycloud.baseio.log.LoggerFactory;
 
 /**
  * @author wangkai
@@ -39,8 +42,17 @@ import com.generallycloud.baseio.configuration.ServerConfiguration;
 public class NioSocketChannelAcceptor extends AbstractSocketChannelAcceptor
         implements NioChannelService {
 
+    private Logger                       logger                 = LoggerFactory
+            .getLogger(getClass());
+
     private ServerSocket                 serverSocket           = null;
 
+    private InetSocketAddress            serverAddress          = null;
+
+    private SocketOption<Boolean>        reusePortOption        = null;
+
+    private int                          backlog;
+
     private SelectableChannel            selectableChannel      = null;
 
     private SocketSelectorBuilder        selectorBuilder        = null;
@@ -54,16 +66,58 @@ public class NioSocketChannelAcceptor extends AbstractSocketChannelAcceptor
 
     @Override
     protected void bind(InetSocketAddress socketAddress) throws IOException {
+        ServerConfiguration configuration = getContext().getServerConfiguration();
+        this.serverAddress = socketAddress;
+        this.backlog = configuration.getSERVER_ACCEPT_BACKLOG();
         initChannel();
+        if (configuration.isSERVER_ENABLE_REUSE_PORT()) {
+            initReusePort();
+        }
+        // 先绑定再启动selector线程，未绑定的ServerSocketChannel会被select出accept事件
+        bind(serverSocket);
         initSelectorLoops();
         initNioSessionMananger();
+    }
+
+    private void bind(ServerSocket serverSocket) throws IOException {
         try {
-            this.serverSocket.bind(socketAddress, 50);
+            serverSocket.bind(serverAddress, backlog);
         } catch (BindException e) {
-            throw new BindException(e.getMessage() + " at " + socketAddress.getPort());
+            throw new BindException(e.getMessage() + " at " + serverAddress.getPort());
         }
     }
 
+    private void initReusePort() throws IOException {
+        ServerSocketChannel channel = (ServerSocketChannel) selectableChannel;
+        reusePortOption = getReusePortOption(channel);
+        if (reusePortOption == null) {
+            logger.info("SO_REUSEPORT not supported, accept in main selector loop");
+            return;
+        }
+        channel.setOption(reusePortOption, true);
+    }
+
+    /**
+     * 为selector线程打开一个与主监听socket绑定在相同地址上的监听socket，
+     * 仅在启用SO_REUSEPORT时可用
+     */
+    protected ServerSocketChannel openReusePortChannel() throws IOException {
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.setOption(reusePortOption, true);
+            bind(channel.socket());
+        } catch (IOException e) {
+            CloseUtil.close(channel);
+            throw e;
+        }
+        return channel;
+    }
+
+    public boolean isReusePort() {
+        return reusePortOption != null;
+    }
+
     private void initNioSessionMananger() {
         NioGlobalSocketSessionManager manager = (NioGlobalSocketSessionManager) getContext()
                 .getSessionManager();
@@ -20,7 +20,9 @@ import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.generallycloud.baseio.common.CloseUtil;
 import com.generallycloud.baseio.component.NioSocketSelector;
 import com.generallycloud.baseio.component.SelectorLoopEventAdapter;
 import com.generallycloud.baseio.component.SocketSelectorEventLoop;
@@ -39,25 +41,53 @@ public class ServerNioSocketSelector extends NioSocketSelector {
 
     private FixedAtomicInteger           channelIdGenerator;
 
+    private boolean                      reusePort;
+
+    private int                          acceptBatchSize;
+
+    /**
+     * @param reusePort 为true时接收的连接注册到当前selector线程，
+     * 非主线程的serverSocketChannel由当前线程独占，关闭selector时一并关闭
+     */
     public ServerNioSocketSelector(SocketSelectorEventLoop loop, Selector selector,
-            SelectableChannel channel) {
+            SelectableChannel channel, boolean reusePort) {
         super(loop, selector);
         this.selectorEventLoopGroup = loop.getEventLoopGroup();
         this.serverSocketChannel = (ServerSocketChannel) channel;
         this.channelIdGenerator = loop.getChannelContext().getCHANNEL_ID();
+        this.reusePort = reusePort;
+        this.acceptBatchSize = loop.getChannelContext().getServerConfiguration()
+                .getSERVER_ACCEPT_BATCH_SIZE();
     }
 
     @Override
     public void buildChannel(SelectionKey k) throws IOException {
+        // 一次accept事件尽量取空accept队列，减少连接风暴时的select次数
+        for (int i = 0; i < acceptBatchSize; i++) {
+            java.nio.channels.SocketChannel channel = serverSocketChannel.accept();
+            if (channel == null) {
+                return;
+            }
+            try {
+                // 配置为非阻塞
+                channel.configureBlocking(false);
+            } catch (IOException e) {
+                CloseUtil.close(channel);
+                throw e;
+            }
+            int channelId = channelIdGenerator.getAndIncrement();
+            if (reusePort) {
+                regist(channel, selectorEventLoop, channelId);
+                continue;
+            }
+            dispatch(channel, channelId);
+        }
+    }
 
-        final int channelId = channelIdGenerator.getAndIncrement();
-
-        final java.nio.channels.SocketChannel channel = serverSocketChannel.accept();
-
-        SocketSelectorEventLoop selectorLoop = selectorEventLoopGroup.getNext();
+    private void dispatch(final java.nio.channels.SocketChannel channel, final int channelId)
+            throws IOException {
 
-        // 配置为非阻塞
-        channel.configureBlocking(false);
+        SocketSelectorEventLoop selectorLoop = selectorEventLoopGroup.getNextForChannel();
 
         // 注册到selector，等待连接
         if (selectorLoop.isMainEventLoop()) {
@@ -65,15 +95,41 @@ public class ServerNioSocketSelector extends NioSocketSelector {
             return;
         }
 
+        final AtomicInteger assigning = selectorLoop.getAssigningChannels();
+
+        assigning.incrementAndGet();
+
         selectorLoop.dispatch(new SelectorLoopEventAdapter() {
+
+            private boolean assigned = true;
+
             @Override
             public void fireEvent(SocketSelectorEventLoop selectLoop) throws IOException {
+                unassign();
                 regist(channel, selectLoop, channelId);
             }
-        });
 
-        selectorLoop.wakeup();
+            @Override
+            public void close() throws IOException {
+                unassign();
+                CloseUtil.close(channel);
+            }
 
+            private void unassign() {
+                if (assigned) {
+                    assigned = false;
+                    assigning.decrementAndGet();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        super.close();
+        if (reusePort && !selectorEventLoop.isMainEventLoop()) {
+            CloseUtil.close(serverSocketChannel);
+        }
     }
 
 }
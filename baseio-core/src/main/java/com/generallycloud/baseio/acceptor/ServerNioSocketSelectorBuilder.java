@@ -19,7 +19,6 @@ import java.io.IOException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.ServerSocketChannel;
 
-import com.generallycloud.baseio.component.NioChannelService;
 import com.generallycloud.baseio.component.NioSocketChannelContext;
 import com.generallycloud.baseio.component.SocketSelector;
 import com.generallycloud.baseio.component.SocketSelectorBuilder;
@@ -36,10 +35,10 @@ public class ServerNioSocketSelectorBuilder implements SocketSelectorBuilder {
 
         NioSocketChannelContext context = selectorLoop.getChannelContext();
 
-        NioChannelService nioChannelService = (NioChannelService) context.getChannelService();
+        NioSocketChannelAcceptor acceptor = (NioSocketChannelAcceptor) context
+                .getChannelService();
 
-        ServerSocketChannel channel = (ServerSocketChannel) nioChannelService
-                .getSelectableChannel();
+        ServerSocketChannel channel = (ServerSocketChannel) acceptor.getSelectableChannel();
 
         // 打开selector
         java.nio.channels.Selector selector = java.nio.channels.Selector.open();
@@ -49,10 +48,21 @@ public class ServerNioSocketSelectorBuilder implements SocketSelectorBuilder {
             // 注册监听事件到该selector
             channel.register(selector, SelectionKey.OP_ACCEPT);
 
-            return new ServerNioSocketSelector(selectorLoop, selector, channel);
+            return new ServerNioSocketSelector(selectorLoop, selector, channel,
+                    acceptor.isReusePort());
         }
 
-        return new ServerNioSocketSelector(selectorLoop, selector, channel);
+        if (acceptor.isReusePort()) {
+
+            // 每个selector线程持有自己的监听socket，接收的连接直接注册到本线程
+            ServerSocketChannel reusePortChannel = acceptor.openReusePortChannel();
+
+            reusePortChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+            return new ServerNioSocketSelector(selectorLoop, selector, reusePortChannel, true);
+        }
+
+        return new ServerNioSocketSelector(selectorLoop, selector, channel, false);
     }
 
 }
@@ -151,6 +151,27 @@ public abstract class AbstractByteBuf implements ByteBuf {
 
     protected abstract void doRelease();
 
+    @Override
+    public void retain(int count) {
+        synchronized (this) {
+            if (released) {
+                throw new ReleasedException("released");
+            }
+            referenceCount += count;
+        }
+    }
+
+    @Override
+    public ByteBuf readOnlyDuplicate() {
+        return new ReadOnlyByteBuf(newDuplicate(), this);
+    }
+
+    /**
+     * 共享内存的新ByteBuf，不影响引用计数
+     * @return
+     */
+    protected abstract ByteBuf newDuplicate();
+
     @Override
     public boolean isReleased() {
         return released;
@@ -0,0 +1,376 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.buffer;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.generallycloud.baseio.common.ReleaseUtil;
+
+/**
+ * arena模式的内存池，每个arena绑定一个selector线程(owner)，<br>
+ * 小块内存按2的幂对齐成若干规格，owner线程释放的小块内存缓存在本地，
+ * 再次申请同规格内存时直接取出，不需要加锁；缓存未命中、大块内存或其它线程
+ * 申请释放时才加锁，通过位图查找连续的空闲单元
+ * 
+ * @author wangkai
+ *
+ */
+public class ArenaByteBufAllocator extends AbstractByteBufAllocator {
+
+    //小于等于该单元数的申请按2的幂对齐，并进入线程缓存
+    static final int              MAX_CACHED_UNITS = 32;
+
+    static final int              SIZE_CLASSES     = 6;
+
+    private int                   capacity;
+
+    private int                   unitMemorySize;
+
+    private int                   cacheSize;
+
+    private int                   mask;
+
+    private int                   free;
+
+    private long[]                bitmap;
+
+    private int[][]               caches;
+
+    private int[]                 cacheSizes;
+
+    private ByteBufFactory        bufFactory;
+
+    private volatile Thread       owner;
+
+    private ReentrantLock         lock             = new ReentrantLock();
+
+    public ArenaByteBufAllocator(int capacity, int unitMemorySize, int cacheSize,
+            boolean isDirect) {
+        super(isDirect);
+        this.capacity = capacity;
+        this.unitMemorySize = unitMemorySize;
+        this.cacheSize = cacheSize;
+    }
+
+    @Override
+    public ByteBuf allocate(int limit) {
+        return allocate(bufFactory, limit);
+    }
+
+    private PooledByteBuf allocate(ByteBufNew byteBufNew, int limit) {
+        int units = (limit + unitMemorySize - 1) / unitMemorySize;
+        if (units == 0) {
+            units = 1;
+        }
+        boolean isOwner = Thread.currentThread() == owner;
+        if (units <= MAX_CACHED_UNITS) {
+            int sizeClass = sizeClass(units);
+            units = 1 << sizeClass;
+            if (isOwner) {
+                int size = cacheSizes[sizeClass];
+                if (size > 0) {
+                    cacheSizes[sizeClass] = --size;
+                    int begin = caches[sizeClass][size];
+                    return byteBufNew.newByteBuf(this).produce(begin, begin + units, limit);
+                }
+            }
+        }
+        int begin = allocateUnits(units);
+        if (begin == -1) {
+            //位图中已没有足够的连续空间，把线程缓存还给位图后重试
+            if (!isOwner || freeCaches() == 0) {
+                return null;
+            }
+            begin = allocateUnits(units);
+            if (begin == -1) {
+                return null;
+            }
+        }
+        return byteBufNew.newByteBuf(this).produce(begin, begin + units, limit);
+    }
+
+    private int allocateUnits(int units) {
+        ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (!isRunning()) {
+                return -1;
+            }
+            if (units > free) {
+                return -1;
+            }
+            int begin = findRun(units, mask, capacity);
+            if (begin == -1) {
+                begin = findRun(units, 0, capacity);
+                if (begin == -1) {
+                    return -1;
+                }
+            }
+            int end = begin + units;
+            setBits(begin, end, true);
+            free -= units;
+            mask = end == capacity ? 0 : end;
+            return begin;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void release(ByteBuf buf) {
+        int begin = ((PooledByteBuf) buf).getBeginUnit();
+        int units = buf.capacity() / unitMemorySize;
+        if (units <= MAX_CACHED_UNITS && Thread.currentThread() == owner) {
+            int sizeClass = sizeClass(units);
+            int size = cacheSizes[sizeClass];
+            if (size < cacheSize) {
+                caches[sizeClass][size] = begin;
+                cacheSizes[sizeClass] = size + 1;
+                return;
+            }
+        }
+        ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            setBits(begin, begin + units, false);
+            free += units;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int freeCaches() {
+        int count = 0;
+        ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            for (int i = 0; i < SIZE_CLASSES; i++) {
+                int units = 1 << i;
+                int[] cache = caches[i];
+                int size = cacheSizes[i];
+                for (int j = 0; j < size; j++) {
+                    setBits(cache[j], cache[j] + units, false);
+                }
+                free += size * units;
+                count += size;
+                cacheSizes[i] = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return count;
+    }
+
+    private static int sizeClass(int units) {
+        return 32 - Integer.numberOfLeadingZeros(units - 1);
+    }
+
+    //在[from,to)中查找units个连续的空闲单元
+    private int findRun(int units, int from, int to) {
+        int i = nextClear(from);
+        for (; i + units <= to;) {
+            int used = nextSet(i + 1, i + units);
+            if (used == -1) {
+                return i;
+            }
+            i = nextClear(used + 1);
+        }
+        return -1;
+    }
+
+    private int nextClear(int from) {
+        long[] bitmap = this.bitmap;
+        int w = from >>> 6;
+        if (w >= bitmap.length) {
+            return capacity;
+        }
+        long word = ~bitmap[w] & (-1L << from);
+        for (;;) {
+            if (word != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == bitmap.length) {
+                return capacity;
+            }
+            word = ~bitmap[w];
+        }
+    }
+
+    private int nextSet(int from, int to) {
+        if (from >= to) {
+            return -1;
+        }
+        long[] bitmap = this.bitmap;
+        int w = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long word = bitmap[w] & (-1L << from);
+        for (;;) {
+            if (word != 0) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(word);
+                return i < to ? i : -1;
+            }
+            if (++w > last) {
+                return -1;
+            }
+            word = bitmap[w];
+        }
+    }
+
+    private void setBits(int begin, int end, boolean used) {
+        long[] bitmap = this.bitmap;
+        int first = begin >>> 6;
+        int last = (end - 1) >>> 6;
+        for (int w = first; w <= last; w++) {
+            long m = -1L;
+            if (w == first) {
+                m &= -1L << begin;
+            }
+            if (w == last) {
+                m &= -1L >>> (63 - ((end - 1) & 63));
+            }
+            if (used) {
+                bitmap[w] |= m;
+            } else {
+                bitmap[w] &= ~m;
+            }
+        }
+    }
+
+    @Override
+    public ByteBuf reallocate(ByteBuf buf, int limit, boolean copyOld) {
+
+        if (limit <= buf.capacity()) {
+
+            if (copyOld) {
+                return buf.limit(limit);
+            }
+
+            return buf.position(0).limit(limit);
+        }
+
+        if (copyOld) {
+
+            PooledByteBuf newBuf = allocate(bufFactory, limit);
+
+            if (newBuf == null) {
+                throw new BufferException("reallocate failed");
+            }
+
+            newBuf.read(buf.flip());
+
+            ReleaseUtil.release(buf);
+
+            return buf.newByteBuf(this).produce(newBuf);
+        }
+
+        ReleaseUtil.release(buf);
+
+        ByteBuf newBuf = allocate(buf, limit);
+
+        if (newBuf == null) {
+            throw new BufferException("reallocate failed");
+        }
+        return newBuf;
+    }
+
+    /**
+     * 绑定owner线程，只有owner线程可以使用线程缓存，重复绑定无效
+     */
+    public void setOwner(Thread owner) {
+        if (this.owner == null) {
+            this.owner = owner;
+        }
+    }
+
+    public Thread getOwner() {
+        return owner;
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        if (isDirect) {
+            if (!(bufFactory instanceof DirectByteBufFactory)) {
+                bufFactory = new DirectByteBufFactory();
+            }
+        } else {
+            if (!(bufFactory instanceof HeapByteBufFactory)) {
+                bufFactory = new HeapByteBufFactory();
+            }
+        }
+        bufFactory.initializeMemory(capacity * unitMemorySize);
+        int words = (capacity + 63) >>> 6;
+        this.bitmap = new long[words];
+        if (capacity < words << 6) {
+            //末尾不足一个long的部分标记为已占用
+            setBits(capacity, words << 6, true);
+        }
+        this.caches = new int[SIZE_CLASSES][cacheSize];
+        this.cacheSizes = new int[SIZE_CLASSES];
+        this.free = capacity;
+        this.mask = 0;
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            this.owner = null;
+            freeMemory();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void freeMemory() {
+        bufFactory.freeMemory();
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public int getUnitMemorySize() {
+        return unitMemorySize;
+    }
+
+    @Override
+    public String toString() {
+        int cached = 0;
+        int[] cacheSizes = this.cacheSizes;
+        if (cacheSizes != null) {
+            for (int i = 0; i < SIZE_CLASSES; i++) {
+                cached += cacheSizes[i] << i;
+            }
+        }
+        StringBuilder b = new StringBuilder();
+        b.append(this.getClass().getSimpleName());
+        b.append("[free=");
+        b.append(free);
+        b.append(",cached=");
+        b.append(cached);
+        b.append(",memory=");
+        b.append(capacity);
+        b.append(",isDirect=");
+        b.append(isDirect);
+        b.append("]");
+        return b.toString();
+    }
+
+}
@@ -29,6 +29,20 @@ public interface ByteBuf extends ByteBufNew, Releasable {
 
     public abstract ByteBuf duplicate();
 
+    /**
+     * 只读的duplicate，共享内存，拥有独立的position和limit，
+     * 不增加引用计数，需要先通过retain(int)为其增加引用，
+     * release时释放当前ByteBuf的一个引用
+     * @return
+     */
+    public abstract ByteBuf readOnlyDuplicate();
+
+    /**
+     * 一次增加count个引用，用于为大量readOnlyDuplicate计数
+     * @param count
+     */
+    public abstract void retain(int count);
+
     public abstract ByteBuf flip();
 
     public abstract int forEachByte(ByteProcessor processor);
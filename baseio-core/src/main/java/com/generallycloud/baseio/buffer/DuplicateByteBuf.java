@@ -66,6 +66,16 @@ public class DuplicateByteBuf implements ByteBuf {
         return prototype.duplicate();
     }
 
+    @Override
+    public ByteBuf readOnlyDuplicate() {
+        return prototype.readOnlyDuplicate();
+    }
+
+    @Override
+    public void retain(int count) {
+        prototype.retain(count);
+    }
+
     @Override
     public ByteBuf flip() {
         return unwrap().flip();
@@ -37,6 +37,14 @@ public class EmptyByteBuf extends UnpooledHeapByteBuf {
         return this;
     }
 
+    @Override
+    public ByteBuf readOnlyDuplicate() {
+        return this;
+    }
+
+    @Override
+    public void retain(int count) {}
+
     @Override
     public boolean isReleased() {
         return true;
@@ -49,14 +49,23 @@ public class PooledByteBufAllocatorManager extends AbstractLifeCycle
 
         boolean direct = c.isSERVER_ENABLE_MEMORY_POOL_DIRECT();
 
+        boolean arena = c.isSERVER_ENABLE_MEMORY_POOL_ARENA();
+
+        int cacheSize = c.getSERVER_MEMORY_POOL_CACHE_SIZE();
+
         this.allocators = new LinkAbleByteBufAllocator[core];
 
         for (int i = 0; i < allocators.length; i++) {
 
             //			ByteBufAllocator allocator = new SimplyByteBufAllocator(capacity, unitMemorySize, direct);
 
-            ByteBufAllocator allocator = new SimpleByteBufAllocator(capacity, unitMemorySize,
-                    direct);
+            ByteBufAllocator allocator;
+
+            if (arena) {
+                allocator = new ArenaByteBufAllocator(capacity, unitMemorySize, cacheSize, direct);
+            } else {
+                allocator = new SimpleByteBufAllocator(capacity, unitMemorySize, direct);
+            }
 
             //			ByteBufAllocator allocator = new UnpooledByteBufAllocator();
 
@@ -121,8 +130,10 @@ public class PooledByteBufAllocatorManager extends AbstractLifeCycle
 
     public void printBusy() {
         for (LinkAbleByteBufAllocator allocator : allocators) {
-            SimpleByteBufAllocator a = (SimpleByteBufAllocator) allocator.unwrap();
-            a.printBusy();
+            ByteBufAllocator a = allocator.unwrap();
+            if (a instanceof AbstractPooledByteBufAllocator) {
+                ((AbstractPooledByteBufAllocator) a).printBusy();
+            }
         }
     }
 
@@ -42,17 +42,13 @@ public class PooledDirectByteBuf extends AbstractDirectByteBuf implements Pooled
                 throw new ReleasedException("released");
             }
             this.referenceCount++;
-            return new DuplicateByteBuf(
-                    new PooledDirectByteBuf(allocator, memory.duplicate()).produce(this), this);
+            return new DuplicateByteBuf(newDuplicate(), this);
         }
     }
 
-    protected ByteBuf doDuplicate() {
-
-        PooledDirectByteBuf buf = new PooledDirectByteBuf(allocator, memory.duplicate())
-                .produce(this);
-
-        return new DuplicateByteBuf(buf, this);
+    @Override
+    protected ByteBuf newDuplicate() {
+        return new PooledDirectByteBuf(allocator, memory.duplicate()).produce(this);
     }
 
     @Override
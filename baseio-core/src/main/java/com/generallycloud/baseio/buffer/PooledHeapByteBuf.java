@@ -40,11 +40,15 @@ public class PooledHeapByteBuf extends AbstractHeapByteBuf implements PooledByte
                 throw new ReleasedException("released");
             }
             this.referenceCount++;
-            return new DuplicateByteBuf(new PooledHeapByteBuf(allocator, memory).produce(this),
-                    this);
+            return new DuplicateByteBuf(newDuplicate(), this);
         }
     }
 
+    @Override
+    protected ByteBuf newDuplicate() {
+        return new PooledHeapByteBuf(allocator, memory).produce(this);
+    }
+
     @Override
     public PooledHeapByteBuf produce(int begin, int end, int newLimit) {
         this.offset = begin * allocator.getUnitMemorySize();
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.buffer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 只读的duplicate，所有写入操作抛出UnsupportedOperationException
+ * 
+ * @author wangkai
+ *
+ */
+public class ReadOnlyByteBuf extends DuplicateByteBuf {
+
+    public ReadOnlyByteBuf(ByteBuf byteBuf, ByteBuf prototype) {
+        super(byteBuf, prototype);
+    }
+
+    private UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("read only");
+    }
+
+    @Override
+    public void putByte(byte b) {
+        throw readOnly();
+    }
+
+    @Override
+    public void put(byte[] src) {
+        throw readOnly();
+    }
+
+    @Override
+    public void put(byte[] src, int offset, int length) {
+        throw readOnly();
+    }
+
+    @Override
+    public void putShort(short value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void putShortLE(short value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void putUnsignedShort(int value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void putUnsignedShortLE(int value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void putInt(int value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void putIntLE(int value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void putUnsignedInt(long value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void putUnsignedIntLE(long value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void putLong(long value) {
+        throw readOnly();
+    }
+
+    @Override
+    public void putLongLE(long value) {
+        throw readOnly();
+    }
+
+    @Override
+    public int read(ByteBuf src) {
+        throw readOnly();
+    }
+
+    @Override
+    public int read(ByteBuffer buffer) {
+        throw readOnly();
+    }
+
+    @Override
+    public ByteBuf reallocate(int limit) {
+        throw readOnly();
+    }
+
+    @Override
+    public ByteBuf reallocate(int limit, boolean copyOld) {
+        throw readOnly();
+    }
+
+    @Override
+    public ByteBuf reallocate(int limit, int maxLimit) {
+        throw readOnly();
+    }
+
+    @Override
+    public ByteBuf reallocate(int limit, int maxLimit, boolean copyOld) {
+        throw readOnly();
+    }
+
+}
@@ -64,11 +64,15 @@ public class UnpooledDirectByteBuf extends AbstractDirectByteBuf {
             }
             //请勿移除此行，DirectByteBuffer需要手动回收，doRelease要确保被执行
             this.referenceCount++;
-            return new DuplicateByteBuf(new UnpooledDirectByteBuf(allocator, memory.duplicate()),
-                    this);
+            return new DuplicateByteBuf(newDuplicate(), this);
         }
     }
 
+    @Override
+    protected ByteBuf newDuplicate() {
+        return new UnpooledDirectByteBuf(allocator, memory.duplicate());
+    }
+
     @Override
     public void doRelease() {
         ByteBufferUtil.release(memory);
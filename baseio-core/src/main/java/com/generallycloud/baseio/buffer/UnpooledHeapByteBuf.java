@@ -57,7 +57,12 @@ public class UnpooledHeapByteBuf extends AbstractHeapByteBuf {
 
     @Override
     public ByteBuf duplicate() {
-        return new DuplicateByteBuf(new UnpooledHeapByteBuf(allocator, memory).produce(this), this);
+        return new DuplicateByteBuf(newDuplicate(), this);
+    }
+
+    @Override
+    protected ByteBuf newDuplicate() {
+        return new UnpooledHeapByteBuf(allocator, memory).produce(this);
     }
 
     @Override
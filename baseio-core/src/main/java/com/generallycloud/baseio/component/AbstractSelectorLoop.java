@@ -17,7 +17,9 @@ package com.generallycloud.baseio.component;
 
 import java.io.IOException;
 
+import com.generallycloud.baseio.buffer.ArenaByteBufAllocator;
 import com.generallycloud.baseio.buffer.ByteBufAllocator;
+import com.generallycloud.baseio.buffer.LinkAbleByteBufAllocator;
 import com.generallycloud.baseio.common.CloseUtil;
 import com.generallycloud.baseio.concurrent.AbstractEventLoop;
 import com.generallycloud.baseio.log.Logger;
@@ -56,6 +58,13 @@ public abstract class AbstractSelectorLoop extends AbstractEventLoop implements
 
     @Override
     public void doStartup() throws IOException {
+        ByteBufAllocator allocator = byteBufAllocator;
+        if (allocator instanceof LinkAbleByteBufAllocator) {
+            allocator = ((LinkAbleByteBufAllocator) allocator).unwrap();
+        }
+        if (allocator instanceof ArenaByteBufAllocator) {
+            ((ArenaByteBufAllocator) allocator).setOwner(getMonitor());
+        }
         rebuildSelector();
     }
 
@@ -47,7 +47,7 @@ public abstract class AbstractSessionManager implements SessionManager {
         sessionIdle(last_idle_time, current_time);
     }
 
-    protected abstract void sessionIdle(long lastIdleTime, long currentTime);
+    protected void sessionIdle(long lastIdleTime, long currentTime) {}
 
     public int getSessionSizeLimit() {
         return sessionSizeLimit;
@@ -17,30 +17,35 @@ package com.generallycloud.baseio.component;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantLock;
 
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLException;
 
 import com.generallycloud.baseio.ClosedChannelException;
+import com.generallycloud.baseio.WriteOverflowException;
 import com.generallycloud.baseio.buffer.ByteBufAllocator;
 import com.generallycloud.baseio.buffer.EmptyByteBuf;
+import com.generallycloud.baseio.common.CloseUtil;
 import com.generallycloud.baseio.common.ReleaseUtil;
 import com.generallycloud.baseio.component.ssl.SslHandler;
 import com.generallycloud.baseio.concurrent.ExecutorEventLoop;
 import com.generallycloud.baseio.concurrent.LinkedQueue;
-import com.generallycloud.baseio.concurrent.ScspLinkedQueue;
+import com.generallycloud.baseio.concurrent.MpscLinkedQueue;
+import com.generallycloud.baseio.configuration.ServerConfiguration;
 import com.generallycloud.baseio.connector.AbstractSocketChannelConnector;
 import com.generallycloud.baseio.log.Logger;
 import com.generallycloud.baseio.log.LoggerFactory;
 import com.generallycloud.baseio.protocol.ChannelFuture;
+import com.generallycloud.baseio.protocol.CompositeChannelFuture;
 import com.generallycloud.baseio.protocol.DefaultChannelFuture;
 import com.generallycloud.baseio.protocol.Future;
 import com.generallycloud.baseio.protocol.ProtocolDecoder;
 import com.generallycloud.baseio.protocol.ProtocolEncoder;
 import com.generallycloud.baseio.protocol.ProtocolFactory;
 import com.generallycloud.baseio.protocol.SslFuture;
+import com.generallycloud.baseio.protocol.StatefulProtocolEncoder;
 
 public abstract class AbstractSocketChannel extends AbstractChannel implements SocketChannel {
 
@@ -56,8 +61,16 @@ public abstract class AbstractSocketChannel extends AbstractChannel implements S
     protected transient ChannelFuture    readFuture;
     protected transient SslFuture        sslReadFuture;
     protected LinkedQueue<ChannelFuture> writeFutures;
-    protected boolean                    opened = true;
+    protected volatile boolean           opened = true;
     protected SocketChannelThreadContext threadContext;
+    protected IoLimiter                  ioLimiter;
+    protected AtomicBoolean              writable = new AtomicBoolean(true);
+    // 为true时说明已有线程负责消费writeFutures
+    protected AtomicBoolean              scheduled = new AtomicBoolean();
+    protected int                        writeHighWatermark;
+    protected int                        writeLowWatermark;
+    protected int                        writeHardLimit;
+    protected WriteOverflowPolicy        writeOverflowPolicy;
 
     private static final Logger          logger = LoggerFactory
             .getLogger(AbstractSocketChannel.class);
@@ -74,9 +87,25 @@ public abstract class AbstractSocketChannel extends AbstractChannel implements S
         this.protocolEncoder = socketChannelContext.getProtocolEncoder();
         this.executorEventLoop = context.getExecutorEventLoop();
         this.session = context.getChannelContext().getSessionFactory().newUnsafeSession(this);
-        this.writeFutures = new ScspLinkedQueue<>(f);
+        this.writeFutures = new MpscLinkedQueue<>(f);
         this.writeFutureLength = new AtomicInteger();
         this.threadContext = context;
+        ServerConfiguration configuration = socketChannelContext.getServerConfiguration();
+        this.writeHighWatermark = configuration.getSERVER_WRITE_HIGH_WATERMARK();
+        this.writeLowWatermark = configuration.getSERVER_WRITE_LOW_WATERMARK();
+        this.writeHardLimit = configuration.getSERVER_WRITE_HARD_LIMIT();
+        this.writeOverflowPolicy = WriteOverflowPolicy
+                .valueOf(configuration.getSERVER_WRITE_OVERFLOW_POLICY());
+    }
+
+    @Override
+    public IoLimiter getIoLimiter() {
+        return ioLimiter;
+    }
+
+    @Override
+    public void setIoLimiter(IoLimiter ioLimiter) {
+        this.ioLimiter = ioLimiter;
     }
 
     @Override
@@ -84,6 +113,11 @@ public abstract class AbstractSocketChannel extends AbstractChannel implements S
         return writeFutureLength.get();
     }
 
+    @Override
+    public boolean isWritable() {
+        return writable.get();
+    }
+
     @Override
     public InetSocketAddress getLocalSocketAddress() {
         if (local == null) {
@@ -179,8 +213,8 @@ public abstract class AbstractSocketChannel extends AbstractChannel implements S
         }
         if (!isOpened()) {
             future.flush();
-            exceptionCaught(getContext().getIoEventHandleAdaptor(), future, 
-                    new ClosedChannelException(toString()));
+            // 与doFlush相同，由onException释放future持有的资源，如文件
+            future.onException(getSession(), new ClosedChannelException(toString()));
             return;
         }
         try {
@@ -189,7 +223,16 @@ public abstract class AbstractSocketChannel extends AbstractChannel implements S
             // 请勿将future.flush()移到getProtocolEncoder()之前，
             // 有些情况下如协议切换的时候可能需要将此future使用
             // 切换前的协议flush
-            encoder.encode(allocator, future.flush());
+            if (encoder instanceof StatefulProtocolEncoder) {
+                // 编码器的状态已经随该future改变，之后不能单独丢弃
+                future.setInseparable(true);
+                synchronized (encoder) {
+                    encode(encoder, allocator, future);
+                    doFlush(future);
+                }
+                return;
+            }
+            encode(encoder, allocator, future);
             doFlush(future);
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
@@ -197,6 +240,15 @@ public abstract class AbstractSocketChannel extends AbstractChannel implements S
         }
     }
 
+    private void encode(ProtocolEncoder encoder, ByteBufAllocator allocator,
+            ChannelFuture future) throws IOException {
+        if (future instanceof CompositeChannelFuture) {
+            ((CompositeChannelFuture) future).encode(encoder, allocator);
+            return;
+        }
+        encoder.encode(allocator, future.flush());
+    }
+
     private void exceptionCaught(IoEventHandle handle, Future future, Exception ex) {
         try {
             handle.exceptionCaught(getSession(), future, ex);
@@ -208,37 +260,112 @@ public abstract class AbstractSocketChannel extends AbstractChannel implements S
     @Override
     public void doFlush(ChannelFuture f) {
         UnsafeSocketSession session = getSession();
-        //这里需要加锁，因为当多个线程同时flush时，判断(writeFutures.size() > 1)
-        //会产生误差，导致无法或者延迟触发doFlush操作
-        ReentrantLock lock = getCloseLock();
-        lock.lock();
+        // 这里不加锁，判断之后连接才关闭时，future由消费writeFutures的线程
+        // 在releaseWriteFutures中释放
+        if (!isOpened()) {
+            f.onException(session, new ClosedChannelException(session.toString()));
+            return;
+        }
         try {
-            // 这里最好使用isClosing()判断更合适，但是使用isOpened()判断也没问题
-            // 因为doFlush与Close互斥
-            if (!isOpened()) {
-                f.onException(session, new ClosedChannelException(session.toString()));
+            if (isWriteOverflow(f.getByteBufLimit())) {
+                if (writeOverflowPolicy != WriteOverflowPolicy.DROP_OLDEST) {
+                    f.onException(session, new WriteOverflowException(session.toString()));
+                    // 不能单独拒绝的future被拒绝后，之后写出的数据已经无法被对端正确解析
+                    if (writeOverflowPolicy == WriteOverflowPolicy.CLOSE || f.isInseparable()) {
+                        CloseUtil.close(this);
+                    }
+                    return;
+                }
+                writeFutures.offer(f);
+                writeFutureLength(f.getByteBufLimit());
+                // 由消费writeFutures的线程丢弃最早的future
+                scheduled.set(true);
+                doFlush0(f);
                 return;
             }
             writeFutures.offer(f);
-            int length = writeFutureLength(f.getByteBufLimit());
-            if (length > 1024 * 1024 * 10) {
-                // FIXME 该连接写入过多啦
+            writeFutureLength(f.getByteBufLimit());
+            // 只有将scheduled由false改为true的线程负责触发flush，
+            // 其余情况说明消费者还未清空队列，会在清空前取到该future
+            if (scheduled.compareAndSet(false, true)) {
+                doFlush0(f);
             }
-            // 如果write futures > 1 说明在offer之后至少有一个write future
-            // event loop 在判断complete时返回false
-            if (writeFutures.size() > 1) {
+        } catch (Exception e) {
+            f.onException(session, e);
+        }
+    }
+
+    /**
+     * writeFutures被取空后调用，只能在消费writeFutures的线程中调用
+     * @return true 如果在此期间又有future进入队列，且当前线程需要继续消费
+     */
+    protected boolean flushCompleted() {
+        scheduled.set(false);
+        return writeFutures.size() > 0 && scheduled.compareAndSet(false, true);
+    }
+
+    private boolean isWriteOverflow(int length) {
+        int hardLimit = writeHardLimit;
+        return hardLimit > 0 && writeFutureLength.get() + length > hardLimit;
+    }
+
+    /**
+     * 丢弃最早进入队列的future直到待写出数据不超过SERVER_WRITE_HARD_LIMIT，
+     * 遇到不能单独丢弃的future时关闭连接，只能在消费writeFutures的线程中调用
+     */
+    protected void dropOldestFutures() {
+        if (writeOverflowPolicy != WriteOverflowPolicy.DROP_OLDEST || !isWriteOverflow(0)) {
+            return;
+        }
+        UnsafeSocketSession session = getSession();
+        WriteOverflowException e = new WriteOverflowException(session.toString());
+        for (; isWriteOverflow(0);) {
+            ChannelFuture f = writeFutures.poll();
+            if (f == null) {
                 return;
             }
-            doFlush0(f);
-        } catch (Exception e) {
+            writeFutureLength(-f.getByteBufLimit());
             f.onException(session, e);
-        } finally {
-            lock.unlock();
+            if (f.isInseparable()) {
+                CloseUtil.close(this);
+                return;
+            }
         }
     }
 
     protected int writeFutureLength(int len) {
-        return writeFutureLength.addAndGet(len);
+        int length = writeFutureLength.addAndGet(len);
+        if (len > 0) {
+            if (length > writeHighWatermark) {
+                setWritable(false);
+            }
+        } else if (length < writeLowWatermark) {
+            setWritable(true);
+        }
+        return length;
+    }
+
+    private void setWritable(boolean value) {
+        if (!writable.compareAndSet(!value, value)) {
+            return;
+        }
+        fireWritabilityChanged();
+        // 并发时另一端可能已经越过了水位线，这里再检查一次，防止停留在错误的状态
+        int length = writeFutureLength.get();
+        if (value) {
+            if (length > writeHighWatermark) {
+                setWritable(false);
+            }
+        } else if (length < writeLowWatermark) {
+            setWritable(true);
+        }
+    }
+
+    private void fireWritabilityChanged() {
+        SocketSessionEventListenerWrapper linkable = getContext().getSessionEventListenerLink();
+        if (linkable != null) {
+            linkable.writabilityChanged(getSession());
+        }
     }
 
     protected abstract void doFlush0(ChannelFuture future);
@@ -246,24 +373,36 @@ public abstract class AbstractSocketChannel extends AbstractChannel implements S
     protected void releaseFutures() {
         ReleaseUtil.release(readFuture);
         ReleaseUtil.release(sslReadFuture);
+        releaseWriteFutures();
+    }
+
+    /**
+     * 连接关闭后释放所有未写出的future，只能在消费writeFutures的线程中调用
+     */
+    protected void releaseWriteFutures() {
         ClosedChannelException e = null;
-        if (writeFuture != null && !writeFuture.isReleased()) {
-            e = new ClosedChannelException(session.toString());
-            writeFuture.onException(session, e);
+        if (writeFuture != null) {
+            if (!writeFuture.isReleased()) {
+                e = new ClosedChannelException(session.toString());
+                writeFuture.onException(session, e);
+            }
+            writeFuture = null;
         }
         LinkedQueue<ChannelFuture> writeFutures = this.writeFutures;
-        if (writeFutures.size() == 0) {
-            return;
-        }
-        ChannelFuture f = writeFutures.poll();
         UnsafeSocketSession session = this.session;
-        if (e == null) {
-            e = new ClosedChannelException(session.toString());
-        }
-        for (; f != null;) {
-            f.onException(session, e);
-            ReleaseUtil.release(f);
-            f = writeFutures.poll();
+        for (;;) {
+            ChannelFuture f = writeFutures.poll();
+            for (; f != null;) {
+                if (e == null) {
+                    e = new ClosedChannelException(session.toString());
+                }
+                f.onException(session, e);
+                ReleaseUtil.release(f);
+                f = writeFutures.poll();
+            }
+            if (!flushCompleted()) {
+                return;
+            }
         }
     }
 
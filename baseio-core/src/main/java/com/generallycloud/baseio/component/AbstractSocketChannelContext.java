@@ -182,7 +182,9 @@ public abstract class AbstractSocketChannelContext extends AbstractChannelContex
 
         if (channelByteBufReaderGroup.getRootLink() == null) {
 
-            channelByteBufReaderGroup.addLink(new IoLimitChannelByteBufReader());
+            if (IoLimitChannelByteBufReader.isEnableIoLimit(serverConfiguration)) {
+                channelByteBufReaderGroup.addLink(new IoLimitChannelByteBufReader(this));
+            }
 
             if (enableSSL) {
                 channelByteBufReaderGroup.addLink(new SslChannelByteBufReader());
@@ -299,6 +301,14 @@ public abstract class AbstractSocketChannelContext extends AbstractChannelContex
         return foreReadFutureAcceptor;
     }
 
+    /**
+     * 需要在启动前设置，未设置时使用{@link EventLoopFutureAcceptor}
+     */
+    @Override
+    public void setForeReadFutureAcceptor(ForeFutureAcceptor foreReadFutureAcceptor) {
+        this.foreReadFutureAcceptor = foreReadFutureAcceptor;
+    }
+
     /**
      * @return the CHANNEL_ID
      */
@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketOption;
 import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.FileChannel;
 import java.util.concurrent.locks.ReentrantLock;
 
 import com.generallycloud.baseio.ClosedChannelException;
@@ -70,7 +71,22 @@ public class AioSocketChannel extends AbstractSocketChannel {
 
     @Override
     protected void doFlush0(ChannelFuture future) {
-        flush(false);
+        // aio中writeFutures的消费均在close lock中进行
+        ReentrantLock lock = getCloseLock();
+        lock.lock();
+        try {
+            if (!isOpened()) {
+                releaseWriteFutures();
+                return;
+            }
+            dropOldestFutures();
+            if (!isOpened()) {
+                return;
+            }
+            flush(false);
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
@@ -94,8 +110,13 @@ public class AioSocketChannel extends AbstractSocketChannel {
                 writeFuture = writeFutures.poll();
             }
             if (writeFuture == null) {
-                flushing = false;
-                return;
+                if (flushCompleted()) {
+                    writeFuture = writeFutures.poll();
+                }
+                if (writeFuture == null) {
+                    flushing = false;
+                    return;
+                }
             }
             if (!isOpened()) {
                 fireClosed(writeFuture, new ClosedChannelException("closed"));
@@ -137,6 +158,10 @@ public class AioSocketChannel extends AbstractSocketChannel {
         fireClosed();
     }
 
+    // FIXME aio暂不支持读限流
+    @Override
+    public void suspendRead(long nanos) {}
+
     protected void read(ByteBuf cache) {
         channel.read(cache.clear().nioBuffer(), this, readCompletionHandler);
     }
@@ -146,6 +171,12 @@ public class AioSocketChannel extends AbstractSocketChannel {
         channel.write(buf.getNioBuffer(), this, writeCompletionHandler);
     }
 
+    // aio不支持transferTo，由调用方分块写出
+    @Override
+    public long transferFrom(FileChannel src, long position, long count) {
+        return -1;
+    }
+
     @Override
     public void close() throws IOException {
         ReentrantLock lock = getCloseLock();
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.component;
+
+import java.io.IOException;
+
+import com.generallycloud.baseio.common.ReleaseUtil;
+import com.generallycloud.baseio.protocol.ChannelFuture;
+
+/**
+ * 每个selector线程一个的广播事件，在selector线程中为该线程的session
+ * 生成只读的duplicate并直接写出，持有future的一个引用，执行或关闭后释放
+ * 
+ * @author wangkai
+ *
+ */
+public class BroadcastSelectorLoopEvent implements SelectorLoopEvent {
+
+    private ChannelFuture      future;
+
+    private SocketSessionGroup group;
+
+    /**
+     * @param future 已encode的future，调用前需为本事件retain一个引用
+     * @param group 为null时广播给selector线程中的所有session
+     */
+    public BroadcastSelectorLoopEvent(ChannelFuture future, SocketSessionGroup group) {
+        this.future = future;
+        this.group = group;
+    }
+
+    @Override
+    public void fireEvent(SocketSelectorEventLoop selectorLoop) throws IOException {
+        try {
+            if (group == null) {
+                selectorLoop.getSocketSessionManager().broadcastChannelFuture(future);
+            } else {
+                group.broadcastInLoop(selectorLoop, future);
+            }
+        } finally {
+            ReleaseUtil.release(future.getByteBuf());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        ReleaseUtil.release(future.getByteBuf());
+    }
+
+}
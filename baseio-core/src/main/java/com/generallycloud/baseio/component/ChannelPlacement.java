@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.component;
+
+/**
+ * 内置的连接分配策略，通过SERVER_CHANNEL_PLACEMENT配置，
+ * 除ROUND_ROBIN外均使用selector线程更新的统计值，负载相同时按轮询顺序选择
+ * 
+ * @author wangkai
+ *
+ */
+public enum ChannelPlacement implements ChannelPlacementStrategy {
+
+    /**
+     * 轮询
+     */
+    ROUND_ROBIN {
+
+        @Override
+        public SocketSelectorEventLoop select(SocketSelectorEventLoopGroup group) {
+            return group.getNext();
+        }
+
+        @Override
+        protected long getLoad(SocketSelectorEventLoop loop) {
+            return 0;
+        }
+    },
+
+    /**
+     * 管理的session数量最少
+     */
+    LEAST_SESSIONS {
+
+        @Override
+        protected long getLoad(SocketSelectorEventLoop loop) {
+            return loop.getSessionSize();
+        }
+    },
+
+    /**
+     * 待写出的字节数最少
+     */
+    LEAST_PENDING_WRITE {
+
+        @Override
+        protected long getLoad(SocketSelectorEventLoop loop) {
+            return loop.getPendingWriteBytes();
+        }
+    },
+
+    /**
+     * 最近一个统计周期内非select的时间占比最低
+     */
+    LEAST_BUSY {
+
+        @Override
+        protected long getLoad(SocketSelectorEventLoop loop) {
+            return loop.getBusyRate();
+        }
+    };
+
+    protected abstract long getLoad(SocketSelectorEventLoop loop);
+
+    @Override
+    public SocketSelectorEventLoop select(SocketSelectorEventLoopGroup group) {
+        SocketSelectorEventLoop[] loops = group.getSelectorEventLoops();
+        // 从轮询位置开始比较，避免负载相同时总是选中第一个
+        int start = group.getNext().getCoreIndex();
+        SocketSelectorEventLoop min = loops[start];
+        long minLoad = getLoad(min);
+        for (int i = 1; i < loops.length; i++) {
+            SocketSelectorEventLoop loop = loops[(start + i) % loops.length];
+            long load = getLoad(loop);
+            if (load < minLoad) {
+                min = loop;
+                minLoad = load;
+            }
+        }
+        return min;
+    }
+
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.component;
+
+/**
+ * 为新建立的连接选择selector线程
+ * 
+ * @author wangkai
+ *
+ */
+public interface ChannelPlacementStrategy {
+
+    /**
+     * 在accept线程中调用，需要线程安全
+     */
+    SocketSelectorEventLoop select(SocketSelectorEventLoopGroup group);
+
+}
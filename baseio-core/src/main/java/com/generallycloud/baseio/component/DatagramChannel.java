@@ -17,6 +17,7 @@ package com.generallycloud.baseio.component;
 
 import java.io.IOException;
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 
 import com.generallycloud.baseio.protocol.DatagramPacket;
 
@@ -27,6 +28,14 @@ public interface DatagramChannel extends Channel {
 
     public abstract void sendPacket(DatagramPacket packet) throws IOException;
 
+    /**
+     * 直接写出buffer中position至limit之间的内容，写出后position移动到limit
+     * 
+     * @return 写出的字节数，socket发送缓冲区已满时为0
+     */
+    public abstract int sendPacket(ByteBuffer buffer, SocketAddress socketAddress)
+            throws IOException;
+
     @Override
     public abstract DatagramSession getSession();
 
@@ -17,14 +17,12 @@ package com.generallycloud.baseio.component;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.channels.DatagramChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.util.Set;
 
-import com.generallycloud.baseio.buffer.ByteBuf;
-import com.generallycloud.baseio.buffer.ByteBufAllocator;
-import com.generallycloud.baseio.buffer.UnpooledByteBufAllocator;
 import com.generallycloud.baseio.common.CloseUtil;
 import com.generallycloud.baseio.log.Logger;
 import com.generallycloud.baseio.log.LoggerFactory;
@@ -36,11 +34,16 @@ import com.generallycloud.baseio.protocol.DatagramPacket;
  */
 public class DatagramSelectorEventLoop extends AbstractSelectorLoop {
 
+    // 每次select后最多接收的packet数，避免单个socket占满selector线程
+    private static final int               RECEIVE_BATCH = 1024;
+
     private DatagramChannelContext         context;
     private DatagramSelectorEventLoopGroup eventLoopGroup;
     private DatagramChannel                channel;
     private Selector                       selector;
-    private ByteBufAllocator               allocator;
+    // 接收缓冲区与packet视图均由selector线程复用
+    private ByteBuffer                     receiveBuffer;
+    private DatagramPacket                 packet;
     private DatagramSessionManager         sessionManager;
     private Logger                         logger = LoggerFactory.getLogger(getClass());
 
@@ -51,29 +54,42 @@ public class DatagramSelectorEventLoop extends AbstractSelectorLoop {
         this.context = group.getChannelContext();
         this.channel = channel;
         this.sessionManager = context.getSessionManager();
-        this.allocator = UnpooledByteBufAllocator.getHeapInstance();
+        this.receiveBuffer = ByteBuffer.allocateDirect(DatagramPacket.PACKET_MAX);
+        this.packet = DatagramPacket.createViewPacket();
     }
 
     private void accept(SelectionKey selectionKey) {
 
         try {
 
-            DatagramChannelContext context = this.context;
+            DatagramChannel channel = (DatagramChannel) selectionKey.channel();
 
-            //FIXME 使用 ByteBuffer
-            ByteBuf buf = allocator.allocate(DatagramPacket.PACKET_MAX);
+            DatagramPacketAcceptor acceptor = context.getDatagramPacketAcceptor();
 
-            DatagramChannel channel = (DatagramChannel) selectionKey.channel();
+            ByteBuffer buffer = this.receiveBuffer;
 
-            InetSocketAddress remoteAddress = (InetSocketAddress) channel.receive(buf.nioBuffer());
+            for (int i = 0; i < RECEIVE_BATCH; i++) {
 
-            DatagramPacketAcceptor acceptor = context.getDatagramPacketAcceptor();
+                buffer.clear();
 
-            DatagramPacket packet = DatagramPacket.createPacket(buf.reverse().flip());
+                InetSocketAddress remoteAddress = (InetSocketAddress) channel.receive(buffer);
 
-            DatagramSession session = sessionManager.getSession(channel, remoteAddress, this);
+                if (remoteAddress == null) {
+                    break;
+                }
 
-            acceptor.accept(session, packet);
+                buffer.flip();
+
+                if (buffer.remaining() < DatagramPacket.PACKET_HEADER) {
+                    logger.debug("ignore packet, length: {}, from: {}", buffer.remaining(),
+                            remoteAddress);
+                    continue;
+                }
+
+                DatagramSession session = sessionManager.getSession(channel, remoteAddress, this);
+
+                acceptor.accept(session, packet.view(buffer));
+            }
 
         } catch (Throwable e) {
 
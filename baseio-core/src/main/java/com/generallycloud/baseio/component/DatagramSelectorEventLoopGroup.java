@@ -31,13 +31,22 @@ public class DatagramSelectorEventLoopGroup extends AbstractEventLoopGroup
 
     private DatagramChannelContext      channelContext;
 
-    private DatagramChannel             channel;
+    private DatagramChannel[]           channels;
 
     public DatagramSelectorEventLoopGroup(DatagramChannelContext context, String eventLoopName,
             int eventLoopSize, DatagramChannel channel) {
+        this(context, eventLoopName, eventLoopSize, new DatagramChannel[] { channel });
+    }
+
+    /**
+     * @param channels 多于一个时（SO_REUSEPORT）每个selector线程使用各自的channel，
+     *            否则所有线程共用同一个channel
+     */
+    public DatagramSelectorEventLoopGroup(DatagramChannelContext context, String eventLoopName,
+            int eventLoopSize, DatagramChannel[] channels) {
         super(eventLoopName, eventLoopSize);
         this.channelContext = context;
-        this.channel = channel;
+        this.channels = channels;
     }
 
     @Override
@@ -63,7 +72,8 @@ public class DatagramSelectorEventLoopGroup extends AbstractEventLoopGroup
 
     @Override
     protected DatagramSelectorEventLoop newEventLoop(int coreIndex) {
-        return new DatagramSelectorEventLoop(this, coreIndex, channel);
+        return new DatagramSelectorEventLoop(this, coreIndex,
+                channels[coreIndex % channels.length]);
     }
 
     @Override
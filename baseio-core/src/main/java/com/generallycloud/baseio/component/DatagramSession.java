@@ -17,6 +17,7 @@ package com.generallycloud.baseio.component;
 
 import java.io.IOException;
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 
 import com.generallycloud.baseio.protocol.DatagramPacket;
 
@@ -38,6 +39,16 @@ public class DatagramSession extends AbstractSession {
         channel.sendPacket(packet);
     }
 
+    /**
+     * 将已编码的packet写给该session，多个session可复用同一个buffer，
+     * 每次写出前需要重置position
+     * 
+     * @return 写出的字节数，socket发送缓冲区已满时为0
+     */
+    public int sendPacket(ByteBuffer buffer) throws IOException {
+        return channel.sendPacket(buffer, channel.getRemoteSocketAddress());
+    }
+
     @Override
     public DatagramChannelContext getContext() {
         return channel.getContext();
@@ -16,12 +16,56 @@
 package com.generallycloud.baseio.component;
 
 import com.generallycloud.baseio.buffer.ByteBuf;
+import com.generallycloud.baseio.concurrent.TokenBucket;
+import com.generallycloud.baseio.configuration.ServerConfiguration;
 
+/**
+ * 读限流，按连接以及按ChannelContext限制每秒读取的字节数以及消息数，
+ * 令牌耗尽后暂停该连接的读事件，令牌恢复后由selector线程重新注册读事件
+ */
 public class IoLimitChannelByteBufReader extends LinkableChannelByteBufReader {
 
+    private long        sessionBytesLimit;
+    private long        sessionMessagesLimit;
+    private TokenBucket contextBytes;
+    private TokenBucket contextMessages;
+
+    public IoLimitChannelByteBufReader(SocketChannelContext context) {
+        ServerConfiguration configuration = context.getServerConfiguration();
+        this.sessionBytesLimit = configuration.getSERVER_IO_LIMIT_SESSION_BYTES();
+        this.sessionMessagesLimit = configuration.getSERVER_IO_LIMIT_SESSION_MESSAGES();
+        this.contextBytes = newTokenBucket(configuration.getSERVER_IO_LIMIT_CONTEXT_BYTES());
+        this.contextMessages = newTokenBucket(configuration.getSERVER_IO_LIMIT_CONTEXT_MESSAGES());
+    }
+
+    public static boolean isEnableIoLimit(ServerConfiguration configuration) {
+        return configuration.getSERVER_IO_LIMIT_SESSION_BYTES() > 0
+                || configuration.getSERVER_IO_LIMIT_SESSION_MESSAGES() > 0
+                || configuration.getSERVER_IO_LIMIT_CONTEXT_BYTES() > 0
+                || configuration.getSERVER_IO_LIMIT_CONTEXT_MESSAGES() > 0;
+    }
+
+    private static TokenBucket newTokenBucket(long permitsPerSecond) {
+        if (permitsPerSecond < 1) {
+            return null;
+        }
+        return new TokenBucket(permitsPerSecond);
+    }
+
     @Override
     public void accept(SocketChannel channel, ByteBuf buffer) throws Exception {
+        IoLimiter limiter = channel.getIoLimiter();
+        if (limiter == null) {
+            limiter = new IoLimiter(newTokenBucket(sessionBytesLimit),
+                    newTokenBucket(sessionMessagesLimit), contextBytes, contextMessages);
+            channel.setIoLimiter(limiter);
+        }
+        int bytes = buffer.remaining();
         nextAccept(channel, buffer);
+        long wait = limiter.acquire(bytes);
+        if (wait > 0) {
+            channel.suspendRead(wait);
+        }
     }
 
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.component;
+
+import com.generallycloud.baseio.concurrent.TokenBucket;
+
+/**
+ * 单个连接的读限流状态，仅在selector线程中访问
+ * 
+ * @author wangkai
+ *
+ */
+public class IoLimiter {
+
+    private TokenBucket sessionBytes;
+    private TokenBucket sessionMessages;
+    private TokenBucket contextBytes;
+    private TokenBucket contextMessages;
+    private int         messages;
+
+    public IoLimiter(TokenBucket sessionBytes, TokenBucket sessionMessages,
+            TokenBucket contextBytes, TokenBucket contextMessages) {
+        this.sessionBytes = sessionBytes;
+        this.sessionMessages = sessionMessages;
+        this.contextBytes = contextBytes;
+        this.contextMessages = contextMessages;
+    }
+
+    public void messageRead() {
+        messages++;
+    }
+
+    /**
+     * 记录本次读取的字节数以及期间解码出的消息数
+     * @return 需要暂停读的纳秒数
+     */
+    public long acquire(int bytes) {
+        int messages = this.messages;
+        this.messages = 0;
+        long wait = acquire(sessionBytes, bytes, 0);
+        wait = acquire(contextBytes, bytes, wait);
+        if (messages > 0) {
+            wait = acquire(sessionMessages, messages, wait);
+            wait = acquire(contextMessages, messages, wait);
+        }
+        return wait;
+    }
+
+    /**
+     * @return 所有令牌桶恢复为非负时需要等待的纳秒数
+     */
+    public long getWaitNanos() {
+        long wait = getWaitNanos(sessionBytes, 0);
+        wait = getWaitNanos(contextBytes, wait);
+        wait = getWaitNanos(sessionMessages, wait);
+        return getWaitNanos(contextMessages, wait);
+    }
+
+    private long acquire(TokenBucket bucket, int permits, long wait) {
+        if (bucket == null) {
+            return wait;
+        }
+        return Math.max(wait, bucket.acquire(permits));
+    }
+
+    private long getWaitNanos(TokenBucket bucket, long wait) {
+        if (bucket == null) {
+            return wait;
+        }
+        return Math.max(wait, bucket.getWaitNanos());
+    }
+
+}
@@ -32,4 +32,9 @@ public class LoggerSocketSEListener implements SocketSessionEventListener {
         logger.info("session closed:{}", session);
     }
 
+    @Override
+    public void writabilityChanged(SocketSession session) {
+        logger.info("session writability changed:{},writable:{}", session, session.isWritable());
+    }
+
 }
@@ -93,8 +93,9 @@ public class NioDatagramChannel extends AbstractChannel
     //		channel.send(buf.nioBuffer(), socketAddress);
     //	}
 
-    private void sendPacket(ByteBuffer buffer, SocketAddress socketAddress) throws IOException {
-        channel.send(buffer, socketAddress);
+    @Override
+    public int sendPacket(ByteBuffer buffer, SocketAddress socketAddress) throws IOException {
+        return channel.send(buffer, socketAddress);
     }
 
     @Override
@@ -109,7 +110,7 @@ public class NioDatagramChannel extends AbstractChannel
 
     @Override
     public void sendPacket(DatagramPacket packet, SocketAddress socketAddress) throws IOException {
-        sendPacket(ByteBuffer.wrap(packet.getData()), socketAddress);
+        sendPacket(packet.nioBuffer(), socketAddress);
         //		ByteBuf buf = allocate(packet);
         //		try {
         //			sendPacket(buf.flip(), socketAddress);
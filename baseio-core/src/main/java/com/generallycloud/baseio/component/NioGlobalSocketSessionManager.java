@@ -19,10 +19,11 @@ import java.io.IOException;
 import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import com.generallycloud.baseio.buffer.ByteBufAllocator;
-import com.generallycloud.baseio.buffer.UnpooledByteBufAllocator;
+import com.generallycloud.baseio.common.ReleaseUtil;
 import com.generallycloud.baseio.protocol.ChannelFuture;
 import com.generallycloud.baseio.protocol.Future;
 import com.generallycloud.baseio.protocol.ProtocolEncoder;
@@ -33,21 +34,27 @@ import com.generallycloud.baseio.protocol.ProtocolEncoder;
  */
 public class NioGlobalSocketSessionManager implements SocketSessionManager {
 
-    private Map<Integer, SocketSession> sessions         = new ConcurrentHashMap<>();
+    private Map<Integer, SocketSession>               sessions         = new ConcurrentHashMap<>();
 
-    private Map<Integer, SocketSession> readOnlySessions = Collections.unmodifiableMap(sessions);
+    private Map<Integer, SocketSession>               readOnlySessions = Collections
+            .unmodifiableMap(sessions);
 
-    private SocketSessionManager[]      socketSessionManagers;
+    private ConcurrentMap<String, SocketSessionGroup> groups           = new ConcurrentHashMap<>();
 
-    private int                         managerLen;
+    private SocketSessionManager[]                    socketSessionManagers;
 
-    private NioSocketChannelContext     context;
+    private SocketSelectorEventLoop[]                 selectorEventLoops;
+
+    private int                                       managerLen;
+
+    private NioSocketChannelContext                   context;
 
     public void init(NioSocketChannelContext context) {
         this.context = context;
         NioChannelService service = (NioChannelService) context.getChannelService();
         SocketSelectorEventLoopGroup group = service.getSelectorEventLoopGroup();
         SocketSelectorEventLoop[] loops = group.getSelectorEventLoops();
+        selectorEventLoops = loops;
         socketSessionManagers = new SocketSessionManager[loops.length];
         managerLen = loops.length;
         for (int i = 0; i < managerLen; i++) {
@@ -94,16 +101,21 @@ public class NioGlobalSocketSessionManager implements SocketSessionManager {
         }
     }
 
+    /**
+     * encode一次到内存池，每个selector线程派发一个事件，
+     * 所有session共享同一块内存
+     */
     @Override
     public void broadcast(Future future) throws IOException {
         if (getManagedSessionSize() == 0) {
             return;
         }
-        ChannelFuture f = (ChannelFuture) future;
-        ProtocolEncoder encoder = context.getProtocolEncoder();
-        ByteBufAllocator allocator = UnpooledByteBufAllocator.getHeapInstance();
-        encoder.encode(allocator, f);
-        broadcastChannelFuture(f);
+        ChannelFuture f = encode(future);
+        try {
+            broadcastChannelFuture(f);
+        } finally {
+            ReleaseUtil.release(f);
+        }
     }
 
     @Override
@@ -111,9 +123,43 @@ public class NioGlobalSocketSessionManager implements SocketSessionManager {
         if (getManagedSessionSize() == 0) {
             return;
         }
-        for (SocketSession s : sessions.values()) {
-            s.doFlush(future.duplicate());
+        for (SocketSelectorEventLoop loop : selectorEventLoops) {
+            future.getByteBuf().retain(1);
+            loop.dispatch(new BroadcastSelectorLoopEvent(future, null));
+        }
+    }
+
+    ChannelFuture encode(Future future) throws IOException {
+        ChannelFuture f = (ChannelFuture) future;
+        ProtocolEncoder encoder = context.getProtocolEncoder();
+        ByteBufAllocator allocator = context.getByteBufAllocatorManager().getNextBufAllocator();
+        encoder.encode(allocator, f);
+        return f;
+    }
+
+    SocketSelectorEventLoop[] getSelectorEventLoops() {
+        return selectorEventLoops;
+    }
+
+    /**
+     * 获取分组，不存在时创建
+     * @param name
+     * @return
+     */
+    public SocketSessionGroup getGroup(String name) {
+        SocketSessionGroup group = groups.get(name);
+        if (group == null) {
+            group = new SocketSessionGroup(name, this, managerLen);
+            SocketSessionGroup old = groups.putIfAbsent(name, group);
+            if (old != null) {
+                return old;
+            }
         }
+        return group;
+    }
+
+    public SocketSessionGroup removeGroup(String name) {
+        return groups.remove(name);
     }
 
     @Override
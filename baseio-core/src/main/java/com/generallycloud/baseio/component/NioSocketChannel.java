@@ -19,14 +19,18 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketOption;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.util.concurrent.locks.ReentrantLock;
 
 import com.generallycloud.baseio.ClosedChannelException;
 import com.generallycloud.baseio.buffer.ByteBuf;
+import com.generallycloud.baseio.common.CloseUtil;
 import com.generallycloud.baseio.common.ReleaseUtil;
 import com.generallycloud.baseio.protocol.ChannelFuture;
+import com.generallycloud.baseio.protocol.CompositeChannelFuture;
+import com.generallycloud.baseio.protocol.FileRegionChannelFuture;
 
 public class NioSocketChannel extends AbstractSocketChannel implements SelectorLoopEvent {
 
@@ -34,8 +38,20 @@ public class NioSocketChannel extends AbstractSocketChannel implements SelectorL
     private SelectionKey            selectionKey;
     private boolean                 closing;
     private NioSocketChannelContext context;
-    private SocketSelectorEventLoop selectorEventLoop;
+    // 迁移后由其它线程修改
+    private volatile SocketSelectorEventLoop selectorEventLoop;
     private boolean                 flushing;
+    private boolean                 readSuspended;
+    private long                    resumeReadTime;
+    private boolean                 gatheringWrite;
+    private int                     gatheringBytes;
+    // 聚集写时已经从writeFutures取出但未写完的future
+    private ChannelFuture[]         remainFutures;
+    private int                     remainSize;
+    // 所属SocketSessionGroup的数量，由关闭锁保护，属于分组时不迁移
+    private int                     groups;
+    // 已计入selector线程pendingWriteBytes的字节数，只在selector线程中修改
+    private int                     pendingBytes;
 
     private static final int        OPS_RW = SelectionKey.OP_READ | SelectionKey.OP_WRITE;
 
@@ -48,6 +64,9 @@ public class NioSocketChannel extends AbstractSocketChannel implements SelectorL
         this.context = selectorLoop.getChannelContext();
         this.selectionKey = selectionKey;
         this.channel = (SocketChannel) selectionKey.channel();
+        // ssl需要逐个future做wrap，不能使用聚集写
+        this.gatheringWrite = selectorLoop.getGatheringFutures() != null && !isEnableSSL();
+        this.gatheringBytes = context.getServerConfiguration().getSERVER_GATHERING_WRITE_BYTES();
     }
 
     @Override
@@ -82,37 +101,103 @@ public class NioSocketChannel extends AbstractSocketChannel implements SelectorL
 
     @Override
     public void fireEvent(SocketSelectorEventLoop selectorLoop) throws IOException {
+        if (selectorLoop != selectorEventLoop) {
+            // 迁移前进入原selector线程的flush事件
+            selectorEventLoop.dispatch(this);
+            return;
+        }
         if (!isOpened()) {
-            throw new ClosedChannelException("closed");
+            // 连接关闭后才进入队列的future
+            releaseWriteFutures();
+            return;
+        }
+        dropOldestFutures();
+        if (!flushing && isOpened()) {
+            flush(selectorLoop);
         }
-        if (flushing) {
+        updatePendingBytes(selectorLoop);
+    }
+
+    /**
+     * 将待写出字节数的变化计入selector线程，只在selector线程中调用
+     */
+    protected void updatePendingBytes(SocketSelectorEventLoop selectorLoop) {
+        if (!isOpened()) {
             return;
         }
-        flush(selectorLoop);
+        int length = writeFutureLength.get();
+        selectorLoop.addPendingWriteBytes(length - pendingBytes);
+        pendingBytes = length;
     }
 
     private void interestRead(SelectionKey key) {
-        int interestOps = key.interestOps();
-        if (SelectionKey.OP_READ != interestOps) {
-            key.interestOps(SelectionKey.OP_READ);
+        int ops = readSuspended ? 0 : SelectionKey.OP_READ;
+        if (ops != key.interestOps()) {
+            key.interestOps(ops);
         }
     }
 
     private void interestWrite(SelectionKey key) {
-        if (OPS_RW != key.interestOps()) {
-            key.interestOps(OPS_RW);
+        int ops = readSuspended ? SelectionKey.OP_WRITE : OPS_RW;
+        if (ops != key.interestOps()) {
+            key.interestOps(ops);
         }
     }
 
-    protected void flush(SocketSelectorEventLoop selectorLoop) throws IOException {
-        ChannelFuture f = writeFuture;
-        if (f == null) {
-            f = writeFutures.poll();
+    @Override
+    public void suspendRead(long nanos) {
+        resumeReadTime = System.nanoTime() + nanos;
+        if (readSuspended) {
+            return;
+        }
+        readSuspended = true;
+        SelectionKey key = selectionKey;
+        if (key.isValid()) {
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
         }
-        if (f == null) {
+        selectorEventLoop.suspendRead(this);
+    }
+
+    /**
+     * @return true 已恢复读事件或者连接已关闭
+     */
+    protected boolean resumeRead(long now) {
+        if (!isOpened()) {
+            return true;
+        }
+        if (now < resumeReadTime) {
+            return false;
+        }
+        // 全局令牌可能已经被其它连接消耗
+        long wait = ioLimiter.getWaitNanos();
+        if (wait > 0) {
+            resumeReadTime = now + wait;
+            return false;
+        }
+        readSuspended = false;
+        SelectionKey key = selectionKey;
+        if (key.isValid()) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+        }
+        return true;
+    }
+
+    protected void flush(SocketSelectorEventLoop selectorLoop) throws IOException {
+        if (gatheringWrite) {
+            gatheringFlush(selectorLoop);
             return;
         }
+        ChannelFuture f = writeFuture;
         for (;;) {
+            if (f == null) {
+                f = writeFutures.poll();
+                if (f == null) {
+                    if (flushCompleted()) {
+                        continue;
+                    }
+                    break;
+                }
+            }
             try {
                 f.write(this);
             } catch (Throwable e) {
@@ -128,16 +213,130 @@ public class NioSocketChannel extends AbstractSocketChannel implements SelectorL
             }
             writeFutureLength(-f.getByteBufLimit());
             f.onSuccess(session);
-            f = writeFutures.poll();
-            if (f == null) {
+            f = null;
+        }
+        interestRead(selectionKey);
+        writeFuture = null;
+        flushing = false;
+    }
+
+    private void gatheringFlush(SocketSelectorEventLoop selectorLoop) throws IOException {
+        ChannelFuture[] futures = selectorLoop.getGatheringFutures();
+        ByteBuffer[] buffers = selectorLoop.getGatheringBuffers();
+        int maxSize = futures.length;
+        int maxBytes = gatheringBytes;
+        for (;;) {
+            // 文件与组合future需要单独写出，且必须在它之前的future全部写完之后
+            if (remainSize == 0 && writeFuture != null) {
+                ChannelFuture f = writeFuture;
+                try {
+                    f.write(this);
+                } catch (Throwable e) {
+                    writeFuture = null;
+                    ReleaseUtil.release(f);
+                    throw e;
+                }
+                if (!f.isWriteCompleted()) {
+                    flushing = true;
+                    interestWrite(selectionKey);
+                    return;
+                }
+                writeFuture = null;
+                writeFutureLength(-f.getByteBufLimit());
+                f.onSuccess(session);
+            }
+            int size = 0;
+            int bytes = 0;
+            for (int i = 0; i < remainSize; i++) {
+                ChannelFuture f = remainFutures[i];
+                remainFutures[i] = null;
+                futures[size] = f;
+                buffers[size] = f.getByteBuf().getNioBuffer();
+                bytes += buffers[size].remaining();
+                size++;
+            }
+            remainSize = 0;
+            for (; writeFuture == null && size < maxSize && bytes < maxBytes;) {
+                ChannelFuture f = writeFutures.poll();
+                if (f == null) {
+                    break;
+                }
+                if (f instanceof FileRegionChannelFuture || f instanceof CompositeChannelFuture) {
+                    writeFuture = f;
+                    break;
+                }
+                ByteBuffer buffer = f.getByteBuf().getNioBuffer();
+                futures[size] = f;
+                buffers[size] = buffer;
+                bytes += buffer.remaining();
+                size++;
+            }
+            if (size == 0) {
+                if (writeFuture != null || flushCompleted()) {
+                    continue;
+                }
                 break;
             }
+            try {
+                channel.write(buffers, 0, size);
+            } catch (Throwable e) {
+                for (int i = 0; i < size; i++) {
+                    ReleaseUtil.release(futures[i]);
+                    futures[i] = null;
+                    buffers[i] = null;
+                }
+                throw e;
+            }
+            int i = 0;
+            for (; i < size; i++) {
+                ChannelFuture f = futures[i];
+                f.getByteBuf().reverse();
+                if (!f.isWriteCompleted()) {
+                    break;
+                }
+                futures[i] = null;
+                buffers[i] = null;
+                writeFutureLength(-f.getByteBufLimit());
+                f.onSuccess(session);
+            }
+            if (i < size) {
+                remain(futures, buffers, i, size);
+                flushing = true;
+                interestWrite(selectionKey);
+                return;
+            }
         }
         interestRead(selectionKey);
-        writeFuture = null;
         flushing = false;
     }
 
+    private void remain(ChannelFuture[] futures, ByteBuffer[] buffers, int off, int size) {
+        if (remainFutures == null) {
+            remainFutures = new ChannelFuture[futures.length];
+        }
+        for (int i = off; i < size; i++) {
+            ChannelFuture f = futures[i];
+            futures[i] = null;
+            buffers[i] = null;
+            // 未写出的buf也需要同步position
+            f.getByteBuf().reverse();
+            remainFutures[remainSize++] = f;
+        }
+    }
+
+    private void releaseRemainFutures() {
+        if (remainSize == 0) {
+            return;
+        }
+        ClosedChannelException e = new ClosedChannelException(session.toString());
+        for (int i = 0; i < remainSize; i++) {
+            ChannelFuture f = remainFutures[i];
+            remainFutures[i] = null;
+            f.onException(session, e);
+        }
+        remainSize = 0;
+    }
+
     @Override
     public void close() throws IOException {
         if (!isOpened()) {
@@ -181,7 +380,10 @@ public class NioSocketChannel extends AbstractSocketChannel implements SelectorL
         try {
             flush(selectorEventLoop);
         } catch (IOException e) {}
+        releaseRemainFutures();
         releaseFutures();
+        selectorEventLoop.addPendingWriteBytes(-pendingBytes);
+        pendingBytes = 0;
         selectionKey.attach(null);
         try {
             channel.close();
@@ -211,6 +413,95 @@ public class NioSocketChannel extends AbstractSocketChannel implements SelectorL
         buf.reverse();
     }
 
+    @Override
+    public long transferFrom(FileChannel src, long position, long count) throws IOException {
+        if (isEnableSSL()) {
+            return -1;
+        }
+        return src.transferTo(position, count, channel);
+    }
+
+    /**
+     * 在当前selector线程中调用，channel空闲时迁移到target线程
+     * @return 是否开始迁移
+     */
+    protected boolean migrate(SocketSelectorEventLoop selectorLoop,
+            final SocketSelectorEventLoop target) {
+        if (selectorLoop != selectorEventLoop || target == selectorLoop) {
+            return false;
+        }
+        ReentrantLock lock = getCloseLock();
+        lock.lock();
+        try {
+            // 持有关闭锁，保证关闭事件要么已经拒绝了迁移，要么进入target线程
+            // 分组按selector线程保存成员，迁移后分组中的位置会失效
+            if (!isIdle() || groups > 0) {
+                return false;
+            }
+            selectionKey.cancel();
+            ((NioSocketSessionManager) selectorLoop.getSocketSessionManager())
+                    .detachSession(session);
+            selectorLoop.addPendingWriteBytes(-pendingBytes);
+            pendingBytes = 0;
+            // 先把attach放入target的事件队列再发布selectorEventLoop，
+            // 其它线程之后派发到target的flush事件一定在attach之后执行
+            target.dispatch(new SelectorLoopEventAdapter() {
+
+                @Override
+                public void fireEvent(SocketSelectorEventLoop selectorLoop) throws IOException {
+                    // 等待迁移线程发布selectorEventLoop
+                    ReentrantLock lock = getCloseLock();
+                    lock.lock();
+                    lock.unlock();
+                    attach(selectorLoop);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    CloseUtil.close(NioSocketChannel.this);
+                }
+            });
+            if (!isOpened()) {
+                // target已经停止，channel已在当前线程关闭
+                return false;
+            }
+            this.selectorEventLoop = target;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isIdle() {
+        return isOpened() && !closing && !flushing && !readSuspended && writeFuture == null
+                && remainSize == 0 && readFuture == null && sslReadFuture == null
+                && writeFutures.size() == 0;
+    }
+
+    private void attach(SocketSelectorEventLoop selectorLoop) throws IOException {
+        NioSocketSelector selector = (NioSocketSelector) selectorLoop.getSelector();
+        this.threadContext = selectorLoop;
+        try {
+            this.selectionKey = channel.register(selector.getSelector(), SelectionKey.OP_READ,
+                    this);
+        } catch (IOException e) {
+            // 还未加入新线程的session管理，直接关闭
+            opened = false;
+            CloseUtil.close(channel);
+            fireClosed();
+            throw e;
+        }
+        this.byteBufAllocator = selectorLoop.getByteBufAllocator();
+        if (sslHandler != null) {
+            this.sslHandler = selectorLoop.getSslHandler();
+        }
+        ((NioSocketSessionManager) selectorLoop.getSocketSessionManager()).attachSession(session);
+        if (writeFutures.size() > 0) {
+            flush(selectorLoop);
+        }
+        updatePendingBytes(selectorLoop);
+    }
+
     protected void dispatchEvent(SelectorLoopEvent event) {
         this.selectorEventLoop.dispatch(event);
     }
@@ -224,4 +515,15 @@ public class NioSocketChannel extends AbstractSocketChannel implements SelectorL
         return selectorEventLoop;
     }
 
+    public SocketSelectorEventLoop getSelectorEventLoop() {
+        return selectorEventLoop;
+    }
+
+    /**
+     * 需要持有关闭锁，与migrate互斥
+     */
+    void addGroups(int delta) {
+        groups += delta;
+    }
+
 }
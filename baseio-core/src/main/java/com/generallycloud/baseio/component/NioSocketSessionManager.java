@@ -15,77 +15,90 @@
  */
 package com.generallycloud.baseio.component;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.RejectedExecutionException;
 
+import com.generallycloud.baseio.buffer.ByteBuf;
 import com.generallycloud.baseio.collection.IntObjectHashMap;
 import com.generallycloud.baseio.common.CloseUtil;
 import com.generallycloud.baseio.protocol.ChannelFuture;
+import com.generallycloud.baseio.protocol.DuplicateChannelFuture;
 import com.generallycloud.baseio.protocol.Future;
 
 public class NioSocketSessionManager extends AbstractSessionManager
         implements SocketSessionManager {
 
-    private SocketChannelContext            context  = null;
-    private SocketSessionManager            parent   = null;
-    private IntObjectHashMap<SocketSession> sessions = new IntObjectHashMap<>();
+    private SocketSessionManager                     parent            = null;
+    private SessionIdleWheel                         wheel             = null;
+    private IntObjectHashMap<SessionIdleWheel.Entry> sessions          = new IntObjectHashMap<>();
+    private SocketSession[]                          broadcastSessions = new SocketSession[16];
 
     public NioSocketSessionManager(SocketChannelContext context) {
         super(context.getSessionIdleTime());
-        this.context = context;
         this.parent = context.getSessionManager();
+        this.wheel = new SessionIdleWheel(context);
     }
 
     @Override
-    protected void sessionIdle(long lastIdleTime, long currentTime) {
-        IntObjectHashMap<SocketSession> sessions = this.sessions;
-        if (sessions.size() == 0) {
-            return;
-        }
-        SocketChannelContext context = this.context;
-        SocketSessionIdleEventListenerWrapper linkable = context.getSessionIdleEventListenerLink();
-        if (linkable == null) {
-            return;
-        }
-        for (SocketSession session : sessions.values()) {
-            linkable.sessionIdled(session, lastIdleTime, currentTime);
-        }
+    public void loop() {
+        wheel.loop(System.currentTimeMillis());
     }
 
     @Override
     public void stop() {
-        IntObjectHashMap<SocketSession> sessions = this.sessions;
+        IntObjectHashMap<SessionIdleWheel.Entry> sessions = this.sessions;
         if (sessions.size() == 0) {
             return;
         }
-        for (SocketSession session : sessions.values()) {
-            CloseUtil.close(session);
+        for (SessionIdleWheel.Entry entry : sessions.values()) {
+            CloseUtil.close(entry.getSession());
         }
     }
 
     @Override
     public void putSession(SocketSession session) throws RejectedExecutionException {
-        IntObjectHashMap<SocketSession> sessions = this.sessions;
+        IntObjectHashMap<SessionIdleWheel.Entry> sessions = this.sessions;
         int sessionId = session.getSessionId();
-        SocketSession old = sessions.get(sessionId);
+        SessionIdleWheel.Entry old = sessions.get(sessionId);
         if (old != null) {
-            CloseUtil.close(old);
-            removeSession(old);
+            CloseUtil.close(old.getSession());
+            removeSession(old.getSession());
         }
         if (sessions.size() >= getSessionSizeLimit()) {
             throw new RejectedExecutionException(
                     "session size limit:" + getSessionSizeLimit() + ",current:" + sessions.size());
         }
-        sessions.put(sessionId, session);
+        sessions.put(sessionId, wheel.add(session));
         parent.putSession(session);
     }
 
     @Override
     public void removeSession(SocketSession session) {
-        sessions.remove(session.getSessionId());
+        IntObjectHashMap<SessionIdleWheel.Entry> sessions = this.sessions;
+        int sessionId = session.getSessionId();
+        SessionIdleWheel.Entry entry = sessions.get(sessionId);
+        if (entry != null && entry.getSession() == session) {
+            sessions.remove(sessionId);
+            wheel.remove(entry);
+        }
         parent.removeSession(session);
     }
 
+    /**
+     * 迁移到其它selector线程时使用，只移出本线程，不影响全局的session管理
+     */
+    void detachSession(SocketSession session) {
+        SessionIdleWheel.Entry entry = sessions.remove(session.getSessionId());
+        if (entry != null) {
+            wheel.remove(entry);
+        }
+    }
+
+    void attachSession(SocketSession session) {
+        sessions.put(session.getSessionId(), wheel.add(session));
+    }
+
     @Override
     public int getManagedSessionSize() {
         return sessions.size();
@@ -93,7 +106,11 @@ public class NioSocketSessionManager extends AbstractSessionManager
 
     @Override
     public SocketSession getSession(int sessionId) {
-        return sessions.get(sessionId);
+        SessionIdleWheel.Entry entry = sessions.get(sessionId);
+        if (entry == null) {
+            return null;
+        }
+        return entry.getSession();
     }
 
     @Override
@@ -101,9 +118,41 @@ public class NioSocketSessionManager extends AbstractSessionManager
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * 只能在selector线程中调用，为本线程的每个session生成只读的duplicate并写出
+     */
     @Override
     public void broadcastChannelFuture(ChannelFuture future) {
-        throw new UnsupportedOperationException();
+        IntObjectHashMap<SessionIdleWheel.Entry> sessions = this.sessions;
+        SocketSession[] array = getBroadcastSessions(sessions.size());
+        int size = 0;
+        for (SessionIdleWheel.Entry entry : sessions.values()) {
+            array[size++] = entry.getSession();
+        }
+        broadcastChannelFuture(future, array, size);
+    }
+
+    void broadcastChannelFuture(ChannelFuture future, SocketSession[] sessions, int size) {
+        if (size == 0) {
+            return;
+        }
+        SocketChannelContext context = future.getContext();
+        ByteBuf buf = future.getByteBuf();
+        // 一次为所有duplicate计数，避免每个session同步一次
+        buf.retain(size);
+        for (int i = 0; i < size; i++) {
+            SocketSession session = sessions[i];
+            sessions[i] = null;
+            session.doFlush(new DuplicateChannelFuture(context, buf.readOnlyDuplicate(), future));
+        }
+    }
+
+    SocketSession[] getBroadcastSessions(int size) {
+        if (broadcastSessions.length < size) {
+            int length = Math.max(size, broadcastSessions.length * 2);
+            broadcastSessions = Arrays.copyOf(broadcastSessions, length);
+        }
+        return broadcastSessions;
     }
 
     @Override
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.component;
+
+/**
+ * 按session下次空闲检测的时间分桶的时间轮，每个tick只处理到期的session，
+ * 不再在每个检测周期遍历全部session，只在selector线程中使用
+ * 
+ * @author wangkai
+ *
+ */
+public class SessionIdleWheel {
+
+    static final int             WHEEL_SIZE = 512;
+
+    static final int             MASK       = WHEEL_SIZE - 1;
+
+    private Entry[]              wheel      = new Entry[WHEEL_SIZE];
+
+    private SocketChannelContext context;
+
+    private long                 tickDuration;
+
+    private long                 currentTick;
+
+    //新加入的session，在下一次loop时才计算到期时间，
+    //以便sessionOpened中设置的sessionIdleTime可以生效
+    private Entry                pending;
+
+    public SessionIdleWheel(SocketChannelContext context) {
+        this.context = context;
+        this.tickDuration = tickDuration(context.getSessionIdleTime());
+        this.currentTick = System.currentTimeMillis() / tickDuration;
+    }
+
+    //tick约为检测周期的1/32，最长1s
+    private static long tickDuration(long sessionIdleTime) {
+        return Math.max(1, Math.min(1000, sessionIdleTime / 32));
+    }
+
+    public Entry add(SocketSession session) {
+        Entry entry = new Entry(session);
+        entry.next = pending;
+        pending = entry;
+        return entry;
+    }
+
+    public void remove(Entry entry) {
+        entry.cancelled = true;
+        if (entry.bucket != -1) {
+            unlink(entry);
+        }
+    }
+
+    public void loop(long currentTime) {
+        if (pending != null) {
+            schedulePending(currentTime);
+        }
+        long nowTick = currentTime / tickDuration;
+        long tick = currentTick;
+        if (nowTick <= tick) {
+            return;
+        }
+        SocketSessionIdleEventListenerWrapper linkable = context.getSessionIdleEventListenerLink();
+        if (linkable != null) {
+            //长时间未loop时最多处理一圈，余下到期的session在各自的桶中一并处理
+            long end = Math.min(nowTick, tick + WHEEL_SIZE);
+            for (; tick < end;) {
+                tick++;
+                expire((int) (tick & MASK), nowTick, currentTime, linkable);
+            }
+        }
+        this.currentTick = nowTick;
+    }
+
+    private void schedulePending(long currentTime) {
+        Entry entry = pending;
+        pending = null;
+        for (; entry != null;) {
+            Entry next = entry.next;
+            entry.next = null;
+            if (!entry.cancelled) {
+                entry.lastIdleTime = currentTime;
+                schedule(entry, currentTime);
+            }
+            entry = next;
+        }
+    }
+
+    private void expire(int bucket, long nowTick, long currentTime,
+            SocketSessionIdleEventListenerWrapper linkable) {
+        Entry entry = wheel[bucket];
+        for (; entry != null;) {
+            Entry next = entry.next;
+            if (entry.deadlineTick <= nowTick) {
+                unlink(entry);
+                SocketSession session = entry.session;
+                linkable.sessionIdled(session, entry.lastIdleTime, currentTime);
+                entry.lastIdleTime = currentTime;
+                if (!entry.cancelled) {
+                    schedule(entry, currentTime);
+                }
+                if (next != null && next.bucket != bucket) {
+                    //next在listener中被移除，从头开始
+                    next = wheel[bucket];
+                }
+            }
+            entry = next;
+        }
+    }
+
+    private void schedule(Entry entry, long currentTime) {
+        long deadlineTick = (currentTime + entry.session.getSessionIdleTime()) / tickDuration;
+        if (deadlineTick <= currentTick) {
+            deadlineTick = currentTick + 1;
+        }
+        int bucket = (int) (deadlineTick & MASK);
+        Entry head = wheel[bucket];
+        entry.deadlineTick = deadlineTick;
+        entry.bucket = bucket;
+        entry.prev = null;
+        entry.next = head;
+        if (head != null) {
+            head.prev = entry;
+        }
+        wheel[bucket] = entry;
+    }
+
+    private void unlink(Entry entry) {
+        Entry prev = entry.prev;
+        Entry next = entry.next;
+        if (prev == null) {
+            wheel[entry.bucket] = next;
+        } else {
+            prev.next = next;
+        }
+        if (next != null) {
+            next.prev = prev;
+        }
+        entry.prev = null;
+        entry.next = null;
+        entry.bucket = -1;
+    }
+
+    public static class Entry {
+
+        private SocketSession session;
+
+        private Entry         prev;
+
+        private Entry         next;
+
+        private long          deadlineTick;
+
+        private long          lastIdleTime;
+
+        private int           bucket = -1;
+
+        private boolean       cancelled;
+
+        Entry(SocketSession session) {
+            this.session = session;
+        }
+
+        public SocketSession getSession() {
+            return session;
+        }
+    }
+
+}
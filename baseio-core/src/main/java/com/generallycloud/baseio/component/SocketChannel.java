@@ -17,6 +17,7 @@ package com.generallycloud.baseio.component;
 
 import java.io.IOException;
 import java.net.SocketOption;
+import java.nio.channels.FileChannel;
 
 import javax.net.ssl.SSLEngine;
 
@@ -63,6 +64,8 @@ public interface SocketChannel extends DuplexChannel {
 
     SslFuture getSslReadFuture();
 
+    IoLimiter getIoLimiter();
+
     int getWriteFutureLength();
 
     int getWriteFutureSize();
@@ -71,8 +74,16 @@ public interface SocketChannel extends DuplexChannel {
 
     boolean isEnableSSL();
 
+    /**
+     * 待写出数据超过SERVER_WRITE_HIGH_WATERMARK后返回false，
+     * 直到低于SERVER_WRITE_LOW_WATERMARK
+     */
+    boolean isWritable();
+
     <T> void setOption(SocketOption<T> name, T value) throws IOException;
 
+    void setIoLimiter(IoLimiter ioLimiter);
+
     void setProtocolDecoder(ProtocolDecoder protocolDecoder);
 
     void setProtocolEncoder(ProtocolEncoder protocolEncoder);
@@ -83,6 +94,18 @@ public interface SocketChannel extends DuplexChannel {
 
     void setSslReadFuture(SslFuture future);
 
+    /**
+     * 暂停读事件，只能在selector线程中调用
+     * @param nanos 暂停的纳秒数
+     */
+    void suspendRead(long nanos);
+
+    /**
+     * 使用FileChannel.transferTo写出文件内容，只能在selector线程中调用
+     * @return 写出的字节数，不支持时返回-1
+     */
+    long transferFrom(FileChannel src, long position, long count) throws IOException;
+
     void write(ByteBuf buf) throws IOException;
 
 }
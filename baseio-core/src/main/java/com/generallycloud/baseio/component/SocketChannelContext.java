@@ -57,6 +57,8 @@ public interface SocketChannelContext extends ChannelContext {
 
     public abstract ForeFutureAcceptor getForeReadFutureAcceptor();
 
+    public abstract void setForeReadFutureAcceptor(ForeFutureAcceptor foreReadFutureAcceptor);
+
     public abstract SocketSessionEventListenerWrapper getSessionEventListenerLink();
 
     public abstract SocketSessionIdleEventListenerWrapper getSessionIdleEventListenerLink();
@@ -31,6 +31,8 @@ public abstract class SocketChannelSessionImpl extends AbstractSession implement
 
     protected SocketChannel channel;
 
+    protected long          sessionIdleTime;
+
     public SocketChannelSessionImpl(SocketChannel channel) {
         this.channel = channel;
     }
@@ -60,6 +62,24 @@ public abstract class SocketChannelSessionImpl extends AbstractSession implement
         return getChannel().isEnableSSL();
     }
 
+    @Override
+    public boolean isWritable() {
+        return getChannel().isWritable();
+    }
+
+    @Override
+    public long getSessionIdleTime() {
+        if (sessionIdleTime == 0) {
+            return getContext().getSessionIdleTime();
+        }
+        return sessionIdleTime;
+    }
+
+    @Override
+    public void setSessionIdleTime(long sessionIdleTime) {
+        this.sessionIdleTime = sessionIdleTime;
+    }
+
     @Override
     public void flush(Future future) {
         getChannel().flush((ChannelFuture) future);
@@ -16,10 +16,13 @@
 package com.generallycloud.baseio.component;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.generallycloud.baseio.LifeCycleUtil;
 import com.generallycloud.baseio.buffer.ByteBuf;
@@ -31,8 +34,10 @@ import com.generallycloud.baseio.component.ssl.SslHandler;
 import com.generallycloud.baseio.concurrent.BufferedArrayList;
 import com.generallycloud.baseio.concurrent.ExecutorEventLoop;
 import com.generallycloud.baseio.concurrent.LineEventLoop;
+import com.generallycloud.baseio.configuration.ServerConfiguration;
 import com.generallycloud.baseio.log.Logger;
 import com.generallycloud.baseio.log.LoggerFactory;
+import com.generallycloud.baseio.protocol.ChannelFuture;
 
 /**
  * @author wangkai
@@ -56,6 +61,18 @@ public class SocketSelectorEventLoop extends AbstractSelectorLoop
     private AtomicBoolean                        selecting                = new AtomicBoolean();
     private UnpooledByteBufAllocator             unpooledByteBufAllocator = null;
     private BufferedArrayList<SelectorLoopEvent> selectorLoopEvents       = new BufferedArrayList<>();
+    private List<NioSocketChannel>               suspendedChannels        = new ArrayList<>();
+    private ChannelFuture[]                      gatheringFutures         = null;
+    private ByteBuffer[]                         gatheringBuffers         = null;
+    // 统计周期内select阻塞的时间
+    private long                                 selectNanos;
+    private long                                 statsTime                = System.nanoTime();
+    private volatile long                        pendingWriteBytes;
+    private volatile int                         busyRate;
+    // 已分配到本线程但还未注册的连接数
+    private AtomicInteger                        assigningChannels        = new AtomicInteger();
+
+    private static final long                    STATS_INTERVAL           = 1000L * 1000 * 1000;
 
     public SocketSelectorEventLoop(SocketSelectorEventLoopGroup group, int coreIndex) {
         super(group.getChannelContext(), coreIndex);
@@ -72,6 +89,13 @@ public class SocketSelectorEventLoop extends AbstractSelectorLoop
         if (context.isEnableSSL()) {
             sslHandler = context.getSslContext().newSslHandler(context);
         }
+        ServerConfiguration configuration = context.getServerConfiguration();
+        if (configuration.isSERVER_ENABLE_GATHERING_WRITE()) {
+            // 聚集写的临时数组由selector线程独享，避免每个channel持有一份
+            int gatheringSize = configuration.getSERVER_GATHERING_WRITE_SIZE();
+            this.gatheringFutures = new ChannelFuture[gatheringSize];
+            this.gatheringBuffers = new ByteBuffer[gatheringSize];
+        }
     }
 
     protected SocketSelector getSelector() {
@@ -152,12 +176,18 @@ public class SocketSelectorEventLoop extends AbstractSelectorLoop
 
         int selected;
         //		long last_select = System.currentTimeMillis();
+        long selectStart = System.nanoTime();
         if (selecting.compareAndSet(false, true)) {
             selected = selector.select(16);// FIXME try
             selecting.set(false);
         } else {
             selected = selector.selectNow();
         }
+        long selectEnd = System.nanoTime();
+        selectNanos += selectEnd - selectStart;
+        if (selectEnd - statsTime >= STATS_INTERVAL) {
+            updateStats(selectEnd);
+        }
 
         if (selected > 0) {
             accept(selector.selectedKeys());
@@ -167,9 +197,54 @@ public class SocketSelectorEventLoop extends AbstractSelectorLoop
 
         handleEvents(selectorLoopEvents.getBuffer());
 
+        if (!suspendedChannels.isEmpty()) {
+            resumeChannels();
+        }
+
         sessionManager.loop();
     }
 
+    private void updateStats(long now) {
+        long elapsed = now - statsTime;
+        busyRate = (int) Math.max(0, 1000 - selectNanos * 1000 / elapsed);
+        selectNanos = 0;
+        statsTime = now;
+    }
+
+    public int getSessionSize() {
+        return sessionManager.getManagedSessionSize() + assigningChannels.get();
+    }
+
+    /**
+     * 新连接分配到本线程时加1，注册完成或者放弃后减1，使连接风暴时的分配能看到还未注册的连接
+     */
+    public AtomicInteger getAssigningChannels() {
+        return assigningChannels;
+    }
+
+    /**
+     * 本线程所有session待写出的字节数，在selector线程写出或者关闭连接时更新
+     */
+    public long getPendingWriteBytes() {
+        return pendingWriteBytes;
+    }
+
+    /**
+     * 只在本线程中调用，单线程修改，volatile只用于其它线程读取
+     */
+    void addPendingWriteBytes(long delta) {
+        if (delta != 0) {
+            pendingWriteBytes += delta;
+        }
+    }
+
+    /**
+     * 最近一个统计周期内非select时间的千分比，每秒更新
+     */
+    public int getBusyRate() {
+        return busyRate;
+    }
+
     private void accept(Set<SelectionKey> sks) {
         for (SelectionKey k : sks) {
             if (!k.isValid()) {
@@ -200,9 +275,34 @@ public class SocketSelectorEventLoop extends AbstractSelectorLoop
         sks.clear();
     }
 
+    protected void suspendRead(NioSocketChannel channel) {
+        suspendedChannels.add(channel);
+    }
+
+    private void resumeChannels() {
+        List<NioSocketChannel> channels = suspendedChannels;
+        long now = System.nanoTime();
+        for (int i = channels.size() - 1; i >= 0; i--) {
+            NioSocketChannel channel = channels.get(i);
+            boolean resumed;
+            try {
+                resumed = channel.resumeRead(now);
+            } catch (Throwable e) {
+                resumed = true;
+                cancelSelectionKey(channel, e);
+            }
+            if (resumed) {
+                int last = channels.size() - 1;
+                channels.set(i, channels.get(last));
+                channels.remove(last);
+            }
+        }
+    }
+
     private void write(NioSocketChannel channel) {
         try {
             channel.flush(this);
+            channel.updatePendingBytes(this);
         } catch (Throwable e) {
             cancelSelectionKey(channel, e);
         }
@@ -326,6 +426,14 @@ public class SocketSelectorEventLoop extends AbstractSelectorLoop
         }
     }
 
+    protected ChannelFuture[] getGatheringFutures() {
+        return gatheringFutures;
+    }
+
+    protected ByteBuffer[] getGatheringBuffers() {
+        return gatheringBuffers;
+    }
+
     @Override
     public SslHandler getSslHandler() {
         return sslHandler;
@@ -15,7 +15,10 @@
  */
 package com.generallycloud.baseio.component;
 
+import java.io.IOException;
+
 import com.generallycloud.baseio.concurrent.AbstractEventLoopGroup;
+import com.generallycloud.baseio.configuration.ServerConfiguration;
 
 /**
  * @author wangkai
@@ -28,10 +31,15 @@ public class SocketSelectorEventLoopGroup extends AbstractEventLoopGroup
 
     private NioSocketChannelContext   channelContext;
 
+    private ChannelPlacementStrategy  placementStrategy;
+
     public SocketSelectorEventLoopGroup(NioSocketChannelContext context, String eventLoopName,
             int eventLoopSize) {
         super(eventLoopName, eventLoopSize);
         this.channelContext = context;
+        ServerConfiguration configuration = context.getServerConfiguration();
+        this.placementStrategy = ChannelPlacement
+                .valueOf(configuration.getSERVER_CHANNEL_PLACEMENT());
     }
 
     @Override
@@ -39,6 +47,41 @@ public class SocketSelectorEventLoopGroup extends AbstractEventLoopGroup
         return selectorEventLoops[getNextEventLoopIndex()];
     }
 
+    /**
+     * 按placementStrategy为新连接选择selector线程
+     */
+    public SocketSelectorEventLoop getNextForChannel() {
+        return placementStrategy.select(this);
+    }
+
+    public ChannelPlacementStrategy getPlacementStrategy() {
+        return placementStrategy;
+    }
+
+    public void setPlacementStrategy(ChannelPlacementStrategy placementStrategy) {
+        this.placementStrategy = placementStrategy;
+    }
+
+    /**
+     * 将session迁移到target线程，用于长连接在各selector线程间的再平衡。
+     * 迁移是异步的，session存在未写完的数据、未读完的消息、正在关闭或者属于某个
+     * SocketSessionGroup时放弃迁移
+     */
+    public void migrate(SocketSession session, final SocketSelectorEventLoop target) {
+        final NioSocketChannel channel = (NioSocketChannel) ((UnsafeSocketSession) session)
+                .getSocketChannel();
+        channel.getSelectorEventLoop().dispatch(new SelectorLoopEventAdapter() {
+
+            @Override
+            public void fireEvent(SocketSelectorEventLoop selectorLoop) throws IOException {
+                channel.migrate(selectorLoop, target);
+            }
+
+            @Override
+            public void close() throws IOException {}
+        });
+    }
+
     @Override
     public SocketSelectorEventLoop[] getSelectorEventLoops() {
         return selectorEventLoops;
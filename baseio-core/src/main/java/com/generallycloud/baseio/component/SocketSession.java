@@ -58,6 +58,25 @@ public interface SocketSession extends Session {
      */
     public abstract void doFlush(ChannelFuture future);
 
+    /**
+     * 待写出数据超过SERVER_WRITE_HIGH_WATERMARK后返回false，
+     * 直到低于SERVER_WRITE_LOW_WATERMARK，
+     * 状态变化时触发SocketSessionEventListener.writabilityChanged
+     */
+    public abstract boolean isWritable();
+
+    /**
+     * session的空闲检测周期，未设置时为SERVER_SESSION_IDLE_TIME
+     */
+    public abstract long getSessionIdleTime();
+
+    /**
+     * 设置session的空闲检测周期，用于不同协议使用不同的心跳或超时时间，
+     * 在selector线程之外设置时从下一个检测周期开始生效
+     * @param sessionIdleTime
+     */
+    public abstract void setSessionIdleTime(long sessionIdleTime);
+
     public abstract <T> T getOption(SocketOption<T> name) throws IOException;
 
     public abstract <T> void setOption(SocketOption<T> name, T value) throws IOException;
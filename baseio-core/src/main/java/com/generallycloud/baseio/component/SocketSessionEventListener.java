@@ -23,4 +23,9 @@ public interface SocketSessionEventListener extends EventListener {
 
     public abstract void sessionClosed(SocketSession session);
 
+    /**
+     * session.isWritable()发生变化，可能在业务线程或者selector线程中触发
+     */
+    public abstract void writabilityChanged(SocketSession session);
+
 }
@@ -27,4 +27,9 @@ public class SocketSessionEventListenerAdapter implements SocketSessionEventList
 
     }
 
+    @Override
+    public void writabilityChanged(SocketSession session) {
+
+    }
+
 }
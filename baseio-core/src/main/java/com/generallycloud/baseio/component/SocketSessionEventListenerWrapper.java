@@ -69,6 +69,24 @@ public class SocketSessionEventListenerWrapper extends AbstractLinkable
         listener.sessionClosed(session);
     }
 
+    @Override
+    public void writabilityChanged(SocketSession session) {
+
+        try {
+            value.writabilityChanged(session);
+        } catch (Exception e) {
+            logger.error(e.getMessage(), e);
+        }
+
+        SocketSessionEventListenerWrapper listener = getNext();
+
+        if (listener == null) {
+            return;
+        }
+
+        listener.writabilityChanged(session);
+    }
+
     @Override
     public SocketSessionEventListenerWrapper getNext() {
         return next;
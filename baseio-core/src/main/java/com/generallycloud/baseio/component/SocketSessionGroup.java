@@ -0,0 +1,162 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.component;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.generallycloud.baseio.common.ReleaseUtil;
+import com.generallycloud.baseio.protocol.ChannelFuture;
+import com.generallycloud.baseio.protocol.Future;
+
+/**
+ * session分组（如聊天室、topic），成员按所在的selector线程分开保存，
+ * 广播时只遍历组内成员，每个有成员的selector线程只派发一个事件。<br>
+ * 关闭的session在下次广播时从组中移除，也可以调用leave主动移除。<br>
+ * 属于分组的session不会被迁移到其它selector线程，join/leave与迁移共用channel的关闭锁
+ * 
+ * @author wangkai
+ *
+ */
+public class SocketSessionGroup {
+
+    private String                        name;
+
+    private NioGlobalSocketSessionManager manager;
+
+    private Map<Integer, SocketSession>[] members;
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    SocketSessionGroup(String name, NioGlobalSocketSessionManager manager, int loopSize) {
+        this.name = name;
+        this.manager = manager;
+        this.members = new Map[loopSize];
+        for (int i = 0; i < loopSize; i++) {
+            members[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean join(SocketSession session) {
+        NioSocketChannel channel = getChannel(session);
+        ReentrantLock lock = channel.getCloseLock();
+        lock.lock();
+        try {
+            Map<Integer, SocketSession> m = members[getLoopIndex(channel)];
+            if (m.put(session.getSessionId(), session) != null) {
+                return false;
+            }
+            channel.addGroups(1);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean leave(SocketSession session) {
+        NioSocketChannel channel = getChannel(session);
+        ReentrantLock lock = channel.getCloseLock();
+        lock.lock();
+        try {
+            Map<Integer, SocketSession> m = members[getLoopIndex(channel)];
+            if (m.remove(session.getSessionId()) == null) {
+                return false;
+            }
+            channel.addGroups(-1);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean contains(SocketSession session) {
+        Map<Integer, SocketSession> m = members[getLoopIndex(getChannel(session))];
+        return m.containsKey(session.getSessionId());
+    }
+
+    private static NioSocketChannel getChannel(SocketSession session) {
+        return (NioSocketChannel) ((UnsafeSocketSession) session).getSocketChannel();
+    }
+
+    private static int getLoopIndex(NioSocketChannel channel) {
+        return channel.getSelectorEventLoop().getCoreIndex();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Map<Integer, SocketSession> m : members) {
+            size += m.size();
+        }
+        return size;
+    }
+
+    /**
+     * encode一次，组内所有session共享同一块内存
+     * @param future
+     * @throws IOException
+     */
+    public void broadcast(Future future) throws IOException {
+        ChannelFuture f = manager.encode(future);
+        try {
+            broadcastChannelFuture(f);
+        } finally {
+            ReleaseUtil.release(f);
+        }
+    }
+
+    public void broadcastChannelFuture(ChannelFuture future) {
+        SocketSelectorEventLoop[] loops = manager.getSelectorEventLoops();
+        for (int i = 0; i < loops.length; i++) {
+            if (members[i].isEmpty()) {
+                continue;
+            }
+            future.getByteBuf().retain(1);
+            loops[i].dispatch(new BroadcastSelectorLoopEvent(future, this));
+        }
+    }
+
+    void broadcastInLoop(SocketSelectorEventLoop selectorLoop, ChannelFuture future) {
+        Map<Integer, SocketSession> m = members[selectorLoop.getCoreIndex()];
+        NioSocketSessionManager sessionManager = (NioSocketSessionManager) selectorLoop
+                .getSocketSessionManager();
+        SocketSession[] array = sessionManager.getBroadcastSessions(m.size());
+        int size = 0;
+        for (Iterator<SocketSession> it = m.values().iterator(); it.hasNext();) {
+            SocketSession session = it.next();
+            if (session.isClosed()) {
+                it.remove();
+                continue;
+            }
+            if (size == array.length) {
+                array = sessionManager.getBroadcastSessions(size + 1);
+            }
+            array[size++] = session;
+        }
+        sessionManager.broadcastChannelFuture(future, array, size);
+    }
+
+    @Override
+    public String toString() {
+        return "SocketSessionGroup[" + name + ",size=" + size() + "]";
+    }
+
+}
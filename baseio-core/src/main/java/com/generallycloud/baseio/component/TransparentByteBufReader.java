@@ -34,6 +34,8 @@ public class TransparentByteBufReader extends LinkableChannelByteBufReader {
     @Override
     public void accept(SocketChannel channel, ByteBuf buf) throws Exception {
 
+        IoLimiter limiter = channel.getIoLimiter();
+
         for (;;) {
 
             if (!buf.hasRemaining()) {
@@ -80,6 +82,10 @@ public class TransparentByteBufReader extends LinkableChannelByteBufReader {
 
             channel.setReadFuture(null);
 
+            if (limiter != null) {
+                limiter.messageRead();
+            }
+
             foreReadFutureAcceptor.accept(channel.getSession(), future);
         }
     }
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.component;
+
+/**
+ * 待写出数据超过SERVER_WRITE_HARD_LIMIT时的处理策略
+ * 
+ * @author wangkai
+ *
+ */
+public enum WriteOverflowPolicy {
+
+    /**
+     * 拒绝新写入的future
+     */
+    REJECT,
+
+    /**
+     * 丢弃最早进入队列且还未开始写出的future
+     */
+    DROP_OLDEST,
+
+    /**
+     * 关闭该连接
+     */
+    CLOSE;
+
+}
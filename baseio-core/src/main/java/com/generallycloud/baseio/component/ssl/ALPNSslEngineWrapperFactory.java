@@ -23,8 +23,12 @@ import javax.net.ssl.SSLEngine;
  */
 public class ALPNSslEngineWrapperFactory implements SslEngineWrapperFactory {
 
+    private boolean java9Alpn;
+
     public ALPNSslEngineWrapperFactory() {
-        if (!JdkAlpnSslEngine.isAvailable()) {
+        // JDK9之后优先使用JDK自带的ALPN，不再加载依赖alpn-boot的JdkAlpnSslEngine
+        java9Alpn = Java9AlpnSslEngine.isAvailable();
+        if (!java9Alpn && !JdkAlpnSslEngine.isAvailable()) {
             throw new RuntimeException("ALPN unsupported. Is your classpatch configured correctly?"
                     + "\n See http://www.eclipse.org/jetty/documentation/current/alpn-chapter.html#alpn-starting；"
                     + "\n http://www.cnblogs.com/gifisan/p/6245207.html");
@@ -34,6 +38,9 @@ public class ALPNSslEngineWrapperFactory implements SslEngineWrapperFactory {
     @Override
     public SSLEngine wrapSslEngine(SSLEngine engine,
             JdkApplicationProtocolNegotiator applicationNegotiator, boolean isServer) {
+        if (java9Alpn) {
+            return new Java9AlpnSslEngine(engine, applicationNegotiator, isServer);
+        }
         return new JdkAlpnSslEngine(engine, applicationNegotiator, isServer);
     }
 
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.component.ssl;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+
+/**
+ * 使用JDK9之后自带的ALPN，不需要alpn-boot。为了兼容1.7编译使用反射调用，
+ * 服务端按照{@link JdkApplicationProtocolNegotiator#protocols()}的顺序选择协议
+ */
+final class Java9AlpnSslEngine extends JdkSslEngine {
+
+    private static final Method SET_APPLICATION_PROTOCOLS;
+    private static final Method GET_APPLICATION_PROTOCOL;
+
+    static {
+        Method setApplicationProtocols = null;
+        Method getApplicationProtocol = null;
+        try {
+            setApplicationProtocols = SSLParameters.class.getMethod("setApplicationProtocols",
+                    String[].class);
+            getApplicationProtocol = SSLEngine.class.getMethod("getApplicationProtocol");
+        } catch (Exception ignore) {
+            // JDK9之前的版本
+        }
+        SET_APPLICATION_PROTOCOLS = setApplicationProtocols;
+        GET_APPLICATION_PROTOCOL = getApplicationProtocol;
+    }
+
+    static boolean isAvailable() {
+        return SET_APPLICATION_PROTOCOLS != null && GET_APPLICATION_PROTOCOL != null;
+    }
+
+    Java9AlpnSslEngine(SSLEngine engine, JdkApplicationProtocolNegotiator applicationNegotiator,
+            boolean server) {
+        super(engine);
+        List<String> protocols = applicationNegotiator.protocols();
+        SSLParameters parameters = engine.getSSLParameters();
+        try {
+            SET_APPLICATION_PROTOCOLS.invoke(parameters,
+                    (Object) protocols.toArray(new String[protocols.size()]));
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+        engine.setSSLParameters(parameters);
+    }
+
+    @Override
+    public JdkSslSession getSession() {
+        JdkSslSession session = super.getSession();
+        if (session.getApplicationProtocol() == null) {
+            String protocol;
+            try {
+                // 握手未完成时返回null，未协商时返回空字符串
+                protocol = (String) GET_APPLICATION_PROTOCOL.invoke(unwrap());
+            } catch (Exception e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+            if (protocol != null && !protocol.isEmpty()) {
+                session.setApplicationProtocol(protocol);
+            }
+        }
+        return session;
+    }
+
+}
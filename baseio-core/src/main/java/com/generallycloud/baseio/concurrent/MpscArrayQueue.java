@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界的无锁多生产者单消费者环形队列，生产者通过CAS占用producerIndex后
+ * 再写入槽位，消费者读到null时说明队列为空或生产者还未写入完成
+ * 
+ * @author wangkai
+ *
+ */
+public class MpscArrayQueue<T> {
+
+    private final AtomicReferenceArray<T> buffer;
+    private final int                     capacity;
+    private final int                     mask;
+    private final AtomicLong              producerIndex = new AtomicLong();
+    private final AtomicLong              consumerIndex = new AtomicLong();
+
+    /**
+     * @param capacity 向上取整为2的幂
+     */
+    public MpscArrayQueue(int capacity) {
+        int c = 1;
+        while (c < capacity) {
+            c <<= 1;
+        }
+        this.capacity = c;
+        this.mask = c - 1;
+        this.buffer = new AtomicReferenceArray<>(c);
+    }
+
+    /**
+     * @return false 如果队列已满
+     */
+    public boolean offer(T e) {
+        for (;;) {
+            long index = producerIndex.get();
+            if (index - consumerIndex.get() >= capacity) {
+                return false;
+            }
+            if (producerIndex.compareAndSet(index, index + 1)) {
+                buffer.lazySet((int) index & mask, e);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 只能在消费者线程中调用
+     */
+    public T poll() {
+        long index = consumerIndex.get();
+        int offset = (int) index & mask;
+        T e = buffer.get(offset);
+        if (e == null) {
+            return null;
+        }
+        // 先清空槽位再移动consumerIndex，生产者看到新的consumerIndex时槽位一定可写
+        buffer.lazySet(offset, null);
+        consumerIndex.lazySet(index + 1);
+        return e;
+    }
+
+    public int size() {
+        return (int) (producerIndex.get() - consumerIndex.get());
+    }
+
+    /**
+     * 包含已占用但还未写入完成的槽位
+     */
+    public boolean isEmpty() {
+        return producerIndex.get() == consumerIndex.get();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+}
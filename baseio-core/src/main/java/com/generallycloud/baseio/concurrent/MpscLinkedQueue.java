@@ -0,0 +1,79 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.concurrent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 无锁的多生产者单消费者队列，生产者通过交换tail入队，消费者独占head，
+ * 被poll出的节点作为新的head(哨兵)保留在队列中，所以同一个节点在被再次
+ * poll出之前不能重复offer，Linkable.next需要是volatile的
+ * 
+ * @author wangkai
+ *
+ */
+public class MpscLinkedQueue<T> implements LinkedQueue<T> {
+
+    protected AtomicInteger             size = new AtomicInteger();
+    protected Linkable                  head;
+    protected AtomicReference<Linkable> tail;
+
+    public MpscLinkedQueue(Linkable linkable) {
+        linkable.setValidate(false);
+        linkable.setNext(null);
+        this.head = linkable;
+        this.tail = new AtomicReference<>(linkable);
+    }
+
+    @Override
+    public void offer(Linkable linkable) {
+        linkable.setNext(null);
+        // 先增加size，保证消费者通过size判断队列为空时不会漏掉正在入队的节点
+        size.incrementAndGet();
+        Linkable prev = tail.getAndSet(linkable);
+        prev.setNext(linkable);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T poll() {
+        Linkable h = head;
+        Linkable next = h.getNext();
+        if (next == null) {
+            if (tail.get() == h) {
+                return null;
+            }
+            // 生产者已经交换了tail但还未设置next，等待其完成
+            for (;;) {
+                Thread.yield();
+                next = h.getNext();
+                if (next != null) {
+                    break;
+                }
+            }
+        }
+        head = next;
+        size.decrementAndGet();
+        return (T) next;
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.concurrent;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.generallycloud.baseio.log.Logger;
+import com.generallycloud.baseio.log.LoggerFactory;
+
+/**
+ * 异步操作的结果，只能完成一次，不支持取消
+ */
+public class Promise<T> implements Future<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(Promise.class);
+
+    private CountDownLatch      latch  = new CountDownLatch(1);
+    private PromiseCallback<T>  callback;
+    private volatile boolean    done;
+    private T                   result;
+    private Throwable           cause;
+
+    public boolean complete(T result) {
+        return complete(result, null);
+    }
+
+    public boolean fail(Throwable cause) {
+        return complete(null, cause);
+    }
+
+    private boolean complete(T result, Throwable cause) {
+        PromiseCallback<T> callback;
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            this.result = result;
+            this.cause = cause;
+            this.done = true;
+            callback = this.callback;
+        }
+        onCompleted();
+        latch.countDown();
+        if (callback != null) {
+            invoke(callback);
+        }
+        return true;
+    }
+
+    /**
+     * 完成后、唤醒等待线程之前调用，只调用一次
+     */
+    protected void onCompleted() {}
+
+    /**
+     * 设置回调，已经完成时立即在当前线程中调用
+     */
+    public void setCallback(PromiseCallback<T> callback) {
+        synchronized (this) {
+            if (!done) {
+                this.callback = callback;
+                return;
+            }
+        }
+        invoke(callback);
+    }
+
+    private void invoke(PromiseCallback<T> callback) {
+        try {
+            callback.onComplete(result, cause);
+        } catch (Throwable e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return false;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done;
+    }
+
+    public Throwable getCause() {
+        return cause;
+    }
+
+    /**
+     * 等待完成，失败原因不是IOException时包装为IOException
+     */
+    public T await() throws IOException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e.getMessage(), e);
+        }
+        if (cause == null) {
+            return result;
+        }
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        }
+        throw new IOException(cause.getMessage(), cause);
+    }
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+        latch.await();
+        return getNow();
+    }
+
+    @Override
+    public T get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        if (!latch.await(timeout, unit)) {
+            throw new TimeoutException("timeout");
+        }
+        return getNow();
+    }
+
+    private T getNow() throws ExecutionException {
+        if (cause != null) {
+            throw new ExecutionException(cause);
+        }
+        return result;
+    }
+
+}
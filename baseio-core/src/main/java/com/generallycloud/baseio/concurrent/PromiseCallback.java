@@ -0,0 +1,27 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.concurrent;
+
+public interface PromiseCallback<T> {
+
+    /**
+     * promise完成时调用，在完成promise的线程中触发，设置回调时已经完成则在当前线程中触发
+     * @param result 结果，失败时为null
+     * @param cause 失败原因，成功时为null
+     */
+    void onComplete(T result, Throwable cause);
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于虚拟时间(GCRA)的令牌桶，只使用一个AtomicLong，可以被多个线程同时使用，
+ * 允许透支，透支后由调用方根据返回的等待时间自行暂停
+ * 
+ * @author wangkai
+ *
+ */
+public class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = 1000L * 1000 * 1000;
+
+    private final long        permitsPerSecond;
+    private final long        burstNanos;
+    private final AtomicLong  nextFreeNanos    = new AtomicLong();
+
+    public TokenBucket(long permitsPerSecond) {
+        this(permitsPerSecond, NANOS_PER_SECOND);
+    }
+
+    /**
+     * @param permitsPerSecond 每秒产生的令牌数
+     * @param burstNanos 允许突发的时长，即最多积攒burstNanos时间内产生的令牌
+     */
+    public TokenBucket(long permitsPerSecond, long burstNanos) {
+        if (permitsPerSecond < 1) {
+            throw new IllegalArgumentException("illegal permitsPerSecond:" + permitsPerSecond);
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burstNanos = burstNanos;
+        this.nextFreeNanos.set(System.nanoTime() - burstNanos);
+    }
+
+    /**
+     * 消耗令牌
+     * @return 需要等待的纳秒数，令牌充足时返回0
+     */
+    public long acquire(long permits) {
+        AtomicLong nextFreeNanos = this.nextFreeNanos;
+        long cost = permits * NANOS_PER_SECOND / permitsPerSecond;
+        for (;;) {
+            long now = System.nanoTime();
+            long current = nextFreeNanos.get();
+            long base = Math.max(current, now - burstNanos);
+            long next = base + cost;
+            if (nextFreeNanos.compareAndSet(current, next)) {
+                return next > now ? next - now : 0;
+            }
+        }
+    }
+
+    /**
+     * @return 令牌恢复为非负时需要等待的纳秒数
+     */
+    public long getWaitNanos() {
+        long wait = nextFreeNanos.get() - System.nanoTime();
+        return wait > 0 ? wait : 0;
+    }
+
+    public long getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+}
@@ -18,6 +18,7 @@ package com.generallycloud.baseio.configuration;
 import java.nio.charset.Charset;
 
 import com.generallycloud.baseio.common.Encoding;
+import com.generallycloud.baseio.common.StringUtil;
 import com.generallycloud.baseio.component.ChannelContext;
 
 //FIXME 校验参数
@@ -43,6 +44,40 @@ public class ServerConfiguration {
     private int     SERVER_CHANNEL_READ_BUFFER       = 1024 * 512;
     //内存池内存单元数量百分比（单核），该配置影响"SERVER_MEMORY_POOL_CAPACITY"属性
     private double  SERVER_MEMORY_POOL_CAPACITY_RATE = 1d;
+    //是否启用聚集写，启用后一次write系统调用写出多个future
+    private boolean SERVER_ENABLE_GATHERING_WRITE;
+    //聚集写单次最多写出的future数量
+    private int     SERVER_GATHERING_WRITE_SIZE      = 64;
+    //聚集写单次最多写出的字节数
+    private int     SERVER_GATHERING_WRITE_BYTES     = 1024 * 256;
+    //单个连接每秒最多读取的字节数，0为不限制
+    private long    SERVER_IO_LIMIT_SESSION_BYTES;
+    //单个连接每秒最多读取的消息数，0为不限制
+    private long    SERVER_IO_LIMIT_SESSION_MESSAGES;
+    //所有连接每秒最多读取的字节数，0为不限制
+    private long    SERVER_IO_LIMIT_CONTEXT_BYTES;
+    //所有连接每秒最多读取的消息数，0为不限制
+    private long    SERVER_IO_LIMIT_CONTEXT_MESSAGES;
+    //待写出数据超过该值时session变为不可写
+    private int     SERVER_WRITE_HIGH_WATERMARK      = 1024 * 1024 * 8;
+    //待写出数据低于该值时session恢复为可写
+    private int     SERVER_WRITE_LOW_WATERMARK       = 1024 * 1024 * 2;
+    //待写出数据的硬上限，超过后按SERVER_WRITE_OVERFLOW_POLICY处理，0为不限制
+    private int     SERVER_WRITE_HARD_LIMIT;
+    //REJECT,DROP_OLDEST,CLOSE
+    private String  SERVER_WRITE_OVERFLOW_POLICY     = "REJECT";
+    //内存池使用arena模式，每个selector线程缓存最近释放的内存块，常规路径无锁
+    private boolean SERVER_ENABLE_MEMORY_POOL_ARENA;
+    //arena模式下每个规格的线程缓存数量
+    private int     SERVER_MEMORY_POOL_CACHE_SIZE    = 64;
+    //监听socket的accept队列长度，实际生效值受系统somaxconn限制
+    private int     SERVER_ACCEPT_BACKLOG            = 1024;
+    //每次accept事件最多接收的连接数
+    private int     SERVER_ACCEPT_BATCH_SIZE         = 64;
+    //每个selector线程使用SO_REUSEPORT绑定自己的监听socket，由内核分配连接
+    private boolean SERVER_ENABLE_REUSE_PORT;
+    //ROUND_ROBIN,LEAST_SESSIONS,LEAST_PENDING_WRITE,LEAST_BUSY
+    private String  SERVER_CHANNEL_PLACEMENT         = "ROUND_ROBIN";
 
     private String  SERVER_CERT_CRT                  = "localhost";
     private String  SERVER_CERT_KEY                  = "localhost";
@@ -220,6 +255,184 @@ public class ServerConfiguration {
         this.SERVER_WORK_EVENT_QUEUE_SIZE = SERVER_WORK_EVENT_QUEUE_SIZE;
     }
 
+    public boolean isSERVER_ENABLE_GATHERING_WRITE() {
+        return SERVER_ENABLE_GATHERING_WRITE;
+    }
+
+    public void setSERVER_ENABLE_GATHERING_WRITE(boolean SERVER_ENABLE_GATHERING_WRITE) {
+        this.SERVER_ENABLE_GATHERING_WRITE = SERVER_ENABLE_GATHERING_WRITE;
+    }
+
+    public int getSERVER_GATHERING_WRITE_SIZE() {
+        return SERVER_GATHERING_WRITE_SIZE;
+    }
+
+    public void setSERVER_GATHERING_WRITE_SIZE(int SERVER_GATHERING_WRITE_SIZE) {
+        if (SERVER_GATHERING_WRITE_SIZE == 0) {
+            return;
+        }
+        this.SERVER_GATHERING_WRITE_SIZE = SERVER_GATHERING_WRITE_SIZE;
+    }
+
+    public int getSERVER_GATHERING_WRITE_BYTES() {
+        return SERVER_GATHERING_WRITE_BYTES;
+    }
+
+    public void setSERVER_GATHERING_WRITE_BYTES(int SERVER_GATHERING_WRITE_BYTES) {
+        if (SERVER_GATHERING_WRITE_BYTES == 0) {
+            return;
+        }
+        this.SERVER_GATHERING_WRITE_BYTES = SERVER_GATHERING_WRITE_BYTES;
+    }
+
+    public long getSERVER_IO_LIMIT_SESSION_BYTES() {
+        return SERVER_IO_LIMIT_SESSION_BYTES;
+    }
+
+    public void setSERVER_IO_LIMIT_SESSION_BYTES(long SERVER_IO_LIMIT_SESSION_BYTES) {
+        if (SERVER_IO_LIMIT_SESSION_BYTES == 0) {
+            return;
+        }
+        this.SERVER_IO_LIMIT_SESSION_BYTES = SERVER_IO_LIMIT_SESSION_BYTES;
+    }
+
+    public long getSERVER_IO_LIMIT_SESSION_MESSAGES() {
+        return SERVER_IO_LIMIT_SESSION_MESSAGES;
+    }
+
+    public void setSERVER_IO_LIMIT_SESSION_MESSAGES(long SERVER_IO_LIMIT_SESSION_MESSAGES) {
+        if (SERVER_IO_LIMIT_SESSION_MESSAGES == 0) {
+            return;
+        }
+        this.SERVER_IO_LIMIT_SESSION_MESSAGES = SERVER_IO_LIMIT_SESSION_MESSAGES;
+    }
+
+    public long getSERVER_IO_LIMIT_CONTEXT_BYTES() {
+        return SERVER_IO_LIMIT_CONTEXT_BYTES;
+    }
+
+    public void setSERVER_IO_LIMIT_CONTEXT_BYTES(long SERVER_IO_LIMIT_CONTEXT_BYTES) {
+        if (SERVER_IO_LIMIT_CONTEXT_BYTES == 0) {
+            return;
+        }
+        this.SERVER_IO_LIMIT_CONTEXT_BYTES = SERVER_IO_LIMIT_CONTEXT_BYTES;
+    }
+
+    public long getSERVER_IO_LIMIT_CONTEXT_MESSAGES() {
+        return SERVER_IO_LIMIT_CONTEXT_MESSAGES;
+    }
+
+    public void setSERVER_IO_LIMIT_CONTEXT_MESSAGES(long SERVER_IO_LIMIT_CONTEXT_MESSAGES) {
+        if (SERVER_IO_LIMIT_CONTEXT_MESSAGES == 0) {
+            return;
+        }
+        this.SERVER_IO_LIMIT_CONTEXT_MESSAGES = SERVER_IO_LIMIT_CONTEXT_MESSAGES;
+    }
+
+    public int getSERVER_WRITE_HIGH_WATERMARK() {
+        return SERVER_WRITE_HIGH_WATERMARK;
+    }
+
+    public void setSERVER_WRITE_HIGH_WATERMARK(int SERVER_WRITE_HIGH_WATERMARK) {
+        if (SERVER_WRITE_HIGH_WATERMARK == 0) {
+            return;
+        }
+        this.SERVER_WRITE_HIGH_WATERMARK = SERVER_WRITE_HIGH_WATERMARK;
+    }
+
+    public int getSERVER_WRITE_LOW_WATERMARK() {
+        return SERVER_WRITE_LOW_WATERMARK;
+    }
+
+    public void setSERVER_WRITE_LOW_WATERMARK(int SERVER_WRITE_LOW_WATERMARK) {
+        if (SERVER_WRITE_LOW_WATERMARK == 0) {
+            return;
+        }
+        this.SERVER_WRITE_LOW_WATERMARK = SERVER_WRITE_LOW_WATERMARK;
+    }
+
+    public int getSERVER_WRITE_HARD_LIMIT() {
+        return SERVER_WRITE_HARD_LIMIT;
+    }
+
+    public void setSERVER_WRITE_HARD_LIMIT(int SERVER_WRITE_HARD_LIMIT) {
+        if (SERVER_WRITE_HARD_LIMIT == 0) {
+            return;
+        }
+        this.SERVER_WRITE_HARD_LIMIT = SERVER_WRITE_HARD_LIMIT;
+    }
+
+    public String getSERVER_WRITE_OVERFLOW_POLICY() {
+        return SERVER_WRITE_OVERFLOW_POLICY;
+    }
+
+    public void setSERVER_WRITE_OVERFLOW_POLICY(String SERVER_WRITE_OVERFLOW_POLICY) {
+        if (StringUtil.isNullOrBlank(SERVER_WRITE_OVERFLOW_POLICY)) {
+            return;
+        }
+        this.SERVER_WRITE_OVERFLOW_POLICY = SERVER_WRITE_OVERFLOW_POLICY.trim().toUpperCase();
+    }
+
+    public boolean isSERVER_ENABLE_MEMORY_POOL_ARENA() {
+        return SERVER_ENABLE_MEMORY_POOL_ARENA;
+    }
+
+    public void setSERVER_ENABLE_MEMORY_POOL_ARENA(boolean SERVER_ENABLE_MEMORY_POOL_ARENA) {
+        this.SERVER_ENABLE_MEMORY_POOL_ARENA = SERVER_ENABLE_MEMORY_POOL_ARENA;
+    }
+
+    public int getSERVER_MEMORY_POOL_CACHE_SIZE() {
+        return SERVER_MEMORY_POOL_CACHE_SIZE;
+    }
+
+    public void setSERVER_MEMORY_POOL_CACHE_SIZE(int SERVER_MEMORY_POOL_CACHE_SIZE) {
+        if (SERVER_MEMORY_POOL_CACHE_SIZE == 0) {
+            return;
+        }
+        this.SERVER_MEMORY_POOL_CACHE_SIZE = SERVER_MEMORY_POOL_CACHE_SIZE;
+    }
+
+    public int getSERVER_ACCEPT_BACKLOG() {
+        return SERVER_ACCEPT_BACKLOG;
+    }
+
+    public void setSERVER_ACCEPT_BACKLOG(int SERVER_ACCEPT_BACKLOG) {
+        if (SERVER_ACCEPT_BACKLOG == 0) {
+            return;
+        }
+        this.SERVER_ACCEPT_BACKLOG = SERVER_ACCEPT_BACKLOG;
+    }
+
+    public int getSERVER_ACCEPT_BATCH_SIZE() {
+        return SERVER_ACCEPT_BATCH_SIZE;
+    }
+
+    public void setSERVER_ACCEPT_BATCH_SIZE(int SERVER_ACCEPT_BATCH_SIZE) {
+        if (SERVER_ACCEPT_BATCH_SIZE == 0) {
+            return;
+        }
+        this.SERVER_ACCEPT_BATCH_SIZE = SERVER_ACCEPT_BATCH_SIZE;
+    }
+
+    public boolean isSERVER_ENABLE_REUSE_PORT() {
+        return SERVER_ENABLE_REUSE_PORT;
+    }
+
+    public void setSERVER_ENABLE_REUSE_PORT(boolean SERVER_ENABLE_REUSE_PORT) {
+        this.SERVER_ENABLE_REUSE_PORT = SERVER_ENABLE_REUSE_PORT;
+    }
+
+    public String getSERVER_CHANNEL_PLACEMENT() {
+        return SERVER_CHANNEL_PLACEMENT;
+    }
+
+    public void setSERVER_CHANNEL_PLACEMENT(String SERVER_CHANNEL_PLACEMENT) {
+        if (StringUtil.isNullOrBlank(SERVER_CHANNEL_PLACEMENT)) {
+            return;
+        }
+        this.SERVER_CHANNEL_PLACEMENT = SERVER_CHANNEL_PLACEMENT.trim().toUpperCase();
+    }
+
     public String getSERVER_CERT_CRT() {
         return SERVER_CERT_CRT;
     }
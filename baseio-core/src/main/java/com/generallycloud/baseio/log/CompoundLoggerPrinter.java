@@ -34,6 +34,13 @@ public class CompoundLoggerPrinter implements LoggerPrinter {
         }
     }
 
+    @Override
+    public void debugPrintln(String msg) {
+        for (LoggerPrinter p : printers) {
+            p.debugPrintln(msg);
+        }
+    }
+
     @Override
     public void printThrowable(Throwable t) {
         for (LoggerPrinter p : printers) {
@@ -15,34 +15,129 @@
  */
 package com.generallycloud.baseio.log;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
+import com.generallycloud.baseio.common.DateUtil;
 import com.generallycloud.baseio.common.FileUtil;
-import com.generallycloud.baseio.file.RAFOutputStream;
+import com.generallycloud.baseio.concurrent.AbstractEventLoop;
+import com.generallycloud.baseio.concurrent.MpscArrayQueue;
 
 /**
+ * 异步写日志文件，调用线程只把格式化好的日志放入无锁队列，由单独的线程批量编码到
+ * 堆外内存后通过FileChannel写出。
+ * <br>
+ * 文件超过maxFileSize或跨越rollingInterval(按本地时间对齐)时滚动为
+ * name.yyyy-MM-dd.N，最多保留maxHistory个滚动后的文件。
+ * <br>
+ * 进程退出时由shutdown hook写出队列中剩余的日志
+ * 
  * @author wangkai
  *
  */
-public class FileLoggerPrinter implements LoggerPrinter {
+public class FileLoggerPrinter extends AbstractEventLoop implements LoggerPrinter, Closeable {
 
-    private RAFOutputStream outputStream;
+    public static final long        ONE_DAY           = 24 * 60 * 60 * 1000L;
+
+    // 单次最多写出的日志条数，持续写入时也能及时检查是否需要滚动
+    private static final int        MAX_BATCH         = 1024 * 4;
+
+    private static final long       PARK_NANOS        = TimeUnit.MILLISECONDS.toNanos(1000);
+
+    private static final long       BLOCK_PARK_NANOS  = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private File                    file;
+    private MpscArrayQueue<String>  queue;
+    private LogOverflowPolicy       overflowPolicy;
+    private long                    maxFileSize;
+    private long                    rollingInterval;
+    private int                     maxHistory;
+    private FileChannel             channel;
+    private ByteBuffer              buffer;
+    private CharsetEncoder          encoder;
+    private long                    fileSize;
+    private long                    periodStart;
+    private long                    nextRollingTime;
+    private AtomicLong              dropped           = new AtomicLong();
+    private volatile boolean        sleeping;
+    private Thread                  shutdownHook;
 
     public FileLoggerPrinter(File file) throws IOException {
-        if (!file.exists()) {
-            FileUtil.createDirectory(file.getParentFile());
-        }
-        this.outputStream = new RAFOutputStream(file);
+        this(file, 1024 * 64, LogOverflowPolicy.DROP_DEBUG, 1024 * 1024 * 64, ONE_DAY, 30);
     }
 
-    @Override
-    public synchronized void println(String msg) {
+    /**
+     * @param queueSize 队列长度，向上取整为2的幂
+     * @param overflowPolicy 队列已满时的处理策略
+     * @param maxFileSize 单个文件的最大字节数，小于等于0时不按大小滚动
+     * @param rollingInterval 按时间滚动的间隔(毫秒)，小于等于0时不按时间滚动
+     * @param maxHistory 保留的滚动文件数，小于等于0时不删除
+     */
+    public FileLoggerPrinter(File file, int queueSize, LogOverflowPolicy overflowPolicy,
+            long maxFileSize, long rollingInterval, int maxHistory) throws IOException {
+        this.file = file.getAbsoluteFile();
+        this.queue = new MpscArrayQueue<>(queueSize);
+        this.overflowPolicy = overflowPolicy;
+        this.maxFileSize = maxFileSize;
+        this.rollingInterval = rollingInterval;
+        this.maxHistory = maxHistory;
+        this.buffer = ByteBuffer.allocateDirect(1024 * 64);
+        this.encoder = Charset.defaultCharset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        if (!this.file.exists()) {
+            FileUtil.createDirectory(this.file.getParentFile());
+        }
+        openChannel();
+        setRollingTime(System.currentTimeMillis());
         try {
-            outputStream.write((msg + "\n").getBytes());
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+            startup("log-writer-" + file.getName());
+        } catch (Exception e) {
+            channel.close();
+            throw new IOException(e.getMessage(), e);
         }
+        this.shutdownHook = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                FileLoggerPrinter.this.stop();
+            }
+        }, "log-shutdown-" + file.getName());
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    @Override
+    protected void doStartup() {
+        // 不阻止进程退出，退出时由shutdown hook写出剩余的日志
+        getMonitor().setDaemon(true);
+    }
+
+    @Override
+    public void println(String msg) {
+        offer(msg, false);
+    }
+
+    @Override
+    public void debugPrintln(String msg) {
+        offer(msg, true);
     }
 
     @Override
@@ -61,4 +156,246 @@ public class FileLoggerPrinter implements LoggerPrinter {
         printThrowable(t);
     }
 
+    private void offer(String msg, boolean debug) {
+        if (!isRunning()) {
+            dropped.incrementAndGet();
+            return;
+        }
+        MpscArrayQueue<String> queue = this.queue;
+        if (!queue.offer(msg)) {
+            // 写日志的线程自己不能等待，关闭后也不再接收日志
+            if (overflowPolicy == LogOverflowPolicy.DROP_ALL
+                    || (debug && overflowPolicy == LogOverflowPolicy.DROP_DEBUG)
+                    || inEventLoop()) {
+                dropped.incrementAndGet();
+                return;
+            }
+            for (;;) {
+                wakeup();
+                LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                if (queue.offer(msg)) {
+                    break;
+                }
+                if (!isRunning()) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+            }
+        }
+        if (sleeping) {
+            wakeup();
+        }
+    }
+
+    @Override
+    public void wakeup() {
+        sleeping = false;
+        LockSupport.unpark(getMonitor());
+    }
+
+    @Override
+    protected void doLoop() {
+        try {
+            if (!drain()) {
+                sleeping = true;
+                // 设置sleeping之后再检查一次，避免错过生产者的唤醒
+                if (queue.isEmpty() && isRunning()) {
+                    LockSupport.parkNanos(this, Math.min(PARK_NANOS, rollingDelayNanos()));
+                }
+                sleeping = false;
+            }
+            if (rollingInterval > 0 && System.currentTimeMillis() >= nextRollingTime) {
+                roll();
+            }
+        } catch (IOException e) {
+            // 不能通过logger输出，否则会再次进入当前队列
+            buffer.clear();
+            System.err.println("write log file [" + file + "] failed: " + e);
+            LockSupport.parkNanos(PARK_NANOS);
+            if (!channel.isOpen()) {
+                try {
+                    openChannel();
+                } catch (IOException e1) {}
+            }
+        }
+    }
+
+    @Override
+    protected void doStop() {
+        Runtime runtime = Runtime.getRuntime();
+        try {
+            runtime.removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // 正在退出
+        }
+        try {
+            for (; drain();) {}
+        } catch (IOException e) {
+            System.err.println("write log file [" + file + "] failed: " + e);
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {}
+        }
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    // 取出队列中的日志批量写出，返回是否写出了日志
+    private boolean drain() throws IOException {
+        MpscArrayQueue<String> queue = this.queue;
+        String msg = queue.poll();
+        if (msg == null) {
+            return false;
+        }
+        long count = dropped.get();
+        if (count > 0) {
+            dropped.addAndGet(-count);
+            append(DateUtil.formatYyyy_MM_dd_HH_mm_ss_SSS(new Date())
+                    + " [WARN] FileLoggerPrinter - log queue is full, dropped " + count + " logs");
+        }
+        for (int i = 1;; i++) {
+            append(msg);
+            if (i == MAX_BATCH) {
+                break;
+            }
+            msg = queue.poll();
+            if (msg == null) {
+                break;
+            }
+        }
+        flushBuffer();
+        if (maxFileSize > 0 && fileSize >= maxFileSize) {
+            roll();
+        }
+        return true;
+    }
+
+    private void append(String msg) throws IOException {
+        ByteBuffer buffer = this.buffer;
+        CharsetEncoder encoder = this.encoder;
+        CharBuffer chars = CharBuffer.wrap(msg);
+        for (;;) {
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if (result.isOverflow()) {
+                flushBuffer();
+                continue;
+            }
+            result = encoder.flush(buffer);
+            if (result.isOverflow()) {
+                flushBuffer();
+                encoder.flush(buffer);
+            }
+            break;
+        }
+        encoder.reset();
+        if (!buffer.hasRemaining()) {
+            flushBuffer();
+        }
+        buffer.put((byte) '\n');
+    }
+
+    private void flushBuffer() throws IOException {
+        ByteBuffer buffer = this.buffer;
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            fileSize += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void openChannel() throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        fileSize = channel.size();
+    }
+
+    private void roll() throws IOException {
+        flushBuffer();
+        long now = System.currentTimeMillis();
+        long start = periodStart;
+        setRollingTime(now);
+        if (fileSize == 0) {
+            return;
+        }
+        channel.close();
+        File rolled = getRollingFile(start);
+        if (!file.renameTo(rolled)) {
+            System.err.println("rename log file [" + file + "] to [" + rolled + "] failed");
+        }
+        openChannel();
+        deleteHistory();
+    }
+
+    // 滚动后的文件名使用当前文件开始写入时所在周期的日期
+    private File getRollingFile(long start) {
+        String prefix = file.getName() + "." + DateUtil.formatYyyy_MM_dd(new Date(start)) + ".";
+        for (int i = 1;; i++) {
+            File f = new File(file.getParentFile(), prefix + i);
+            if (!f.exists()) {
+                return f;
+            }
+        }
+    }
+
+    private void deleteHistory() {
+        if (maxHistory <= 0) {
+            return;
+        }
+        File[] files = file.getParentFile().listFiles();
+        if (files == null) {
+            return;
+        }
+        String prefix = file.getName() + ".";
+        List<File> history = new ArrayList<>();
+        for (File f : files) {
+            if (f.getName().startsWith(prefix) && f.isFile()) {
+                history.add(f);
+            }
+        }
+        if (history.size() <= maxHistory) {
+            return;
+        }
+        Collections.sort(history, new Comparator<File>() {
+
+            @Override
+            public int compare(File o1, File o2) {
+                return Long.compare(o1.lastModified(), o2.lastModified());
+            }
+        });
+        for (int i = 0, size = history.size() - maxHistory; i < size; i++) {
+            history.get(i).delete();
+        }
+    }
+
+    private void setRollingTime(long now) {
+        if (rollingInterval <= 0) {
+            periodStart = now;
+            nextRollingTime = Long.MAX_VALUE;
+            return;
+        }
+        long offset = TimeZone.getDefault().getOffset(now);
+        periodStart = (now + offset) / rollingInterval * rollingInterval - offset;
+        nextRollingTime = periodStart + rollingInterval;
+    }
+
+    private long rollingDelayNanos() {
+        long delay = nextRollingTime - System.currentTimeMillis();
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(delay, 1));
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return 还未输出到文件中的被丢弃的日志数
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
 }
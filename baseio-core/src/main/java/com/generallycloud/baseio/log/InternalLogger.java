@@ -48,28 +48,28 @@ public class InternalLogger implements Logger {
     @Override
     public void debug(String message) {
         if (isEnableDebug()) {
-            info0(debugClassName, message);
+            debug0(message);
         }
     }
 
     @Override
     public void debug(String message, Object param) {
         if (isEnableDebug()) {
-            info0(debugClassName, message, param);
+            debug0(message, param);
         }
     }
 
     @Override
     public void debug(String message, Object param, Object param1) {
         if (isEnableDebug()) {
-            info0(debugClassName, message, param, param1);
+            debug0(message, param, param1);
         }
     }
 
     @Override
     public void debug(String message, Object[] param) {
         if (isEnableDebug()) {
-            info0(debugClassName, message, param);
+            debug0(message, param);
         }
     }
 
@@ -111,6 +111,25 @@ public class InternalLogger implements Logger {
         return DateUtil.formatYyyy_MM_dd_HH_mm_ss_SSS(new Date());
     }
 
+    private void debug0(String message) {
+        printer.debugPrintln(getTimeFormat() + debugClassName + message);
+    }
+
+    private void debug0(String message, Object param) {
+        printer.debugPrintln(
+                getTimeFormat() + debugClassName + MessageFormatter.format(message, param));
+    }
+
+    private void debug0(String message, Object param, Object param1) {
+        printer.debugPrintln(
+                getTimeFormat() + debugClassName + MessageFormatter.format(message, param, param1));
+    }
+
+    private void debug0(String message, Object[] param) {
+        printer.debugPrintln(
+                getTimeFormat() + debugClassName + MessageFormatter.arrayFormat(message, param));
+    }
+
     private void info0(String className, String message) {
         printer.println(getTimeFormat() + className + message);
     }
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.log;
+
+/**
+ * 异步日志队列已满时的处理策略
+ * 
+ * @author wangkai
+ *
+ */
+public enum LogOverflowPolicy {
+
+    /**
+     * 调用线程等待队列有空位
+     */
+    BLOCK,
+
+    /**
+     * 丢弃debug日志，其余日志等待队列有空位
+     */
+    DROP_DEBUG,
+
+    /**
+     * 丢弃所有新的日志，调用线程不会等待
+     */
+    DROP_ALL;
+
+}
@@ -64,10 +64,18 @@ public class LoggerFactory {
     }
 
     public static void setInternalLogFile(File internalLogFile) throws IOException {
-        LoggerFactory.internalLogFile = internalLogFile;
+        setInternalLogPrinter(new FileLoggerPrinter(internalLogFile));
+    }
+
+    /**
+     * 同时输出到控制台和filePrinter，可通过FileLoggerPrinter的构造参数
+     * 设置队列长度、溢出策略和滚动规则
+     */
+    public static void setInternalLogPrinter(FileLoggerPrinter filePrinter) {
+        LoggerFactory.internalLogFile = filePrinter.getFile();
         LoggerPrinter[] printers = new LoggerPrinter[2];
         printers[0] = SysLoggerPrinter.get();
-        printers[1] = new FileLoggerPrinter(internalLogFile);
+        printers[1] = filePrinter;
         printer = new CompoundLoggerPrinter(printers);
     }
 
@@ -23,6 +23,11 @@ public interface LoggerPrinter {
 
     void println(String msg);
 
+    /**
+     * debug级别的日志，异步输出时队列已满可能被丢弃
+     */
+    void debugPrintln(String msg);
+
     void printThrowable(Throwable t);
 
     void errPrintln(String msg);
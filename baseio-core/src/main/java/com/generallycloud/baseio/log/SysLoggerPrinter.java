@@ -32,6 +32,11 @@ public class SysLoggerPrinter implements LoggerPrinter {
         System.out.println(msg);
     }
 
+    @Override
+    public void debugPrintln(String msg) {
+        println(msg);
+    }
+
     @Override
     public void printThrowable(Throwable t) {
         t.printStackTrace(System.out);
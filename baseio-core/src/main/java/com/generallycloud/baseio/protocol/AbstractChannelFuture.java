@@ -33,13 +33,15 @@ public abstract class AbstractChannelFuture extends AbstractFuture implements Ch
     private static final Logger logger = LoggerFactory.getLogger(AbstractChannelFuture.class);
 
     //FIXME isX 使用 byte & x ?
-    protected ByteBuf  buf        = EmptyByteBuf.getInstance();
-    protected boolean  isHeartbeat;
-    protected boolean  isPING;
-    protected boolean  isSilent;
-    protected boolean  isValidate = true;
-    protected boolean  needSSL;
-    protected Linkable next;
+    protected ByteBuf           buf        = EmptyByteBuf.getInstance();
+    protected boolean           isHeartbeat;
+    protected boolean           isPING;
+    protected boolean           isSilent;
+    protected boolean           isValidate = true;
+    protected boolean           needSSL;
+    protected boolean           inseparable;
+    // MpscLinkedQueue要求next为volatile
+    protected volatile Linkable next;
 
     protected AbstractChannelFuture(SocketChannelContext context) {
         super(context);
@@ -95,6 +97,11 @@ public abstract class AbstractChannelFuture extends AbstractFuture implements Ch
         return isHeartbeat && !isPING;
     }
 
+    @Override
+    public boolean isInseparable() {
+        return inseparable;
+    }
+
     @Override
     public boolean isReleased() {
         return buf.isReleased();
@@ -146,6 +153,11 @@ public abstract class AbstractChannelFuture extends AbstractFuture implements Ch
         this.buf = buf;
     }
 
+    @Override
+    public void setInseparable(boolean inseparable) {
+        this.inseparable = inseparable;
+    }
+
     @Override
     public void setNext(Linkable next) {
         this.next = next;
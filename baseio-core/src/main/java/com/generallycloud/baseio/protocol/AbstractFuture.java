@@ -83,7 +83,7 @@ public abstract class AbstractFuture implements Future {
     public void write(byte[] bytes, int off, int len) {
         if (writeBuffer == null) {
             if (off != 0) {
-                byte[] copy = new byte[len - off];
+                byte[] copy = new byte[len];
                 System.arraycopy(bytes, off, copy, 0, len);
                 writeBuffer = new ByteArrayBuffer(copy, len);
                 return;
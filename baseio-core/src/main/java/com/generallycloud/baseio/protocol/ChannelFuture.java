@@ -58,4 +58,12 @@ public interface ChannelFuture extends Future, Linkable {
 
     void setByteBuf(ByteBuf buf);
 
+    /**
+     * 与前后的future共同组成报文，或者依赖编码器的状态(如HPACK、deflate的上下文)，
+     * 写出队列溢出时不能单独拒绝或丢弃，只能关闭连接
+     */
+    boolean isInseparable();
+
+    void setInseparable(boolean inseparable);
+
 }
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.protocol;
+
+import java.io.IOException;
+
+import com.generallycloud.baseio.buffer.ByteBuf;
+import com.generallycloud.baseio.buffer.ByteBufAllocator;
+import com.generallycloud.baseio.buffer.EmptyByteBuf;
+import com.generallycloud.baseio.common.ReleaseUtil;
+import com.generallycloud.baseio.component.SocketChannel;
+import com.generallycloud.baseio.component.SocketChannelContext;
+import com.generallycloud.baseio.component.SocketSession;
+
+/**
+ * 将多个future作为一个整体进入写出队列，如协议头部与随后的{@link FileRegionChannelFuture}，
+ * 写出队列溢出时整体被拒绝或丢弃，不会只写出其中的一部分。
+ * <br>
+ * 使用session.flush写出时，除FileRegionChannelFuture与已经flush过的future外，
+ * 其余future按顺序encode；使用session.doFlush写出时需要事先encode
+ *
+ * @author wangkai
+ *
+ */
+public class CompositeChannelFuture extends DefaultChannelFuture {
+
+    private ChannelFuture[] futures;
+    private int             index;
+    private int             limit    = -1;
+    private boolean         released;
+
+    public CompositeChannelFuture(SocketChannelContext context, ChannelFuture... futures) {
+        super(context, EmptyByteBuf.getInstance());
+        this.futures = futures;
+    }
+
+    /**
+     * 按顺序encode各个future，失败时释放所有future
+     */
+    public void encode(ProtocolEncoder encoder, ByteBufAllocator allocator) throws IOException {
+        flush();
+        try {
+            for (ChannelFuture f : futures) {
+                if (f instanceof FileRegionChannelFuture || f.flushed()) {
+                    continue;
+                }
+                encoder.encode(allocator, f.flush());
+            }
+        } catch (IOException | RuntimeException e) {
+            release();
+            throw e;
+        }
+    }
+
+    @Override
+    public ChannelFuture duplicate() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * 所有future的待写出数据之和，encode之后不再变化
+     */
+    @Override
+    public int getByteBufLimit() {
+        if (limit == -1) {
+            int limit = 0;
+            for (ChannelFuture f : futures) {
+                limit += f.getByteBufLimit();
+            }
+            this.limit = limit;
+        }
+        return limit;
+    }
+
+    /**
+     * 正在写出的future的buf，aio写出回调时需要同步它的position
+     */
+    @Override
+    public ByteBuf getByteBuf() {
+        if (index < futures.length) {
+            return futures[index].getByteBuf();
+        }
+        return EmptyByteBuf.getInstance();
+    }
+
+    public ChannelFuture[] getFutures() {
+        return futures;
+    }
+
+    @Override
+    public void setInseparable(boolean inseparable) {
+        super.setInseparable(inseparable);
+        for (ChannelFuture f : futures) {
+            f.setInseparable(inseparable);
+        }
+    }
+
+    @Override
+    public boolean isReleased() {
+        return released;
+    }
+
+    @Override
+    public boolean isWriteCompleted() {
+        ChannelFuture[] futures = this.futures;
+        for (; index < futures.length; index++) {
+            if (!futures[index].isWriteCompleted()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void write(SocketChannel channel) throws IOException {
+        ChannelFuture[] futures = this.futures;
+        for (; index < futures.length; index++) {
+            ChannelFuture f = futures[index];
+            if (f.isWriteCompleted()) {
+                continue;
+            }
+            f.write(channel);
+            if (!f.isWriteCompleted()) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void onSuccess(SocketSession session) {
+        for (ChannelFuture f : futures) {
+            f.onSuccess(session);
+        }
+        released = true;
+    }
+
+    @Override
+    public void onException(SocketSession session, Exception e) {
+        for (ChannelFuture f : futures) {
+            f.onException(session, e);
+        }
+        released = true;
+    }
+
+    @Override
+    public void release() {
+        released = true;
+        for (ChannelFuture f : futures) {
+            ReleaseUtil.release(f);
+        }
+    }
+
+}
@@ -15,6 +15,7 @@
  */
 package com.generallycloud.baseio.protocol;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 
 import com.generallycloud.baseio.buffer.ByteBuf;
@@ -30,6 +31,8 @@ import com.generallycloud.baseio.common.MathUtil;
  *  9  ~  12  = sequenceNo
  * </pre>
  * 
+ * 接收到的packet为selector线程接收缓冲区上的视图，仅在
+ * DatagramPacketAcceptor.accept期间有效，需要保留时使用{@link #copy()}
  */
 public class DatagramPacket {
 
@@ -41,6 +44,8 @@ public class DatagramPacket {
     public static final int PACKET_MAX    = 1500 - IP_HEADER - UDP_HEADER;
 
     private byte[]          data;
+    private ByteBuffer      buffer;
+    private boolean         view;
     private int             type;
     private int             sequenceNo    = -1;                           // 4 byte
     private long            timestamp     = -1;                           // 8 byte
@@ -56,9 +61,53 @@ public class DatagramPacket {
     private DatagramPacket() {}
 
     public byte[] getData() {
+        if (data == null && buffer != null) {
+            byte[] data = new byte[buffer.remaining()];
+            buffer.duplicate().get(data);
+            this.data = data;
+        }
         return data;
     }
 
+    /**
+     * @return 包括头部在内的整个packet的长度
+     */
+    public int getLength() {
+        if (data == null) {
+            return buffer.remaining();
+        }
+        return data.length;
+    }
+
+    /**
+     * @return 包括头部在内的整个packet，视图packet不产生拷贝
+     */
+    public ByteBuffer nioBuffer() {
+        if (data == null) {
+            return buffer.duplicate();
+        }
+        return ByteBuffer.wrap(data);
+    }
+
+    public boolean isView() {
+        return view;
+    }
+
+    /**
+     * 视图packet拷贝出独立的packet，非视图packet返回自身
+     */
+    public DatagramPacket copy() {
+        if (!view) {
+            return this;
+        }
+        DatagramPacket p = new DatagramPacket();
+        p.type = type;
+        p.sequenceNo = sequenceNo;
+        p.timestamp = timestamp;
+        p.data = getData();
+        return p;
+    }
+
     public int getOffset() {
         return PACKET_HEADER;
     }
@@ -69,8 +118,13 @@ public class DatagramPacket {
 
     public String getDataString(Charset encoding) {
         if (dataString == null) {
-            dataString = new String(getData(), getOffset(), getData().length - getOffset(),
-                    encoding);
+            if (data == null) {
+                ByteBuffer payload = buffer.duplicate();
+                payload.position(payload.position() + getOffset());
+                dataString = encoding.decode(payload).toString();
+            } else {
+                dataString = new String(data, getOffset(), data.length - getOffset(), encoding);
+            }
         }
         return dataString;
     }
@@ -130,4 +184,26 @@ public class DatagramPacket {
         p.data = data;
         return p;
     }
+
+    /**
+     * 创建一个可复用的视图packet，由selector线程持有
+     */
+    public static DatagramPacket createViewPacket() {
+        return new DatagramPacket();
+    }
+
+    /**
+     * 将packet重置为buffer中position至limit之间内容的视图，不拷贝数据
+     */
+    public DatagramPacket view(ByteBuffer buffer) {
+        int offset = buffer.position();
+        this.buffer = buffer;
+        this.view = true;
+        this.data = null;
+        this.dataString = null;
+        this.type = buffer.get(offset);
+        this.timestamp = buffer.getLong(offset + 1);
+        this.sequenceNo = buffer.getInt(offset + 9);
+        return this;
+    }
 }
@@ -29,8 +29,8 @@ public class DatagramPacketGroup {
     public void addDatagramPacket(DatagramPacket packet) {
 
         size++;
-        packets[packet.getSequenceNo()] = packet;
-        packet.getData();
+        // 接收到的packet为接收缓冲区上的视图，需要拷贝后才能保留
+        packets[packet.getSequenceNo()] = packet.copy();
 
         //		logger.debug("_________________________add______packet:{}",packet);
 
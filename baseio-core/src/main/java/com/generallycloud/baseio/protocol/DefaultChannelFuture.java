@@ -30,7 +30,7 @@ public class DefaultChannelFuture extends AbstractChannelFuture {
 
     public DefaultChannelFuture(SocketChannelContext context, ByteBuf buf) {
         super(context);
-        this.buf = buf;
+        this.setByteBuf(buf);
     }
 
     @Override
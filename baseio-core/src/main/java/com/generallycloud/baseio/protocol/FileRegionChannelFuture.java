@@ -0,0 +1,194 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.protocol;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+import com.generallycloud.baseio.buffer.ByteBuf;
+import com.generallycloud.baseio.buffer.EmptyByteBuf;
+import com.generallycloud.baseio.common.ByteBufferUtil;
+import com.generallycloud.baseio.common.CloseUtil;
+import com.generallycloud.baseio.common.ReleaseUtil;
+import com.generallycloud.baseio.component.SocketChannel;
+import com.generallycloud.baseio.component.SocketChannelContext;
+import com.generallycloud.baseio.component.ssl.SslHandler;
+
+/**
+ * 直接写出文件内容的future，不经过encode，通常与协议头部组成
+ * {@link CompositeChannelFuture}一起写出。非ssl的nio连接使用FileChannel.transferTo写出，
+ * ssl或aio连接分块映射文件后逐块写出
+ *
+ * @author wangkai
+ *
+ */
+public class FileRegionChannelFuture extends DefaultChannelFuture {
+
+    // 每次映射的文件大小
+    private static final int MAP_SIZE   = 1024 * 1024 * 4;
+    // ssl或aio时每次写出的块大小
+    private static final int CHUNK_SIZE = 1024 * 64;
+
+    private FileChannel      fileChannel;
+    private long             position;
+    private long             end;
+    private boolean          closeFile;
+    private boolean          released;
+    private MappedByteBuffer mapped;
+
+    public FileRegionChannelFuture(SocketChannelContext context, File file) throws IOException {
+        this(context, FileChannel.open(file.toPath(), StandardOpenOption.READ), 0,
+                file.length(), true);
+    }
+
+    /**
+     * @param closeFile 为true时release后关闭fileChannel
+     */
+    public FileRegionChannelFuture(SocketChannelContext context, FileChannel fileChannel,
+            long position, long count, boolean closeFile) {
+        super(context, EmptyByteBuf.getInstance());
+        this.fileChannel = fileChannel;
+        this.position = position;
+        this.end = position + count;
+        this.closeFile = closeFile;
+    }
+
+    @Override
+    public ChannelFuture duplicate() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * 文件内容不占用内存，不计入待写出数据
+     */
+    @Override
+    public int getByteBufLimit() {
+        return 0;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public long getRemaining() {
+        return end - position;
+    }
+
+    @Override
+    public boolean isReleased() {
+        return released;
+    }
+
+    @Override
+    public boolean isWriteCompleted() {
+        return position == end && !buf.hasRemaining();
+    }
+
+    @Override
+    public void release() {
+        released = true;
+        ReleaseUtil.release(buf);
+        unmap();
+        if (closeFile) {
+            CloseUtil.close(fileChannel);
+        }
+    }
+
+    private void unmap() {
+        if (mapped != null) {
+            ByteBufferUtil.release(mapped);
+            mapped = null;
+        }
+    }
+
+    private void nextChunk(SocketChannel channel) throws IOException {
+        if (mapped == null || !mapped.hasRemaining()) {
+            unmap();
+            long size = Math.min(MAP_SIZE, end - position);
+            mapped = fileChannel.map(MapMode.READ_ONLY, position, size);
+        }
+        int size = Math.min(CHUNK_SIZE, mapped.remaining());
+        int limit = mapped.position() + size;
+        ReleaseUtil.release(buf);
+        this.buf = EmptyByteBuf.getInstance();
+        ByteBuf chunk = allocate(channel, size);
+        try {
+            mapped.limit(limit);
+            chunk.read(mapped);
+            mapped.limit(mapped.capacity());
+        } catch (Throwable e) {
+            ReleaseUtil.release(chunk);
+            throw e;
+        }
+        position += size;
+        chunk.flip();
+        if (needSSL) {
+            SslHandler handler = channel.getSslHandler();
+            ByteBuf plain = chunk;
+            try {
+                chunk = handler.wrap(channel, plain);
+            } finally {
+                ReleaseUtil.release(plain);
+            }
+            if (chunk == null) {
+                throw new IOException("closed ssl");
+            }
+        }
+        this.buf = chunk;
+        this.buf.nioBuffer();
+    }
+
+    @Override
+    public void write(SocketChannel channel) throws IOException {
+        if (!needSSL && !buf.hasRemaining()) {
+            for (;;) {
+                long len = channel.transferFrom(fileChannel, position, end - position);
+                if (len == -1) {
+                    break;
+                }
+                if (len == 0) {
+                    // 文件被截断后transferTo会一直返回0
+                    if (position >= fileChannel.size()) {
+                        throw new IOException("file truncated");
+                    }
+                    return;
+                }
+                position += len;
+                if (position == end) {
+                    return;
+                }
+            }
+        }
+        // aio的write为异步，buf此时仍有剩余，会在写完后的回调中再次进入
+        for (;;) {
+            if (!buf.hasRemaining()) {
+                if (position == end) {
+                    return;
+                }
+                nextChunk(channel);
+            }
+            channel.write(buf);
+            if (buf.hasRemaining()) {
+                return;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.protocol;
+
+/**
+ * encode的结果依赖之前encode过的future（如压缩上下文），
+ * 实例不能在channel之间共享。channel会在持有该encoder锁的情况下
+ * 完成encode和入队，保证写出顺序与encode顺序一致
+ */
+public interface StatefulProtocolEncoder extends ProtocolEncoder {
+
+}
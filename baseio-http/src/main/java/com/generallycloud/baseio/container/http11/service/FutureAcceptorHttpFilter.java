@@ -17,6 +17,8 @@ package com.generallycloud.baseio.container.http11.service;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -25,7 +27,6 @@ import com.generallycloud.baseio.codec.http11.future.HttpFuture;
 import com.generallycloud.baseio.codec.http11.future.HttpHeader;
 import com.generallycloud.baseio.codec.http11.future.HttpStatus;
 import com.generallycloud.baseio.codec.http11.future.ServerHttpFuture;
-import com.generallycloud.baseio.common.FileUtil;
 import com.generallycloud.baseio.common.LoggerUtil;
 import com.generallycloud.baseio.common.StringUtil;
 import com.generallycloud.baseio.component.SocketChannelContext;
@@ -36,14 +37,20 @@ import com.generallycloud.baseio.container.http11.HtmlUtil;
 import com.generallycloud.baseio.container.service.FutureAcceptorServiceFilter;
 import com.generallycloud.baseio.log.Logger;
 import com.generallycloud.baseio.log.LoggerFactory;
+import com.generallycloud.baseio.protocol.CompositeChannelFuture;
+import com.generallycloud.baseio.protocol.FileRegionChannelFuture;
 import com.generallycloud.baseio.protocol.NamedFuture;
 
-//FIXME limit too large file
 public class FutureAcceptorHttpFilter extends FutureAcceptorServiceFilter {
 
-    private Logger                  logger     = LoggerFactory.getLogger(getClass());
+    private Logger                  logger          = LoggerFactory.getLogger(getClass());
 
-    private Map<String, HttpEntity> html_cache = new HashMap<>();
+    private Map<String, HttpEntity> html_cache      = new HashMap<>();
+
+    private HttpEntityCache         entityCache;
+
+    // 小于该长度的内容不压缩
+    private int                     compressMinSize = 1024;
 
     @Override
     protected void accept404(SocketSession session, NamedFuture future, String serviceName)
@@ -56,7 +63,8 @@ public class FutureAcceptorHttpFilter extends FutureAcceptorServiceFilter {
         ServerHttpFuture f = (ServerHttpFuture) future;
 
         if (entity == null) {
-            f.setStatus(HttpStatus.C404);
+            status = HttpStatus.C404;
+            f.setStatus(status);
             entity = html_cache.get("/404.html");
             if (entity == null) {
                 super.accept404(session, f, serviceName);
@@ -72,45 +80,227 @@ public class FutureAcceptorHttpFilter extends FutureAcceptorServiceFilter {
 
                 reloadEntity(entity, session.getContext(), status);
             }
+        }
 
-            flush(session, f, entity);
-
+        if (status == HttpStatus.C200 && isNotModified(f, entity)) {
+            f.setStatus(HttpStatus.C304);
+            f.setResponseHeader(HttpHeader.LAST_MODIFIED, entity.getLastModifyGTM());
+            f.setResponseHeader(HttpHeader.ETAG, entity.getETag());
+            session.flush(f);
             return;
         }
 
+        flush(session, f, entity, status);
+    }
+
+    private boolean isNotModified(ServerHttpFuture f, HttpEntity entity) {
+        // If-None-Match优先于If-Modified-Since
+        String inm = f.getRequestHeader(HttpHeader.IF_NONE_MATCH);
+        if (inm != null) {
+            return matchETag(inm, entity.getETag());
+        }
         String ims = f.getRequestHeader(HttpHeader.IF_MODIFIED_SINCE);
-        long imsTime = -1;
-        if (!StringUtil.isNullOrBlank(ims)) {
-            imsTime = HttpHeaderDateFormat.getFormat().parse(ims).getTime();
+        if (StringUtil.isNullOrBlank(ims)) {
+            return false;
+        }
+        return HttpHeaderDateFormat.getFormat().parse(ims).getTime() >= entity
+                .getLastModifyGTMTime();
+    }
+
+    private boolean matchETag(String header, String etag) {
+        for (String tag : header.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if ("*".equals(tag) || tag.equals(etag)) {
+                return true;
+            }
         }
+        return false;
+    }
 
-        if (imsTime < entity.getLastModifyGTMTime()) {
-            flush(session, f, entity);
+    private void flush(SocketSession session, ServerHttpFuture future, HttpEntity entity,
+            HttpStatus status) throws IOException {
+        future.setResponseHeader(HttpHeader.CONTENT_TYPE, entity.getContentType());
+        future.setResponseHeader(HttpHeader.LAST_MODIFIED, entity.getLastModifyGTM());
+        if (status == HttpStatus.C200) {
+            future.setResponseHeader(HttpHeader.ETAG, entity.getETag());
+            future.setResponseHeader(HttpHeader.ACCEPT_RANGES, "bytes");
+            String range = future.getRequestHeader(HttpHeader.RANGE);
+            if (range != null && matchIfRange(future, entity)) {
+                long[] r = parseRange(range, entity.getLength());
+                if (r != null) {
+                    flushRange(session, future, entity, r);
+                    return;
+                }
+            }
+        }
+        String encoding = HttpEntityCache.IDENTITY;
+        if (entity.isCompressible() && entity.getLength() >= compressMinSize) {
+            future.setResponseHeader(HttpHeader.VARY, HttpHeader.ACCEPT_ENCODING);
+            encoding = selectEncoding(future.getRequestHeader(HttpHeader.ACCEPT_ENCODING));
+        }
+        byte[] content = entityCache.getContent(entity, encoding);
+        if (content != null) {
+            if (!HttpEntityCache.IDENTITY.equals(encoding)) {
+                future.setResponseHeader(HttpHeader.CONTENT_ENCODING, encoding);
+            }
+            future.write(content);
+            session.flush(future);
             return;
         }
+        // 大文件不进入缓存也不压缩，响应头与文件内容作为一个整体写出
+        FileRegionChannelFuture region = new FileRegionChannelFuture(session.getContext(),
+                entity.getFile());
+        future.setWriteFileLength(region.getRemaining());
+        session.flush(new CompositeChannelFuture(session.getContext(), future, region));
+    }
 
-        f.setStatus(HttpStatus.C304);
+    private void flushRange(SocketSession session, ServerHttpFuture future, HttpEntity entity,
+            long[] range) throws IOException {
+        long length = entity.getLength();
+        if (range[0] >= length) {
+            future.setStatus(HttpStatus.C416);
+            future.setResponseHeader(HttpHeader.CONTENT_RANGE, "bytes */" + length);
+            session.flush(future);
+            return;
+        }
+        long start = range[0];
+        long count = range[1] - start + 1;
+        future.setStatus(HttpStatus.C206);
+        future.setResponseHeader(HttpHeader.CONTENT_RANGE,
+                "bytes " + start + "-" + range[1] + "/" + length);
+        byte[] content = entityCache.getContent(entity, HttpEntityCache.IDENTITY);
+        if (content != null) {
+            future.write(content, (int) start, (int) count);
+            session.flush(future);
+            return;
+        }
+        FileChannel channel = FileChannel.open(entity.getFile().toPath(),
+                StandardOpenOption.READ);
+        FileRegionChannelFuture region = new FileRegionChannelFuture(session.getContext(),
+                channel, start, count, true);
+        future.setWriteFileLength(count);
+        session.flush(new CompositeChannelFuture(session.getContext(), future, region));
+    }
 
-        session.flush(f);
+    /**
+     * If-Range不匹配时忽略Range，返回完整内容
+     */
+    private boolean matchIfRange(ServerHttpFuture future, HttpEntity entity) {
+        String ifRange = future.getRequestHeader(HttpHeader.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(entity.getETag());
+        }
+        return ifRange.equals(entity.getLastModifyGTM());
     }
 
-    private void flush(SocketSession session, ServerHttpFuture future, HttpEntity entity) {
-        future.setResponseHeader(HttpHeader.CONTENT_TYPE, entity.getContentType());
-        future.setResponseHeader(HttpHeader.LAST_MODIFIED, entity.getLastModifyGTM());
-        future.write(entity.getBinary());
-        session.flush(future);
+    /**
+     * 只支持单个区间，多个区间或者格式错误时返回null，返回完整内容；
+     * 起始位置超出长度时返回的start >= length
+     */
+    private long[] parseRange(String range, long length) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') != -1) {
+            return null;
+        }
+        int index = range.indexOf('-', 6);
+        if (index == -1) {
+            return null;
+        }
+        String s = range.substring(6, index).trim();
+        String e = range.substring(index + 1).trim();
+        long start;
+        long end;
+        try {
+            if (s.length() == 0) {
+                // bytes=-n 最后n个字节
+                long suffix = Long.parseLong(e);
+                if (suffix <= 0) {
+                    return new long[] { length, length };
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(s);
+                end = e.length() == 0 ? length - 1 : Math.min(Long.parseLong(e), length - 1);
+                if (end < start && start < length) {
+                    return null;
+                }
+            }
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+        if (start < 0) {
+            return null;
+        }
+        return new long[] { start, end };
+    }
+
+    private String selectEncoding(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return HttpEntityCache.IDENTITY;
+        }
+        boolean deflate = false;
+        for (String item : acceptEncoding.split(",")) {
+            String name = item;
+            int index = item.indexOf(';');
+            if (index != -1) {
+                name = item.substring(0, index);
+                String q = item.substring(index + 1).trim();
+                if (q.startsWith("q=") && isZero(q.substring(2))) {
+                    continue;
+                }
+            }
+            name = name.trim();
+            if (HttpEntityCache.GZIP.equalsIgnoreCase(name)) {
+                return HttpEntityCache.GZIP;
+            }
+            if (HttpEntityCache.DEFLATE.equalsIgnoreCase(name)) {
+                deflate = true;
+            }
+        }
+        return deflate ? HttpEntityCache.DEFLATE : HttpEntityCache.IDENTITY;
+    }
+
+    private boolean isZero(String q) {
+        try {
+            return Double.parseDouble(q.trim()) == 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
     }
 
     private void reloadEntity(HttpEntity entity, SocketChannelContext context, HttpStatus status)
             throws IOException {
         File file = entity.getFile();
-        entity.setBinary(FileUtil.readBytesByFile(file));
-        entity.setLastModify(file.lastModified());
+        if (file.lastModified() > entity.getLastModify()) {
+            entityCache.invalidate(entity);
+            entity.setLastModify(file.lastModified());
+        }
+    }
+
+    public HttpEntityCache getEntityCache() {
+        return entityCache;
     }
 
     @Override
     public void initialize(ApplicationContext context, Configuration config) throws Exception {
 
+        long capacity = 1024 * 1024 * 64;
+        int maxEntrySize = 1024 * 1024;
+
+        if (config != null) {
+            capacity = config.getLongParameter("cache-capacity", capacity);
+            maxEntrySize = config.getIntegerParameter("cache-max-entry-size", maxEntrySize);
+            compressMinSize = config.getIntegerParameter("compress-min-size", compressMinSize);
+        }
+
+        entityCache = new HttpEntityCache(capacity, maxEntrySize);
+
         String rootPath = context.getAppLocalAddress();
 
         File rootFile = new File(rootPath);
@@ -147,7 +337,9 @@ public class FutureAcceptorHttpFilter extends FutureAcceptorServiceFilter {
             HttpEntity entity = new HttpEntity();
 
             entity.setContentType(contentType);
+            entity.setCompressible(isCompressible(contentType));
             entity.setFile(file);
+            entity.setLastModify(file.lastModified());
 
             html_cache.put(path, entity);
 
@@ -223,14 +415,26 @@ public class FutureAcceptorHttpFilter extends FutureAcceptorServiceFilter {
 
             entity.setContentType(HttpFuture.CONTENT_TYPE_TEXT_HTML);
             entity.setFile(file);
-            entity.setLastModify(System.currentTimeMillis());
+            entity.setCompressible(true);
             entity.setBinary(b.toString().getBytes(context.getEncoding()));
+            entity.setLastModify(System.currentTimeMillis());
 
             html_cache.put(staticName, entity);
         }
 
     }
 
+    private boolean isCompressible(String contentType) {
+        return contentType.startsWith("text/") || contentType.contains("javascript")
+                || contentType.contains("json") || contentType.contains("xml");
+    }
+
+    @Override
+    public void destroy(ApplicationContext context, Configuration config) throws Exception {
+        LoggerUtil.prettyLog(logger, "static cache: {}", entityCache);
+        super.destroy(context, config);
+    }
+
     private String getContentType(String fileName, Map<String, String> mapping) {
 
         int index = fileName.lastIndexOf(".");
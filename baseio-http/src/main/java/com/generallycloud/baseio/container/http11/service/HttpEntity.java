@@ -25,12 +25,16 @@ import com.generallycloud.baseio.codec.http11.HttpHeaderDateFormat;
  */
 public class HttpEntity {
 
-    private String contentType;
-    private File   file;
-    private long   lastModify;
-    private long   lastModifyGTMTime;
-    private byte[] binary;
-    private String lastModifyGTM;
+    private String        contentType;
+    private File          file;
+    // 最后写入，其它线程读到新的lastModify时也能看到对应的length与etag
+    private volatile long lastModify;
+    private long          lastModifyGTMTime;
+    private byte[]        binary;
+    private String        lastModifyGTM;
+    private long          length;
+    private String        etag;
+    private boolean       compressible;
 
     public String getContentType() {
         return contentType;
@@ -54,9 +58,11 @@ public class HttpEntity {
 
     public void setLastModify(long lastModify) {
         HttpHeaderDateFormat format = HttpHeaderDateFormat.getFormat();
-        this.lastModify = lastModify;
         this.lastModifyGTM = format.format(lastModify);
         this.lastModifyGTMTime = format.parse(lastModifyGTM).getTime();
+        this.length = binary != null ? binary.length : file.length();
+        this.etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModify) + "\"";
+        this.lastModify = lastModify;
     }
 
     public byte[] getBinary() {
@@ -74,4 +80,23 @@ public class HttpEntity {
     public long getLastModifyGTMTime() {
         return lastModifyGTMTime;
     }
+
+    /**
+     * 内容长度，setLastModify时更新
+     */
+    public long getLength() {
+        return length;
+    }
+
+    public String getETag() {
+        return etag;
+    }
+
+    public boolean isCompressible() {
+        return compressible;
+    }
+
+    public void setCompressible(boolean compressible) {
+        this.compressible = compressible;
+    }
 }
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.container.http11.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.generallycloud.baseio.common.FileUtil;
+
+/**
+ * 静态资源内容缓存，按字节数限制总容量，超出时淘汰最久未访问的内容。
+ * 压缩后的内容在第一次被请求时生成并一起缓存，超过maxEntrySize的文件不进入缓存，
+ * 由调用方直接从文件写出
+ *
+ * @author wangkai
+ *
+ */
+public class HttpEntityCache {
+
+    public static final String            IDENTITY  = "identity";
+    public static final String            GZIP      = "gzip";
+    public static final String            DEFLATE   = "deflate";
+
+    private long                          capacity;
+    private int                           maxEntrySize;
+    private long                          size;
+    private LinkedHashMap<String, byte[]> cache     = new LinkedHashMap<>(64, 0.75f, true);
+    private AtomicLong                    hits      = new AtomicLong();
+    private AtomicLong                    misses    = new AtomicLong();
+    private AtomicLong                    evictions = new AtomicLong();
+
+    public HttpEntityCache(long capacity, int maxEntrySize) {
+        this.capacity = capacity;
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    private String getKey(HttpEntity entity, String encoding) {
+        return encoding + ":" + entity.getLastModify() + ":" + entity.getFile().getPath();
+    }
+
+    /**
+     * @return 指定编码的内容，文件过大不缓存时返回null
+     */
+    public byte[] getContent(HttpEntity entity, String encoding) throws IOException {
+        if (IDENTITY.equals(encoding) && entity.getBinary() != null) {
+            // 目录页面本身常驻内存
+            return entity.getBinary();
+        }
+        String key = getKey(entity, encoding);
+        byte[] content;
+        synchronized (this) {
+            content = cache.get(key);
+        }
+        if (content != null) {
+            hits.incrementAndGet();
+            return content;
+        }
+        misses.incrementAndGet();
+        content = entity.getBinary();
+        if (content == null) {
+            File file = entity.getFile();
+            if (file.length() > maxEntrySize) {
+                return null;
+            }
+            content = FileUtil.readBytesByFile(file);
+        }
+        if (GZIP.equals(encoding)) {
+            content = compress(content, true);
+        } else if (DEFLATE.equals(encoding)) {
+            content = compress(content, false);
+        }
+        put(key, content);
+        return content;
+    }
+
+    private byte[] compress(byte[] content, boolean gzip) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 2 + 64);
+        OutputStream out = gzip ? new GZIPOutputStream(bytes) : new DeflaterOutputStream(bytes);
+        out.write(content);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private synchronized void put(String key, byte[] content) {
+        if (content.length > maxEntrySize) {
+            return;
+        }
+        byte[] old = cache.put(key, content);
+        if (old != null) {
+            size -= old.length;
+        }
+        size += content.length;
+        Iterator<Entry<String, byte[]>> it = cache.entrySet().iterator();
+        while (size > capacity && it.hasNext()) {
+            Entry<String, byte[]> e = it.next();
+            size -= e.getValue().length;
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * 文件更新后移除旧版本的内容
+     */
+    public synchronized void invalidate(HttpEntity entity) {
+        String[] encodings = { IDENTITY, GZIP, DEFLATE };
+        for (String encoding : encodings) {
+            byte[] old = cache.remove(getKey(entity, encoding));
+            if (old != null) {
+                size -= old.length;
+            }
+        }
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public int getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "HttpEntityCache[size=" + getSize() + ",capacity=" + capacity + ",hits="
+                + getHits() + ",misses=" + getMisses() + ",evictions=" + getEvictions() + "]";
+    }
+
+}
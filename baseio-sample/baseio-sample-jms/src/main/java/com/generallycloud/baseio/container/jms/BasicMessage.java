@@ -41,6 +41,13 @@ public abstract class BasicMessage implements Message {
         return timestamp;
     }
 
+    /**
+     * 从持久化存储中恢复消息时使用
+     */
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
     @Override
     public abstract String toString();
 
@@ -116,6 +116,10 @@ public class MapMessage extends BasicMessage implements MappedMessage {
         return value;
     }
 
+    public JSONObject getMap() {
+        return map;
+    }
+
     protected String getText0() {
         return map.toJSONString();
     }
@@ -71,7 +71,7 @@ public class DefaultMessageProducer implements MessageProducer {
         String result = future.getReadText();
 
         if (result.length() == 1) {
-            return "T".equals(result);
+            return "1".equals(result);
         }
         throw new MQException(result);
 
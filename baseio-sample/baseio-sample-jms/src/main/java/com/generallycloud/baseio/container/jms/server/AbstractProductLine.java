@@ -15,10 +15,14 @@
  */
 package com.generallycloud.baseio.container.jms.server;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 import com.generallycloud.baseio.codec.protobase.future.ProtobaseFuture;
+import com.generallycloud.baseio.common.CloseUtil;
 import com.generallycloud.baseio.component.SocketSession;
 import com.generallycloud.baseio.concurrent.AbstractEventLoop;
 import com.generallycloud.baseio.container.ApplicationContextUtil;
@@ -27,28 +31,51 @@ import com.generallycloud.baseio.container.jms.Message;
 import com.generallycloud.baseio.log.Logger;
 import com.generallycloud.baseio.log.LoggerFactory;
 
+/**
+ * 一个product line负责按queueName分片后的一部分queue，拥有独立的存储和consumer，
+ * 每次唤醒最多处理batchSize条消息，同一个consumer的消息由连接合并写出
+ */
 public abstract class AbstractProductLine extends AbstractEventLoop implements MessageQueue {
 
-    protected MQContext                  context;
-    protected MessageStorage             storage;
-    protected long                       dueTime;
-    protected Map<String, ConsumerQueue> consumerMap;
-    private Logger                       logger = LoggerFactory.getLogger(getClass());
+    private static final long                      IDLE_TIMEOUT = 1000;
+    private static final long                      IDLE_PARK    = TimeUnit.SECONDS.toNanos(1);
+
+    protected MQContext                            context;
+    protected MessageStorage                       storage;
+    protected long                                 dueTime;
+    protected int                                  batchSize    = 64;
+    protected ConcurrentMap<String, ConsumerQueue> consumerMap;
+    // 连续未能投递的消息数，转完一圈仍未投递时停止轮询，等待新的消息或consumer
+    private int                                    undelivered;
+    private volatile boolean                       parked;
+    private AtomicInteger                          signals      = new AtomicInteger();
+    private Logger                                 logger       = LoggerFactory.getLogger(getClass());
 
     public AbstractProductLine(MQContext context) {
 
         this.context = context;
 
-        this.storage = new MessageStorage();
+        this.storage = new MemoryMessageStorage();
 
-        this.consumerMap = new HashMap<>();
+        this.consumerMap = new ConcurrentHashMap<>();
 
         this.dueTime = context.getMessageDueTime();
     }
 
-    // TODO 处理剩下的message 和 receiver
+    // TODO 处理剩下的 receiver
+    @Override
+    protected void doStop() {
+        CloseUtil.close(storage);
+    }
+
     @Override
-    protected void doStop() {}
+    public void wakeup() {
+        Thread monitor = getMonitor();
+        if (monitor != null) {
+            // 中断阻塞在storage.poll上的线程
+            monitor.interrupt();
+        }
+    }
 
     public MQContext getContext() {
         return context;
@@ -76,6 +103,8 @@ public abstract class AbstractProductLine extends AbstractEventLoop implements M
         attachment.setConsumer(consumer);
 
         consumerQueue.offer(consumer);
+
+        signal();
     }
 
     protected ConsumerQueue getConsumerQueue(String queueName) {
@@ -84,14 +113,12 @@ public abstract class AbstractProductLine extends AbstractEventLoop implements M
 
         if (consumerQueue == null) {
 
-            synchronized (consumerMap) {
+            consumerQueue = createConsumerQueue();
 
-                consumerQueue = consumerMap.get(queueName);
+            ConsumerQueue old = consumerMap.putIfAbsent(queueName, consumerQueue);
 
-                if (consumerQueue == null) {
-                    consumerQueue = createConsumerQueue();
-                    consumerMap.put(queueName, consumerQueue);
-                }
+            if (old != null) {
+                consumerQueue = old;
             }
         }
         return consumerQueue;
@@ -99,10 +126,97 @@ public abstract class AbstractProductLine extends AbstractEventLoop implements M
 
     protected abstract ConsumerQueue createConsumerQueue();
 
+    /**
+     * @return true 如果消息已推送给至少一个consumer
+     */
+    protected abstract boolean dispatch(Message message);
+
+    @Override
+    public void doLoop() {
+
+        MessageStorage storage = this.storage;
+
+        int seen = signals.get();
+
+        Message message = storage.poll(IDLE_TIMEOUT);
+
+        if (message == null) {
+            return;
+        }
+
+        int count = 0;
+
+        int delivered = 0;
+
+        for (;;) {
+
+            if (dispatch(message)) {
+                delivered++;
+            }
+
+            if (++count == batchSize) {
+                break;
+            }
+
+            message = storage.poll(0);
+
+            if (message == null) {
+                break;
+            }
+        }
+
+        if (delivered > 0) {
+            undelivered = 0;
+            return;
+        }
+
+        undelivered += count;
+
+        if (undelivered < storage.size()) {
+            return;
+        }
+
+        undelivered = 0;
+
+        // 剩下的消息都没有consumer，等待新的消息或consumer，超时后再检查一次过期
+        parked = true;
+        if (signals.get() == seen) {
+            LockSupport.parkNanos(this, IDLE_PARK);
+        }
+        parked = false;
+    }
+
+    private void signal() {
+        signals.incrementAndGet();
+        if (parked) {
+            LockSupport.unpark(getMonitor());
+        }
+    }
+
     @Override
     public void offerMessage(Message message) {
 
         storage.offer(message);
+
+        signal();
+    }
+
+    /**
+     * 消息写入存储并持久化之后执行onStored，写入失败时返回false且不会执行onStored
+     */
+    public boolean offerMessage(Message message, Runnable onStored) {
+
+        MessageStorage storage = this.storage;
+
+        if (!storage.offer(message)) {
+            return false;
+        }
+
+        signal();
+
+        storage.flush(onStored);
+
+        return true;
     }
 
     protected void filterUseless(Message message) {
@@ -114,10 +228,30 @@ public abstract class AbstractProductLine extends AbstractEventLoop implements M
             logger.debug(">>>> message invalidate : {}", message);
             return;
         }
-        this.offerMessage(message);
+        storage.redeliver(message);
     }
 
     public void setDueTime(long dueTime) {
         this.dueTime = dueTime;
     }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 需要在startup之前设置
+     */
+    public void setStorage(MessageStorage storage) {
+        CloseUtil.close(this.storage);
+        this.storage = storage;
+    }
+
+    public MessageStorage getStorage() {
+        return storage;
+    }
+
+    public int messageSize() {
+        return storage.size();
+    }
 }
@@ -22,6 +22,10 @@ import com.generallycloud.baseio.codec.protobase.future.ProtobaseFutureImpl;
 import com.generallycloud.baseio.component.SocketSession;
 import com.generallycloud.baseio.container.jms.BytedMessage;
 import com.generallycloud.baseio.container.jms.Message;
+import com.generallycloud.baseio.container.jms.server.storage.StoredMessage;
+import com.generallycloud.baseio.protocol.ChannelFuture;
+import com.generallycloud.baseio.protocol.CompositeChannelFuture;
+import com.generallycloud.baseio.protocol.FileRegionChannelFuture;
 
 public class Consumer {
 
@@ -75,6 +79,23 @@ public class Consumer {
 
             session.flush(f);
 
+        } else if (message instanceof StoredMessage) {
+
+            // binary仍在日志文件中，头部encode后由FileRegionChannelFuture直接写出，
+            // 两者作为一个整体进入写出队列
+            StoredMessage storedMessage = (StoredMessage) message;
+
+            int length = storedMessage.getBinaryLength();
+
+            f.setWriteFileLength(length);
+
+            FileRegionChannelFuture region = new FileRegionChannelFuture(session.getContext(),
+                    storedMessage.getFileChannel(), storedMessage.getBinaryPosition(), length,
+                    false);
+
+            session.flush(
+                    new CompositeChannelFuture(session.getContext(), (ChannelFuture) f, region));
+
         } else if (msgType == Message.TYPE_TEXT_BYTE || msgType == Message.TYPE_MAP_BYTE) {
 
             BytedMessage byteMessage = (BytedMessage) message;
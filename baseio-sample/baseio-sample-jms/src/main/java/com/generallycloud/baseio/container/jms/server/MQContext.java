@@ -15,6 +15,7 @@
  */
 package com.generallycloud.baseio.container.jms.server;
 
+import java.io.File;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -25,19 +26,21 @@ import com.generallycloud.baseio.component.SocketSession;
 import com.generallycloud.baseio.concurrent.ConcurrentSet;
 import com.generallycloud.baseio.container.AbstractPluginContext;
 import com.generallycloud.baseio.container.ApplicationContext;
+import com.generallycloud.baseio.container.ApplicationContextUtil;
 import com.generallycloud.baseio.container.configuration.Configuration;
 import com.generallycloud.baseio.container.jms.MQException;
 import com.generallycloud.baseio.container.jms.Message;
 import com.generallycloud.baseio.container.jms.decode.DefaultMessageDecoder;
 import com.generallycloud.baseio.container.jms.decode.MessageDecoder;
+import com.generallycloud.baseio.container.jms.server.storage.LogMessageStorage;
 import com.generallycloud.baseio.container.service.FutureAcceptorService;
 
 public class MQContext extends AbstractPluginContext implements MessageQueue {
 
     private long                           dueTime;
     private ConcurrentMap<String, Message> messageIds     = new ConcurrentHashMap<>();
-    private P2PProductLine                 p2pProductLine = new P2PProductLine(this);
-    private SubscribeProductLine           subProductLine = new SubscribeProductLine(this);
+    private P2PProductLine[]               p2pProductLines;
+    private SubscribeProductLine[]         subProductLines;
     private ConcurrentSet<String>          receivers      = new ConcurrentSet<>();
     private MessageDecoder                 messageDecoder = new DefaultMessageDecoder();
     private static MQContext               instance;
@@ -61,10 +64,40 @@ public class MQContext extends AbstractPluginContext implements MessageQueue {
 
         long dueTime = config.getLongParameter("due-time");
 
+        // 按queueName分片，每个分片一个线程，拥有独立的存储和consumer
+        int lines = config.getIntegerParameter("product-lines",
+                Runtime.getRuntime().availableProcessors());
+        int batchSize = config.getIntegerParameter("batch-size", 64);
+
+        p2pProductLines = new P2PProductLine[lines];
+        subProductLines = new SubscribeProductLine[lines];
+        for (int i = 0; i < lines; i++) {
+            p2pProductLines[i] = new P2PProductLine(this);
+            subProductLines[i] = new SubscribeProductLine(this);
+            p2pProductLines[i].setBatchSize(batchSize);
+            subProductLines[i].setBatchSize(batchSize);
+        }
+
         setMessageDueTime(dueTime == 0 ? 1000 * 60 * 60 * 24 * 7 : dueTime);
 
-        p2pProductLine.startup("MQ-P2P-ProductLine");
-        subProductLine.startup("MQ-SUB-ProductLine");
+        if ("log".equals(config.getParameter("storage"))) {
+            String path = config.getParameter("storage-path", "mq-storage");
+            int segmentSize = config.getIntegerParameter("segment-size", 1024 * 1024 * 64);
+            long flushInterval = config.getLongParameter("flush-interval", 10);
+            long retention = config.getLongParameter("retention-time", this.dueTime);
+            File root = new File(path);
+            for (int i = 0; i < lines; i++) {
+                p2pProductLines[i].setStorage(new LogMessageStorage(new File(root, "p2p-" + i),
+                        segmentSize, flushInterval, retention));
+                subProductLines[i].setStorage(new LogMessageStorage(new File(root, "sub-" + i),
+                        segmentSize, flushInterval, retention));
+            }
+        }
+
+        for (int i = 0; i < lines; i++) {
+            p2pProductLines[i].startup("MQ-P2P-ProductLine-" + i);
+            subProductLines[i].startup("MQ-SUB-ProductLine-" + i);
+        }
 
         context.addSessionEventListener(new MQSessionEventListener());
 
@@ -73,8 +106,12 @@ public class MQContext extends AbstractPluginContext implements MessageQueue {
 
     @Override
     public void destroy(ApplicationContext context, Configuration config) throws Exception {
-        LifeCycleUtil.stop(p2pProductLine);
-        LifeCycleUtil.stop(subProductLine);
+        if (p2pProductLines != null) {
+            for (int i = 0; i < p2pProductLines.length; i++) {
+                LifeCycleUtil.stop(p2pProductLines[i]);
+                LifeCycleUtil.stop(subProductLines[i]);
+            }
+        }
         instance = null;
         super.destroy(context, config);
     }
@@ -84,7 +121,28 @@ public class MQContext extends AbstractPluginContext implements MessageQueue {
     }
 
     public int messageSize() {
-        return this.p2pProductLine.messageSize();
+        int size = 0;
+        for (P2PProductLine line : p2pProductLines) {
+            size += line.messageSize();
+        }
+        return size;
+    }
+
+    private static int shard(String queueName, int lines) {
+        return (queueName.hashCode() & 0x7fffffff) % lines;
+    }
+
+    private P2PProductLine getP2PProductLine(String queueName) {
+        return p2pProductLines[shard(queueName, p2pProductLines.length)];
+    }
+
+    private SubscribeProductLine getSubProductLine(String queueName) {
+        return subProductLines[shard(queueName, subProductLines.length)];
+    }
+
+    // consumer的queueName为登录用户的uuid
+    private String getQueueName(SocketSession session) {
+        return ApplicationContextUtil.getAuthority(session).getUuid();
     }
 
     @Override
@@ -92,12 +150,30 @@ public class MQContext extends AbstractPluginContext implements MessageQueue {
 
         messageIds.put(message.getMsgId(), message);
 
-        p2pProductLine.offerMessage(message);
+        getP2PProductLine(message.getQueueName()).offerMessage(message);
+    }
+
+    public boolean offerMessage(Message message, Runnable onStored) {
+
+        messageIds.put(message.getMsgId(), message);
+
+        if (getP2PProductLine(message.getQueueName()).offerMessage(message, onStored)) {
+            return true;
+        }
+
+        messageIds.remove(message.getMsgId());
+
+        return false;
     }
 
     public void publishMessage(Message message) {
 
-        subProductLine.offerMessage(message);
+        getSubProductLine(message.getQueueName()).offerMessage(message);
+    }
+
+    public boolean publishMessage(Message message, Runnable onStored) {
+
+        return getSubProductLine(message.getQueueName()).offerMessage(message, onStored);
     }
 
     public void consumerMessage(Message message) {
@@ -112,19 +188,21 @@ public class MQContext extends AbstractPluginContext implements MessageQueue {
     @Override
     public void pollMessage(SocketSession session, ProtobaseFuture future,
             MQSessionAttachment attachment) {
-        p2pProductLine.pollMessage(session, future, attachment);
+        getP2PProductLine(getQueueName(session)).pollMessage(session, future, attachment);
     }
 
     public void subscribeMessage(SocketSession session, ProtobaseFuture future,
             MQSessionAttachment attachment) {
 
-        subProductLine.pollMessage(session, future, attachment);
+        getSubProductLine(getQueueName(session)).pollMessage(session, future, attachment);
     }
 
     public void setMessageDueTime(long dueTime) {
         this.dueTime = dueTime;
-        this.p2pProductLine.setDueTime(dueTime);
-        this.subProductLine.setDueTime(dueTime);
+        for (int i = 0; i < p2pProductLines.length; i++) {
+            p2pProductLines[i].setDueTime(dueTime);
+            subProductLines[i].setDueTime(dueTime);
+        }
     }
 
     public void addReceiver(String queueName) {
@@ -31,12 +31,9 @@ public class MQProducerServlet extends MQServlet {
 
         Message message = context.parse(future);
 
-        context.offerMessage(message);
-
-        future.write("1");
-
-        session.flush(future);
-
+        if (!context.offerMessage(message, newAck(session, future))) {
+            replyFailed(session, future);
+        }
     }
 
 }
@@ -31,10 +31,8 @@ public class MQPublishServlet extends MQServlet {
 
         Message message = context.parse(future);
 
-        context.publishMessage(message);
-
-        future.write("1");
-
-        session.flush(future);
+        if (!context.publishMessage(message, newAck(session, future))) {
+            replyFailed(session, future);
+        }
     }
 }
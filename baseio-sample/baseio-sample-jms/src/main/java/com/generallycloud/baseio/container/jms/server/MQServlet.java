@@ -38,4 +38,26 @@ public abstract class MQServlet extends ProtobaseFutureAcceptorService {
     public abstract void doAccept(SocketSession session, ProtobaseFuture future,
             MQSessionAttachment attachment) throws Exception;
 
+    /**
+     * 消息持久化之后再向producer确认
+     */
+    protected Runnable newAck(final SocketSession session, final ProtobaseFuture future) {
+        return new Runnable() {
+
+            @Override
+            public void run() {
+                future.write("1");
+                session.flush(future);
+            }
+        };
+    }
+
+    /**
+     * 消息没有写入存储（如存储已满），直接向producer返回失败
+     */
+    protected void replyFailed(SocketSession session, ProtobaseFuture future) {
+        future.write("0");
+        session.flush(future);
+    }
+
 }
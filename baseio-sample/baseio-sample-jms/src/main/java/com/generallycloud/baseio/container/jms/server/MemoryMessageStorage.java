@@ -0,0 +1,62 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.container.jms.server;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.generallycloud.baseio.container.jms.Message;
+
+public class MemoryMessageStorage implements MessageStorage {
+
+    private BlockingQueue<Message> messages = new ArrayBlockingQueue<>(1024 * 8 * 10);
+
+    @Override
+    public Message poll(long timeout) {
+        try {
+            return messages.poll(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean offer(Message message) {
+
+        return messages.offer(message);
+    }
+
+    @Override
+    public void redeliver(Message message) {
+        messages.offer(message);
+    }
+
+    // 内存中的消息没有持久化的过程
+    @Override
+    public void flush(Runnable callback) {
+        callback.run();
+    }
+
+    @Override
+    public int size() {
+        return messages.size();
+    }
+
+    @Override
+    public void close() {}
+
+}
@@ -15,32 +15,29 @@
  */
 package com.generallycloud.baseio.container.jms.server;
 
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.io.Closeable;
 
 import com.generallycloud.baseio.container.jms.Message;
 
-public class MessageStorage {
+public interface MessageStorage extends Closeable {
 
-    private BlockingQueue<Message> messages = new ArrayBlockingQueue<>(1024 * 8 * 10);
+    public abstract Message poll(long timeout);
 
-    public Message poll(long timeout) {
-        try {
-            return messages.poll(timeout, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-            return null;
-        }
-    }
+    public abstract boolean offer(Message message);
 
-    //FIXME offer failed
-    public boolean offer(Message message) {
+    /**
+     * 最近一次poll到的消息没有投递成功，需要再次投递
+     */
+    public abstract void redeliver(Message message);
 
-        return messages.offer(message);
-    }
+    /**
+     * 此前offer的消息都已持久化后执行callback
+     */
+    public abstract void flush(Runnable callback);
 
-    public int size() {
-        return messages.size();
-    }
+    public abstract int size();
+
+    @Override
+    public abstract void close();
 
 }
@@ -37,13 +37,7 @@ public class P2PProductLine extends AbstractProductLine {
 
     // FIXME 完善消息匹配机制
     @Override
-    public void doLoop() {
-
-        Message message = storage.poll(16);
-
-        if (message == null) {
-            return;
-        }
+    protected boolean dispatch(Message message) {
 
         String queueName = message.getQueueName();
 
@@ -55,7 +49,7 @@ public class P2PProductLine extends AbstractProductLine {
 
             filterUseless(message);
 
-            return;
+            return false;
         }
 
         for (Consumer consumer : consumers) {
@@ -63,14 +57,12 @@ public class P2PProductLine extends AbstractProductLine {
                 consumer.push(message);
             } catch (IOException e) {
                 logger.error(e.getMessage(), e);
-                this.offerMessage(message);
+                storage.redeliver(message);
             }
         }
 
         context.consumerMessage(message);
-    }
 
-    public int messageSize() {
-        return storage.size();
+        return true;
     }
 }
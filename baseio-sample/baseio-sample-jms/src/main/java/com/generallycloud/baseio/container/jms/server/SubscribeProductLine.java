@@ -38,13 +38,7 @@ public class SubscribeProductLine extends AbstractProductLine {
 
     // FIXME 完善消息匹配机制
     @Override
-    public void doLoop() {
-
-        Message message = storage.poll(16);
-
-        if (message == null) {
-            return;
-        }
+    protected boolean dispatch(Message message) {
 
         String queueName = message.getQueueName();
 
@@ -54,7 +48,7 @@ public class SubscribeProductLine extends AbstractProductLine {
 
         if (consumers.size() == 0) {
 
-            return;
+            return false;
         }
 
         for (Consumer consumer : consumers) {
@@ -66,5 +60,7 @@ public class SubscribeProductLine extends AbstractProductLine {
         }
 
         context.consumerMessage(message);
+
+        return true;
     }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.container.jms.server.storage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import com.generallycloud.baseio.common.CloseUtil;
+
+/**
+ * 消费进度，保存下一条需要投递的消息的offset，
+ * 在该offset之前的消息都已经投递完成
+ */
+public class LogCursor implements Closeable {
+
+    public static final String SUFFIX = ".cursor";
+
+    private String             name;
+    private FileChannel        channel;
+    private ByteBuffer         buffer = ByteBuffer.allocate(8);
+    private volatile long      offset;
+    private long               storedOffset;
+
+    public LogCursor(File dir, String name) throws IOException {
+        this.name = name;
+        this.channel = FileChannel.open(new File(dir, name + SUFFIX).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() >= 8) {
+            channel.read(buffer, 0);
+            buffer.flip();
+            offset = buffer.getLong();
+        }
+        storedOffset = offset;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * 更新内存中的进度，由刷盘线程写入文件
+     */
+    public void commit(long offset) {
+        this.offset = offset;
+    }
+
+    /**
+     * 由刷盘线程调用
+     */
+    public void flush() throws IOException {
+        long offset = this.offset;
+        if (offset == storedOffset) {
+            return;
+        }
+        buffer.clear();
+        buffer.putLong(offset);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, buffer.position());
+        }
+        channel.force(false);
+        storedOffset = offset;
+    }
+
+    @Override
+    public void close() {
+        CloseUtil.close(channel);
+    }
+
+}
@@ -0,0 +1,446 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.container.jms.server.storage;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.generallycloud.baseio.common.CloseUtil;
+import com.generallycloud.baseio.concurrent.AbstractEventLoop;
+import com.generallycloud.baseio.container.jms.Message;
+import com.generallycloud.baseio.container.jms.server.MessageStorage;
+import com.generallycloud.baseio.log.Logger;
+import com.generallycloud.baseio.log.LoggerFactory;
+
+/**
+ * 基于分段日志的持久化存储。
+ * <ul>
+ * <li>消息追加到内存映射的分段文件中，分段写满后滚动到新的分段</li>
+ * <li>刷盘线程每隔flushInterval，或者有写入等待确认时批量force一次，
+ * 之后执行等待持久化的回调</li>
+ * <li>读取进度保存在cursor中，每次poll时提交上一条消息，宕机后从cursor重新投递，
+ * 保证至少一次投递</li>
+ * <li>已经被消费并且超过retention的分段会被删除</li>
+ * </ul>
+ * poll和redeliver只能由同一个线程调用，offer可由任意线程调用
+ */
+public class LogMessageStorage implements MessageStorage {
+
+    public static final int       ZERO_COPY_THRESHOLD      = 1024 * 4;
+    private static final int      INDEX_INTERVAL           = 1024 * 4;
+    private static final long     RETENTION_CHECK_INTERVAL = 1000 * 10;
+    private static final Logger   logger                   = LoggerFactory
+            .getLogger(LogMessageStorage.class);
+
+    private File                  dir;
+    private int                   segmentSize;
+    private long                  flushInterval;
+    private long                  retention;
+    private MessageCodec          codec                    = new MessageCodec(
+            ZERO_COPY_THRESHOLD);
+    private LogCursor             cursor;
+    private LogFlusher            flusher                  = new LogFlusher();
+    private ConcurrentLinkedQueue<FlushRequest> flushRequests = new ConcurrentLinkedQueue<>();
+
+    // 以下字段由写线程在锁内更新
+    private volatile LogSegment[] segments;
+    private LogSegment            active;
+    private volatile long         nextOffset;
+    private boolean               waiting;
+
+    // 以下字段只由读线程访问
+    private LogSegment            readSegment;
+    private ByteBuffer            readBuffer;
+    private int                   readPosition;
+    private long                  readOffset;
+    private long                  inflight                 = -1;
+    // 需要重新投递的消息，排在入队时已写入的消息之后：{offset, 可投递时的readOffset}
+    private ArrayDeque<long[]>    retries                  = new ArrayDeque<>();
+    private TreeSet<Long>         retryOffsets             = new TreeSet<>();
+
+    public LogMessageStorage(File dir, int segmentSize, long flushInterval, long retention)
+            throws IOException {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.flushInterval = flushInterval;
+        this.retention = retention;
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("can not create dir: " + dir);
+        }
+        try {
+            load();
+            this.flusher.startup("MQ-Log-Flusher-" + dir.getName());
+        } catch (IOException e) {
+            close();
+            throw e;
+        } catch (Exception e) {
+            close();
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private void load() throws IOException {
+        File[] files = dir.listFiles(new FilenameFilter() {
+
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(LogSegment.LOG_SUFFIX);
+            }
+        });
+        Arrays.sort(files);
+        List<LogSegment> segments = new ArrayList<>(files.length + 1);
+        this.segments = new LogSegment[0];
+        try {
+            for (File file : files) {
+                String name = file.getName();
+                long baseOffset = Long.parseLong(
+                        name.substring(0, name.length() - LogSegment.LOG_SUFFIX.length()));
+                segments.add(LogSegment.open(dir, baseOffset, segmentSize, INDEX_INTERVAL));
+            }
+            if (segments.isEmpty()) {
+                segments.add(LogSegment.open(dir, 0, segmentSize, INDEX_INTERVAL));
+            }
+        } finally {
+            this.segments = segments.toArray(new LogSegment[segments.size()]);
+        }
+        for (int i = 0; i < segments.size() - 1; i++) {
+            segments.get(i).seal();
+        }
+        this.active = segments.get(segments.size() - 1);
+        this.nextOffset = active.getNextOffset();
+        this.cursor = new LogCursor(dir, "consumer");
+        long offset = cursor.getOffset();
+        offset = Math.max(offset, segments.get(0).getBaseOffset());
+        offset = Math.min(offset, nextOffset);
+        this.readSegment = segmentOf(offset);
+        this.readBuffer = readSegment.duplicate();
+        this.readPosition = offset == readSegment.getNextOffset() ? readSegment.getSize()
+                : readSegment.find(offset);
+        this.readOffset = offset;
+        this.cursor.commit(offset);
+        logger.info("log storage [{}] loaded, segments: {}, offset: [{}, {})",
+                new Object[] { dir, segments.size(), offset, nextOffset });
+    }
+
+    @Override
+    public boolean offer(Message message) {
+        ByteBuffer record = codec.encode(message);
+        try {
+            append(record, message.getTimestamp());
+        } catch (IOException e) {
+            logger.error(e.getMessage(), e);
+            return false;
+        }
+        return true;
+    }
+
+    private synchronized void append(ByteBuffer record, long timestamp) throws IOException {
+        if (!active.hasRemaining(record.limit())) {
+            roll(record.limit());
+        }
+        long offset = nextOffset;
+        active.append(record, offset, timestamp);
+        nextOffset = offset + 1;
+        if (waiting) {
+            notify();
+        }
+    }
+
+    private void roll(int length) throws IOException {
+        LogSegment segment = LogSegment.open(dir, nextOffset, Math.max(segmentSize, length),
+                INDEX_INTERVAL);
+        LogSegment[] segments = this.segments;
+        LogSegment[] newSegments = Arrays.copyOf(segments, segments.length + 1);
+        newSegments[segments.length] = segment;
+        this.segments = newSegments;
+        this.active.seal();
+        this.active = segment;
+    }
+
+    @Override
+    public Message poll(long timeout) {
+        // 上一条消息已经推送或重新入队，提交进度
+        inflight = -1;
+        commit();
+        Message message = read();
+        if (message != null) {
+            return message;
+        }
+        if (timeout <= 0) {
+            return null;
+        }
+        synchronized (this) {
+            if (readOffset >= nextOffset) {
+                waiting = true;
+                try {
+                    wait(timeout);
+                } catch (InterruptedException e) {
+                    return null;
+                } finally {
+                    waiting = false;
+                }
+            }
+        }
+        return read();
+    }
+
+    private void commit() {
+        long offset = readOffset;
+        if (!retryOffsets.isEmpty()) {
+            offset = Math.min(offset, retryOffsets.first());
+        }
+        cursor.commit(offset);
+    }
+
+    private Message read() {
+        long[] retry = retries.peekFirst();
+        if (retry != null && retry[1] <= readOffset) {
+            retries.pollFirst();
+            retryOffsets.remove(retry[0]);
+            return readRetry(retry[0]);
+        }
+        LogSegment segment = readSegment;
+        for (;;) {
+            // 先读sealed，确保看到封存前最后一次追加
+            boolean sealed = segment.isSealed();
+            if (readOffset < segment.getNextOffset()) {
+                break;
+            }
+            if (!sealed) {
+                return null;
+            }
+            segment = nextSegment(segment);
+            if (segment == null) {
+                return null;
+            }
+            readSegment = segment;
+            readBuffer = segment.duplicate();
+            readPosition = 0;
+        }
+        long offset = readOffset;
+        int position = readPosition;
+        readPosition += 4 + readBuffer.getInt(position);
+        readOffset++;
+        return decode(segment, readBuffer, position, offset);
+    }
+
+    private Message readRetry(long offset) {
+        LogSegment segment = segmentOf(offset);
+        if (segment == null) {
+            return null;
+        }
+        int position = segment.find(offset);
+        if (position == -1) {
+            return null;
+        }
+        return decode(segment, segment.duplicate(), position, offset);
+    }
+
+    private Message decode(LogSegment segment, ByteBuffer buffer, int position, long offset) {
+        try {
+            Message message = codec.decode(buffer, position, segment.getChannel(), 0);
+            inflight = offset;
+            return message;
+        } catch (RuntimeException e) {
+            logger.error("skip bad message at offset: " + offset + ", " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private LogSegment nextSegment(LogSegment segment) {
+        for (LogSegment s : segments) {
+            if (s.getBaseOffset() > segment.getBaseOffset()) {
+                return s;
+            }
+        }
+        return null;
+    }
+
+    private LogSegment segmentOf(long offset) {
+        LogSegment[] segments = this.segments;
+        for (int i = segments.length - 1; i >= 0; i--) {
+            if (segments[i].getBaseOffset() <= offset) {
+                return segments[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 最近一次poll到的消息重新入队，不再重复写入日志，重新投递前进度不会越过该消息
+     */
+    @Override
+    public void redeliver(Message message) {
+        long offset = inflight;
+        if (offset == -1) {
+            return;
+        }
+        inflight = -1;
+        retries.offerLast(new long[] { offset, nextOffset });
+        retryOffsets.add(offset);
+    }
+
+    @Override
+    public void flush(Runnable callback) {
+        flushRequests.offer(new FlushRequest(nextOffset, callback));
+        flusher.wakeup();
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, nextOffset - cursor.getOffset());
+    }
+
+    public long getNextOffset() {
+        return nextOffset;
+    }
+
+    public long getCommittedOffset() {
+        return cursor.getOffset();
+    }
+
+    @Override
+    public void close() {
+        flusher.stop();
+        synchronized (this) {
+            if (segments != null) {
+                for (LogSegment segment : segments) {
+                    segment.close();
+                }
+            }
+        }
+        CloseUtil.close(cursor);
+    }
+
+    class FlushRequest {
+
+        long     offset;
+        Runnable callback;
+
+        FlushRequest(long offset, Runnable callback) {
+            this.offset = offset;
+            this.callback = callback;
+        }
+    }
+
+    /**
+     * 合并刷盘并执行回调，同时定期删除过期的分段
+     */
+    class LogFlusher extends AbstractEventLoop {
+
+        private long             lastRetention = System.currentTimeMillis();
+        // 上一轮删除的分段，可能仍有读取或零拷贝发送在进行，下一轮再关闭
+        private List<LogSegment> deleted       = new ArrayList<>();
+
+        @Override
+        protected void doLoop() throws Exception {
+            // 有等待确认的写入时立即刷盘，刷盘期间到达的写入合并到下一次
+            synchronized (this) {
+                if (flushRequests.isEmpty()) {
+                    wait(flushInterval);
+                }
+            }
+            flush();
+            long now = System.currentTimeMillis();
+            if (now - lastRetention >= RETENTION_CHECK_INTERVAL) {
+                lastRetention = now;
+                retain(now);
+            }
+        }
+
+        private void flush() {
+            long offset = nextOffset;
+            try {
+                for (LogSegment segment : segments) {
+                    if (!segment.isFlushed()) {
+                        segment.flush();
+                    }
+                }
+                cursor.flush();
+            } catch (Exception e) {
+                logger.error(e.getMessage(), e);
+                return;
+            }
+            for (;;) {
+                FlushRequest request = flushRequests.peek();
+                if (request == null || request.offset > offset) {
+                    break;
+                }
+                flushRequests.poll();
+                try {
+                    request.callback.run();
+                } catch (Throwable e) {
+                    logger.error(e.getMessage(), e);
+                }
+            }
+        }
+
+        private void retain(long now) {
+            for (LogSegment segment : deleted) {
+                segment.close();
+            }
+            deleted.clear();
+            long committed = cursor.getOffset();
+            LogSegment[] segments = LogMessageStorage.this.segments;
+            int count = 0;
+            for (LogSegment segment : segments) {
+                if (!segment.isSealed() || segment.getNextOffset() > committed
+                        || now - segment.getLastTimestamp() < retention) {
+                    break;
+                }
+                count++;
+            }
+            if (count == 0) {
+                return;
+            }
+            synchronized (LogMessageStorage.this) {
+                LogSegment[] current = LogMessageStorage.this.segments;
+                LogMessageStorage.this.segments = Arrays.copyOfRange(current, count,
+                        current.length);
+            }
+            for (int i = 0; i < count; i++) {
+                segments[i].delete();
+                deleted.add(segments[i]);
+                logger.info("log segment deleted: {}", segments[i]);
+            }
+        }
+
+        @Override
+        public void wakeup() {
+            synchronized (this) {
+                notify();
+            }
+        }
+
+        @Override
+        protected void doStop() {
+            flush();
+            for (LogSegment segment : deleted) {
+                segment.close();
+            }
+            deleted.clear();
+        }
+    }
+
+}
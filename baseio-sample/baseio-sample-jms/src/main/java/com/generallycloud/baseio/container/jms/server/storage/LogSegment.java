@@ -0,0 +1,297 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.container.jms.server.storage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import com.generallycloud.baseio.common.ByteBufferUtil;
+import com.generallycloud.baseio.common.CloseUtil;
+
+/**
+ * 一个预分配大小的日志分段，文件名为分段中第一条消息的offset。
+ *
+ * <pre>
+ * 记录格式：
+ * [length:4][crc:4][offset:8][timestamp:8][body]
+ * length为length之后的字节数，crc从timestamp开始计算
+ *
+ * 稀疏索引：每写入indexInterval字节记录一个(相对offset:4, position:4)
+ * </pre>
+ */
+public class LogSegment implements Closeable {
+
+    public static final String LOG_SUFFIX    = ".log";
+    public static final String INDEX_SUFFIX  = ".idx";
+    public static final int    RECORD_HEADER = 4 + 4 + 8 + 8;
+
+    private long               baseOffset;
+    private File               file;
+    private File               indexFile;
+    private FileChannel        channel;
+    private FileChannel        indexChannel;
+    private MappedByteBuffer   buffer;
+    private MappedByteBuffer   index;
+    private int                capacity;
+    private int                indexInterval;
+    private int                indexSize;
+    private int                lastIndexPosition;
+    private int                flushedSize;
+    // 以下字段由写线程更新，读线程只读取size以内的数据
+    private volatile int       size;
+    private volatile long      nextOffset;
+    private volatile long      lastTimestamp;
+    private volatile boolean   sealed;
+
+    private LogSegment(File dir, long baseOffset, int capacity, int indexInterval) {
+        String name = String.format("%020d", baseOffset);
+        this.baseOffset = baseOffset;
+        this.capacity = capacity;
+        this.indexInterval = indexInterval;
+        this.nextOffset = baseOffset;
+        this.file = new File(dir, name + LOG_SUFFIX);
+        this.indexFile = new File(dir, name + INDEX_SUFFIX);
+    }
+
+    /**
+     * 打开或创建分段，已存在的分段从最后一个索引项开始扫描，找到最后一条完整的记录
+     */
+    public static LogSegment open(File dir, long baseOffset, int capacity, int indexInterval)
+            throws IOException {
+        LogSegment segment = new LogSegment(dir, baseOffset, capacity, indexInterval);
+        try {
+            segment.map();
+            segment.recover();
+        } catch (IOException e) {
+            segment.close();
+            throw e;
+        }
+        return segment;
+    }
+
+    private void map() throws IOException {
+        boolean exists = file.exists();
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (exists) {
+            // 已存在的分段以实际大小为准，避免配置修改后越界
+            capacity = (int) Math.max(channel.size(), RECORD_HEADER);
+        }
+        buffer = channel.map(MapMode.READ_WRITE, 0, capacity);
+        indexChannel = FileChannel.open(indexFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index = indexChannel.map(MapMode.READ_WRITE, 0, (capacity / indexInterval + 1) * 8);
+    }
+
+    private void recover() {
+        int entries = index.capacity() / 8;
+        while (indexSize < entries && index.getInt(indexSize * 8 + 4) > 0) {
+            indexSize++;
+        }
+        int position = 0;
+        long offset = baseOffset;
+        // 宕机时索引项可能指向未写完整的记录，从后向前找到第一个有效的索引项
+        for (; indexSize > 0; indexSize--) {
+            int entryOffset = index.getInt((indexSize - 1) * 8);
+            int entryPosition = index.getInt((indexSize - 1) * 8 + 4);
+            if (entryPosition + RECORD_HEADER <= capacity
+                    && buffer.getLong(entryPosition + 8) == baseOffset + entryOffset) {
+                position = entryPosition;
+                offset = baseOffset + entryOffset;
+                break;
+            }
+        }
+        lastIndexPosition = position;
+        CRC32 crc32 = new CRC32();
+        byte[] temp = new byte[256];
+        for (;;) {
+            if (position + RECORD_HEADER > capacity) {
+                break;
+            }
+            int length = buffer.getInt(position);
+            if (length < RECORD_HEADER - 4 || position + 4 + length > capacity) {
+                break;
+            }
+            if (temp.length < length - 12) {
+                temp = new byte[length - 12];
+            }
+            ByteBuffer record = buffer.duplicate();
+            record.position(position + 16);
+            record.get(temp, 0, length - 12);
+            crc32.reset();
+            crc32.update(temp, 0, length - 12);
+            if ((int) crc32.getValue() != buffer.getInt(position + 4)
+                    || buffer.getLong(position + 8) != offset) {
+                break;
+            }
+            lastTimestamp = buffer.getLong(position + 16);
+            offset++;
+            position += 4 + length;
+        }
+        this.size = position;
+        this.flushedSize = position;
+        this.nextOffset = offset;
+    }
+
+    /**
+     * 计算记录的crc，offset在写入时才确定，不参与crc计算
+     */
+    public static void checksum(ByteBuffer record) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(record.array(), 16, record.limit() - 16);
+        record.putInt(4, (int) crc32.getValue());
+    }
+
+    public boolean hasRemaining(int length) {
+        return !sealed && size + length <= capacity;
+    }
+
+    /**
+     * 追加一条已经编码的记录，调用方保证单线程写入且空间足够
+     */
+    public void append(ByteBuffer record, long offset, long timestamp) {
+        int position = size;
+        record.putLong(8, offset);
+        ByteBuffer buffer = this.buffer.duplicate();
+        buffer.position(position);
+        buffer.put(record.array(), 0, record.limit());
+        if (position - lastIndexPosition >= indexInterval && position > 0) {
+            index.putInt(indexSize * 8, (int) (offset - baseOffset));
+            index.putInt(indexSize * 8 + 4, position);
+            indexSize++;
+            lastIndexPosition = position;
+        }
+        this.lastTimestamp = timestamp;
+        this.nextOffset = offset + 1;
+        this.size = position + record.limit();
+    }
+
+    /**
+     * @return offset所在记录的位置，不在该分段时返回-1
+     */
+    public int find(long offset) {
+        if (offset < baseOffset || offset >= nextOffset) {
+            return -1;
+        }
+        int relative = (int) (offset - baseOffset);
+        int low = 0;
+        int high = indexSize - 1;
+        int position = 0;
+        long current = baseOffset;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midOffset = index.getInt(mid * 8);
+            if (midOffset <= relative) {
+                position = index.getInt(mid * 8 + 4);
+                current = baseOffset + midOffset;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        for (; current < offset; current++) {
+            position += 4 + buffer.getInt(position);
+        }
+        return position;
+    }
+
+    /**
+     * 由刷盘线程调用
+     */
+    public void flush() {
+        int size = this.size;
+        if (flushedSize == size) {
+            return;
+        }
+        buffer.force();
+        index.force();
+        flushedSize = size;
+    }
+
+    public boolean isFlushed() {
+        return flushedSize == size;
+    }
+
+    public void seal() {
+        this.sealed = true;
+    }
+
+    public boolean isSealed() {
+        return sealed;
+    }
+
+    /**
+     * 供读线程使用的视图
+     */
+    public ByteBuffer duplicate() {
+        return buffer.duplicate();
+    }
+
+    public long getBaseOffset() {
+        return baseOffset;
+    }
+
+    public long getNextOffset() {
+        return nextOffset;
+    }
+
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public FileChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * 删除文件，已打开的channel和映射仍然可用，直到close
+     */
+    public void delete() {
+        file.delete();
+        indexFile.delete();
+    }
+
+    @Override
+    public void close() {
+        if (buffer != null) {
+            ByteBufferUtil.release(buffer);
+            buffer = null;
+        }
+        if (index != null) {
+            ByteBufferUtil.release(index);
+            index = null;
+        }
+        CloseUtil.close(channel);
+        CloseUtil.close(indexChannel);
+    }
+
+    @Override
+    public String toString() {
+        return file.getName();
+    }
+
+}
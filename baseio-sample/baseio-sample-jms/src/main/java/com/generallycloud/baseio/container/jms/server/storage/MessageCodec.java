@@ -0,0 +1,180 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.container.jms.server.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.generallycloud.baseio.common.Encoding;
+import com.generallycloud.baseio.container.jms.BasicMessage;
+import com.generallycloud.baseio.container.jms.BytedMessage;
+import com.generallycloud.baseio.container.jms.MapByteMessage;
+import com.generallycloud.baseio.container.jms.MapMessage;
+import com.generallycloud.baseio.container.jms.Message;
+import com.generallycloud.baseio.container.jms.TextByteMessage;
+import com.generallycloud.baseio.container.jms.TextMessage;
+
+/**
+ * 消息在日志中的编码：
+ *
+ * <pre>
+ * [msgType:1][msgId:2+n][queueName:2+n][text:4+n][binary:4+n]
+ * map类型的text为map的json
+ * </pre>
+ *
+ * binary放在最后，超过zeroCopyThreshold的binary解码时不读入内存，
+ * 推送给consumer时直接从分段文件写出
+ */
+public class MessageCodec {
+
+    private static final Charset UTF8 = Encoding.UTF8;
+
+    private int                  zeroCopyThreshold;
+
+    public MessageCodec(int zeroCopyThreshold) {
+        this.zeroCopyThreshold = zeroCopyThreshold;
+    }
+
+    /**
+     * @return 包含记录头部的完整记录，crc已计算，offset在追加时写入
+     */
+    public ByteBuffer encode(Message message) {
+        int msgType = message.getMsgType();
+        String text;
+        byte[] binary = null;
+        switch (msgType) {
+            case Message.TYPE_TEXT:
+                text = ((TextMessage) message).getReadText();
+                break;
+            case Message.TYPE_TEXT_BYTE:
+                text = ((TextMessage) message).getReadText();
+                binary = ((BytedMessage) message).getByteArray();
+                break;
+            case Message.TYPE_MAP:
+                text = ((MapMessage) message).getMap().toJSONString();
+                break;
+            case Message.TYPE_MAP_BYTE:
+                text = ((MapMessage) message).getMap().toJSONString();
+                binary = ((BytedMessage) message).getByteArray();
+                break;
+            default:
+                throw new IllegalArgumentException("unsupported message type: " + msgType);
+        }
+        byte[] msgId = message.getMsgId().getBytes(UTF8);
+        byte[] queueName = message.getQueueName().getBytes(UTF8);
+        byte[] textArray = text == null ? null : text.getBytes(UTF8);
+        int length = LogSegment.RECORD_HEADER + 1 + 2 + msgId.length + 2 + queueName.length + 4
+                + (textArray == null ? 0 : textArray.length) + 4
+                + (binary == null ? 0 : binary.length);
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.putInt(length - 4);
+        record.putInt(0);
+        record.putLong(0);
+        record.putLong(message.getTimestamp());
+        record.put((byte) msgType);
+        record.putShort((short) msgId.length);
+        record.put(msgId);
+        record.putShort((short) queueName.length);
+        record.put(queueName);
+        putBytes(record, textArray);
+        putBytes(record, binary);
+        record.flip();
+        LogSegment.checksum(record);
+        return record;
+    }
+
+    // null以-1表示
+    private void putBytes(ByteBuffer record, byte[] array) {
+        if (array == null) {
+            record.putInt(-1);
+            return;
+        }
+        record.putInt(array.length);
+        record.put(array);
+    }
+
+    /**
+     * 解码buffer中position处的记录
+     *
+     * @param channel 记录所在分段的文件，用于零拷贝的binary
+     * @param fileOffset buffer中的位置对应的文件位置
+     */
+    public Message decode(ByteBuffer buffer, int position, FileChannel channel, long fileOffset) {
+        ByteBuffer record = buffer.duplicate();
+        int end = position + 4 + record.getInt(position);
+        record.position(position + 16);
+        record.limit(end);
+        long timestamp = record.getLong();
+        int msgType = record.get();
+        String msgId = getString(record, record.getShort() & 0xffff);
+        String queueName = getString(record, record.getShort() & 0xffff);
+        String text = getString(record, record.getInt());
+        int binaryLength = record.getInt();
+        BasicMessage message;
+        if (binaryLength >= zeroCopyThreshold) {
+            long binaryPosition = fileOffset + record.position();
+            if (msgType == Message.TYPE_TEXT_BYTE) {
+                message = new StoredTextByteMessage(msgId, queueName, text, channel,
+                        binaryPosition, binaryLength);
+            } else {
+                message = new StoredMapByteMessage(msgId, queueName, parseMap(text), channel,
+                        binaryPosition, binaryLength);
+            }
+        } else {
+            byte[] binary = null;
+            if (binaryLength >= 0) {
+                binary = new byte[binaryLength];
+                record.get(binary);
+            }
+            switch (msgType) {
+                case Message.TYPE_TEXT:
+                    message = new TextMessage(msgId, queueName, text);
+                    break;
+                case Message.TYPE_TEXT_BYTE:
+                    message = new TextByteMessage(msgId, queueName, text, binary);
+                    break;
+                case Message.TYPE_MAP:
+                    message = new MapMessage(msgId, queueName, parseMap(text));
+                    break;
+                default:
+                    message = new MapByteMessage(msgId, queueName, parseMap(text), binary);
+                    break;
+            }
+        }
+        message.setTimestamp(timestamp);
+        return message;
+    }
+
+    private JSONObject parseMap(String text) {
+        if (text == null) {
+            return new JSONObject();
+        }
+        return JSON.parseObject(text);
+    }
+
+    private String getString(ByteBuffer record, int length) {
+        if (length < 0) {
+            return null;
+        }
+        byte[] array = new byte[length];
+        record.get(array);
+        return new String(array, UTF8);
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.container.jms.server.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.alibaba.fastjson.JSONObject;
+import com.generallycloud.baseio.container.jms.MapByteMessage;
+
+public class StoredMapByteMessage extends MapByteMessage implements StoredMessage {
+
+    private FileChannel channel;
+    private long        position;
+    private int         length;
+    private byte[]      array;
+
+    public StoredMapByteMessage(String messageId, String queueName, JSONObject map,
+            FileChannel channel, long position, int length) {
+        super(messageId, queueName, map, null);
+        this.channel = channel;
+        this.position = position;
+        this.length = length;
+    }
+
+    /**
+     * 需要二进制内容时才从文件中读出
+     */
+    @Override
+    public byte[] getByteArray() {
+        if (array == null) {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            try {
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) == -1) {
+                        throw new IOException("unexpected end of segment");
+                    }
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+            array = buffer.array();
+        }
+        return array;
+    }
+
+    @Override
+    public FileChannel getFileChannel() {
+        return channel;
+    }
+
+    @Override
+    public long getBinaryPosition() {
+        return position;
+    }
+
+    @Override
+    public int getBinaryLength() {
+        return length;
+    }
+
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.container.jms.server.storage;
+
+import java.nio.channels.FileChannel;
+
+import com.generallycloud.baseio.container.jms.BytedMessage;
+
+/**
+ * 二进制内容仍在日志分段中的消息，推送给consumer时直接从文件写出
+ */
+public interface StoredMessage extends BytedMessage {
+
+    public abstract FileChannel getFileChannel();
+
+    public abstract long getBinaryPosition();
+
+    public abstract int getBinaryLength();
+
+}
@@ -58,6 +58,9 @@ public class RTPClient {
     private String                   roomId;
     private FixedSession             session;
     private RTPHandle                handle;
+    // 最近发送的packet，用于响应服务端的NACK重传
+    private DatagramPacket[]         history       = new DatagramPacket[256];
+    private int                      historyIndex;
 
     public RTPClient(FixedSession session, DatagramChannelConnector connector) {
         this(session, connector, new FixedMessageConsumer(session),
@@ -230,6 +233,10 @@ public class RTPClient {
             throw new RTPException("none roomId,create room first");
         }
 
+        synchronized (history) {
+            history[historyIndex++ & (history.length - 1)] = packet;
+        }
+
         try {
             connector.sendDatagramPacket(packet);
         } catch (IOException e) {
@@ -237,6 +244,31 @@ public class RTPClient {
         }
     }
 
+    /**
+     * 重传timestamp内sequenceNo在[from, to)之间且仍在发送历史中的packet
+     */
+    public void retransmit(long timestamp, int from, int to) throws IOException {
+
+        for (int i = 0; i < history.length; i++) {
+
+            DatagramPacket packet;
+
+            synchronized (history) {
+                packet = history[i];
+            }
+
+            if (packet == null || packet.getTimestamp() != timestamp) {
+                continue;
+            }
+
+            int sequenceNo = packet.getSequenceNo();
+
+            if (sequenceNo >= from && sequenceNo < to) {
+                connector.sendDatagramPacket(packet);
+            }
+        }
+    }
+
     public void setRoomId(String roomId) {
         this.roomId = roomId;
     }
@@ -19,10 +19,13 @@ import java.io.IOException;
 
 import com.generallycloud.baseio.component.DatagramPacketAcceptor;
 import com.generallycloud.baseio.component.DatagramSession;
+import com.generallycloud.baseio.component.Parameters;
+import com.generallycloud.baseio.container.rtp.server.RTPStream;
 import com.generallycloud.baseio.log.Logger;
 import com.generallycloud.baseio.log.LoggerFactory;
 import com.generallycloud.baseio.protocol.DatagramPacket;
 import com.generallycloud.baseio.protocol.DatagramPacketGroup;
+import com.generallycloud.baseio.protocol.DatagramRequest;
 
 public class RTPClientDPAcceptor implements DatagramPacketAcceptor {
 
@@ -53,6 +56,21 @@ public class RTPClientDPAcceptor implements DatagramPacketAcceptor {
     @Override
     public void accept(DatagramSession session, DatagramPacket packet) throws IOException {
 
+        if (packet.getType() == DatagramPacket.TYPE_ACTION) {
+
+            DatagramRequest request = new DatagramRequest(packet.getDataString());
+
+            if (RTPStream.NACK.equals(request.getFutureName())) {
+
+                Parameters parameters = request.getParameters();
+
+                rtpClient.retransmit(parameters.getLongParameter("timestamp"),
+                        parameters.getIntegerParameter("from"),
+                        parameters.getIntegerParameter("to"));
+            }
+            return;
+        }
+
         long timestamp = packet.getTimestamp();
 
         // logger.debug("timestamp:{},lastMark:{}", timestamp, lastMark);
@@ -15,56 +15,63 @@
  */
 package com.generallycloud.baseio.container.rtp.server;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.generallycloud.baseio.component.DatagramSession;
 import com.generallycloud.baseio.component.Session;
 import com.generallycloud.baseio.concurrent.FixedAtomicInteger;
-import com.generallycloud.baseio.concurrent.ReentrantList;
 import com.generallycloud.baseio.container.rtp.RTPContext;
-import com.generallycloud.baseio.log.Logger;
-import com.generallycloud.baseio.log.LoggerFactory;
 import com.generallycloud.baseio.protocol.DatagramPacket;
 
 //FIXME 是不是要限制最多room数
+/**
+ * 每个成员的packet先经过各自的RTPStream重新排序，再由接收该packet的selector
+ * 线程写给房间内的其他成员。成员列表为copy-on-write数组，转发时不加锁
+ */
 public class RTPRoom {
 
-    private static final FixedAtomicInteger ROOM_Id             = new FixedAtomicInteger();
-    private static final Logger             logger              = LoggerFactory
-            .getLogger(RTPRoom.class);
+    private static final FixedAtomicInteger     ROOM_Id          = new FixedAtomicInteger();
+    private static final DatagramSession[]      EMPTY_MEMBERS    = new DatagramSession[0];
 
-    private RTPContext                      context;
-    private ReentrantList<DatagramSession>  datagramChannelList = new ReentrantList<>(
-            new ArrayList<DatagramSession>());
-    private RTPRoomFactory                  roomFactory;
-    private int                             roomId;
-    private boolean                         closed              = false;
+    private RTPContext                          context;
+    private volatile DatagramSession[]          members          = EMPTY_MEMBERS;
+    private Map<DatagramSession, RTPStream>     streams          = new ConcurrentHashMap<>();
+    private RTPRoomFactory                      roomFactory;
+    private int                                 roomId;
+    private boolean                             closed           = false;
+    // 每个发送端最多缓存的乱序packet数
+    private int                                 jitterBufferSize = 64;
+    // 等待缺失的packet的最长时间（毫秒）
+    private long                                maxJitterDelay   = 50;
 
     public RTPRoom(RTPContext context, Session session) {
-        this.roomId = genRoomId();
-        this.roomFactory = context.getRTPRoomFactory();
+        this(context.getRTPRoomFactory());
         this.context = context;
         //		this.join(session.getDatagramChannel()); //FIXME udp 
     }
 
+    public RTPRoom(RTPRoomFactory roomFactory) {
+        this.roomId = genRoomId();
+        this.roomFactory = roomFactory;
+    }
+
     public void broadcast(DatagramSession session, DatagramPacket packet) {
 
-        List<DatagramSession> datagramChannels = datagramChannelList.takeSnapshot();
+        RTPStream stream = streams.get(session);
 
-        for (DatagramSession ch : datagramChannels) {
+        if (stream == null) {
+            return;
+        }
 
-            if (session == ch) {
-                continue;
-            }
+        int count = stream.offer(packet, System.currentTimeMillis());
 
-            try {
-                ch.sendPacket(packet);
-            } catch (Throwable e) {
-                logger.debug(e);
-            }
+        if (count == 0) {
+            return;
         }
+
+        stream.fanOut(members, count);
     }
 
     private int genRoomId() {
@@ -75,31 +82,19 @@ public class RTPRoom {
         return roomId;
     }
 
-    public boolean join(DatagramSession session) {
+    public synchronized boolean join(DatagramSession session) {
 
-        if (session == null) {
+        if (session == null || closed || streams.containsKey(session)) {
             return false;
         }
 
-        ReentrantLock lock = datagramChannelList.getReentrantLock();
+        streams.put(session, new RTPStream(session, jitterBufferSize, maxJitterDelay));
 
-        lock.lock();
+        DatagramSession[] members = Arrays.copyOf(this.members, this.members.length + 1);
 
-        if (closed) {
-
-            lock.unlock();
-
-            return false;
-        }
-
-        if (!datagramChannelList.add(session)) {
-
-            lock.unlock();
-
-            return false;
-        }
+        members[members.length - 1] = session;
 
-        lock.unlock();
+        this.members = members;
 
         //		Session session = (Session) session.getSession();
 
@@ -111,46 +106,81 @@ public class RTPRoom {
         return true;
     }
 
-    public void leave(DatagramSession channel) {
+    public synchronized void leave(DatagramSession channel) {
 
-        ReentrantLock lock = datagramChannelList.getReentrantLock();
-
-        lock.lock();
-
-        datagramChannelList.remove(channel);
+        if (streams.remove(channel) == null) {
+            return;
+        }
 
-        List<DatagramSession> chs = datagramChannelList.takeSnapshot();
+        DatagramSession[] members = this.members;
 
-        for (DatagramSession ch : chs) {
+        DatagramSession[] newMembers = new DatagramSession[members.length - 1];
 
-            if (ch == channel) {
-                continue;
+        for (int i = 0, j = 0; i < members.length; i++) {
+            if (members[i] != channel) {
+                newMembers[j++] = members[i];
             }
-
-            //FIXME RTP
-            //			SocketSession session = (SocketSession) ch.getSession();
-
-            //			Authority authority = ApplicationContextUtil.getAuthority(session);
-            //
-            //			MapMessage message = new MapMessage("mmm", authority.getUuid());
-            //
-            //			message.setEventName("break");
-            //
-            //			message.put("userId", authority.getUserId());
-            //
-            //			MQContext mqContext = MQContext.getInstance();
-            //
-            //			mqContext.offerMessage(message);
         }
 
-        if (datagramChannelList.size() == 0) {
+        this.members = newMembers;
+
+        //FIXME RTP 通知其他成员
+        //		for (DatagramSession ch : newMembers) {
+        //			SocketSession session = (SocketSession) ch.getSession();
+        //
+        //			Authority authority = ApplicationContextUtil.getAuthority(session);
+        //
+        //			MapMessage message = new MapMessage("mmm", authority.getUuid());
+        //
+        //			message.setEventName("break");
+        //
+        //			message.put("userId", authority.getUserId());
+        //
+        //			MQContext mqContext = MQContext.getInstance();
+        //
+        //			mqContext.offerMessage(message);
+        //		}
+
+        if (newMembers.length == 0) {
 
             this.closed = true;
 
             roomFactory.removeRTPRoom(roomId);
         }
+    }
+
+    public DatagramSession[] getMembers() {
+        return members;
+    }
+
+    public RTPStream getStream(DatagramSession session) {
+        return streams.get(session);
+    }
+
+    public RTPContext getContext() {
+        return context;
+    }
+
+    public int getJitterBufferSize() {
+        return jitterBufferSize;
+    }
+
+    /**
+     * 仅对之后加入的成员生效
+     */
+    public void setJitterBufferSize(int jitterBufferSize) {
+        this.jitterBufferSize = jitterBufferSize;
+    }
+
+    public long getMaxJitterDelay() {
+        return maxJitterDelay;
+    }
 
-        lock.unlock();
+    /**
+     * 仅对之后加入的成员生效
+     */
+    public void setMaxJitterDelay(long maxJitterDelay) {
+        this.maxJitterDelay = maxJitterDelay;
     }
 
 }
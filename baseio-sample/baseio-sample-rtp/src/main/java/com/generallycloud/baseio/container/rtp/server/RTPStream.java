@@ -0,0 +1,280 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.baseio.container.rtp.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.alibaba.fastjson.JSONObject;
+import com.generallycloud.baseio.component.DatagramSession;
+import com.generallycloud.baseio.log.Logger;
+import com.generallycloud.baseio.log.LoggerFactory;
+import com.generallycloud.baseio.protocol.DatagramPacket;
+
+/**
+ * 单个发送端的接收状态，按(timestamp, sequenceNo)对packet重新排序（sequenceNo
+ * 在每个timestamp内从0开始），发现缺失的packet时向发送端发送NACK，
+ * 缓冲区已满或等待超过maxDelay时放弃缺失的packet。
+ * <br>
+ * 同一个发送端的packet总是由同一个selector线程接收，因此不需要同步
+ */
+public class RTPStream {
+
+    public static final String  NACK     = "RTP_NACK";
+
+    private static final int    SEQ_BITS = 20;
+    private static final long   SEQ_MASK = (1 << SEQ_BITS) - 1;
+    private static final Logger logger   = LoggerFactory.getLogger(RTPStream.class);
+
+    private DatagramSession    session;
+    private int                capacity;
+    private long               maxDelay;
+    // 乱序到达的packet，按key升序排列
+    private DatagramPacket[]   packets;
+    private long[]             keys;
+    private long[]             arrivals;
+    private int                size;
+    // 下一个应当转发的packet的key，-1表示还未收到packet
+    private long               expected = -1;
+    // 已经检查过缺失的最大key，避免重复NACK
+    private long               nacked   = -1;
+    // 按顺序可转发的packet及其编码后的buffer，由RTPRoom复用
+    private DatagramPacket[]   output;
+    private ByteBuffer[]       buffers;
+    private int[]              positions;
+
+    private long               received;
+    private long               reordered;
+    private long               late;
+    private long               lost;
+    private long               nacks;
+    private long               forwarded;
+    private long               dropped;
+
+    public RTPStream(DatagramSession session, int capacity, long maxDelay) {
+        this.session = session;
+        this.capacity = capacity;
+        this.maxDelay = maxDelay;
+        this.packets = new DatagramPacket[capacity + 1];
+        this.keys = new long[capacity + 1];
+        this.arrivals = new long[capacity + 1];
+        this.output = new DatagramPacket[capacity + 1];
+        this.buffers = new ByteBuffer[capacity + 1];
+        this.positions = new int[capacity + 1];
+    }
+
+    private static long key(DatagramPacket packet) {
+        return (packet.getTimestamp() << SEQ_BITS) | (packet.getSequenceNo() & SEQ_MASK);
+    }
+
+    private static long timestamp(long key) {
+        return key >>> SEQ_BITS;
+    }
+
+    private static int sequenceNo(long key) {
+        return (int) (key & SEQ_MASK);
+    }
+
+    // 新的timestamp从sequenceNo 0开始，上一个timestamp末尾的丢包无法感知
+    private boolean isNext(long key) {
+        return key == expected
+                || (sequenceNo(key) == 0 && timestamp(key) > timestamp(expected));
+    }
+
+    /**
+     * 接收一个packet，返回此次可以按顺序转发的packet数，packet存放在
+     * {@link #getOutput()}中，仅在下一次offer之前有效
+     */
+    public int offer(DatagramPacket packet, long now) {
+        received++;
+        long key = key(packet);
+        if (expected == -1) {
+            expected = key;
+        }
+        int count = 0;
+        if (isNext(key)) {
+            if (size > 0) {
+                reordered++;
+            }
+            output[count++] = packet;
+            advance(key + 1);
+        } else if (key < expected || !buffer(packet, key, now)) {
+            late++;
+        } else {
+            nack(key);
+        }
+        if (size > capacity || (size > 0 && now - arrivals[0] >= maxDelay)) {
+            // 放弃等待最早的packet之前缺失的packet，advance之后keys[0]总是不小于expected
+            long first = keys[0];
+            if (timestamp(first) == timestamp(expected)) {
+                lost += first - expected;
+            } else {
+                lost += sequenceNo(first);
+            }
+            advance(first);
+        }
+        while (size > 0 && isNext(keys[0])) {
+            output[count++] = packets[0];
+            long next = keys[0] + 1;
+            remove();
+            advance(next);
+        }
+        return count;
+    }
+
+    /**
+     * expected只向前移动，跳到新的timestamp后缓冲区中key更小的packet已不会再转发，
+     * 直接丢弃并计入late，避免之后expected回退而重复转发或重复NACK
+     */
+    private void advance(long next) {
+        if (next > expected) {
+            expected = next;
+        }
+        while (size > 0 && keys[0] < expected) {
+            late++;
+            remove();
+        }
+    }
+
+    // 缓冲区允许临时超出capacity一个，由offer立即放弃等待
+    private boolean buffer(DatagramPacket packet, long key, long now) {
+        int index = size;
+        while (index > 0 && keys[index - 1] > key) {
+            index--;
+        }
+        if (index > 0 && keys[index - 1] == key) {
+            return false;
+        }
+        System.arraycopy(packets, index, packets, index + 1, size - index);
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(arrivals, index, arrivals, index + 1, size - index);
+        packets[index] = packet.copy();
+        keys[index] = key;
+        arrivals[index] = now;
+        size++;
+        return true;
+    }
+
+    private void remove() {
+        size--;
+        System.arraycopy(packets, 1, packets, 0, size);
+        System.arraycopy(keys, 1, keys, 0, size);
+        System.arraycopy(arrivals, 1, arrivals, 0, size);
+        packets[size] = null;
+    }
+
+    private void nack(long key) {
+        long from = Math.max(expected, nacked + 1);
+        if (timestamp(from) != timestamp(key)) {
+            from = timestamp(key) << SEQ_BITS;
+        }
+        nacked = Math.max(nacked, key);
+        if (from >= key) {
+            return;
+        }
+        nacks++;
+        JSONObject json = new JSONObject();
+        json.put("serviceName", NACK);
+        json.put("timestamp", timestamp(key));
+        json.put("from", sequenceNo(from));
+        json.put("to", sequenceNo(key));
+        byte[] data = json.toJSONString().getBytes(session.getContext().getEncoding());
+        try {
+            session.sendPacket(DatagramPacket.createSendPacket(data));
+        } catch (IOException e) {
+            logger.debug(e);
+        }
+    }
+
+    /**
+     * 将此次可转发的packet写给其他成员，每个packet只编码一次，
+     * 所有成员复用同一个buffer
+     */
+    protected void fanOut(DatagramSession[] members, int count) {
+        DatagramPacket[] output = this.output;
+        ByteBuffer[] buffers = this.buffers;
+        int[] positions = this.positions;
+        for (int i = 0; i < count; i++) {
+            buffers[i] = output[i].nioBuffer();
+            positions[i] = buffers[i].position();
+            output[i] = null;
+        }
+        DatagramSession session = this.session;
+        for (DatagramSession member : members) {
+            if (member == session) {
+                continue;
+            }
+            for (int i = 0; i < count; i++) {
+                ByteBuffer buffer = buffers[i];
+                buffer.position(positions[i]);
+                try {
+                    if (member.sendPacket(buffer) == 0) {
+                        dropped++;
+                        continue;
+                    }
+                    forwarded++;
+                } catch (IOException e) {
+                    dropped++;
+                    logger.debug(e);
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            buffers[i] = null;
+        }
+    }
+
+    public DatagramPacket[] getOutput() {
+        return output;
+    }
+
+    public DatagramSession getSession() {
+        return session;
+    }
+
+    public int getBufferedSize() {
+        return size;
+    }
+
+    public long getReceived() {
+        return received;
+    }
+
+    public long getReordered() {
+        return reordered;
+    }
+
+    public long getLate() {
+        return late;
+    }
+
+    public long getLost() {
+        return lost;
+    }
+
+    public long getNacks() {
+        return nacks;
+    }
+
+    public long getForwarded() {
+        return forwarded;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.test.io.balance;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+
+import com.generallycloud.baseio.balance.BalanceFuture;
+import com.generallycloud.baseio.balance.BalanceServerBootStrap;
+import com.generallycloud.baseio.balance.FacadeInterceptor;
+import com.generallycloud.baseio.balance.facade.BalanceFacadeSocketSession;
+import com.generallycloud.baseio.balance.reverse.BalanceReverseLogger;
+import com.generallycloud.baseio.balance.router.HashedBalanceRouter;
+import com.generallycloud.baseio.codec.protobase.HashedProtobaseProtocolFactory;
+import com.generallycloud.baseio.codec.protobase.future.HashedProtobaseFuture;
+import com.generallycloud.baseio.codec.protobase.future.HashedProtobaseFutureImpl;
+import com.generallycloud.baseio.codec.protobase.future.ProtobaseFuture;
+import com.generallycloud.baseio.common.CloseUtil;
+import com.generallycloud.baseio.component.IoEventHandleAdaptor;
+import com.generallycloud.baseio.component.LoggerExceptionCaughtHandle;
+import com.generallycloud.baseio.component.NioSocketChannelContext;
+import com.generallycloud.baseio.component.SocketChannelContext;
+import com.generallycloud.baseio.component.SocketSession;
+import com.generallycloud.baseio.configuration.ServerConfiguration;
+import com.generallycloud.baseio.connector.SocketChannelConnector;
+import com.generallycloud.baseio.log.Logger;
+import com.generallycloud.baseio.protocol.Future;
+
+/**
+ * balance转发的压测，三个角色分别在不同的进程中启动，便于单独观察balance进程的CPU：
+ *
+ * <pre>
+ * balance [forward]       启动balance，forward为true时使用转发模式
+ * backend                 连接balance的8800端口，原样回复收到的报文
+ * client [消息数] [文本长度] [并发数]  向balance的8600端口发送消息并等待全部回复
+ * </pre>
+ */
+public class TestBalanceForward {
+
+    public static void main(String[] args) throws Exception {
+        String role = args.length > 0 ? args[0] : "balance";
+        if ("balance".equals(role)) {
+            balance(args.length > 1 && Boolean.parseBoolean(args[1]));
+        } else if ("backend".equals(role)) {
+            backend();
+        } else {
+            client(args.length > 1 ? Integer.parseInt(args[1]) : 200000,
+                    args.length > 2 ? Integer.parseInt(args[2]) : 256,
+                    args.length > 3 ? Integer.parseInt(args[3]) : 512);
+        }
+    }
+
+    static void balance(boolean forward) throws Exception {
+        BalanceServerBootStrap f = new BalanceServerBootStrap();
+        f.setBalanceProtocolFactory(new HashedProtobaseProtocolFactory(1024 * 8, forward));
+        f.setBalanceReverseProtocolFactory(new HashedProtobaseProtocolFactory(1024 * 8, forward));
+        f.setBalanceServerConfiguration(new ServerConfiguration(8600));
+        f.setBalanceReverseServerConfiguration(new ServerConfiguration(8800));
+        f.setBalanceRouter(new HashedBalanceRouter(160));
+        f.setFacadeExceptionCaughtHandle(new LoggerExceptionCaughtHandle());
+        f.setReverseExceptionCaughtHandle(new LoggerExceptionCaughtHandle());
+        f.setFacadeInterceptor(new FacadeInterceptor() {
+
+            @Override
+            public boolean intercept(BalanceFacadeSocketSession session, BalanceFuture future) {
+                return false;
+            }
+        });
+        f.setBalanceReverseLogger(new BalanceReverseLogger() {
+
+            @Override
+            public void logPush(SocketSession session, SocketSession response, Future future,
+                    Logger logger) {}
+        });
+        f.startup();
+        System.out.println("balance started, forward: " + forward);
+    }
+
+    static void backend() throws Exception {
+        IoEventHandleAdaptor eventHandleAdaptor = new IoEventHandleAdaptor() {
+
+            @Override
+            public void accept(SocketSession session, Future future) throws Exception {
+                ProtobaseFuture f = (ProtobaseFuture) future;
+                f.write(f.getReadText());
+                session.flush(future);
+            }
+        };
+        SocketChannelContext context = new NioSocketChannelContext(new ServerConfiguration(8800));
+        SocketChannelConnector connector = new SocketChannelConnector(context);
+        context.setIoEventHandleAdaptor(eventHandleAdaptor);
+        context.setProtocolFactory(new HashedProtobaseProtocolFactory());
+        connector.connect();
+        System.out.println("backend connected");
+        System.in.read();
+        CloseUtil.close(connector);
+    }
+
+    static void client(int messages, int textLength, int window) throws Exception {
+        final Semaphore inflight = new Semaphore(window);
+        final CountDownLatch latch = new CountDownLatch(messages);
+        IoEventHandleAdaptor eventHandleAdaptor = new IoEventHandleAdaptor() {
+
+            @Override
+            public void accept(SocketSession session, Future future) throws Exception {
+                inflight.release();
+                latch.countDown();
+            }
+        };
+        SocketChannelContext context = new NioSocketChannelContext(new ServerConfiguration(8600));
+        SocketChannelConnector connector = new SocketChannelConnector(context);
+        context.setIoEventHandleAdaptor(eventHandleAdaptor);
+        context.setProtocolFactory(new HashedProtobaseProtocolFactory());
+        SocketSession session = connector.connect();
+        StringBuilder text = new StringBuilder(textLength);
+        for (int i = 0; i < textLength; i++) {
+            text.append((char) ('a' + i % 26));
+        }
+        String content = text.toString();
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < messages; i++) {
+            inflight.acquire();
+            HashedProtobaseFuture future = new HashedProtobaseFutureImpl(context, i, "echo");
+            future.write(content);
+            future.setHashCode(i);
+            session.flush(future);
+        }
+        latch.await();
+        long cost = System.currentTimeMillis() - start;
+        System.out.println("messages: " + messages + ", cost: " + cost + "ms, tps: "
+                + (messages * 1000L / Math.max(cost, 1)));
+        CloseUtil.close(connector);
+    }
+
+}
@@ -48,8 +48,9 @@ public class TestBalanceMain {
         f.setBalanceServerConfiguration(fc);
         f.setBalanceReverseServerConfiguration(frc);
         f.setFacadeInterceptor(new FacadeInterceptorImpl(500, 50000));
-        f.setBalanceRouter(new HashedBalanceRouter(10240));
+        f.setBalanceRouter(new HashedBalanceRouter(160, 0.25));
         //		f.setBalanceRouter(new SimpleNextRouter());
+        //		f.setBalanceRouter(new LatencyAwareRouter());
 
         f.startup();
     }
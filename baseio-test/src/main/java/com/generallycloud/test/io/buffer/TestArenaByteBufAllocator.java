@@ -0,0 +1,87 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.test.io.buffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.generallycloud.baseio.buffer.ArenaByteBufAllocator;
+import com.generallycloud.baseio.buffer.ByteBuf;
+import com.generallycloud.baseio.buffer.ByteBufAllocator;
+import com.generallycloud.baseio.buffer.SimpleByteBufAllocator;
+import com.generallycloud.baseio.common.ReleaseUtil;
+
+/**
+ * 对比SimpleByteBufAllocator与ArenaByteBufAllocator在selector线程上
+ * 申请释放的吞吐，申请大小在读缓冲常见范围内随机
+ * 
+ * @author wangkai
+ *
+ */
+public class TestArenaByteBufAllocator {
+
+    static final int CAPACITY = 1024 * 64;
+    static final int UNIT     = 512;
+    static final int COUNT    = 1000000;
+    static final int HOLD     = 128;
+
+    public static void main(String[] args) throws Exception {
+
+        SimpleByteBufAllocator simple = new SimpleByteBufAllocator(CAPACITY, UNIT, false);
+        ArenaByteBufAllocator arena = new ArenaByteBufAllocator(CAPACITY, UNIT, 64, false);
+
+        simple.start();
+        arena.start();
+        arena.setOwner(Thread.currentThread());
+
+        for (int i = 0; i < 5; i++) {
+            long s = test(simple);
+            long a = test(arena);
+            System.out.println("simple: " + s + "ms, arena: " + a + "ms");
+        }
+
+        System.out.println(simple);
+        System.out.println(arena);
+
+        simple.stop();
+        arena.stop();
+    }
+
+    static long test(ByteBufAllocator allocator) {
+        Random random = new Random(7);
+        List<ByteBuf> hold = new ArrayList<>(HOLD);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < COUNT; i++) {
+            ByteBuf buf = allocator.allocate(64 + random.nextInt(1024 * 8));
+            if (buf == null) {
+                throw new RuntimeException("allocate failed");
+            }
+            hold.add(buf);
+            if (hold.size() == HOLD) {
+                for (ByteBuf b : hold) {
+                    ReleaseUtil.release(b);
+                }
+                hold.clear();
+            }
+        }
+        for (ByteBuf b : hold) {
+            ReleaseUtil.release(b);
+        }
+        return System.currentTimeMillis() - start;
+    }
+
+}
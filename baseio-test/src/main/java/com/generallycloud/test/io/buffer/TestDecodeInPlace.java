@@ -0,0 +1,199 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.test.io.buffer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+
+import com.generallycloud.baseio.buffer.ByteBuf;
+import com.generallycloud.baseio.buffer.EmptyByteBuf;
+import com.generallycloud.baseio.buffer.SimpleByteBufAllocator;
+import com.generallycloud.baseio.buffer.UnpooledByteBufAllocator;
+import com.generallycloud.baseio.codec.fixedlength.FixedLengthProtocolDecoder;
+import com.generallycloud.baseio.codec.protobase.ProtobaseProtocolDecoder;
+import com.generallycloud.baseio.common.Encoding;
+import com.generallycloud.baseio.common.ReleaseUtil;
+import com.generallycloud.baseio.component.SocketChannel;
+import com.generallycloud.baseio.component.SocketChannelContext;
+import com.generallycloud.baseio.protocol.ChannelFuture;
+import com.generallycloud.baseio.protocol.ProtocolDecoder;
+
+/**
+ * 按照TransparentByteBufReader的方式，将连续的报文按读缓冲区大小分段交给decoder，
+ * 对比decodeInPlace开启前后每个报文复制的字节数与解码耗时
+ *
+ * <pre>
+ * [报文数] [文本长度] [每次读取的字节数] [是否使用direct buf]
+ * </pre>
+ * 
+ * @author wangkai
+ *
+ */
+public class TestDecodeInPlace {
+
+    static final int CAPACITY = 1024 * 64;
+    static final int UNIT     = 512;
+
+    static String    text;
+
+    public static void main(String[] args) throws Exception {
+
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int textLength = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        int readBuffer = args.length > 2 ? Integer.parseInt(args[2]) : 1024 * 64;
+        boolean direct = args.length > 3 && Boolean.parseBoolean(args[3]);
+
+        SimpleByteBufAllocator allocator = new SimpleByteBufAllocator(CAPACITY, UNIT, direct);
+        allocator.start();
+
+        SocketChannel channel = newChannel(allocator);
+
+        text = new String(text(textLength), Encoding.UTF8);
+
+        byte[] fixedLength = fixedLengthFrames(messages, textLength);
+        byte[] protobase = protobaseFrames(messages, textLength);
+
+        // 与selector一样复用同一个读缓冲区
+        UnpooledByteBufAllocator unpooled = new UnpooledByteBufAllocator(direct);
+        unpooled.start();
+        ByteBuf buf = unpooled.allocate(readBuffer);
+
+        for (int i = 0; i < 3; i++) {
+            for (boolean inPlace : new boolean[] { false, true }) {
+                FixedLengthProtocolDecoder d1 = new FixedLengthProtocolDecoder(1024 * 8);
+                d1.setDecodeInPlace(inPlace);
+                test("fixedlength", inPlace, channel, d1, buf, fixedLength, messages, 0);
+                ProtobaseProtocolDecoder d2 = new ProtobaseProtocolDecoder(1024 * 8);
+                d2.setDecodeInPlace(inPlace);
+                // B0由decoder读取，不会被复制
+                test("protobase  ", inPlace, channel, d2, buf, protobase, messages, 1);
+            }
+        }
+
+        ReleaseUtil.release(buf);
+        unpooled.stop();
+        allocator.stop();
+    }
+
+    static void test(String name, boolean inPlace, SocketChannel channel,
+            ProtocolDecoder decoder, ByteBuf buf, byte[] data, int messages, int notCopied)
+            throws Exception {
+        int frameLength = data.length / messages;
+        long copied = 0;
+        int decoded = 0;
+        ChannelFuture future = null;
+        long start = System.nanoTime();
+        for (int offset = 0; offset < data.length; offset += buf.capacity()) {
+            buf.clear();
+            buf.put(data, offset, Math.min(buf.capacity(), data.length - offset));
+            buf.flip();
+            while (buf.hasRemaining()) {
+                if (future == null) {
+                    future = decoder.decode(channel, buf);
+                }
+                if (!future.read(channel, buf)) {
+                    break;
+                }
+                if (future.getByteBuf() != EmptyByteBuf.getInstance()) {
+                    copied += frameLength - notCopied;
+                }
+                ReleaseUtil.release(future);
+                if (!text.equals(future.getReadText())) {
+                    throw new RuntimeException("illegal text: " + future.getReadText());
+                }
+                decoded++;
+                future = null;
+            }
+        }
+        long cost = System.nanoTime() - start;
+        if (decoded != messages) {
+            throw new RuntimeException("decoded: " + decoded);
+        }
+        System.out.println(name + " inPlace: " + inPlace + ", bytes copied/msg: "
+                + (copied * 1.0 / messages) + ", ns/msg: " + (cost / messages));
+    }
+
+    static byte[] fixedLengthFrames(int messages, int textLength) {
+        byte[] text = text(textLength);
+        ByteBuffer buffer = ByteBuffer.allocate((4 + textLength) * messages);
+        for (int i = 0; i < messages; i++) {
+            buffer.putInt(textLength);
+            buffer.put(text);
+        }
+        return buffer.array();
+    }
+
+    static byte[] protobaseFrames(int messages, int textLength) {
+        byte[] text = text(textLength);
+        byte[] name = "test".getBytes(Encoding.UTF8);
+        int frameLength = ProtobaseProtocolDecoder.PROTOCOL_HEADER_NO_BINARY + name.length
+                + textLength;
+        ByteBuffer buffer = ByteBuffer.allocate(frameLength * messages);
+        for (int i = 0; i < messages; i++) {
+            buffer.put(ProtobaseProtocolDecoder.PROTOCOL_PACKET);
+            buffer.put((byte) name.length);
+            buffer.putInt(i);
+            buffer.putShort((short) textLength);
+            buffer.put(name);
+            buffer.put(text);
+        }
+        return buffer.array();
+    }
+
+    static byte[] text(int textLength) {
+        byte[] text = new byte[textLength];
+        for (int i = 0; i < textLength; i++) {
+            text[i] = (byte) ('a' + i % 26);
+        }
+        return text;
+    }
+
+    // decoder与future只用到了channel的allocator与context的encoding
+    static SocketChannel newChannel(final SimpleByteBufAllocator allocator) {
+        final SocketChannelContext context = (SocketChannelContext) Proxy.newProxyInstance(
+                SocketChannelContext.class.getClassLoader(),
+                new Class<?>[] { SocketChannelContext.class }, new InvocationHandler() {
+
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("getEncoding".equals(method.getName())) {
+                            return Encoding.UTF8;
+                        }
+                        if ("isEnableSSL".equals(method.getName())) {
+                            return false;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        return (SocketChannel) Proxy.newProxyInstance(SocketChannel.class.getClassLoader(),
+                new Class<?>[] { SocketChannel.class }, new InvocationHandler() {
+
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("getByteBufAllocator".equals(method.getName())) {
+                            return allocator;
+                        }
+                        if ("getContext".equals(method.getName())) {
+                            return context;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+}
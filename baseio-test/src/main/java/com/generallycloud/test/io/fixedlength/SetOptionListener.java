@@ -50,4 +50,10 @@ public class SetOptionListener implements SocketSessionEventListener {
 
     }
 
+    @Override
+    public void writabilityChanged(SocketSession session) {
+        // TODO Auto-generated method stub
+
+    }
+
 }
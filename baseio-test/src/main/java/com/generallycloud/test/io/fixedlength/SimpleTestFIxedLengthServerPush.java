@@ -100,6 +100,10 @@ public class SimpleTestFIxedLengthServerPush {
                     logger.error(e.getMessage(),e);
                 }
             }
+
+            @Override
+            public void writabilityChanged(SocketSession session) {
+            }
         });
         context.setIoEventHandleAdaptor(eventHandleAdaptor);
         context.setProtocolFactory(new FixedLengthProtocolFactory());
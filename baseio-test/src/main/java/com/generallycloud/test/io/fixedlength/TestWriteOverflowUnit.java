@@ -0,0 +1,202 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.test.io.fixedlength;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.generallycloud.baseio.acceptor.SocketChannelAcceptor;
+import com.generallycloud.baseio.buffer.ByteBuf;
+import com.generallycloud.baseio.codec.fixedlength.FixedLengthProtocolFactory;
+import com.generallycloud.baseio.codec.fixedlength.future.FixedLengthFutureImpl;
+import com.generallycloud.baseio.common.CloseUtil;
+import com.generallycloud.baseio.component.IoEventHandleAdaptor;
+import com.generallycloud.baseio.component.NioSocketChannelContext;
+import com.generallycloud.baseio.component.SocketChannelContext;
+import com.generallycloud.baseio.component.SocketSession;
+import com.generallycloud.baseio.configuration.ServerConfiguration;
+import com.generallycloud.baseio.protocol.ChannelFuture;
+import com.generallycloud.baseio.protocol.CompositeChannelFuture;
+import com.generallycloud.baseio.protocol.DefaultChannelFuture;
+import com.generallycloud.baseio.protocol.FileRegionChannelFuture;
+import com.generallycloud.baseio.protocol.Future;
+
+/**
+ * 写出队列溢出时，由头部与文件组成的报文要么完整写出，要么整体被丢弃：
+ * 客户端连接后暂停读取，服务端持续写出文本与文件报文直到超过SERVER_WRITE_HARD_LIMIT，
+ * 之后客户端读取全部数据并逐个校验报文。
+ *
+ * <pre>
+ * [REJECT|DROP_OLDEST|CLOSE] [inseparable]
+ * </pre>
+ * inseparable时所有报文按照HTTP/2 frame的方式标记为不能单独丢弃，溢出后连接应被关闭，
+ * 且关闭前收到的报文是完整的
+ */
+public class TestWriteOverflowUnit {
+
+    static final int  PORT       = 18310;
+    static final int  MESSAGES   = 20000;
+    static final int  TEXT_SIZE  = 1024;
+    static final int  FILE_SIZE  = 1024 * 64;
+    static final byte FILE_BYTE  = 'F';
+
+    public static void main(String[] args) throws Exception {
+        String policy = args.length > 0 ? args[0] : "DROP_OLDEST";
+        final boolean inseparable = args.length > 1 && "inseparable".equals(args[1]);
+        final File file = File.createTempFile("overflow", ".bin");
+        file.deleteOnExit();
+        byte[] content = new byte[FILE_SIZE];
+        Arrays.fill(content, FILE_BYTE);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(content);
+        }
+        final AtomicInteger failed = new AtomicInteger();
+        IoEventHandleAdaptor eventHandleAdaptor = new IoEventHandleAdaptor() {
+
+            @Override
+            public void accept(final SocketSession session, Future future) throws Exception {
+                new Thread(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        try {
+                            push(session, file, inseparable);
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    }
+                }).start();
+            }
+
+            @Override
+            public void exceptionCaught(SocketSession session, Future future, Exception ex) {
+                failed.incrementAndGet();
+            }
+        };
+        ServerConfiguration configuration = new ServerConfiguration(PORT);
+        configuration.setSERVER_WRITE_HIGH_WATERMARK(1024 * 128);
+        configuration.setSERVER_WRITE_LOW_WATERMARK(1024 * 32);
+        configuration.setSERVER_WRITE_HARD_LIMIT(1024 * 256);
+        configuration.setSERVER_WRITE_OVERFLOW_POLICY(policy);
+        SocketChannelContext context = new NioSocketChannelContext(configuration);
+        SocketChannelAcceptor acceptor = new SocketChannelAcceptor(context);
+        context.setIoEventHandleAdaptor(eventHandleAdaptor);
+        context.setProtocolFactory(new FixedLengthProtocolFactory());
+        acceptor.bind();
+        try {
+            read(policy, inseparable, failed);
+        } finally {
+            CloseUtil.unbind(acceptor);
+        }
+    }
+
+    static void push(SocketSession session, File file, boolean inseparable) throws IOException {
+        SocketChannelContext context = session.getContext();
+        char[] padding = new char[TEXT_SIZE];
+        Arrays.fill(padding, 'a');
+        String text = new String(padding);
+        for (int i = 0; i < MESSAGES && session.isOpened(); i++) {
+            ChannelFuture f;
+            if (i % 10 == 9) {
+                // 已经encode好的头部，与文件内容组成一个报文
+                ByteBuf buf = session.getByteBufAllocator().allocate(4);
+                buf.putInt(FILE_SIZE);
+                ChannelFuture header = new DefaultChannelFuture(context, buf.flip()).flush();
+                f = new CompositeChannelFuture(context, header,
+                        new FileRegionChannelFuture(context, file));
+            } else {
+                FixedLengthFutureImpl future = new FixedLengthFutureImpl(context);
+                future.write("msg-" + i + "-" + text);
+                f = future;
+            }
+            f.setInseparable(inseparable);
+            session.flush(f);
+        }
+    }
+
+    static void read(String policy, boolean inseparable, AtomicInteger failed)
+            throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", PORT)) {
+            OutputStream out = socket.getOutputStream();
+            byte[] go = "go".getBytes(StandardCharsets.UTF_8);
+            out.write(new byte[] { 0, 0, 0, (byte) go.length });
+            out.write(go);
+            out.flush();
+            // 暂停读取，让服务端的写出队列超过上限
+            Thread.sleep(3000);
+            socket.setSoTimeout(3000);
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            int texts = 0;
+            int files = 0;
+            boolean closed = false;
+            int last = -1;
+            for (;;) {
+                byte[] body;
+                try {
+                    int length = in.readInt();
+                    if (length <= 0 || length > FILE_SIZE) {
+                        throw new IOException("broken frame length: " + length);
+                    }
+                    body = new byte[length];
+                    in.readFully(body);
+                } catch (EOFException e) {
+                    // 连接关闭时正在写出的报文可能只写出了一部分
+                    closed = true;
+                    break;
+                } catch (SocketTimeoutException e) {
+                    break;
+                }
+                int length = body.length;
+                if (length == FILE_SIZE && body[0] == FILE_BYTE) {
+                    for (byte b : body) {
+                        if (b != FILE_BYTE) {
+                            throw new IOException("broken file frame");
+                        }
+                    }
+                    files++;
+                    continue;
+                }
+                String msg = new String(body, StandardCharsets.UTF_8);
+                if (!msg.startsWith("msg-")) {
+                    throw new IOException("broken text frame: " + msg.substring(0, 16));
+                }
+                int seq = Integer.parseInt(msg.substring(4, msg.indexOf('-', 4)));
+                if (seq <= last) {
+                    throw new IOException("out of order: " + seq + " after " + last);
+                }
+                last = seq;
+                texts++;
+            }
+            System.out.println("policy: " + policy + ", inseparable: " + inseparable
+                    + ", texts: " + texts + ", files: " + files + ", failed: " + failed.get()
+                    + ", closed by server: " + closed);
+            if (inseparable && failed.get() > 0 && !closed) {
+                throw new IOException("inseparable futures dropped without closing");
+            }
+            System.out.println("all frames are complete");
+        }
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.test.io.http11;
+
+import com.generallycloud.baseio.acceptor.SocketChannelAcceptor;
+import com.generallycloud.baseio.codec.http11.ServerHTTPProtocolFactory;
+import com.generallycloud.baseio.codec.http11.WebSocketProtocolDecoder;
+import com.generallycloud.baseio.codec.http11.WebSocketProtocolFactory;
+import com.generallycloud.baseio.codec.http11.future.HttpFuture;
+import com.generallycloud.baseio.codec.http11.future.WebSocketBeatFutureFactory;
+import com.generallycloud.baseio.codec.http11.future.WebSocketFuture;
+import com.generallycloud.baseio.codec.http11.future.WebSocketFutureImpl;
+import com.generallycloud.baseio.component.IoEventHandleAdaptor;
+import com.generallycloud.baseio.component.LoggerSocketSEListener;
+import com.generallycloud.baseio.component.NioSocketChannelContext;
+import com.generallycloud.baseio.component.SocketChannelContext;
+import com.generallycloud.baseio.component.SocketSession;
+import com.generallycloud.baseio.configuration.ServerConfiguration;
+import com.generallycloud.baseio.protocol.Future;
+
+/**
+ * websocket服务端，第一个参数为shared时不保留压缩上下文，为plain时不开启permessage-deflate，
+ * 第二个参数为direct时使用堆外内存：
+ *
+ * <pre>
+ * 收到"stream 长度"时分片发送一条该长度的text消息，每片16KB
+ * 收到"burst 消息数"时由4个线程同时向该连接发送消息，用于验证压缩上下文下的写出顺序
+ * 其余data frame按帧原样返回，分片消息也按分片返回
+ * </pre>
+ */
+public class TestWebSocketServer {
+
+    static final int FRAGMENT_SIZE = 1024 * 16;
+
+    public static void main(String[] args) throws Exception {
+
+        IoEventHandleAdaptor eventHandleAdaptor = new IoEventHandleAdaptor() {
+
+            @Override
+            public void accept(SocketSession session, Future future) throws Exception {
+                if (future instanceof HttpFuture) {
+                    HttpFuture f = (HttpFuture) future;
+                    f.updateWebSocketProtocol();
+                    session.flush(f);
+                    return;
+                }
+                WebSocketFuture f = (WebSocketFuture) future;
+                if (f.isCloseFrame()) {
+                    session.close();
+                    return;
+                }
+                String text = f.getReadText();
+                if (text != null && text.startsWith("stream ")) {
+                    stream(session, Integer.parseInt(text.substring(7)));
+                    return;
+                }
+                if (text != null && text.startsWith("burst ")) {
+                    burst(session, Integer.parseInt(text.substring(6)));
+                    return;
+                }
+                WebSocketFuture echo = new WebSocketFutureImpl(session.getContext(), f.getType(),
+                        f.isEof());
+                echo.write(f.getByteArray());
+                session.flush(echo);
+            }
+        };
+
+        ServerConfiguration configuration = new ServerConfiguration(8310);
+
+        configuration
+                .setSERVER_ENABLE_MEMORY_POOL_DIRECT(args.length > 1 && "direct".equals(args[1]));
+
+        SocketChannelContext context = new NioSocketChannelContext(configuration);
+
+        SocketChannelAcceptor acceptor = new SocketChannelAcceptor(context);
+
+        WebSocketProtocolFactory webSocketProtocolFactory = new WebSocketProtocolFactory(
+                1024 * 1024);
+
+        String mode = args.length > 0 ? args[0] : "";
+
+        webSocketProtocolFactory.setDeflate(!"plain".equals(mode));
+
+        webSocketProtocolFactory.setDeflateContextTakeover(!"shared".equals(mode));
+
+        ServerHTTPProtocolFactory protocolFactory = new ServerHTTPProtocolFactory();
+
+        protocolFactory.setWebSocketProtocolFactory(webSocketProtocolFactory);
+
+        context.addSessionEventListener(new LoggerSocketSEListener());
+
+        context.setBeatFutureFactory(new WebSocketBeatFutureFactory());
+
+        context.setIoEventHandleAdaptor(eventHandleAdaptor);
+
+        context.setProtocolFactory(protocolFactory);
+
+        acceptor.bind();
+    }
+
+    static void stream(SocketSession session, int length) {
+        int type = WebSocketProtocolDecoder.TYPE_TEXT;
+        int index = 0;
+        do {
+            int size = Math.min(FRAGMENT_SIZE, length - index);
+            StringBuilder b = new StringBuilder(size);
+            for (int i = 0; i < size; i++) {
+                b.append((char) ('a' + (index + i) % 26));
+            }
+            index += size;
+            WebSocketFuture f = new WebSocketFutureImpl(session.getContext(), type,
+                    index == length);
+            f.write(b.toString());
+            session.flush(f);
+            type = WebSocketProtocolDecoder.TYPE_CONTINUATION;
+        } while (index < length);
+    }
+
+    static void burst(final SocketSession session, final int messages) {
+        for (int i = 0; i < 4; i++) {
+            final int thread = i;
+            new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    for (int j = 0; j < messages; j++) {
+                        WebSocketFuture f = new WebSocketFutureImpl(session.getContext());
+                        f.write("{\"thread\":" + thread + ",\"seq\":" + j + ",\"message\":\"");
+                        for (int k = 0; k < 10; k++) {
+                            f.write("hello world ");
+                        }
+                        f.write("\"}");
+                        session.flush(f);
+                    }
+                }
+            }).start();
+        }
+    }
+
+}
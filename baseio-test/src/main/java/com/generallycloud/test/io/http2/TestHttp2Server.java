@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.test.io.http2;
+
+import java.io.File;
+
+import com.generallycloud.baseio.acceptor.SocketChannelAcceptor;
+import com.generallycloud.baseio.codec.http2.Http2ProtocolFactory;
+import com.generallycloud.baseio.codec.http2.future.Http2ServerFuture;
+import com.generallycloud.baseio.common.FileUtil;
+import com.generallycloud.baseio.component.IoEventHandleAdaptor;
+import com.generallycloud.baseio.component.LoggerSocketSEListener;
+import com.generallycloud.baseio.component.NioSocketChannelContext;
+import com.generallycloud.baseio.component.SocketChannelContext;
+import com.generallycloud.baseio.component.SocketSession;
+import com.generallycloud.baseio.component.ssl.SSLUtil;
+import com.generallycloud.baseio.configuration.ServerConfiguration;
+import com.generallycloud.baseio.protocol.Future;
+
+/**
+ * HTTP/2服务端，默认为h2c(prior knowledge)，参数为ssl时使用h2：
+ *
+ * <pre>
+ * curl --http2-prior-knowledge http://127.0.0.1:8300/hello
+ * curl --http2-prior-knowledge --parallel --parallel-max 100 http://127.0.0.1:8300/hello?[1-500]
+ * curl --http2-prior-knowledge http://127.0.0.1:8300/big?size=1048576 -o /dev/null
+ * curl --http2-prior-knowledge -d "a=1&b=2" http://127.0.0.1:8300/post
+ * curl -k --http2 https://127.0.0.1:8300/hello
+ * </pre>
+ */
+public class TestHttp2Server {
+
+    public static void main(String[] args) throws Exception {
+
+        IoEventHandleAdaptor eventHandleAdaptor = new IoEventHandleAdaptor() {
+
+            @Override
+            public void accept(SocketSession session, Future future) throws Exception {
+                Http2ServerFuture f = (Http2ServerFuture) future;
+                if ("/big".equals(f.getRequestURI())) {
+                    int size = Integer.parseInt(f.getRequestParam("size"));
+                    byte[] data = new byte[size];
+                    for (int i = 0; i < size; i++) {
+                        data[i] = (byte) ('a' + i % 26);
+                    }
+                    f.writeBinary(data);
+                } else {
+                    f.write("stream: " + f.getStreamIdentifier());
+                    f.write(", uri: " + f.getRequestURI());
+                    f.write(", params: " + f.getRequestParams());
+                    f.write(", thread: " + Thread.currentThread().getName());
+                    f.write("\n");
+                }
+                session.flush(f);
+            }
+        };
+
+        ServerConfiguration configuration = new ServerConfiguration(8300);
+
+        configuration.setSERVER_ENABLE_WORK_EVENT_LOOP(true);
+
+        SocketChannelContext context = new NioSocketChannelContext(configuration);
+
+        SocketChannelAcceptor acceptor = new SocketChannelAcceptor(context);
+
+        context.addSessionEventListener(new LoggerSocketSEListener());
+
+        context.setIoEventHandleAdaptor(eventHandleAdaptor);
+
+        context.setProtocolFactory(new Http2ProtocolFactory());
+
+        if (args.length > 0 && "ssl".equals(args[0])) {
+            File certificate = FileUtil.readFileByCls("generallycloud.com.crt");
+            File privateKey = FileUtil.readFileByCls("generallycloud.com.key");
+            context.setSslContext(SSLUtil.initServerHttp2(privateKey, certificate));
+        }
+
+        acceptor.bind();
+    }
+}
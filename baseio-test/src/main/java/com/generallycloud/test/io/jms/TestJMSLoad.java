@@ -0,0 +1,149 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.test.io.jms;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.generallycloud.baseio.codec.protobase.ProtobaseProtocolFactory;
+import com.generallycloud.baseio.common.CloseUtil;
+import com.generallycloud.baseio.component.NioSocketChannelContext;
+import com.generallycloud.baseio.component.SocketChannelContext;
+import com.generallycloud.baseio.configuration.ServerConfiguration;
+import com.generallycloud.baseio.connector.SocketChannelConnector;
+import com.generallycloud.baseio.container.FixedSession;
+import com.generallycloud.baseio.container.SimpleIoEventHandle;
+import com.generallycloud.baseio.container.jms.Message;
+import com.generallycloud.baseio.container.jms.TextMessage;
+import com.generallycloud.baseio.container.jms.client.MessageConsumer;
+import com.generallycloud.baseio.container.jms.client.MessageProducer;
+import com.generallycloud.baseio.container.jms.client.OnMessage;
+import com.generallycloud.baseio.container.jms.client.impl.DefaultMessageConsumer;
+import com.generallycloud.baseio.container.jms.client.impl.DefaultMessageProducer;
+import com.generallycloud.baseio.log.LoggerFactory;
+
+/**
+ * JMS broker压测，需要先启动ProtobaseStartup，
+ * 分别以product-lines为1和cpu核数启动服务端对比吞吐量。
+ * <br>
+ * 每个内置账号(admin, udp1, udp2)一个consumer，对应一个queue，
+ * producer轮流向各个queue发送消息。
+ * 参数：producer数(8) 每个producer的消息数(20000)
+ */
+public class TestJMSLoad {
+
+    static final String[][] ACCOUNTS = { { "admin", "admin100", "uuid" },
+            { "udp1", "udp1", "udp1" }, { "udp2", "udp2", "udp2" } };
+
+    public static void main(String[] args) throws Exception {
+
+        LoggerFactory.configure();
+
+        int producers = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        final int messages = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        final int total = producers * messages;
+
+        List<SocketChannelConnector> connectors = new ArrayList<>();
+        final AtomicLong received = new AtomicLong();
+        final CountDownLatch receiveLatch = new CountDownLatch(total);
+
+        try {
+            for (String[] account : ACCOUNTS) {
+                FixedSession session = connect(connectors, account[0], account[1]);
+                MessageConsumer consumer = new DefaultMessageConsumer(session);
+                consumer.receive(new OnMessage() {
+
+                    @Override
+                    public void onReceive(Message message) {
+                        received.incrementAndGet();
+                        receiveLatch.countDown();
+                    }
+                });
+            }
+
+            final MessageProducer[] producerArray = new MessageProducer[producers];
+            for (int i = 0; i < producers; i++) {
+                producerArray[i] = new DefaultMessageProducer(
+                        connect(connectors, "admin", "admin100"));
+            }
+
+            final CountDownLatch sendLatch = new CountDownLatch(producers);
+            long startTime = System.currentTimeMillis();
+            for (int i = 0; i < producers; i++) {
+                final int index = i;
+                new Thread(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        MessageProducer producer = producerArray[index];
+                        try {
+                            for (int j = 0; j < messages; j++) {
+                                String queueName = ACCOUNTS[(index + j) % ACCOUNTS.length][2];
+                                producer.offer(new TextMessage(index + "-" + j, queueName,
+                                        "load test message"));
+                            }
+                        } catch (Exception e) {
+                            e.printStackTrace();
+                        } finally {
+                            sendLatch.countDown();
+                        }
+                    }
+                }, "jms-load-producer-" + i).start();
+            }
+
+            sendLatch.await();
+            long sendTime = Math.max(1, System.currentTimeMillis() - startTime);
+            receiveLatch.await(30, TimeUnit.SECONDS);
+            long receiveTime = Math.max(1, System.currentTimeMillis() - startTime);
+
+            System.out.println(String.format(
+                    "producers: %d, sent: %d in %dms (%d msg/s), received: %d in %dms (%d msg/s)",
+                    producers, total, sendTime, total * 1000L / sendTime, received.get(),
+                    receiveTime, received.get() * 1000L / receiveTime));
+        } finally {
+            for (SocketChannelConnector connector : connectors) {
+                CloseUtil.close(connector);
+            }
+        }
+    }
+
+    static FixedSession connect(List<SocketChannelConnector> connectors, String username,
+            String password) throws IOException {
+
+        SocketChannelContext context = new NioSocketChannelContext(new ServerConfiguration(8300));
+
+        SocketChannelConnector connector = new SocketChannelConnector(context);
+
+        connectors.add(connector);
+
+        context.setIoEventHandleAdaptor(new SimpleIoEventHandle());
+
+        context.setProtocolFactory(new ProtobaseProtocolFactory());
+
+        FixedSession session = new FixedSession(connector.connect());
+
+        if (!session.login(username, password)) {
+            throw new IOException("login failed: " + username);
+        }
+
+        return session;
+    }
+
+}
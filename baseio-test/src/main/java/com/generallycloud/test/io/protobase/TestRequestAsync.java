@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.test.io.protobase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.generallycloud.baseio.codec.protobase.ProtobaseProtocolFactory;
+import com.generallycloud.baseio.codec.protobase.future.ProtobaseFuture;
+import com.generallycloud.baseio.common.CloseUtil;
+import com.generallycloud.baseio.component.NioSocketChannelContext;
+import com.generallycloud.baseio.component.SocketChannelContext;
+import com.generallycloud.baseio.concurrent.PromiseCallback;
+import com.generallycloud.baseio.configuration.ServerConfiguration;
+import com.generallycloud.baseio.connector.SocketChannelConnector;
+import com.generallycloud.baseio.container.FixedSession;
+import com.generallycloud.baseio.container.RequestPromise;
+import com.generallycloud.baseio.container.SimpleIoEventHandle;
+
+/**
+ * 配合SimpleTestProtobaseServer使用，同一个连接上同时发起多个同名请求，
+ * 检查每个响应是否与请求对应
+ */
+public class TestRequestAsync {
+
+    public static void main(String[] args) throws Exception {
+
+        final int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+
+        int window = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        SocketChannelContext context = new NioSocketChannelContext(new ServerConfiguration(18300));
+
+        SocketChannelConnector connector = new SocketChannelConnector(context);
+
+        context.setIoEventHandleAdaptor(new SimpleIoEventHandle());
+
+        context.setProtocolFactory(new ProtobaseProtocolFactory());
+
+        FixedSession session = new FixedSession(connector.connect());
+
+        session.setTimeout(10000);
+
+        final Semaphore inflight = new Semaphore(window);
+
+        final CountDownLatch latch = new CountDownLatch(count);
+
+        final AtomicInteger mismatch = new AtomicInteger();
+
+        final AtomicInteger failed = new AtomicInteger();
+
+        long start = System.currentTimeMillis();
+
+        for (int i = 0; i < count; i++) {
+
+            inflight.acquire();
+
+            final String text = String.valueOf(i);
+
+            RequestPromise promise = session.requestAsync("test", text);
+
+            promise.setCallback(new PromiseCallback<ProtobaseFuture>() {
+
+                @Override
+                public void onComplete(ProtobaseFuture future, Throwable cause) {
+                    if (cause != null) {
+                        failed.incrementAndGet();
+                    } else if (!future.getReadText().endsWith(":" + text)) {
+                        mismatch.incrementAndGet();
+                    }
+                    inflight.release();
+                    latch.countDown();
+                }
+            });
+        }
+
+        latch.await();
+
+        long cost = System.currentTimeMillis() - start;
+
+        System.out.println("requests: " + count + ", cost: " + cost + "ms, tps: "
+                + (count * 1000L / Math.max(cost, 1)) + ", mismatch: " + mismatch.get()
+                + ", failed: " + failed.get());
+
+        // 关闭连接时未收到响应的请求应立即失败，而不是等到超时
+        RequestPromise[] promises = new RequestPromise[1000];
+
+        for (int i = 0; i < promises.length; i++) {
+            promises[i] = session.requestAsync("test", "closed");
+        }
+
+        CloseUtil.close(session.getSession());
+
+        int responsed = 0;
+
+        start = System.currentTimeMillis();
+
+        for (RequestPromise p : promises) {
+            try {
+                p.await();
+                responsed++;
+            } catch (Exception e) {
+            }
+        }
+
+        System.out.println("responsed before close: " + responsed + ", failed on close: "
+                + (promises.length - responsed) + ", cost: "
+                + (System.currentTimeMillis() - start) + "ms");
+
+        CloseUtil.close(connector);
+    }
+}
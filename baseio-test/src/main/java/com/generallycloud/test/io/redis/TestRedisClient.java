@@ -15,15 +15,23 @@
  */
 package com.generallycloud.test.io.redis;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.generallycloud.baseio.codec.redis.RedisProtocolFactory;
 import com.generallycloud.baseio.codec.redis.future.RedisClient;
 import com.generallycloud.baseio.codec.redis.future.RedisIOEventHandle;
+import com.generallycloud.baseio.codec.redis.future.RedisNode;
+import com.generallycloud.baseio.codec.redis.future.RedisPipeline;
+import com.generallycloud.baseio.codec.redis.future.RedisPromise;
+import com.generallycloud.baseio.codec.redis.future.RedisSEListener;
 import com.generallycloud.baseio.common.CloseUtil;
 import com.generallycloud.baseio.common.ThreadUtil;
 import com.generallycloud.baseio.component.LoggerSocketSEListener;
 import com.generallycloud.baseio.component.NioSocketChannelContext;
 import com.generallycloud.baseio.component.SocketChannelContext;
 import com.generallycloud.baseio.component.SocketSession;
+import com.generallycloud.baseio.concurrent.PromiseCallback;
 import com.generallycloud.baseio.configuration.ServerConfiguration;
 import com.generallycloud.baseio.connector.SocketChannelConnector;
 
@@ -31,19 +39,31 @@ public class TestRedisClient {
 
     public static void main(String[] args) throws Exception {
 
-        SocketChannelContext context = new NioSocketChannelContext(new ServerConfiguration(6379));
+        List<SocketChannelConnector> connectors = new ArrayList<>();
+
+        List<SocketSession> sessions = new ArrayList<>();
+
+        for (int i = 0; i < 2; i++) {
+
+            SocketChannelContext context = new NioSocketChannelContext(
+                    new ServerConfiguration(6379));
 
-        SocketChannelConnector connector = new SocketChannelConnector(context);
+            SocketChannelConnector connector = new SocketChannelConnector(context);
 
-        context.setIoEventHandleAdaptor(new RedisIOEventHandle());
+            context.setIoEventHandleAdaptor(new RedisIOEventHandle());
 
-        context.addSessionEventListener(new LoggerSocketSEListener());
+            context.addSessionEventListener(new LoggerSocketSEListener());
 
-        context.setProtocolFactory(new RedisProtocolFactory());
+            context.addSessionEventListener(new RedisSEListener());
 
-        SocketSession session = connector.connect();
+            context.setProtocolFactory(new RedisProtocolFactory());
 
-        RedisClient client = new RedisClient(session);
+            connectors.add(connector);
+
+            sessions.add(connector.connect());
+        }
+
+        RedisClient client = new RedisClient(sessions, 3000);
 
         String value = client.set("name222", "hello redis!");
 
@@ -65,9 +85,64 @@ public class TestRedisClient {
 
         System.out.println("__________________res______" + value);
 
+        System.out.println("__________________res______" + client.mset("k1", "v1", "k2", "v2"));
+
+        System.out.println("__________________res______" + client.mget("k1", "k2", "k3"));
+
+        System.out.println("__________________res______" + client.hset("hash", "f", "v"));
+
+        System.out.println("__________________res______" + client.hget("hash", "f"));
+
+        System.out.println("__________________res______" + client.incr("counter"));
+
+        System.out.println("__________________res______" + client.expire("counter", 10));
+
+        System.out.println("__________________res______" + client.del("k1", "k2"));
+
+        final int count = 10000;
+
+        long startTime = System.currentTimeMillis();
+
+        RedisPromise last = null;
+
+        for (int i = 0; i < count; i++) {
+            last = client.incrAsync("async");
+        }
+
+        System.out.println("__________________async______" + client.await(last) + ",cost:"
+                + (System.currentTimeMillis() - startTime));
+
+        RedisPipeline pipeline = client.pipelined();
+
+        for (int i = 0; i < 100; i++) {
+            pipeline.set("p" + i, String.valueOf(i));
+        }
+
+        RedisPromise get = pipeline.get("p99");
+
+        pipeline.flush();
+
+        System.out.println("__________________pipeline______" + client.await(get));
+
+        RedisPipeline multi = client.multi();
+
+        multi.incr("tx");
+
+        multi.incr("tx");
+
+        multi.flush().setCallback(new PromiseCallback<RedisNode>() {
+
+            @Override
+            public void onComplete(RedisNode node, Throwable cause) {
+                System.out.println("__________________multi______" + node + "," + cause);
+            }
+        });
+
         ThreadUtil.sleep(100);
 
-        CloseUtil.close(connector);
+        for (SocketChannelConnector connector : connectors) {
+            CloseUtil.close(connector);
+        }
 
     }
 }
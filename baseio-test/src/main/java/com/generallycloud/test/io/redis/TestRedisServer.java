@@ -0,0 +1,172 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.test.io.redis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.generallycloud.baseio.acceptor.SocketChannelAcceptor;
+import com.generallycloud.baseio.codec.redis.RedisProtocolFactory;
+import com.generallycloud.baseio.codec.redis.future.RedisFuture;
+import com.generallycloud.baseio.codec.redis.future.RedisNode;
+import com.generallycloud.baseio.component.IoEventHandleAdaptor;
+import com.generallycloud.baseio.component.LoggerSocketSEListener;
+import com.generallycloud.baseio.component.NioSocketChannelContext;
+import com.generallycloud.baseio.component.SocketChannelContext;
+import com.generallycloud.baseio.component.SocketSession;
+import com.generallycloud.baseio.configuration.ServerConfiguration;
+import com.generallycloud.baseio.protocol.Future;
+
+/**
+ * 基于RedisProtocolDecoder的简易RESP服务端，仅用于测试RedisClient
+ */
+public class TestRedisServer {
+
+    static final String                           TX_KEY  = "redis-tx";
+
+    static final Map<String, String>              strings = new ConcurrentHashMap<>();
+
+    static final Map<String, Map<String, String>> hashes  = new ConcurrentHashMap<>();
+
+    public static void main(String[] args) throws Exception {
+
+        IoEventHandleAdaptor eventHandleAdaptor = new IoEventHandleAdaptor() {
+
+            @Override
+            public void accept(SocketSession session, Future future) throws Exception {
+                RedisFuture f = (RedisFuture) future;
+                String reply = execute(session, f.getRedisNode());
+                f.write(reply);
+                session.flush(f);
+            }
+        };
+
+        SocketChannelContext context = new NioSocketChannelContext(new ServerConfiguration(6379));
+
+        SocketChannelAcceptor acceptor = new SocketChannelAcceptor(context);
+
+        context.addSessionEventListener(new LoggerSocketSEListener());
+
+        context.setIoEventHandleAdaptor(eventHandleAdaptor);
+
+        context.setProtocolFactory(new RedisProtocolFactory());
+
+        acceptor.bind();
+    }
+
+    @SuppressWarnings("unchecked")
+    static String execute(SocketSession session, RedisNode node) {
+        RedisNode[] children = node.getChildren();
+        if (children == null || children.length == 0) {
+            return error("empty command");
+        }
+        String[] cmd = new String[children.length];
+        for (int i = 0; i < cmd.length; i++) {
+            cmd[i] = String.valueOf(children[i].getValue());
+        }
+        String name = cmd[0].toUpperCase();
+        List<String[]> tx = (List<String[]>) session.getAttribute(TX_KEY);
+        if (tx != null) {
+            if ("EXEC".equals(name)) {
+                session.removeAttribute(TX_KEY);
+                StringBuilder b = new StringBuilder("*" + tx.size() + "\r\n");
+                for (String[] c : tx) {
+                    b.append(execute(c[0].toUpperCase(), c));
+                }
+                return b.toString();
+            }
+            tx.add(cmd);
+            return "+QUEUED\r\n";
+        }
+        if ("MULTI".equals(name)) {
+            session.setAttribute(TX_KEY, new ArrayList<String[]>());
+            return "+OK\r\n";
+        }
+        return execute(name, cmd);
+    }
+
+    static String execute(String name, String[] cmd) {
+        switch (name) {
+            case "PING":
+                return "+PONG\r\n";
+            case "SET":
+                strings.put(cmd[1], cmd[2]);
+                return "+OK\r\n";
+            case "GET":
+                return bulk(strings.get(cmd[1]));
+            case "DEL":
+                int count = 0;
+                for (int i = 1; i < cmd.length; i++) {
+                    if (strings.remove(cmd[i]) != null | hashes.remove(cmd[i]) != null) {
+                        count++;
+                    }
+                }
+                return ":" + count + "\r\n";
+            case "INCR":
+                synchronized (strings) {
+                    String v = strings.get(cmd[1]);
+                    long l;
+                    try {
+                        l = v == null ? 1 : Long.parseLong(v) + 1;
+                    } catch (NumberFormatException e) {
+                        return error("value is not an integer or out of range");
+                    }
+                    strings.put(cmd[1], String.valueOf(l));
+                    return ":" + l + "\r\n";
+                }
+            case "EXPIRE":
+                // 仅测试协议，不实现过期
+                return strings.containsKey(cmd[1]) ? ":1\r\n" : ":0\r\n";
+            case "MGET":
+                StringBuilder b = new StringBuilder("*" + (cmd.length - 1) + "\r\n");
+                for (int i = 1; i < cmd.length; i++) {
+                    b.append(bulk(strings.get(cmd[i])));
+                }
+                return b.toString();
+            case "MSET":
+                for (int i = 1; i + 1 < cmd.length; i += 2) {
+                    strings.put(cmd[i], cmd[i + 1]);
+                }
+                return "+OK\r\n";
+            case "HSET":
+                Map<String, String> hash = hashes.get(cmd[1]);
+                if (hash == null) {
+                    hash = new ConcurrentHashMap<>();
+                    hashes.put(cmd[1], hash);
+                }
+                return hash.put(cmd[2], cmd[3]) == null ? ":1\r\n" : ":0\r\n";
+            case "HGET":
+                hash = hashes.get(cmd[1]);
+                return bulk(hash == null ? null : hash.get(cmd[2]));
+            default:
+                return error("unknown command '" + cmd[0] + "'");
+        }
+    }
+
+    static String bulk(String value) {
+        if (value == null) {
+            return "$-1\r\n";
+        }
+        return "$" + value.getBytes().length + "\r\n" + value + "\r\n";
+    }
+
+    static String error(String message) {
+        return "-ERR " + message + "\r\n";
+    }
+
+}
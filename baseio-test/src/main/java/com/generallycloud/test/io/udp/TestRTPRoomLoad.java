@@ -0,0 +1,217 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.test.io.udp;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.locks.LockSupport;
+
+import com.generallycloud.baseio.acceptor.DatagramChannelAcceptor;
+import com.generallycloud.baseio.common.CloseUtil;
+import com.generallycloud.baseio.common.MathUtil;
+import com.generallycloud.baseio.component.DatagramChannelContext;
+import com.generallycloud.baseio.component.DatagramPacketAcceptor;
+import com.generallycloud.baseio.component.DatagramSession;
+import com.generallycloud.baseio.configuration.ServerConfiguration;
+import com.generallycloud.baseio.container.rtp.server.RTPRoom;
+import com.generallycloud.baseio.container.rtp.server.RTPRoomFactory;
+import com.generallycloud.baseio.container.rtp.server.RTPStream;
+import com.generallycloud.baseio.protocol.DatagramPacket;
+
+/**
+ * 本地压测RTPRoom的转发延迟，一个成员发送，其余成员接收，
+ * 参数：成员数列表(2,10,100,500) 每轮packet数(1000) 每秒packet数(500)
+ */
+public class TestRTPRoomLoad {
+
+    static final int        PORT = 18600;
+
+    static volatile RTPRoom room;
+
+    public static void main(String[] args) throws Exception {
+
+        String[] sizes = (args.length > 0 ? args[0] : "2,10,100,500").split(",");
+        int packets = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int rate = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+
+        DatagramPacketAcceptor acceptor = new DatagramPacketAcceptor() {
+
+            @Override
+            public void accept(DatagramSession session, DatagramPacket packet)
+                    throws IOException {
+                RTPRoom room = TestRTPRoomLoad.room;
+                if (packet.getType() == DatagramPacket.TYPE_ACTION) {
+                    room.join(session);
+                    return;
+                }
+                room.broadcast(session, packet);
+            }
+        };
+
+        DatagramChannelContext context = new DatagramChannelContext(new ServerConfiguration(PORT));
+        context.setDatagramPacketAcceptor(acceptor);
+        DatagramChannelAcceptor channelAcceptor = new DatagramChannelAcceptor(context);
+        channelAcceptor.bind();
+
+        try {
+            for (String size : sizes) {
+                run(Integer.parseInt(size.trim()), packets, rate);
+            }
+        } finally {
+            CloseUtil.unbind(channelAcceptor);
+        }
+    }
+
+    static void run(int size, int packets, int rate) throws Exception {
+
+        room = new RTPRoom(new RTPRoomFactory());
+
+        InetSocketAddress server = new InetSocketAddress("127.0.0.1", PORT);
+        Selector selector = Selector.open();
+        DatagramChannel[] members = new DatagramChannel[size];
+        for (int i = 0; i < size; i++) {
+            members[i] = DatagramChannel.open();
+            members[i].setOption(StandardSocketOptions.SO_RCVBUF, 1024 * 1024);
+            members[i].connect(server);
+            members[i].configureBlocking(false);
+            members[i].register(selector, SelectionKey.OP_READ);
+        }
+
+        // 每个成员发送一个action packet后由服务端加入房间
+        ByteBuffer hello = DatagramPacket.createSendPacket("{}".getBytes()).nioBuffer();
+        for (int retry = 0; room.getMembers().length < size && retry < 50; retry++) {
+            for (DatagramChannel member : members) {
+                hello.rewind();
+                member.write(hello);
+            }
+            Thread.sleep(20);
+        }
+        if (room.getMembers().length < size) {
+            throw new IOException("only " + room.getMembers().length + " members joined");
+        }
+
+        long[] latencies = new long[(size - 1) * packets];
+        Receiver receiver = new Receiver(selector, members[0], latencies);
+        Thread thread = new Thread(receiver, "rtp-load-receiver");
+        thread.start();
+
+        long timestamp = System.currentTimeMillis();
+        long interval = 1000000000L / rate;
+        long next = System.nanoTime();
+        byte[] payload = new byte[160];
+        for (int i = 0; i < packets; i++) {
+            while (System.nanoTime() < next) {
+                LockSupport.parkNanos(interval / 4);
+            }
+            next += interval;
+            MathUtil.long2Byte(payload, System.nanoTime(), 0);
+            DatagramPacket packet = DatagramPacket.createSendPacket(DatagramPacket.TYPE_DATA,
+                    timestamp, i, payload);
+            members[0].write(packet.nioBuffer());
+        }
+
+        Thread.sleep(1000);
+        receiver.running = false;
+        thread.join();
+
+        RTPStream stream = null;
+        for (DatagramSession session : room.getMembers()) {
+            if (room.getStream(session).getReceived() > 0) {
+                stream = room.getStream(session);
+            }
+        }
+        int count = receiver.count;
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        System.out.println(String.format(
+                "members: %4d, received: %7d/%7d, p50: %6dus, p90: %6dus, p99: %6dus, "
+                        + "p999: %6dus, max: %6dus, forwarded: %d, dropped: %d",
+                size, count, latencies.length, percentile(sorted, 50),
+                percentile(sorted, 90), percentile(sorted, 99), percentile(sorted, 99.9),
+                percentile(sorted, 100), stream == null ? 0 : stream.getForwarded(),
+                stream == null ? 0 : stream.getDropped()));
+
+        for (DatagramChannel member : members) {
+            CloseUtil.close(member);
+        }
+        CloseUtil.close(selector);
+    }
+
+    static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return -1;
+        }
+        int index = (int) Math.ceil(p / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1000;
+    }
+
+    static class Receiver implements Runnable {
+
+        Selector         selector;
+        DatagramChannel  sender;
+        long[]           latencies;
+        int              count;
+        volatile boolean running = true;
+
+        Receiver(Selector selector, DatagramChannel sender, long[] latencies) {
+            this.selector = selector;
+            this.sender = sender;
+            this.latencies = latencies;
+        }
+
+        @Override
+        public void run() {
+            ByteBuffer buffer = ByteBuffer.allocate(DatagramPacket.PACKET_MAX);
+            try {
+                while (running) {
+                    if (selector.select(10) == 0) {
+                        continue;
+                    }
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        DatagramChannel channel = (DatagramChannel) it.next().channel();
+                        it.remove();
+                        for (;;) {
+                            buffer.clear();
+                            if (channel.receive(buffer) == null) {
+                                break;
+                            }
+                            long now = System.nanoTime();
+                            if (channel == sender || buffer.position() < 21
+                                    || buffer.get(0) != DatagramPacket.TYPE_DATA) {
+                                continue;
+                            }
+                            if (count < latencies.length) {
+                                latencies[count++] = now - buffer.getLong(
+                                        DatagramPacket.PACKET_HEADER);
+                            }
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.test.io.udp;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+import com.generallycloud.baseio.acceptor.DatagramChannelAcceptor;
+import com.generallycloud.baseio.common.CloseUtil;
+import com.generallycloud.baseio.component.DatagramChannelContext;
+import com.generallycloud.baseio.component.DatagramPacketAcceptor;
+import com.generallycloud.baseio.component.DatagramSession;
+import com.generallycloud.baseio.configuration.ServerConfiguration;
+import com.generallycloud.baseio.container.rtp.server.RTPStream;
+import com.generallycloud.baseio.protocol.DatagramPacket;
+
+/**
+ * 验证timestamp切换时缓冲区中残留的乱序packet：切换后这些packet按late丢弃，
+ * 之后超时放弃等待时expected不会回退，不会再转发旧的packet，也不会重复NACK
+ */
+public class TestRTPStreamRollover {
+
+    static final int                 PORT = 18610;
+
+    static volatile DatagramSession  session;
+
+    static int                       failed;
+
+    public static void main(String[] args) throws Exception {
+
+        DatagramPacketAcceptor acceptor = new DatagramPacketAcceptor() {
+
+            @Override
+            public void accept(DatagramSession session, DatagramPacket packet)
+                    throws IOException {
+                TestRTPStreamRollover.session = session;
+            }
+        };
+
+        DatagramChannelContext context = new DatagramChannelContext(new ServerConfiguration(PORT));
+        context.setDatagramPacketAcceptor(acceptor);
+        DatagramChannelAcceptor channelAcceptor = new DatagramChannelAcceptor(context);
+        channelAcceptor.bind();
+
+        DatagramChannel client = DatagramChannel.open();
+        try {
+            client.connect(new InetSocketAddress("127.0.0.1", PORT));
+            ByteBuffer hello = DatagramPacket.createSendPacket("{}".getBytes()).nioBuffer();
+            for (int retry = 0; session == null && retry < 50; retry++) {
+                hello.rewind();
+                client.write(hello);
+                Thread.sleep(20);
+            }
+            if (session == null) {
+                throw new IOException("session not created");
+            }
+            run(new RTPStream(session, 64, 50));
+        } finally {
+            CloseUtil.close(client);
+            CloseUtil.unbind(channelAcceptor);
+        }
+
+        System.out.println(failed == 0 ? "ok" : "failed: " + failed);
+    }
+
+    static void run(RTPStream stream) {
+
+        check(stream, offer(stream, 1, 0, 0), "1:0");
+        // 1:1缺失，1:2、1:3先到达
+        check(stream, offer(stream, 1, 2, 1), "");
+        check(stream, offer(stream, 1, 3, 2), "");
+        // 新的timestamp从0开始，缓冲区中的1:2、1:3已不会再转发
+        check(stream, offer(stream, 2, 0, 3), "2:0");
+        equal("buffered after rollover", 0, stream.getBufferedSize());
+        equal("late after rollover", 2, stream.getLate());
+        check(stream, offer(stream, 2, 1, 4), "2:1");
+        // 2:2缺失，超时后放弃等待
+        check(stream, offer(stream, 2, 3, 5), "");
+        check(stream, offer(stream, 2, 4, 100), "2:3,2:4");
+        // 已经越过的packet迟到，不能让expected回退
+        check(stream, offer(stream, 1, 1, 101), "");
+        check(stream, offer(stream, 2, 5, 102), "2:5");
+
+        equal("received", 9, stream.getReceived());
+        equal("late", 3, stream.getLate());
+        equal("lost", 1, stream.getLost());
+        equal("nacks", 2, stream.getNacks());
+        equal("buffered", 0, stream.getBufferedSize());
+    }
+
+    static int offer(RTPStream stream, long timestamp, int sequenceNo, long now) {
+        DatagramPacket packet = DatagramPacket.createSendPacket(DatagramPacket.TYPE_DATA,
+                timestamp, sequenceNo, new byte[16]);
+        return stream.offer(packet, now);
+    }
+
+    static void check(RTPStream stream, int count, String expected) {
+        DatagramPacket[] output = stream.getOutput();
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                b.append(',');
+            }
+            b.append(output[i].getTimestamp()).append(':').append(output[i].getSequenceNo());
+            output[i] = null;
+        }
+        if (!expected.equals(b.toString())) {
+            failed++;
+            System.out.println("expected output [" + expected + "] but [" + b + "]");
+        }
+    }
+
+    static void equal(String name, long expected, long actual) {
+        if (expected != actual) {
+            failed++;
+            System.out.println(name + ": expected " + expected + " but " + actual);
+        }
+    }
+
+}
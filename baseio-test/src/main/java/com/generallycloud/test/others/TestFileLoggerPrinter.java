@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.test.others;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.generallycloud.baseio.log.FileLoggerPrinter;
+import com.generallycloud.baseio.log.LogOverflowPolicy;
+
+/**
+ * 多线程写FileLoggerPrinter，输出调用线程的耗时并在关闭后统计文件中的行数：
+ *
+ * <pre>
+ * [目录] [线程数] [每个线程的日志数] [溢出策略] [单个文件大小]
+ * </pre>
+ */
+public class TestFileLoggerPrinter {
+
+    public static void main(String[] args) throws Exception {
+        File dir = new File(args.length > 0 ? args[0] : "logs");
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        final int count = args.length > 2 ? Integer.parseInt(args[2]) : 200000;
+        LogOverflowPolicy policy = args.length > 3 ? LogOverflowPolicy.valueOf(args[3])
+                : LogOverflowPolicy.BLOCK;
+        long maxFileSize = args.length > 4 ? Long.parseLong(args[4]) : 1024 * 1024 * 16;
+        final FileLoggerPrinter printer = new FileLoggerPrinter(new File(dir, "test.log"),
+                1024 * 64, policy, maxFileSize, FileLoggerPrinter.ONE_DAY, 100);
+        final CountDownLatch latch = new CountDownLatch(threads);
+        final AtomicLong maxCost = new AtomicLong();
+        long start = System.currentTimeMillis();
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    long max = 0;
+                    for (int i = 0; i < count; i++) {
+                        long s = System.nanoTime();
+                        if ((i & 1) == 0) {
+                            printer.println("thread-" + id + " [INFO] 日志测试 info " + i);
+                        } else {
+                            printer.debugPrintln("thread-" + id + " [DEBUG] 日志测试 debug " + i);
+                        }
+                        max = Math.max(max, System.nanoTime() - s);
+                    }
+                    for (;;) {
+                        long m = maxCost.get();
+                        if (max <= m || maxCost.compareAndSet(m, max)) {
+                            break;
+                        }
+                    }
+                    latch.countDown();
+                }
+            }).start();
+        }
+        latch.await();
+        long cost = System.currentTimeMillis() - start;
+        printer.close();
+        long lines = 0;
+        for (File f : dir.listFiles()) {
+            if (f.getName().startsWith("test.log")) {
+                lines += countLines(f);
+            }
+        }
+        System.out.println("logs: " + (long) threads * count + ", cost: " + cost
+                + "ms, max println: " + maxCost.get() / 1000 + "us, lines: " + lines
+                + ", dropped: " + printer.getDropped());
+    }
+
+    static long countLines(File file) throws IOException {
+        long lines = 0;
+        for (byte b : Files.readAllBytes(file.toPath())) {
+            if (b == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2015-2017 GenerallyCloud.com
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.generallycloud.test.others;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.generallycloud.baseio.concurrent.Linkable;
+import com.generallycloud.baseio.concurrent.LinkedQueue;
+import com.generallycloud.baseio.concurrent.MpscLinkedQueue;
+import com.generallycloud.baseio.concurrent.ScspLinkedQueue;
+
+/**
+ * 对比多个线程同时flush同一个连接时，ReentrantLock + ScspLinkedQueue
+ * 与MpscLinkedQueue + CAS scheduled两种方式的吞吐
+ * 
+ * @author wangkai
+ *
+ */
+public class TestMpscLinkedQueue {
+
+    static final int PRODUCERS = 8;
+    static final int COUNT     = 1000000;
+
+    public static void main(String[] args) throws Exception {
+        for (int i = 0; i < 5; i++) {
+            long lock = test(new LockFlusher());
+            long mpsc = test(new MpscFlusher());
+            System.out.println("lock: " + lock + "ms, mpsc: " + mpsc + "ms");
+        }
+    }
+
+    static long test(final Flusher flusher) throws Exception {
+        final CountDownLatch latch = new CountDownLatch(PRODUCERS);
+        final long total = (long) PRODUCERS * COUNT;
+        Thread consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long c = 0;
+                for (; c < total;) {
+                    c += flusher.drain();
+                }
+            }
+        });
+        long start = System.currentTimeMillis();
+        consumer.start();
+        for (int i = 0; i < PRODUCERS; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < COUNT; j++) {
+                        flusher.flush(new Node());
+                    }
+                    latch.countDown();
+                }
+            }).start();
+        }
+        latch.await();
+        consumer.join();
+        return System.currentTimeMillis() - start;
+    }
+
+    interface Flusher {
+
+        void flush(Node node);
+
+        int drain();
+    }
+
+    // 旧的AbstractSocketChannel.doFlush
+    static class LockFlusher implements Flusher {
+
+        LinkedQueue<Node>      queue = new ScspLinkedQueue<>(new Node());
+        ReentrantLock          lock  = new ReentrantLock();
+        volatile boolean       dispatched;
+
+        @Override
+        public void flush(Node node) {
+            lock.lock();
+            try {
+                queue.offer(node);
+                if (queue.size() > 1) {
+                    return;
+                }
+                dispatched = true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int drain() {
+            int c = 0;
+            for (; queue.poll() != null;) {
+                c++;
+            }
+            return c;
+        }
+    }
+
+    // 新的AbstractSocketChannel.doFlush
+    static class MpscFlusher implements Flusher {
+
+        LinkedQueue<Node> queue     = new MpscLinkedQueue<>(new Node());
+        AtomicBoolean     scheduled = new AtomicBoolean();
+
+        @Override
+        public void flush(Node node) {
+            queue.offer(node);
+            if (scheduled.compareAndSet(false, true)) {
+                // dispatch
+            }
+        }
+
+        @Override
+        public int drain() {
+            int c = 0;
+            for (;;) {
+                for (; queue.poll() != null;) {
+                    c++;
+                }
+                scheduled.set(false);
+                if (queue.size() > 0 && scheduled.compareAndSet(false, true)) {
+                    continue;
+                }
+                return c;
+            }
+        }
+    }
+
+    static class Node implements Linkable {
+
+        private volatile Linkable next;
+
+        private boolean           validate = true;
+
+        @Override
+        public Linkable getNext() {
+            return next;
+        }
+
+        @Override
+        public void setNext(Linkable next) {
+            this.next = next;
+        }
+
+        @Override
+        public boolean isValidate() {
+            return validate;
+        }
+
+        @Override
+        public void setValidate(boolean validate) {
+            this.validate = validate;
+        }
+    }
+
+}
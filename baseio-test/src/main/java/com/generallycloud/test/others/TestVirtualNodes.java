@@ -19,162 +19,127 @@ import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import com.generallycloud.baseio.balance.router.VirtualMachine;
 import com.generallycloud.baseio.balance.router.VirtualNodes;
 
 /**
+ * VirtualNodes的基准测试，输出负载分布(max/avg)、增删machine时的
+ * remap比例(理想值约为1/n)以及查找的ns/op，
+ * 参数：machine数(10) 每单位权重的虚拟节点数(160) loadFactor(0.1)
+ *
  * @author wangkai
  *
  */
-public class TestVirtualNodes extends VirtualNodes<VirtualMachine> {
-
-    private VirtualMachine[] lastNodes;
+public class TestVirtualNodes {
 
-    public TestVirtualNodes(int nodes) {
-        super(nodes);
-    }
+    static final int KEYS = 100000;
 
     public static void main(String[] args) {
-        test3();
-    }
-
-    static void test2() {
-
-        int node = new Random().nextInt(1000000) + 100;
-
-        TestVirtualNodes group = new TestVirtualNodes(node);
-
-        int time = new Random().nextInt(50) + 1;
-        System.out.println(time);
-
-        List<StringMachine> machines = new ArrayList<>(time);
 
-        int machineIndex = 0;
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int replicas = args.length > 1 ? Integer.parseInt(args[1]) : 160;
+        double loadFactor = args.length > 2 ? Double.parseDouble(args[2]) : 0.1;
 
-        for (int i = 0; i < 5; i++) {
-            StringMachine m = new StringMachine(String.valueOf(machineIndex++));
-            machines.add(m);
-            group.addMachine(m);
-            group.count();
+        List<StringMachine> machines = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            machines.add(new StringMachine("10.0.0." + i + ":8600"));
         }
 
-        for (int i = 0; i < time; i++) {
-            int r = new Random().nextInt(100);
-            if (r > 35) {
-                StringMachine m = new StringMachine(String.valueOf(machineIndex++));
-                machines.add(m);
-                group.addMachine(m);
-                group.count();
-            } else {
-                if (machines.size() < 5) {
-                    continue;
-                }
-                int index = new Random().nextInt(machines.size());
-                group.removeMachine(machines.remove(index));
-                group.count();
-            }
+        VirtualNodes<StringMachine> ring = new VirtualNodes<>(replicas);
+        for (StringMachine m : machines) {
+            ring.addMachine(m);
         }
+        distribution("consistent hash", ring, machines);
+        remap(ring, machines, size);
+        lookup("consistent hash", ring);
 
-        System.out.println();
-
-    }
-
-    static void test3() {
-
-        int node = 9999;
-
-        int time = 10;
-
-        TestVirtualNodes group = new TestVirtualNodes(node);
-
-        List<StringMachine> machines = new ArrayList<>(time);
-
-        for (int i = 0; i < time; i++) {
-            group.lastNodes = group.nodes.clone();
-            StringMachine m = new StringMachine(String.valueOf(i));
-            machines.add(m);
-            group.addMachine(m);
-            group.count();
+        VirtualNodes<StringMachine> bounded = new VirtualNodes<>(replicas, loadFactor);
+        for (StringMachine m : machines) {
+            bounded.addMachine(m);
         }
+        distribution("bounded loads(" + loadFactor + ")", bounded, machines);
+        lookup("bounded loads(" + loadFactor + ")", bounded);
 
-        for (int i = 0; i < time; i++) {
-            group.lastNodes = group.nodes.clone();
-            int index = new Random().nextInt(machines.size());
-            group.removeMachine(machines.remove(index));
-            group.count();
+        // 权重为2的machine应当分到约两倍的key
+        VirtualNodes<StringMachine> weighted = new VirtualNodes<>(replicas);
+        for (int i = 0; i < size; i++) {
+            weighted.addMachine(machines.get(i), i == 0 ? 2 : 1);
         }
-
-        System.out.println();
+        distribution("weighted(first=2)", weighted, machines);
     }
 
-    static void test1() {
-
-        int node = new Random().nextInt(1000000) + 100;
-
-        TestVirtualNodes group = new TestVirtualNodes(node);
-
-        int time = new Random().nextInt(20) + 1;
-
-        List<StringMachine> machines = new ArrayList<>(time);
-
-        for (int i = 0; i < time; i++) {
-            StringMachine m = new StringMachine(String.valueOf(i));
-            machines.add(m);
-            group.addMachine(m);
-            group.count();
+    static void distribution(String name, VirtualNodes<StringMachine> ring,
+            List<StringMachine> machines) {
+        Map<StringMachine, Integer> counts = new LinkedHashMap<>();
+        for (StringMachine m : machines) {
+            counts.put(m, 0);
         }
-
-        for (int i = 0; i < time; i++) {
-            int index = new Random().nextInt(machines.size());
-            group.removeMachine(machines.remove(index));
-            group.count();
+        for (int i = 0; i < KEYS; i++) {
+            StringMachine m = ring.getMachine(i);
+            counts.put(m, counts.get(m) + 1);
+        }
+        int max = 0;
+        int min = Integer.MAX_VALUE;
+        for (int count : counts.values()) {
+            max = Math.max(max, count);
+            min = Math.min(min, count);
         }
+        double avg = (double) KEYS / machines.size();
+        System.out.println(String.format("%-22s max/avg: %.3f, min/avg: %.3f, %s", name,
+                max / avg, min / avg, counts.values()));
+    }
 
-        System.out.println();
+    static void remap(VirtualNodes<StringMachine> ring, List<StringMachine> machines, int size) {
+        StringMachine[] before = snapshot(ring);
+        StringMachine added = new StringMachine("10.0.0." + size + ":8600");
+        ring.addMachine(added);
+        StringMachine[] after = snapshot(ring);
+        System.out.println(String.format("%-22s remap: %.4f, ideal: %.4f", "add machine",
+                diff(before, after), 1d / (size + 1)));
+        ring.removeMachine(added);
+        after = snapshot(ring);
+        System.out.println(String.format("%-22s remap: %.4f", "remove added machine",
+                diff(before, after)));
+        ring.removeMachine(machines.get(0));
+        after = snapshot(ring);
+        System.out.println(String.format("%-22s remap: %.4f, ideal: %.4f", "remove machine",
+                diff(before, after), 1d / size));
+        ring.addMachine(machines.get(0));
     }
 
-    private void count() {
-        int max = -1;
-        int min = Integer.MAX_VALUE;
-        Map<VirtualMachine, AtomicInteger> map = new LinkedHashMap<>();
-        if (machines.isEmpty()) {
-            return;
-        }
-        for (VirtualMachine machine : machines) {
-            map.put(machine, new AtomicInteger());
+    static StringMachine[] snapshot(VirtualNodes<StringMachine> ring) {
+        StringMachine[] result = new StringMachine[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            result[i] = ring.getMachine(i);
         }
+        return result;
+    }
 
-        for (VirtualMachine node : nodes) {
-            AtomicInteger a = map.get(node);
-            if (a == null) {
-                continue;
+    static double diff(StringMachine[] before, StringMachine[] after) {
+        int count = 0;
+        for (int i = 0; i < before.length; i++) {
+            if (before[i] != after[i]) {
+                count++;
             }
-            a.incrementAndGet();
         }
+        return (double) count / before.length;
+    }
 
-        for (AtomicInteger a : map.values()) {
-            if (a.get() > max) {
-                max = a.get();
+    static void lookup(String name, VirtualNodes<StringMachine> ring) {
+        int loops = 5000000;
+        int sink = 0;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < loops; i++) {
+                sink += ring.getMachine(i * 31).hashCode();
             }
-            if (a.get() < min) {
-                min = a.get();
+            long cost = System.nanoTime() - start;
+            if (round == 2) {
+                System.out.println(String.format("%-22s lookup: %.1f ns/op (%d)", name,
+                        (double) cost / loops, sink & 1));
             }
         }
-
-        int notEqual = 0;
-        for (int j = 0; j < lastNodes.length; j++) {
-            if (lastNodes[j] != nodes[j]) {
-                notEqual++;
-            }
-        }
-
-        System.out.print(map);
-        //		ThreadUtil.sleep(1);
-        String str = (max - min) + "====" + (notEqual * 1f / lastNodes.length);
-        System.err.println(str);
     }
 
     static class StringMachine implements VirtualMachine {